@@ -0,0 +1,332 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+
+package net.sf.JRecord.Details;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import net.sf.JRecord.ByteIO.AbstractByteReader;
+import net.sf.JRecord.ByteIO.ByteIOProvider;
+import net.sf.JRecord.ByteIO.IByteRecordReader;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Common.RecordException;
+
+/**
+ * Compact in-memory store for a large number of records (e.g. for sorting, joining,
+ * lookups or comparing files). Rather than holding a <b>Line</b> and a <b>byte[]</b>
+ * per record, the raw record bytes are appended to large (by default off-heap / direct)
+ * byte slabs with a packed index of slab-position, length and record-type for each record.
+ * That is about 14 bytes of heap per record instead of 80+ bytes.
+ *
+ * <p>Records are retrieved as a new line ({@link #getLine(int)}) or through a
+ * <i>flyweight</i> line ({@link #view(int, Line)}) that is re-pointed at each record;
+ * the record bytes are copied into the line's existing buffer, so no objects are created
+ * when the records are the same length.
+ *
+ * <pre>
+ *     RecordStore store = new RecordStore(layout);
+ *     store.load(fileName);
+ *
+ *     Line line = null;
+ *     for (int i = 0; i < store.size(); i++) {
+ *         line = store.view(i, line);
+ *            ...
+ *     }
+ *     store.close();
+ * </pre>
+ *
+ * <p>This class is not thread safe.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class RecordStore {
+
+	public static final int DEFAULT_SLAB_SIZE = 16 * 1024 * 1024;
+
+	private static final int INITIAL_INDEX_SIZE = 1024;
+
+	private final LayoutDetail layout;
+	private final int slabSize;
+	private final boolean direct;
+
+	private final ArrayList<ByteBuffer> slabs = new ArrayList<ByteBuffer>();
+	private ByteBuffer currentSlab = null;
+	private long bytesStored = 0;
+
+	private long[] positions = new long[INITIAL_INDEX_SIZE];
+	private int[] lengths = new int[INITIAL_INDEX_SIZE];
+	private short[] recordTypes = new short[INITIAL_INDEX_SIZE];
+	private int count = 0;
+
+	private Line typeLine = null;
+
+	/**
+	 * Create a record store using off-heap (direct) slabs of the default size
+	 * @param layout record layout of the records
+	 */
+	public RecordStore(LayoutDetail layout) {
+		this(layout, DEFAULT_SLAB_SIZE, true);
+	}
+
+	/**
+	 * Create a record store
+	 * @param layout record layout of the records
+	 * @param slabSize size of each slab (records larger than this get their own slab)
+	 * @param direct wether to allocate the slabs off-heap (direct byte buffers)
+	 */
+	public RecordStore(LayoutDetail layout, int slabSize, boolean direct) {
+		if (slabSize <= 0) {
+			throw new IllegalArgumentException("Invalid slab size: " + slabSize);
+		}
+		this.layout = layout;
+		this.slabSize = slabSize;
+		this.direct = direct;
+	}
+
+	/**
+	 * Load all the records in a file
+	 * @param fileName name of the file to be loaded
+	 * @return number of records loaded
+	 * @throws IOException any IO error
+	 */
+	public int load(String fileName) throws IOException {
+		AbstractByteReader reader = ByteIOProvider.getInstance().getByteReader(layout);
+		if (reader == null) {
+			throw new RecordException("There is no Byte-Reader for File Structure: " + layout.getFileStructure());
+		}
+		reader.setLineLength(layout.getMaximumRecordLength());
+		reader.open(fileName);
+		try {
+			return load(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Load all the remaining records from a byte reader
+	 * @param reader open byte reader
+	 * @return number of records loaded
+	 * @throws IOException any IO error
+	 */
+	public int load(IByteRecordReader reader) throws IOException {
+		int start = count;
+		byte[] rec;
+		boolean multipleRecords = layout.getRecordCount() > 1;
+
+		while ((rec = reader.read()) != null) {
+			int recordType = Constants.NULL_INTEGER;
+			if (multipleRecords) {
+				if (typeLine == null) {
+					typeLine = new Line(layout, rec);
+				} else {
+					typeLine.setData(rec);
+				}
+				recordType = typeLine.getPreferredLayoutIdx();
+			}
+			add(rec, 0, rec.length, recordType);
+		}
+		return count - start;
+	}
+
+	/**
+	 * Add a line to the store
+	 * @param line line to be added
+	 * @return index of the new record
+	 */
+	public int add(AbstractLine line) {
+		byte[] rec = line.getData();
+		return add(rec, 0, rec.length, line.getPreferredLayoutIdx());
+	}
+
+	/**
+	 * Add a record to the store
+	 * @param rec record to be added
+	 * @return index of the new record
+	 */
+	public int add(byte[] rec) {
+		return add(rec, 0, rec.length, Constants.NULL_INTEGER);
+	}
+
+	/**
+	 * Add a record to the store
+	 * @param buf buffer holding the record
+	 * @param start start of the record in the buffer
+	 * @param len record length
+	 * @param recordType record type (index of the record in the layout) or Constants.NULL_INTEGER when not known
+	 * @return index of the new record
+	 */
+	public int add(byte[] buf, int start, int len, int recordType) {
+		if (count == Integer.MAX_VALUE) {
+			throw new RecordException("Record Store is full");
+		}
+		if (currentSlab == null || currentSlab.remaining() < len) {
+			currentSlab = allocate(Math.max(slabSize, len));
+			slabs.add(currentSlab);
+		}
+		if (count == positions.length) {
+			int newSize = (int) Math.min(Integer.MAX_VALUE, positions.length * 2L);
+			positions = Arrays.copyOf(positions, newSize);
+			lengths = Arrays.copyOf(lengths, newSize);
+			recordTypes = Arrays.copyOf(recordTypes, newSize);
+		}
+
+		positions[count] = (((long) (slabs.size() - 1)) << 32) | currentSlab.position();
+		lengths[count] = len;
+		recordTypes[count] = recordType < 0 || recordType > Short.MAX_VALUE ? -1 : (short) recordType;
+		currentSlab.put(buf, start, len);
+		bytesStored += len;
+
+		return count++;
+	}
+
+	/**
+	 * @return number of records in the store
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return the record layout
+	 */
+	public LayoutDetail getLayout() {
+		return layout;
+	}
+
+	/**
+	 * @return number of record bytes held in the store
+	 */
+	public long getBytesStored() {
+		return bytesStored;
+	}
+
+	/**
+	 * @param idx record index
+	 * @return length of a record
+	 */
+	public int getRecordLength(int idx) {
+		checkIndex(idx);
+		return lengths[idx];
+	}
+
+	/**
+	 * @param idx record index
+	 * @return the record type (index of the record in the layout) or Constants.NULL_INTEGER if it is not known
+	 */
+	public int getRecordType(int idx) {
+		checkIndex(idx);
+		return recordTypes[idx] < 0 ? Constants.NULL_INTEGER : recordTypes[idx];
+	}
+
+	/**
+	 * Get a copy of a record
+	 * @param idx record index
+	 * @return record bytes
+	 */
+	public byte[] getRecord(int idx) {
+		checkIndex(idx);
+		byte[] rec = new byte[lengths[idx]];
+		copyRecord(idx, rec);
+		return rec;
+	}
+
+	/**
+	 * Get a record as a new line
+	 * @param idx record index
+	 * @return the line
+	 */
+	public AbstractLine getLine(int idx) {
+		return view(idx, null);
+	}
+
+	/**
+	 * Re-point a (flyweight) line at a record. The record is copied into the
+	 * line's existing data buffer when it is the same length. Changes to the line
+	 * are not reflected in the store.
+	 *
+	 * @param idx record index
+	 * @param line line to be re-pointed (a new line is created when this is null)
+	 * @return the line (holding the record)
+	 */
+	public Line view(int idx, Line line) {
+		checkIndex(idx);
+		int len = lengths[idx];
+		byte[] data = line == null || line.data.length != len ? new byte[len] : line.data;
+
+		copyRecord(idx, data);
+		if (line == null) {
+			line = new Line(layout, data);
+		} else {
+			line.setData(data);
+		}
+
+		if (recordTypes[idx] >= 0) {
+			line.preferredLayout = recordTypes[idx];
+		}
+		return line;
+	}
+
+	/**
+	 * Release the memory used by the store
+	 */
+	public void close() {
+		slabs.clear();
+		currentSlab = null;
+		positions = new long[0];
+		lengths = new int[0];
+		recordTypes = new short[0];
+		count = 0;
+		bytesStored = 0;
+	}
+
+	private void copyRecord(int idx, byte[] rec) {
+		long pos = positions[idx];
+		ByteBuffer slab = slabs.get((int) (pos >>> 32));
+		int savedPosition = slab.position();
+
+		slab.position((int) pos);
+		slab.get(rec, 0, lengths[idx]);
+		slab.position(savedPosition);
+	}
+
+	private ByteBuffer allocate(int size) {
+		return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+	}
+
+	private void checkIndex(int idx) {
+		if (idx < 0 || idx >= count) {
+			throw new IndexOutOfBoundsException("Invalid record index: " + idx + ", size=" + count);
+		}
+	}
+}
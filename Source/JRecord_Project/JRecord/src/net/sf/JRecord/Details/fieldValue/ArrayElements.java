@@ -0,0 +1,332 @@
+package net.sf.JRecord.Details.fieldValue;
+
+import java.math.BigDecimal;
+
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.IFieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.Line;
+import net.sf.JRecord.Types.Type;
+import net.sf.JRecord.Types.TypeManager;
+import net.sf.JRecord.Types.smallBin.ITypeBinaryExtendedNumeric;
+import net.sf.JRecord.cgen.def.IArrayAnyDimension;
+
+/**
+ * Bulk access to the elements of an array (Cobol Occurs). The element stride is
+ * calculated once (when the class is created) and Occurs-Depending bounds are applied
+ * once per call, the elements are then decoded / updated in a loop using the
+ * first array field as a template.
+ *
+ * <p>Elements are stored row-major using the maximum array sizes (i.e. for a
+ * 12 x 31 array, element (m, d) is stored at m * 31 + d); elements that are not
+ * in the record (Occurs Depending) are left unchanged.
+ *
+ * <p>A field definition is only created for each element for multi-dimension
+ * Occurs-Depending arrays or when the line is not a byte based line.
+ *
+ * @author Bruce Martin
+ *
+ */
+final class ArrayElements {
+
+	private static final long[] POT = {1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000,
+			10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+			1000000000000000L, 10000000000000000L, 100000000000000000L,
+			1000000000000000000L};
+
+	private final IArrayAnyDimension array;
+	private final IFieldDetail template;
+	private final Type type;
+	private final ITypeBinaryExtendedNumeric binType;
+	private final int[] lengths, strides;
+	private final boolean dependingOn;
+
+	ArrayElements(IArrayAnyDimension array, ITypeBinaryExtendedNumeric binType) {
+		this.array = array;
+		this.binType = binType;
+		this.template = array.getFirstField();
+		this.type = TypeManager.getInstance().getType(template.getType());
+		this.dependingOn = template instanceof FieldDetail
+						&& ((FieldDetail) template).getDependingOnDtls() != null;
+
+		int count = array.getIndexCount();
+		lengths = new int[count];
+		strides = new int[count];
+		for (int i = 0; i < count; i++) {
+			lengths[i] = array.getArrayLength(i);
+			if (lengths[i] > 1) {
+				int[] idx = new int[count];
+				idx[i] = 1;
+				strides[i] = array.getField(idx).getPos() - template.getPos();
+			}
+		}
+	}
+
+	/**
+	 * Get the elements as longs, each element is converted the same way as
+	 * {@link IFieldValue#asLong()} converts it (half-up rounding for the optimized small binary
+	 * types, truncation for all other types)
+	 * @param line line to retrieve the values from
+	 * @param dest where to store the values
+	 * @param indexes leading array indexes (may be empty)
+	 * @return number of elements in the record
+	 */
+	int getLongs(AbstractLine line, long[] dest, int[] indexes) {
+		Slice s = slice(line, indexes, dest.length);
+		byte[] data = s.positions == null ? null : line.getData();
+
+		for (int i = 0; i < s.size; i++) {
+			if (s.positions == null) {
+				if (s.fields[i] != null) {
+					dest[i] = toLong(line.getField(s.fields[i]));
+				}
+			} else if (s.positions[i] > 0) {
+				dest[i] = binType == null
+						? toLong(type.getField(data, s.positions[i], template))
+						: roundedLong(binType.asUnscaledLong(data, s.positions[i], template));
+			}
+		}
+		return s.count;
+	}
+
+	/**
+	 * Get the elements as BigDecimals
+	 * @param line line to retrieve the values from
+	 * @param dest where to store the values
+	 * @param indexes leading array indexes (may be empty)
+	 * @return number of elements in the record
+	 */
+	int getBigDecimals(AbstractLine line, BigDecimal[] dest, int[] indexes) {
+		Slice s = slice(line, indexes, dest.length);
+		byte[] data = s.positions == null ? null : line.getData();
+
+		for (int i = 0; i < s.size; i++) {
+			if (s.positions == null) {
+				if (s.fields[i] != null) {
+					dest[i] = toBigDecimal(line.getField(s.fields[i]));
+				}
+			} else if (s.positions[i] > 0) {
+				dest[i] = binType == null
+						? toBigDecimal(type.getField(data, s.positions[i], template))
+						: BigDecimal.valueOf(binType.asUnscaledLong(data, s.positions[i], template), template.getDecimal());
+			}
+		}
+		return s.count;
+	}
+
+	/**
+	 * Get the elements as Strings
+	 * @param line line to retrieve the values from
+	 * @param dest where to store the values
+	 * @param indexes leading array indexes (may be empty)
+	 * @return number of elements in the record
+	 */
+	int getStrings(AbstractLine line, String[] dest, int[] indexes) {
+		Slice s = slice(line, indexes, dest.length);
+		byte[] data = s.positions == null ? null : line.getData();
+
+		for (int i = 0; i < s.size; i++) {
+			if (s.positions == null) {
+				if (s.fields[i] != null) {
+					dest[i] = toString(line.getField(s.fields[i]));
+				}
+			} else if (s.positions[i] > 0) {
+				dest[i] = binType == null
+						? toString(type.getField(data, s.positions[i], template))
+						: BigDecimal.valueOf(binType.asUnscaledLong(data, s.positions[i], template), template.getDecimal()).toString();
+			}
+		}
+		return s.count;
+	}
+
+	/**
+	 * Update the elements
+	 * @param line line to be updated
+	 * @param values new values
+	 * @param indexes leading array indexes (may be empty)
+	 * @return number of elements updated
+	 */
+	int setLongs(AbstractLine line, long[] values, int[] indexes) {
+		Slice s = slice(line, indexes, values.length);
+
+		if (s.positions == null) {
+			for (int i = 0; i < s.size; i++) {
+				if (s.fields[i] != null) {
+					line.setField(s.fields[i], Long.valueOf(values[i]));
+				}
+			}
+			return s.count;
+		}
+
+		Line l = (Line) line;
+		int end = 0;
+		for (int i = 0; i < s.size; i++) {
+			end = Math.max(end, s.positions[i]);
+		}
+		if (end > 0) {
+			l.ensureCapacity(end + template.getLen() - 1);
+		}
+		byte[] data = l.getData();
+		int decimal = template.getDecimal();
+		for (int i = 0; i < s.size; i++) {
+			if (s.positions[i] <= 0) {
+			} else if (binType != null) {
+				binType.setUnscaledLong(data, s.positions[i], template, values[i] * POT[decimal]);
+			} else if (type.setField(data, s.positions[i], template, Long.valueOf(values[i])) != data) {
+				throw new RecordException("Unexpected record resize updating: " + template.getName());
+			}
+		}
+		return s.count;
+	}
+
+	/**
+	 * Work out the position (or field definition) of each element to be processed
+	 */
+	private Slice slice(AbstractLine line, int[] indexes, int destLength) {
+		int lead = indexes == null ? 0 : indexes.length;
+		if (lead >= lengths.length) {
+			throw new RecordException("You must supply less than " + lengths.length + " indexes");
+		}
+		int size = 1;
+		int[] idx = new int[lengths.length];
+		for (int i = 0; i < lead; i++) {
+			if (indexes[i] < 0 || indexes[i] >= lengths[i]) {
+				throw new RecordException("Array index " + i + " is out of range: " + indexes[i]);
+			}
+			idx[i] = indexes[i];
+		}
+		for (int i = lead; i < lengths.length; i++) {
+			size *= lengths[i];
+		}
+		if (destLength < size) {
+			throw new RecordException("Array must hold " + size + " elements, it only holds " + destLength);
+		}
+
+		Slice s = new Slice(size);
+		boolean byteAccess = line instanceof Line && template.isFixedFormat();
+
+		if (byteAccess && ! (dependingOn && lengths.length > 1)) {
+			int count = size;
+			if (dependingOn) {
+				count = occursCount(line);
+			}
+			s.positions = new int[size];
+			if (count > 0) {
+				fillPositions(s.positions, lead, array.getField(idx).calculateActualPosition(line), 0);
+				for (int i = count; i < size; i++) {
+					s.positions[i] = 0;
+				}
+			}
+			s.count = count;
+			return s;
+		}
+
+		s.fields = new IFieldDetail[size];
+		if (byteAccess) {
+			s.positions = new int[size];
+		}
+		for (int i = 0; i < size; i++) {
+			IFieldDetail f = array.getField(idx);
+			if ((! dependingOn) || line.isFieldInLine(f)) {
+				s.fields[i] = f;
+				if (byteAccess) {
+					s.positions[i] = f.calculateActualPosition(line);
+				}
+				s.count += 1;
+			}
+			for (int j = idx.length - 1; j >= lead && ++idx[j] >= lengths[j]; j--) {
+				idx[j] = 0;
+			}
+		}
+		if (byteAccess) {
+			s.fields = null;
+		}
+		return s;
+	}
+
+	private int fillPositions(int[] positions, int dim, int pos, int next) {
+		if (dim == lengths.length - 1) {
+			for (int i = 0; i < lengths[dim]; i++) {
+				positions[next++] = pos;
+				pos += strides[dim];
+			}
+		} else {
+			for (int i = 0; i < lengths[dim]; i++) {
+				next = fillPositions(positions, dim + 1, pos, next);
+				pos += strides[dim];
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Get the number of elements of a one dimension Occurs-Depending array
+	 * in the record
+	 */
+	private int occursCount(AbstractLine line) {
+		int low = 0, high = lengths[0];
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (line.isFieldInLine(array.getField(mid))) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private long roundedLong(long unscaled) {
+		int decimal = template.getDecimal();
+		if (decimal == 0) {
+			return unscaled;
+		}
+		unscaled = unscaled / POT[decimal - 1];
+		return (unscaled >= 0 ? (unscaled + 5) : (unscaled - 5)) / 10;
+	}
+
+	private static long toLong(Object o) {
+		if (o == null) {
+			return 0;
+		} else if (o instanceof Number) {
+			return ((Number) o).longValue();
+		}
+		String s = o.toString();
+		if (s.trim().length() == 0) {
+			return 0;
+		}
+		if (s.indexOf(".") >= 0) {
+			return new BigDecimal(s).longValue();
+		}
+		return Long.parseLong(s);
+	}
+
+	private static BigDecimal toBigDecimal(Object o) {
+		if (o == null) {
+			return null;
+		} else if (o instanceof BigDecimal) {
+			return (BigDecimal) o;
+		}
+		return new BigDecimal(o.toString());
+	}
+
+	private static String toString(Object o) {
+		return o == null ? "" : o.toString();
+	}
+
+	/**
+	 * Elements to be processed; an element is in the record if its position is
+	 * greater than zero (positions) or its field definition is not null (fields)
+	 */
+	private static final class Slice {
+		final int size;
+		int count = 0;
+		int[] positions;
+		IFieldDetail[] fields;
+
+		Slice(int size) {
+			this.size = size;
+		}
+	}
+}
@@ -1,11 +1,14 @@
 package net.sf.JRecord.Details.fieldValue;
 
+import java.math.BigDecimal;
+
 import net.sf.JRecord.Details.AbstractLine;
 import net.sf.JRecord.cgen.def.IArrayAnyDimension;
 
 public class ArrayFieldValue extends FieldValue implements IArrayFieldValue {
 
 	final IArrayAnyDimension array;
+	private ArrayElements elements;
 	ArrayFieldValue(AbstractLine theLine,  IArrayAnyDimension array) {
 		super(theLine, array.getFirstField());
 		this.array = array;
@@ -20,4 +23,31 @@ public class ArrayFieldValue extends FieldValue implements IArrayFieldValue {
 		return this;
 	}
 
+	@Override
+	public int getLongs(long[] dest, int... indexs) {
+		return elements().getLongs(getLine(), dest, indexs);
+	}
+
+	@Override
+	public int getBigDecimals(BigDecimal[] dest, int... indexs) {
+		return elements().getBigDecimals(getLine(), dest, indexs);
+	}
+
+	@Override
+	public int getStrings(String[] dest, int... indexs) {
+		return elements().getStrings(getLine(), dest, indexs);
+	}
+
+	@Override
+	public int setLongs(long[] values, int... indexs) {
+		return elements().setLongs(getLine(), values, indexs);
+	}
+
+	private ArrayElements elements() {
+		if (elements == null) {
+			elements = new ArrayElements(array, null);
+		}
+		return elements;
+	}
+
 }
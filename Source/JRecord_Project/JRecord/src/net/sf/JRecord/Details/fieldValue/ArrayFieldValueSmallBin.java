@@ -1,5 +1,7 @@
 package net.sf.JRecord.Details.fieldValue;
 
+import java.math.BigDecimal;
+
 import net.sf.JRecord.Common.IFieldDetail;
 import net.sf.JRecord.Details.Line;
 import net.sf.JRecord.Types.smallBin.ITypeBinaryExtendedNumeric;
@@ -8,9 +10,13 @@ import net.sf.JRecord.cgen.def.IArrayAnyDimension;
 public class ArrayFieldValueSmallBin extends FieldValueSmallBin implements IArrayFieldValue {
 
 	final IArrayAnyDimension array;
+	private final ITypeBinaryExtendedNumeric binType;
+	private ArrayElements elements;
+
 	ArrayFieldValueSmallBin(Line theLine, IFieldDetail field, ITypeBinaryExtendedNumeric type, IArrayAnyDimension array) {
 		super(theLine, field, type);
 		this.array = array;
+		this.binType = type;
 	}
 
 	/* (non-Javadoc)
@@ -22,4 +28,31 @@ public class ArrayFieldValueSmallBin extends FieldValueSmallBin implements IArra
 		return this;
 	}
 
+	@Override
+	public int getLongs(long[] dest, int... indexs) {
+		return elements().getLongs(theLine, dest, indexs);
+	}
+
+	@Override
+	public int getBigDecimals(BigDecimal[] dest, int... indexs) {
+		return elements().getBigDecimals(theLine, dest, indexs);
+	}
+
+	@Override
+	public int getStrings(String[] dest, int... indexs) {
+		return elements().getStrings(theLine, dest, indexs);
+	}
+
+	@Override
+	public int setLongs(long[] values, int... indexs) {
+		return elements().setLongs(theLine, values, indexs);
+	}
+
+	private ArrayElements elements() {
+		if (elements == null) {
+			elements = new ArrayElements(array, binType);
+		}
+		return elements;
+	}
+
 }
@@ -133,6 +133,13 @@ public class FieldValue extends BaseFieldValue implements IFieldValueUpdLine {
 //		return ret;
 	}
 
+	/**
+	 * @return the line the field value belongs to
+	 */
+	final AbstractLine getLine() {
+		return theLine;
+	}
+
 	private IFieldDetail getField() {
 		IFieldDetail fld = field;
 		
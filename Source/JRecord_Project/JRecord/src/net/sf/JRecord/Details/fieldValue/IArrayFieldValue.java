@@ -1,5 +1,7 @@
 package net.sf.JRecord.Details.fieldValue;
 
+import java.math.BigDecimal;
+
 import net.sf.JRecord.Details.AbstractLine;
 import net.sf.JRecord.Details.Line;
 
@@ -7,4 +9,53 @@ public interface IArrayFieldValue {// extends IFieldValueUpdLine {
 	public IFieldValueUpdLine setLine(Line line);
 	public IFieldValueUpdLine setLine(AbstractLine line);
 	public IFieldValue setIndex(int... indexs);
+
+	/**
+	 * Get all the array elements (or the elements for the leading index's supplied) as longs.
+	 * Elements are stored row-major, i.e. for a 12 x 31 array the element (m, d) is
+	 * stored in <b>dest[m * 31 + d]</b>. Elements that are not in the record
+	 * (Occurs Depending) are not updated. Each element is converted exactly as
+	 * {@link IFieldValue#asLong()} would convert it.
+	 *
+	 * @param dest where to store the values (must hold the maximum number of elements)
+	 * @param indexs leading array index's, e.g. getLongs(dest, month) for a 12 x 31 array
+	 * returns the 31 days for the month
+	 *
+	 * @return number of elements in the record
+	 */
+	public int getLongs(long[] dest, int... indexs);
+
+	/**
+	 * Get all the array elements (or the elements for the leading index's supplied) as BigDecimals.
+	 * See {@link #getLongs(long[], int...)} for details.
+	 *
+	 * @param dest where to store the values
+	 * @param indexs leading array index's
+	 *
+	 * @return number of elements in the record
+	 */
+	public int getBigDecimals(BigDecimal[] dest, int... indexs);
+
+	/**
+	 * Get all the array elements (or the elements for the leading index's supplied) as Strings.
+	 * See {@link #getLongs(long[], int...)} for details.
+	 *
+	 * @param dest where to store the values
+	 * @param indexs leading array index's
+	 *
+	 * @return number of elements in the record
+	 */
+	public int getStrings(String[] dest, int... indexs);
+
+	/**
+	 * Update all the array elements (or the elements for the leading index's supplied).
+	 * Values are stored row-major (see {@link #getLongs(long[], int...)}); elements that
+	 * are not in the record (Occurs Depending) are not updated.
+	 *
+	 * @param values new values
+	 * @param indexs leading array index's
+	 *
+	 * @return number of elements updated
+	 */
+	public int setLongs(long[] values, int... indexs);
 }
@@ -37,13 +37,20 @@ package net.sf.JRecord.IO;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigDecimal;
 
+import net.sf.JRecord.ByteIO.ReadPosition;
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.IOMetrics;
+import net.sf.JRecord.Common.RecordException;
 import net.sf.JRecord.Details.AbstractLine;
 import net.sf.JRecord.Details.DefaultLineProvider;
 import net.sf.JRecord.Details.LayoutDetail;
 import net.sf.JRecord.Details.LineProvider;
+import net.sf.JRecord.Details.RecordDetail;
 import net.sf.JRecord.Details.SpecialRecordIds;
 import net.sf.JRecord.External.ExternalRecord;
+import net.sf.JRecord.Types.TypeManager;
 
 
 
@@ -81,6 +88,7 @@ public abstract class AbstractLineReader implements IReadLine {
 	private LineProvider lineProvider;
 	private LayoutDetail layout = null;
 	private IReadLine filter = null;
+	private IOMetrics metrics = null;
 
 
 	/**
@@ -125,7 +133,8 @@ public abstract class AbstractLineReader implements IReadLine {
      * @throws IOException any IOerror
      */
     public void open(String fileName, LayoutDetail pLayout) throws IOException {
-        open(new FileInputStream(fileName), pLayout);
+    	InputStream in = new FileInputStream(fileName);
+        open(metrics == null ? in : metrics.wrap(in), pLayout);
 
         if (layout == null) {
             setLayout(pLayout);
@@ -172,12 +181,58 @@ public abstract class AbstractLineReader implements IReadLine {
      * @throws IOException io error
      */
     public final AbstractLine read() throws IOException {
+    	if (metrics != null) {
+    		return meteredRead();
+    	}
     	if (filter == null) {
     		return readImplementation();
     	}
     	return filter.read();
     }
 
+    /**
+     * Read a line updating the metrics (records, record-types, decode time)
+     */
+    private AbstractLine meteredRead() throws IOException {
+    	IOMetrics.Counters c = metrics.counters();
+    	boolean timed = c.isTimed();
+    	long start = timed ? System.nanoTime() : 0;
+    	long io = c.getIoNanos();
+    	AbstractLine line = filter == null ? readImplementation() : filter.read();
+
+    	if (line != null) {
+    		int idx = line.getPreferredLayoutIdx();
+    		LayoutDetail l = line.getLayout();
+
+    		c.recordRead();
+    		c.recordType(idx, idx >= 0 && l != null ? l.getRecord(idx).getRecordName() : null);
+    		if (idx >= 0 && l != null && c.isCheckNumericFields()) {
+    			checkNumericFields(c, line, l.getRecord(idx));
+    		}
+    	}
+    	if (timed) {
+    		c.addDecodeNanos(System.nanoTime() - start - (c.getIoNanos() - io));
+    	}
+    	return line;
+    }
+
+    private static void checkNumericFields(IOMetrics.Counters c, AbstractLine line, RecordDetail rec) {
+    	for (int i = 0; i < rec.getFieldCount(); i++) {
+    		FieldDetail f = rec.getField(i);
+    		if (TypeManager.isNumeric(f.getType())) {
+    			try {
+    				Object o = line.getField(f);
+    				String s = o == null ? "" : o.toString().trim();
+    				if (s.length() > 0) {
+    					new BigDecimal(s);
+    				}
+    			} catch (RuntimeException e) {
+    				c.invalidNumericField();
+    			}
+    		}
+    	}
+    }
+
     /**
      * Read one line from the input file
      *
@@ -195,6 +250,35 @@ public abstract class AbstractLineReader implements IReadLine {
     public abstract void close() throws IOException;
 
 
+    /**
+     * Open a file at a position (checkpoint) previously returned by {@link #getPosition()}.
+     * Only readers based on a Byte-Reader (Fixed Length, VB, Text etc) support
+     * Checkpoint / Restart.
+     *
+     * @param fileName file to be opened
+     * @param pLayout record layout
+     * @param position position to start reading from
+     *
+     * @throws IOException any IO error
+     */
+    public void open(String fileName, LayoutDetail pLayout, ReadPosition position) throws IOException {
+    	throw new RecordException("Restart is not supported by " + getClass().getName());
+    }
+
+
+    /**
+     * Get the current position (checkpoint) in the file. The file can be reopened at
+     * this position using {@link #open(String, LayoutDetail, ReadPosition)}.
+     *
+     * @return the current position (or null if reading can not be restarted at the current position)
+     *
+     * @throws IOException any IO error
+     */
+    public ReadPosition getPosition() throws IOException {
+    	throw new RecordException("Checkpoint / Restart is not supported by " + getClass().getName());
+    }
+
+
 
 	/**
 	 * Read a complete buffers worth of data into buf from a input stream.
@@ -278,6 +362,24 @@ public abstract class AbstractLineReader implements IReadLine {
     }
 
 
+	/**
+	 * Count the records read (in total, for each Record-Type etc) in metrics. When the file is
+	 * opened by name the bytes read and time spent reading are also counted; when
+	 * opening a stream, use {@link IOMetrics#wrap(InputStream)} to count them.
+	 *
+	 * @param metrics where the counts are stored (null turns the metrics off)
+	 */
+	public final void setMetrics(IOMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return the metrics (or null)
+	 */
+	public final IOMetrics getMetrics() {
+		return metrics;
+	}
+
 	/**
 	 * @return the lineProvider
 	 */
@@ -38,6 +38,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import net.sf.JRecord.Common.IOMetrics;
 import net.sf.JRecord.Details.AbstractLine;
 import net.sf.JRecord.Details.LayoutDetail;
 
@@ -62,6 +63,7 @@ public abstract class AbstractLineWriter {
 
     public static final String NOT_OPEN_MESSAGE = "File has not been opened";
 
+	private IOMetrics metrics = null;
 
     /**
      * Open file for input
@@ -71,7 +73,8 @@ public abstract class AbstractLineWriter {
      * @throws IOException any IOerror
      */
     public void open(String fileName) throws IOException {
-        open(new FileOutputStream(fileName));
+    	OutputStream out = new FileOutputStream(fileName);
+        open(metrics == null ? out : metrics.wrap(out));
     }
 
 
@@ -86,6 +89,19 @@ public abstract class AbstractLineWriter {
     throws IOException;
 
 
+    /**
+     * Open a file that is being continued (i.e. restarting after a checkpoint).
+     * Any file header (e.g. field names on the first line) is not written.
+     *
+     * @param outputStream output stream positioned at the restart point
+     *
+     * @throws IOException any IOerror
+     */
+    public void openForRestart(OutputStream outputStream) throws IOException {
+    	open(outputStream);
+    }
+
+
     /**
      * Read one line from the input file
      *
@@ -93,7 +109,50 @@ public abstract class AbstractLineWriter {
      *
      * @throws IOException any IOerror
      */
-    public abstract void write(AbstractLine line) throws IOException;
+    public final void write(AbstractLine line) throws IOException {
+    	if (metrics == null) {
+    		writeImplementation(line);
+    	} else {
+    		meteredWrite(line);
+    	}
+    }
+
+    /**
+     * Write one line to the output file
+     *
+     * @param line line to write to the output file
+     *
+     * @throws IOException any IOerror
+     */
+    public abstract void writeImplementation(AbstractLine line) throws IOException;
+
+    /**
+     * Write a line updating the metrics (records, record-types, encode time)
+     */
+    private void meteredWrite(AbstractLine line) throws IOException {
+    	IOMetrics.Counters c = metrics.counters();
+    	boolean timed = c.isTimed();
+    	long start = timed ? System.nanoTime() : 0;
+    	long io = c.getIoNanos();
+    	int idx = line.getPreferredLayoutIdx();
+    	LayoutDetail l = line.getLayout();
+
+    	writeImplementation(line);
+    	c.recordWritten();
+    	c.recordType(idx, idx >= 0 && l != null ? l.getRecord(idx).getRecordName() : null);
+    	if (timed) {
+    		c.addDecodeNanos(System.nanoTime() - start - (c.getIoNanos() - io));
+    	}
+    }
+
+
+    /**
+     * Write any buffered data to the output stream (e.g. before taking a checkpoint).
+     *
+     * @throws IOException any IOerror
+     */
+    public void flush() throws IOException {
+    }
 
 
     /**
@@ -110,4 +169,22 @@ public abstract class AbstractLineWriter {
     public void setLayout(LayoutDetail layout) {
 
     }
+
+	/**
+	 * Count the records written (in total and for each Record-Type) in metrics. When the file is
+	 * opened by name the bytes written and time spent writing are also counted; when
+	 * opening a stream, use {@link IOMetrics#wrap(OutputStream)} to count them.
+	 *
+	 * @param metrics where the counts are stored (null turns the metrics off)
+	 */
+	public final void setMetrics(IOMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return the metrics (or null)
+	 */
+	public final IOMetrics getMetrics() {
+		return metrics;
+	}
 }
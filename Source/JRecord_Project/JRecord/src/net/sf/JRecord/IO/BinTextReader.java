@@ -34,6 +34,7 @@ import java.util.List;
 
 import net.sf.JRecord.ByteIO.ByteTextReader;
 import net.sf.JRecord.ByteIO.IByteReader;
+import net.sf.JRecord.ByteIO.ReadPosition;
 import net.sf.JRecord.Common.Constants;
 import net.sf.JRecord.Common.FieldDetail;
 import net.sf.JRecord.CsvParser.CsvDefinition;
@@ -88,6 +89,19 @@ public class BinTextReader extends LineReaderWrapper {
     }
 
 
+    /**
+     * Restart is not supported when the field names are read from the file
+     * @see net.sf.JRecord.IO.LineByteRecordReaderWrapper#open(java.lang.String, net.sf.JRecord.Details.LayoutDetail, net.sf.JRecord.ByteIO.ReadPosition)
+     */
+    @Override
+    public void open(String fileName, LayoutDetail layout, ReadPosition position) throws IOException {
+    	if (readNames) {
+    		throw new IOException("Restart is not supported when the field names are on the first line");
+    	}
+    	super.open(fileName, layout, position);
+    }
+
+
     /**
      * create a layout
      *
@@ -59,6 +59,7 @@ public class BinTextWriter extends LineWriterWrapper {
 	private OutputStream oStream = null;
 	boolean toOpen = true;
 	boolean names1stLine = false;
+	private boolean restart = false;
 	
 	public BinTextWriter(boolean nameOn1stLine) {
 		super(null);
@@ -72,20 +73,31 @@ public class BinTextWriter extends LineWriterWrapper {
 	public void open(OutputStream outputStream) throws IOException {
 		oStream = outputStream;
 		toOpen = true;
+		restart = false;
+	}
+
+	/**
+	 * The field names are not written when restarting
+	 * @see net.sf.JRecord.IO.AbstractLineWriter#openForRestart(java.io.OutputStream)
+	 */
+	@Override
+	public void openForRestart(OutputStream outputStream) throws IOException {
+		open(outputStream);
+		restart = true;
 	}
 
 	/**
 	 * @see net.sf.JRecord.IO.LineWriterWrapper#write(net.sf.JRecord.Details.AbstractLine)
 	 */
 	@Override
-	public void write(AbstractLine line) throws IOException {
+	public void writeImplementation(AbstractLine line) throws IOException {
 		if (toOpen) {
 			BinaryByteWriter writer = new BinaryByteWriter(false, false, line.getLayout().getRecordSep());
 			toOpen = false;
 			super.setWriter(writer);
 			super.open(oStream);
 			
-			if (names1stLine) {
+			if (names1stLine && ! restart) {
 				LayoutDetail layout =  line.getLayout();
 				RecordDetail rec = layout.getRecord(0);
 				if (rec != null && rec.getFieldCount() > 0) {
@@ -117,7 +129,7 @@ public class BinTextWriter extends LineWriterWrapper {
 			}
 			oStream = null;
 		}
-		super.write(line);
+		super.writeImplementation(line);
 	}
 	
 	
@@ -81,7 +81,7 @@ public class ContinuousLineWriter extends AbstractLineWriter {
     /**
      * @see net.sf.JRecord.IO.AbstractLineWriter#write(net.sf.JRecord.Details.AbstractLine)
      */
-    public void write(AbstractLine line) throws IOException {
+    public void writeImplementation(AbstractLine line) throws IOException {
 
         if (outStream == null) {
             throw new IOException(AbstractLineWriter.NOT_OPEN_MESSAGE);
@@ -126,6 +126,17 @@ public class ContinuousLineWriter extends AbstractLineWriter {
 	}
 
 
+    /**
+     * @see net.sf.JRecord.IO.AbstractLineWriter#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+    	if (outStream != null) {
+    		outStream.flush();
+    	}
+    }
+
+
     /**
      * @see net.sf.JRecord.IO.AbstractLineWriter#close()
      */
@@ -0,0 +1,104 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.IO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.ExternalRecordSelection.ExternalSelection;
+import net.sf.JRecord.cgen.codec.CompiledSelection;
+
+/**
+ * Wraps a Line-Reader so only the lines that match a selection (filter) are returned.
+ * The selection is compiled for the layout (see {@link CompiledSelection}).
+ *
+ * <pre>
+ *     AbstractLineReader reader = new FilterLineReader(
+ *               ioBuilder.newReader(fileName),
+ *               ExternalFieldSelection.newFieldSelection("Record-Type", "=", "D"));
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ */
+public class FilterLineReader extends AbstractLineReader {
+
+	private final AbstractLineReader reader;
+	private final ExternalSelection selection;
+	private CompiledSelection filter = null;
+
+	/**
+	 * Wrap a reader
+	 * @param reader reader to be wrapped; if it is already open, the filter is
+	 * compiled for its layout
+	 * @param selection lines to be returned
+	 */
+	public FilterLineReader(AbstractLineReader reader, ExternalSelection selection) {
+		super(reader.getLineProvider());
+		this.reader = reader;
+		this.selection = selection;
+
+		LayoutDetail layout = reader.getLayout();
+		if (layout != null) {
+			setLayout(layout);
+			filter = CompiledSelection.compile(layout, selection);
+		}
+	}
+
+	/**
+	 * @see net.sf.JRecord.IO.AbstractLineReader#open(java.io.InputStream, net.sf.JRecord.Details.LayoutDetail)
+	 */
+	@Override
+	public void open(InputStream inputStream, LayoutDetail pLayout) throws IOException {
+		reader.open(inputStream, pLayout);
+		setLayout(pLayout);
+		filter = CompiledSelection.compile(pLayout, selection);
+	}
+
+	/**
+	 * @see net.sf.JRecord.IO.AbstractLineReader#readImplementation()
+	 */
+	@Override
+	public AbstractLine readImplementation() throws IOException {
+		AbstractLine line;
+		while ((line = reader.read()) != null && ! filter.isSelected(line)) {
+		}
+		return line;
+	}
+
+	/**
+	 * @see net.sf.JRecord.IO.AbstractLineReader#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -38,7 +38,9 @@ import java.io.IOException;
 import java.io.InputStream;
 
 //import net.sf.JRecord.ByteIO.AbstractByteReader;
+import net.sf.JRecord.ByteIO.AbstractByteReader;
 import net.sf.JRecord.ByteIO.IByteRecordReader;
+import net.sf.JRecord.ByteIO.ReadPosition;
 import net.sf.JRecord.Details.AbstractLine;
 import net.sf.JRecord.Details.LayoutDetail;
 import net.sf.JRecord.Details.LineProvider;
@@ -58,6 +60,7 @@ public class LineByteRecordReaderWrapper<Reader extends IByteRecordReader> exten
 
     Reader reader;
     int i = 0;
+    private long recordsRead = 0;
 
     /**
      *  Create a LineReader from a Byte reader
@@ -107,9 +110,40 @@ public class LineByteRecordReaderWrapper<Reader extends IByteRecordReader> exten
         if (bytes == null) {
             return null;
         }
+        recordsRead += 1;
         return getLine(bytes);
     }
 
+    /**
+     * @see net.sf.JRecord.IO.AbstractLineReader#open(java.lang.String, net.sf.JRecord.Details.LayoutDetail, net.sf.JRecord.ByteIO.ReadPosition)
+     */
+    @Override
+    public void open(String fileName, LayoutDetail pLayout, ReadPosition position) throws IOException {
+    	if (! (reader instanceof AbstractByteReader)) {
+    		super.open(fileName, pLayout, position);
+    		return;
+    	}
+
+    	AbstractByteReader byteReader = (AbstractByteReader) reader;
+    	super.setLayout(pLayout);
+    	byteReader.setLineLength(pLayout.getMaximumRecordLength());
+    	byteReader.open(fileName, position);
+    	recordsRead = Math.max(0, position.getRecordNumber());
+    }
+
+    /**
+     * @see net.sf.JRecord.IO.AbstractLineReader#getPosition()
+     */
+    @Override
+    public ReadPosition getPosition() throws IOException {
+    	if (! (reader instanceof AbstractByteReader)) {
+    		return super.getPosition();
+    	}
+
+    	ReadPosition position = ((AbstractByteReader) reader).getPosition();
+    	return position == null ? null : position.withRecordNumber(recordsRead);
+    }
+
     protected byte[] rawRead() throws IOException {
     	return reader.read();
     }
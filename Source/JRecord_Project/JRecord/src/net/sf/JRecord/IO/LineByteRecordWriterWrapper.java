@@ -37,6 +37,7 @@ package net.sf.JRecord.IO;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import net.sf.JRecord.ByteIO.AbstractByteWriter;
 import net.sf.JRecord.ByteIO.IByteRecordWriter;
 import net.sf.JRecord.Details.AbstractLine;
 
@@ -76,11 +77,22 @@ public class LineByteRecordWriterWrapper<Writer extends IByteRecordWriter> exten
     /**
      * @see net.sf.JRecord.IO.AbstractLineWriter#write(net.sf.JRecord.Details.AbstractLine)
      */
-    public void write(AbstractLine line) throws IOException {
+    public void writeImplementation(AbstractLine line) throws IOException {
         writer.write(line.getData());
     }
 
 
+    /**
+     * @see net.sf.JRecord.IO.AbstractLineWriter#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+    	if (writer instanceof AbstractByteWriter) {
+    		((AbstractByteWriter) writer).flush();
+    	}
+    }
+
+
     /**
      * @see net.sf.JRecord.IO.AbstractLineWriter#close()
      */
@@ -0,0 +1,680 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.IO;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Common.Conversion;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+
+/**
+ * A (single use) sequence of the lines in a file that can be used in a <b>for</b> loop
+ * and split into sections for processing in parallel. The reader is closed when the
+ * last line has been read (or when the stream is closed).
+ *
+ * <pre>
+ *     LineStream lines = iob.stream(fileName);
+ *     try {
+ *         for (AbstractLine l : lines) {
+ *             ...
+ *         }
+ *     } finally {
+ *         lines.close();
+ *     }
+ * </pre>
+ *
+ * <p>{@link #stream()} / {@link #parallelStream()} return a java.util.stream.Stream of the lines;
+ * a parallel stream is split using the same rules as {@link #trySplit()}. The stream
+ * should be closed (e.g. try-with-resources) so all the readers are closed:
+ *
+ * <pre>
+ *     try (Stream&lt;AbstractLine&gt; lines = iob.stream(fileName).parallelStream()) {
+ *         long count = lines.filter(l -&gt; l.getFieldValue("Amount").asLong() &gt; 1000).count();
+ *     }
+ * </pre>
+ *
+ * <p>Streams can be split (before they are read) with {@link #trySplit()} / {@link #split(int)},
+ * each section being a stream of its own. Files are split by byte position for
+ * Fixed-Length, single byte / UTF-8 Text and VB-Dump (block descriptor) files, and by
+ * record number for streams created from a {@link SparseRecordIndex}. Other streams can
+ * not be split. {@link #processParallel(int, IPartitionProcessor)} splits a stream and
+ * processes the sections on separate threads:
+ *
+ * <pre>
+ *     List&lt;Long&gt; counts = iob.stream(fileName).processParallel(4,
+ *             new LineStream.IPartitionProcessor&lt;Long&gt;() {
+ *                 public Long process(LineStream section) {
+ *                     long count = 0;
+ *                     for (AbstractLine l : section) {
+ *                         if (l.getFieldValue("Amount").asLong() &gt; 1000) count += 1;
+ *                     }
+ *                     return count;
+ *                 }
+ *             });
+ * </pre>
+ *
+ * <p>Errors reading the file are thrown as a {@link RecordException} from the iterator.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class LineStream implements Iterable<AbstractLine>, Closeable {
+
+	/**
+	 * Creates a reader for a section of a file
+	 */
+	public static interface IReaderCreator {
+		/**
+		 * @param in section of the file
+		 * @return reader for the section
+		 * @throws IOException any IO error
+		 */
+		public AbstractLineReader newReader(InputStream in) throws IOException;
+	}
+
+	/**
+	 * Processes one section of a stream
+	 * @param <R> result of processing a section
+	 */
+	public static interface IPartitionProcessor<R> {
+		/**
+		 * Process a section of the stream
+		 * @param section lines to be processed (closed after processing)
+		 * @return result for the section
+		 * @throws IOException any IO error
+		 */
+		public R process(LineStream section) throws IOException;
+	}
+
+	/** Minimum size (bytes) of a Text / VB-Dump section */
+	public static final int MIN_SPLIT_SIZE = 16 * 1024;
+
+	private static final int SPLIT_NONE  = 0;
+	private static final int SPLIT_FIXED = 1;
+	private static final int SPLIT_TEXT  = 2;
+	private static final int SPLIT_BLOCK = 3;
+	private static final int SPLIT_INDEX = 4;
+
+	private final int splitMode;
+	private final String fileName;
+	private final IReaderCreator readerCreator;
+	private final LayoutDetail layout;
+	private final SparseRecordIndex index;
+	private final int recordLength;
+	private final boolean vbDump2;
+	private long start, end;				// byte offsets or record numbers (SPLIT_INDEX)
+
+	private AbstractLineReader reader;
+	private boolean started = false, closed = false;
+
+	/**
+	 * Create a stream for an existing reader (the stream can not be split)
+	 * @param reader reader to be wrapped
+	 */
+	public LineStream(AbstractLineReader reader) {
+		this(SPLIT_NONE, null, null, null, null, 0, false, 0, Long.MAX_VALUE);
+		this.reader = reader;
+	}
+
+	private LineStream(int splitMode, String fileName, IReaderCreator readerCreator, LayoutDetail layout,
+			SparseRecordIndex index, int recordLength, boolean vbDump2, long start, long end) {
+		this.splitMode = splitMode;
+		this.fileName = fileName;
+		this.readerCreator = readerCreator;
+		this.layout = layout;
+		this.index = index;
+		this.recordLength = recordLength;
+		this.vbDump2 = vbDump2;
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Create a stream for a file
+	 * @param layout record layout (schema) of the file
+	 * @param fileName file name
+	 * @return stream of lines
+	 * @throws IOException any IO error
+	 */
+	public static LineStream newStream(final LayoutDetail layout, String fileName) throws IOException {
+		return newStream(layout, fileName, new IReaderCreator() {
+			@Override public AbstractLineReader newReader(InputStream in) throws IOException {
+				AbstractLineReader r = LineIOProvider.getInstance().getLineReader(layout);
+				r.open(in, layout);
+				return r;
+			}
+		});
+	}
+
+	/**
+	 * Create a stream for a file using a supplied reader creator
+	 * (e.g. so the readers use the same options as an IO-Builder)
+	 * @param layout record layout (schema) of the file
+	 * @param fileName file name
+	 * @param readerCreator creates the readers
+	 * @return stream of lines
+	 * @throws IOException any IO error
+	 */
+	public static LineStream newStream(LayoutDetail layout, String fileName, IReaderCreator readerCreator)
+	throws IOException {
+		long length = new java.io.File(fileName).length();
+		int mode = SPLIT_NONE;
+		int recordLength = 0;
+
+		if (! layout.isCsvLayout()) {
+			switch (layout.getFileStructure()) {
+			case Constants.IO_FIXED_LENGTH:
+				recordLength = layout.getMaximumRecordLength();
+				mode = recordLength > 0 ? SPLIT_FIXED : SPLIT_NONE;
+				break;
+			case Constants.IO_STANDARD_TEXT_FILE:
+			case Constants.IO_BIN_TEXT:
+				String font = layout.getFontName();
+				if (Conversion.isSingleByte(font) || "UTF-8".equalsIgnoreCase(font) || "UTF8".equalsIgnoreCase(font)) {
+					mode = SPLIT_TEXT;
+				}
+				break;
+			case Constants.IO_VB_DUMP:
+			case Constants.IO_VB_DUMP2:
+				mode = SPLIT_BLOCK;
+				break;
+			}
+		}
+		return new LineStream(mode, fileName, readerCreator, layout, null, recordLength,
+				layout.getFileStructure() == Constants.IO_VB_DUMP2, 0, length);
+	}
+
+	/**
+	 * Create a stream for a file that is split using a sparse index
+	 * @param layout record layout (schema) of the file
+	 * @param fileName file name
+	 * @param index sparse index of the file
+	 * @return stream of lines
+	 */
+	public static LineStream newStream(LayoutDetail layout, String fileName, SparseRecordIndex index) {
+		return new LineStream(SPLIT_INDEX, fileName, null, layout, index, 0, false, 0, index.getRecordCount());
+	}
+
+	/**
+	 * Split the stream into two. The stream must not have been read.
+	 * @return a stream for the second half of this stream (this stream then
+	 * covers the first half) or null if the stream can not be split
+	 * @throws IOException any IO error
+	 */
+	public LineStream trySplit() throws IOException {
+		return splitAt(start + (end - start) / 2);
+	}
+
+	/**
+	 * Split the stream into (up to) count sections of approximately equal size.
+	 * The stream must not have been read.
+	 * @param count number of sections required
+	 * @return the sections in file order (the first section is this stream)
+	 * @throws IOException any IO error
+	 */
+	public List<LineStream> split(int count) throws IOException {
+		ArrayList<LineStream> sections = new ArrayList<LineStream>(Math.max(1, count));
+		long first = start, last = end;
+
+		for (int i = count - 1; i > 0; i--) {
+			LineStream s = splitAt(first + (last - first) * i / count);
+			if (s != null) {
+				sections.add(s);
+			}
+		}
+		sections.add(this);
+		Collections.reverse(sections);
+		return sections;
+	}
+
+	/**
+	 * Split the stream and process the sections on separate threads. Each section
+	 * is closed after it is processed.
+	 *
+	 * @param count number of sections (threads)
+	 * @param processor processes each section
+	 * @return the result for each section (in file order)
+	 * @throws IOException any IO error
+	 */
+	public <R> List<R> processParallel(int count, final IPartitionProcessor<R> processor) throws IOException {
+		List<LineStream> sections = split(count);
+		ExecutorService executor = Executors.newFixedThreadPool(sections.size());
+		ArrayList<Future<R>> futures = new ArrayList<Future<R>>(sections.size());
+		ArrayList<R> results = new ArrayList<R>(sections.size());
+
+		try {
+			for (final LineStream s : sections) {
+				futures.add(executor.submit(new Callable<R>() {
+					@Override public R call() throws IOException {
+						try {
+							return processor.process(s);
+						} finally {
+							s.close();
+						}
+					}
+				}));
+			}
+			for (Future<R> f : futures) {
+				results.add(f.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while processing " + fileName, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RecordException("Error processing " + fileName, e.getCause());
+		} finally {
+			executor.shutdownNow();
+			for (LineStream s : sections) {
+				s.close();
+			}
+		}
+	}
+
+	/**
+	 * Get a sequential java.util.stream.Stream of the lines. Closing the
+	 * Stream closes this LineStream.
+	 * @return stream of lines
+	 */
+	public Stream<AbstractLine> stream() {
+		return toStream(false);
+	}
+
+	/**
+	 * Get a (possibly) parallel java.util.stream.Stream of the lines. The file is split
+	 * in the same way as {@link #trySplit()}; streams that can not be split are
+	 * processed sequentially. Closing the Stream closes all the sections.
+	 * @return stream of lines
+	 */
+	public Stream<AbstractLine> parallelStream() {
+		return toStream(true);
+	}
+
+	private Stream<AbstractLine> toStream(boolean parallel) {
+		if (started) {
+			throw new IllegalStateException("The stream has already been read");
+		}
+		final List<LineStream> sections = Collections.synchronizedList(new ArrayList<LineStream>());
+		sections.add(this);
+		return StreamSupport.stream(newSpliterator(this, sections), parallel)
+				.onClose(new Runnable() {
+					@Override public void run() {
+						IOException ex = null;
+						synchronized (sections) {
+							for (LineStream s : sections) {
+								try {
+									s.close();
+								} catch (IOException e) {
+									ex = e;
+								}
+							}
+						}
+						if (ex != null) {
+							throw new RecordException("Error closing " + fileName, ex);
+						}
+					}
+				});
+	}
+
+	/**
+	 * Create a Spliterator for a section of the file; a split returns the
+	 * first half of the section (the Spliterator keeps the second half)
+	 * @param lineStream section of the file
+	 * @param sections all the sections (so they can be closed)
+	 */
+	private static Spliterator<AbstractLine> newSpliterator(final LineStream lineStream, final List<LineStream> sections) {
+		return new Spliterator<AbstractLine>() {
+			private LineStream section = lineStream;
+			private Iterator<AbstractLine> iterator = null;
+
+			@Override
+			public boolean tryAdvance(Consumer<? super AbstractLine> action) {
+				if (iterator == null) {
+					iterator = section.iterator();
+				}
+				if (iterator.hasNext()) {
+					action.accept(iterator.next());
+					return true;
+				}
+				return false;
+			}
+
+			@Override
+			public Spliterator<AbstractLine> trySplit() {
+				if (iterator != null) {
+					return null;
+				}
+				LineStream first = section;
+				LineStream second;
+				try {
+					second = first.trySplit();
+				} catch (IOException e) {
+					throw new RecordException("Error splitting " + first.fileName, e);
+				}
+				if (second == null) {
+					return null;
+				}
+				sections.add(second);
+				section = second;
+				return newSpliterator(first, sections);
+			}
+
+			@Override
+			public long estimateSize() {
+				if (iterator != null || section.splitMode == SPLIT_NONE) {
+					return Long.MAX_VALUE;
+				}
+				long size = section.end - section.start;
+				return section.splitMode == SPLIT_FIXED ? size / section.recordLength : size;
+			}
+
+			@Override
+			public int characteristics() {
+				return ORDERED | NONNULL;
+			}
+		};
+	}
+
+	/**
+	 * @return wether the stream can be split
+	 */
+	public boolean isSplittable() {
+		return splitMode != SPLIT_NONE && ! started;
+	}
+
+	/**
+	 * Get the iterator; a stream can only be iterated once.
+	 * @see java.lang.Iterable#iterator()
+	 */
+	@Override
+	public Iterator<AbstractLine> iterator() {
+		if (started) {
+			throw new IllegalStateException("The stream has already been read");
+		}
+		started = true;
+		try {
+			open();
+		} catch (IOException e) {
+			throw new RecordException("Error opening " + fileName, e);
+		}
+		return new LineIterator(splitMode == SPLIT_INDEX ? end - start : Long.MAX_VALUE);
+	}
+
+	/**
+	 * Close the stream (and the reader)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (! closed) {
+			closed = true;
+			if (reader != null) {
+				reader.close();
+			}
+		}
+	}
+
+	private void open() throws IOException {
+		switch (splitMode) {
+		case SPLIT_NONE:
+			break;
+		case SPLIT_INDEX:
+			reader = index.newReaderAtRecord(layout, fileName, start);
+			break;
+		default:
+			FileInputStream in = new FileInputStream(fileName);
+			try {
+				in.getChannel().position(start);
+				reader = readerCreator.newReader(new SectionInputStream(in, end - start));
+			} catch (IOException e) {
+				in.close();
+				throw e;
+			}
+		}
+	}
+
+	private LineStream splitAt(long target) throws IOException {
+		if (started || splitMode == SPLIT_NONE || target <= start || target >= end) {
+			return null;
+		}
+
+		long pos;
+		switch (splitMode) {
+		case SPLIT_FIXED:
+			pos = start + (target - start) / recordLength * recordLength;
+			break;
+		case SPLIT_TEXT:
+			pos = end - start < MIN_SPLIT_SIZE * 2 ? -1 : nextLineStart(target);
+			break;
+		case SPLIT_BLOCK:
+			pos = end - start < MIN_SPLIT_SIZE * 2 ? -1 : nextBlockStart(target);
+			break;
+		default:
+			pos = indexSplitPoint(target);
+		}
+		if (pos <= start || pos >= end) {
+			return null;
+		}
+
+		LineStream s = new LineStream(splitMode, fileName, readerCreator, layout, index, recordLength, vbDump2, pos, end);
+		end = pos;
+		return s;
+	}
+
+	/**
+	 * @return position after the first end-of-line (Line-Feed in the files character set,
+	 * e.g. x'25' for EBCDIC) at or after target
+	 */
+	private long nextLineStart(long target) throws IOException {
+		byte byteLF = Conversion.getBytes("\n", layout.getFontName())[0];
+		RandomAccessFile f = new RandomAccessFile(fileName, "r");
+		try {
+			byte[] buf = new byte[8192];
+			long pos = target;
+			f.seek(pos);
+			int n;
+			while (pos < end && (n = f.read(buf)) > 0) {
+				for (int i = 0; i < n; i++) {
+					if (buf[i] == byteLF) {
+						return pos + i + 1;
+					}
+				}
+				pos += n;
+			}
+			return -1;
+		} finally {
+			f.close();
+		}
+	}
+
+	/**
+	 * @return start of the first block at or after target
+	 */
+	private long nextBlockStart(long target) throws IOException {
+		RandomAccessFile f = new RandomAccessFile(fileName, "r");
+		try {
+			byte[] bdw = new byte[4];
+			long pos = start;
+			while (pos < target) {
+				f.seek(pos);
+				f.readFully(bdw);
+				long blockLength;
+				if (bdw[0] >= 0 || vbDump2) {
+					blockLength = ((bdw[0] & 0xFF) << 8) + (bdw[1] & 0xFF);
+				} else {
+					blockLength = ((bdw[0] & 0x7F) << 24) + ((bdw[1] & 0xFF) << 16)
+								+ ((bdw[2] & 0xFF) << 8) + (bdw[3] & 0xFF);
+				}
+				if (blockLength <= 4) {
+					throw new IOException("Invalid block length " + blockLength + " at " + pos);
+				}
+				pos += blockLength;
+			}
+			return pos;
+		} finally {
+			f.close();
+		}
+	}
+
+	/**
+	 * @return record number of the last index entry at or before the target record
+	 */
+	private long indexSplitPoint(long target) {
+		long ret = -1;
+		for (SparseRecordIndex.IndexEntry e : index.getEntries()) {
+			if (e.getRecordNumber() > target) {
+				break;
+			}
+			ret = e.getRecordNumber();
+		}
+		return ret;
+	}
+
+	private class LineIterator implements Iterator<AbstractLine> {
+		private long remaining;
+		private AbstractLine next = null;
+		private boolean done = false;
+
+		LineIterator(long limit) {
+			this.remaining = limit;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && ! done) {
+				try {
+					if (remaining <= 0 || closed || (next = reader.read()) == null) {
+						done = true;
+						close();
+					} else {
+						remaining -= 1;
+					}
+				} catch (IOException e) {
+					throw new RecordException("Error reading " + (fileName == null ? "file" : fileName), e);
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public AbstractLine next() {
+			if (! hasNext()) {
+				throw new NoSuchElementException();
+			}
+			AbstractLine ret = next;
+			next = null;
+			return ret;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Input stream limited to one section of a file
+	 */
+	private static class SectionInputStream extends FilterInputStream {
+		private long remaining;
+
+		SectionInputStream(InputStream in, long length) {
+			super(in);
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int b = super.read();
+			if (b >= 0) {
+				remaining -= 1;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int n = super.read(b, off, (int) Math.min(len, remaining));
+			if (n > 0) {
+				remaining -= n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long s = super.skip(Math.min(n, remaining));
+			remaining -= s;
+			return s;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(super.available(), remaining);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+}
@@ -80,7 +80,7 @@ public class LineWriterWrapperChar extends AbstractLineWriter {
     /**
      * @see net.sf.JRecord.IO.AbstractLineWriter#write(net.sf.JRecord.Details.AbstractLine)
      */
-    public void write(AbstractLine line) throws IOException {
+    public void writeImplementation(AbstractLine line) throws IOException {
     	if (writer == null) {
     		LayoutDetail layout = line.getLayout();
 			writer = ioProvider.getWriter(
@@ -92,6 +92,17 @@ public class LineWriterWrapperChar extends AbstractLineWriter {
     }
 
 
+    /**
+     * @see net.sf.JRecord.IO.AbstractLineWriter#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+    	if (writer != null) {
+    		writer.flush();
+    	}
+    }
+
+
     /**
      * @see net.sf.JRecord.IO.AbstractLineWriter#close()
      */
@@ -0,0 +1,144 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.IO;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.JRecord.ByteIO.MicroFocusRecordFile;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.LineProvider;
+
+/**
+ * Random access to Micro Focus Relative files without unloading them;
+ * records are retrieved by relative record number ({@link #get(long)}, {@link #getRange(long, int)}).
+ *
+ * <p>Keyed access to Indexed files is <b>not</b> supported (it would require reading the
+ * Micro Focus index (<i>.idx</i>) file). The records of an Indexed file can be read
+ * sequentially with the normal line reader ({@link net.sf.JRecord.Common.Constants#IO_MICROFOCUS}) or with
+ * {@link MicroFocusRecordFile#scan(MicroFocusRecordFile.IRecordConsumer)}.
+ *
+ * <p>A reader can be shared by several threads.
+ *
+ * <pre>
+ *     MicroFocusRandomAccessReader reader
+ *              = new MicroFocusRandomAccessReader(iob.getLayout(), "customer.rel");
+ *     AbstractLine line = reader.get(121);
+ *     List&lt;AbstractLine&gt; lines = reader.getRange(200, 50);
+ *     ...
+ *     reader.close();
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ */
+public class MicroFocusRandomAccessReader {
+
+	protected final LayoutDetail layout;
+	protected final LineProvider lineProvider;
+	protected final MicroFocusRecordFile file;
+
+	/**
+	 * Open a Micro Focus Relative file
+	 * @param layout record layout (schema) of the file
+	 * @param fileName name of the data file
+	 * @throws IOException any IO error
+	 */
+	public MicroFocusRandomAccessReader(LayoutDetail layout, String fileName) throws IOException {
+		this.layout = layout;
+		this.lineProvider = LineIOProvider.getInstance().getLineProvider(layout);
+		this.file = new MicroFocusRecordFile(fileName);
+	}
+
+	/**
+	 * Get a record from a Relative file
+	 * @param recordNumber relative record number (1 based as in Cobol)
+	 * @return requested line or null if the record does not exist (empty / deleted slot)
+	 * @throws IOException any IO error
+	 */
+	public AbstractLine get(long recordNumber) throws IOException {
+		return toLine(file.readRelative(recordNumber));
+	}
+
+	/**
+	 * Get a range of records from a Relative file, empty / deleted slots are skipped
+	 * @param from first relative record number (1 based)
+	 * @param count number of record slots to read
+	 * @return requested lines
+	 * @throws IOException any IO error
+	 */
+	public List<AbstractLine> getRange(long from, int count) throws IOException {
+		long end = Math.min(from + count, file.getSlotCount() + 1);
+		List<AbstractLine> lines = new ArrayList<AbstractLine>((int) Math.max(0, end - from));
+
+		for (long i = from; i < end; i++) {
+			AbstractLine l = get(i);
+			if (l != null) {
+				lines.add(l);
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * @return number of record slots in the Relative file (some of the slots may be empty)
+	 * @throws IOException any IO error
+	 */
+	public long getRecordCount() throws IOException {
+		return file.getSlotCount();
+	}
+
+	/**
+	 * @return the Micro Focus data file
+	 */
+	public final MicroFocusRecordFile getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the layout
+	 */
+	public final LayoutDetail getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Close the file
+	 * @throws IOException any IO error
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+
+	private AbstractLine toLine(byte[] rec) {
+		return rec == null ? null : lineProvider.getLine(layout, rec);
+	}
+}
@@ -0,0 +1,146 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.IO;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.JRecord.ByteIO.RandomAccessByteFile;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.LineProvider;
+
+/**
+ * Random (record number based) access to a Fixed-Length file.
+ * Record <i>n</i> is at byte offset <i>n * record-length</i>, so any record (or range of records)
+ * can be retrieved without reading the file sequentially. Recently used pages of the file are
+ * held in a bounded cache (see {@link RandomAccessByteFile}).
+ *
+ * <pre>
+ *     RandomAccessLineReader reader = new RandomAccessLineReader(iob.getLayout(), dataFileName);
+ *     AbstractLine line = reader.get(12345);
+ *     ...
+ *     reader.close();
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ */
+public class RandomAccessLineReader {
+
+	protected final LayoutDetail layout;
+	protected final LineProvider lineProvider;
+	protected final RandomAccessByteFile file;
+
+	/**
+	 * Open a Fixed-Length file for random access
+	 * @param layout record layout (schema) of the file
+	 * @param fileName name of the file
+	 * @throws IOException any IO error
+	 */
+	public RandomAccessLineReader(LayoutDetail layout, String fileName) throws IOException {
+		this(layout, fileName, false, RandomAccessByteFile.DEFAULT_PAGE_SIZE, RandomAccessByteFile.DEFAULT_MAX_PAGES);
+	}
+
+	/**
+	 * Open a Fixed-Length file for random access
+	 * @param layout record layout (schema) of the file
+	 * @param fileName name of the file
+	 * @param pageSize size (in bytes) of the cached pages
+	 * @param maxPages maximum number of pages held in the cache
+	 * @throws IOException any IO error
+	 */
+	public RandomAccessLineReader(LayoutDetail layout, String fileName, int pageSize, int maxPages) throws IOException {
+		this(layout, fileName, false, pageSize, maxPages);
+	}
+
+	protected RandomAccessLineReader(LayoutDetail layout, String fileName, boolean update, int pageSize, int maxPages)
+	throws IOException {
+		int fileStructure = layout.getFileStructure();
+		if (fileStructure != Constants.IO_FIXED_LENGTH && fileStructure != Constants.IO_FIXED_BYTE_ENTER_FONT) {
+			throw new RecordException("Random access is only supported for Fixed-Length files, file structure=" + fileStructure);
+		}
+
+		this.layout = layout;
+		this.lineProvider = LineIOProvider.getInstance().getLineProvider(layout);
+		this.file = new RandomAccessByteFile(fileName, layout.getMaximumRecordLength(), update, pageSize, maxPages);
+	}
+
+	/**
+	 * Get a record
+	 * @param recordNo record number (zero based)
+	 * @return requested line
+	 * @throws IOException any IO error
+	 */
+	public AbstractLine get(long recordNo) throws IOException {
+		return lineProvider.getLine(layout, file.read(recordNo));
+	}
+
+	/**
+	 * Get a range of records
+	 * @param from first record number (zero based)
+	 * @param count number of records (fewer are returned at the end of the file)
+	 * @return requested lines
+	 * @throws IOException any IO error
+	 */
+	public List<AbstractLine> getRange(long from, int count) throws IOException {
+		byte[][] recs = file.read(from, count);
+		List<AbstractLine> lines = new ArrayList<AbstractLine>(recs.length);
+
+		for (byte[] rec : recs) {
+			lines.add(lineProvider.getLine(layout, rec));
+		}
+		return lines;
+	}
+
+	/**
+	 * @return number of records in the file
+	 */
+	public long getRecordCount() {
+		return file.getRecordCount();
+	}
+
+	/**
+	 * @return the layout
+	 */
+	public final LayoutDetail getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Close the file
+	 * @throws IOException any IO error
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -0,0 +1,113 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.IO;
+
+import java.io.IOException;
+
+import net.sf.JRecord.ByteIO.RandomAccessByteFile;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+
+/**
+ * Random access update of a Fixed-Length file. Records can be retrieved (see {@link RandomAccessLineReader}),
+ * updated in place or appended to the end of the file. Updates are written straight through to the file;
+ * use {@link #flush()} to force them to the storage device.
+ *
+ * <pre>
+ *     RandomAccessLineWriter updater = new RandomAccessLineWriter(iob.getLayout(), dataFileName);
+ *     AbstractLine line = updater.get(12345);
+ *     line.getFieldValue("Qty").set(0);
+ *     updater.put(12345, line);
+ *     updater.close();
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ */
+public class RandomAccessLineWriter extends RandomAccessLineReader {
+
+	private final byte fillByte;
+
+	/**
+	 * Open a Fixed-Length file for update
+	 * @param layout record layout (schema) of the file
+	 * @param fileName name of the file
+	 * @throws IOException any IO error
+	 */
+	public RandomAccessLineWriter(LayoutDetail layout, String fileName) throws IOException {
+		this(layout, fileName, RandomAccessByteFile.DEFAULT_PAGE_SIZE, RandomAccessByteFile.DEFAULT_MAX_PAGES);
+	}
+
+	/**
+	 * Open a Fixed-Length file for update
+	 * @param layout record layout (schema) of the file
+	 * @param fileName name of the file
+	 * @param pageSize size (in bytes) of the cached pages
+	 * @param maxPages maximum number of pages held in the cache
+	 * @throws IOException any IO error
+	 */
+	public RandomAccessLineWriter(LayoutDetail layout, String fileName, int pageSize, int maxPages) throws IOException {
+		super(layout, fileName, true, pageSize, maxPages);
+
+		fillByte = layout.isBinary() ? 0 : layout.getSpaceByte();
+	}
+
+	/**
+	 * Update a record in place
+	 * @param recordNo record number (zero based); when it equals the record count,
+	 * the line is added to the end of the file
+	 * @param line new value of the record
+	 * @throws IOException any IO error
+	 */
+	public void put(long recordNo, AbstractLine line) throws IOException {
+		file.write(recordNo, line.getData(), fillByte);
+	}
+
+	/**
+	 * Add a line to the end of the file
+	 * @param line line to be added
+	 * @return record number of the new line
+	 * @throws IOException any IO error
+	 */
+	public long append(AbstractLine line) throws IOException {
+		synchronized (file) {
+			long recordNo = file.getRecordCount();
+			file.write(recordNo, line.getData(), fillByte);
+			return recordNo;
+		}
+	}
+
+	/**
+	 * Force all updates to the storage device
+	 * @throws IOException any IO error
+	 */
+	public void flush() throws IOException {
+		file.flush();
+	}
+}
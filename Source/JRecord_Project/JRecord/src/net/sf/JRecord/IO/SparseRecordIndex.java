@@ -0,0 +1,569 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.IO;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.JRecord.ByteIO.AbstractByteReader;
+import net.sf.JRecord.ByteIO.ByteIOProvider;
+import net.sf.JRecord.Common.IFieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.LineProvider;
+import net.sf.JRecord.Types.TypeManager;
+
+/**
+ * Sparse (sidecar) index for files that can not normally be positioned
+ * (VB / RDW, Text, Micro Focus, Fujitsu files etc). The file is read once and the byte offset
+ * of every <i>n</i>th record (and optionally the value of a key field) is stored in the index.
+ * Using the index, a reader can be opened at any record number (or at the first record &gt;= a key)
+ * by positioning on the nearest index entry and reading forward.
+ *
+ * <p>The index entries also provide split points for processing a file in parallel.
+ *
+ * <pre>
+ *     LayoutDetail schema = iob.getLayout();
+ *     SparseRecordIndex idx = SparseRecordIndex.build(schema, dataFile, 1000, "Key-Field");
+ *     idx.write(dataFile + ".idx");
+ *         ...
+ *     SparseRecordIndex idx = SparseRecordIndex.read(dataFile + ".idx");
+ *     if (idx.isCurrent(dataFile)) {
+ *         AbstractLineReader r = idx.newReaderAtKey(schema, dataFile, "K00123");
+ *         ...
+ *     }
+ * </pre>
+ *
+ * <p><b>Note:</b> for blocked files (VB Dump, blocked VBS), index entries can only be at
+ * the start of a block so the entries may be more than <i>n</i> records apart.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class SparseRecordIndex {
+
+	private static final int MAGIC = 0x4A524958;  // JRIX
+	private static final int VERSION = 1;
+
+	private final int interval;
+	private final int headerLength;
+	private final long dataLength, dataLastModified;
+	private final long recordCount;
+	private final String keyFieldName;
+	private final boolean numericKey;
+	private final List<IndexEntry> entries;
+
+	private SparseRecordIndex(int interval, int headerLength, long dataLength, long dataLastModified,
+			long recordCount, String keyFieldName, boolean numericKey, List<IndexEntry> entries) {
+		this.interval = interval;
+		this.headerLength = headerLength;
+		this.dataLength = dataLength;
+		this.dataLastModified = dataLastModified;
+		this.recordCount = recordCount;
+		this.keyFieldName = keyFieldName;
+		this.numericKey = numericKey;
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Build an index (without keys) for a file
+	 *
+	 * @param layout record layout (schema) of the file
+	 * @param dataFile file to be indexed
+	 * @param interval number of records between index entries
+	 * @return the index
+	 * @throws IOException any IO error
+	 */
+	public static SparseRecordIndex build(LayoutDetail layout, String dataFile, int interval) throws IOException {
+		return build(layout, dataFile, interval, null);
+	}
+
+	/**
+	 * Build an index for a file
+	 *
+	 * @param layout record layout (schema) of the file
+	 * @param dataFile file to be indexed
+	 * @param interval number of records between index entries
+	 * @param keyFieldName name of the key field (the file should be sorted on this field),
+	 * or null for no key
+	 * @return the index
+	 * @throws IOException any IO error
+	 */
+	public static SparseRecordIndex build(LayoutDetail layout, String dataFile, int interval, String keyFieldName)
+	throws IOException {
+		if (interval <= 0) {
+			throw new RecordException("Invalid index interval: " + interval);
+		}
+
+		File file = new File(dataFile);
+		long lastModified = file.lastModified();
+		AbstractByteReader reader = newByteReader(layout);
+		IFieldDetail keyField = getKeyField(layout, keyFieldName);
+		LineProvider lineProvider = LineIOProvider.getInstance().getLineProvider(layout);
+		ArrayList<IndexEntry> entries = new ArrayList<IndexEntry>();
+		long recordNo = 0, nextEntry = 0;
+		long offset;
+		boolean restart;
+		byte[] rec;
+
+		reader.setLineLength(layout.getMaximumRecordLength());
+		reader.open(dataFile);
+		int headerLength = reader.getFileHeaderLength();
+		try {
+			while (true) {
+				offset = recordNo == 0 ? headerLength : reader.getBytesRead();
+				restart = recordNo == 0 || reader.isAtRestartPoint();
+				if ((rec = reader.read()) == null) {
+					break;
+				}
+				if (recordNo >= nextEntry && restart) {
+					String key = null;
+					if (keyField != null) {
+						key = lineProvider.getLine(layout, rec).getFieldValue(keyField).asString();
+					}
+					entries.add(new IndexEntry(recordNo, offset, key));
+					nextEntry = recordNo + interval;
+				}
+				recordNo += 1;
+			}
+		} finally {
+			reader.close();
+		}
+
+		return new SparseRecordIndex(
+				interval, headerLength, file.length(), lastModified, recordNo,
+				keyField == null ? null : keyFieldName,
+				keyField != null && TypeManager.isNumeric(keyField.getType()),
+				entries);
+	}
+
+	/**
+	 * Write the index to a file
+	 * @param indexFile name of the index file
+	 * @throws IOException any IO error
+	 */
+	public void write(String indexFile) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(interval);
+			out.writeInt(headerLength);
+			out.writeLong(dataLength);
+			out.writeLong(dataLastModified);
+			out.writeLong(recordCount);
+			out.writeBoolean(keyFieldName != null);
+			if (keyFieldName != null) {
+				out.writeUTF(keyFieldName);
+				out.writeBoolean(numericKey);
+			}
+			out.writeInt(entries.size());
+			for (IndexEntry e : entries) {
+				out.writeLong(e.recordNumber);
+				out.writeLong(e.byteOffset);
+				if (keyFieldName != null) {
+					out.writeUTF(e.key == null ? "" : e.key);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Read an index file
+	 * @param indexFile name of the index file
+	 * @return the index
+	 * @throws IOException any IO error
+	 */
+	public static SparseRecordIndex read(String indexFile) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Invalid index file: " + indexFile);
+			}
+			int interval = in.readInt();
+			int headerLength = in.readInt();
+			long dataLength = in.readLong();
+			long dataLastModified = in.readLong();
+			long recordCount = in.readLong();
+			String keyFieldName = null;
+			boolean numericKey = false;
+			if (in.readBoolean()) {
+				keyFieldName = in.readUTF();
+				numericKey = in.readBoolean();
+			}
+			int count = in.readInt();
+			ArrayList<IndexEntry> entries = new ArrayList<IndexEntry>(count);
+			for (int i = 0; i < count; i++) {
+				long recordNo = in.readLong();
+				long offset = in.readLong();
+				entries.add(new IndexEntry(recordNo, offset, keyFieldName == null ? null : in.readUTF()));
+			}
+
+			return new SparseRecordIndex(
+					interval, headerLength, dataLength, dataLastModified, recordCount,
+					keyFieldName, numericKey, entries);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Check the index is still valid for the data file
+	 * (the files length / last modified date have not changed)
+	 * @param dataFile data file name
+	 * @return wether the index is current
+	 */
+	public boolean isCurrent(String dataFile) {
+		File file = new File(dataFile);
+		return file.length() == dataLength && file.lastModified() == dataLastModified;
+	}
+
+	/**
+	 * Create a reader that starts at a specified record
+	 * @param layout record layout (schema) of the file
+	 * @param dataFile data file name
+	 * @param recordNo record number (zero based) of the first record to be read
+	 * @return reader positioned at the requested record
+	 * @throws IOException any IO error
+	 */
+	public AbstractLineReader newReaderAtRecord(LayoutDetail layout, String dataFile, long recordNo) throws IOException {
+		if (recordNo < 0) {
+			throw new IndexOutOfBoundsException("Invalid record number: " + recordNo);
+		}
+		int idx = findEntry(recordNo);
+		return newReader(layout, dataFile, new IndexedByteReader(newByteReader(layout), entries.get(idx), recordNo, null, null));
+	}
+
+	/**
+	 * Create a reader that starts at the first record with a key &gt;= the supplied key.
+	 * The file must be in key sequence
+	 * @param layout record layout (schema) of the file
+	 * @param dataFile data file name
+	 * @param key key value
+	 * @return reader positioned at the first record with a key &gt;= the supplied key
+	 * @throws IOException any IO error
+	 */
+	public AbstractLineReader newReaderAtKey(LayoutDetail layout, String dataFile, String key) throws IOException {
+		if (keyFieldName == null) {
+			throw new RecordException("The index does not contain keys");
+		}
+		int idx = findKey(key);
+		IndexedByteReader r = new IndexedByteReader(
+				newByteReader(layout), entries.get(idx), -1, key,
+				new KeyExtractor(layout, getKeyField(layout, keyFieldName)));
+		return newReader(layout, dataFile, r);
+	}
+
+	/**
+	 * Get split points for processing the file in parallel. The file is divided into (up to)
+	 * <i>count</i> sections of approximately equal size (in bytes). Section <i>i</i> starts at
+	 * split point <i>i</i> and ends before split point <i>i + 1</i> (or end of file).
+	 *
+	 * @param count number of sections required
+	 * @return split points
+	 */
+	public List<IndexEntry> getSplitPoints(int count) {
+		ArrayList<IndexEntry> splits = new ArrayList<IndexEntry>(Math.max(1, count));
+		if (entries.size() == 0) {
+			return splits;
+		}
+
+		IndexEntry last = entries.get(0);
+		splits.add(last);
+		int idx = 0;
+		for (int i = 1; i < count; i++) {
+			long target = dataLength * i / count;
+			while (idx < entries.size() && entries.get(idx).byteOffset < target) {
+				idx += 1;
+			}
+			if (idx >= entries.size()) {
+				break;
+			}
+			if (entries.get(idx) != last) {
+				last = entries.get(idx);
+				splits.add(last);
+			}
+		}
+		return splits;
+	}
+
+	/**
+	 * @return the index entries
+	 */
+	public final List<IndexEntry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @return number of records in the file (when the index was built)
+	 */
+	public final long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @return the number of records between index entries
+	 */
+	public final int getInterval() {
+		return interval;
+	}
+
+	/**
+	 * @return name of the key field (null if there is no key)
+	 */
+	public final String getKeyFieldName() {
+		return keyFieldName;
+	}
+
+	/**
+	 * Find the last entry with a record number &lt;= the supplied record number
+	 */
+	private int findEntry(long recordNo) {
+		int low = 0, high = entries.size() - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (entries.get(mid).recordNumber <= recordNo) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return Math.max(0, low);
+	}
+
+	/**
+	 * Find the last entry with a key &lt; the supplied key (there may be duplicate keys
+	 * before an entry with an equal key)
+	 */
+	private int findKey(String key) {
+		int low = 0, high = entries.size() - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (compareKeys(entries.get(mid).key, key) < 0) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return Math.max(0, low);
+	}
+
+	private int compareKeys(String k1, String k2) {
+		if (numericKey) {
+			try {
+				return new BigDecimal(k1.trim()).compareTo(new BigDecimal(k2.trim()));
+			} catch (NumberFormatException e) {
+			}
+		}
+		return k1.compareTo(k2);
+	}
+
+	private AbstractLineReader newReader(LayoutDetail layout, String dataFile, IndexedByteReader byteReader)
+	throws IOException {
+		AbstractLineReader reader = new LineReaderWrapper(LineIOProvider.getInstance().getLineProvider(layout), byteReader);
+		reader.open(dataFile, layout);
+		return reader;
+	}
+
+	private static AbstractByteReader newByteReader(LayoutDetail layout) {
+		AbstractByteReader reader = ByteIOProvider.getInstance().getByteReader(layout);
+		if (reader == null) {
+			throw new RecordException("Indexing is not supported for file structure: " + layout.getFileStructure());
+		}
+		return reader;
+	}
+
+	private static IFieldDetail getKeyField(LayoutDetail layout, String keyFieldName) {
+		if (keyFieldName == null) {
+			return null;
+		}
+		IFieldDetail field = layout.getFieldFromName(keyFieldName);
+		if (field == null) {
+			throw new RecordException("Key field not found: " + keyFieldName);
+		}
+		return field;
+	}
+
+	/**
+	 * Index entry, the byte offset of a record (and the key of that record)
+	 */
+	public static class IndexEntry {
+		private final long recordNumber, byteOffset;
+		private final String key;
+
+		private IndexEntry(long recordNumber, long byteOffset, String key) {
+			this.recordNumber = recordNumber;
+			this.byteOffset = byteOffset;
+			this.key = key;
+		}
+
+		/**
+		 * @return the record number (zero based)
+		 */
+		public final long getRecordNumber() {
+			return recordNumber;
+		}
+
+		/**
+		 * @return the byte offset of the record in the file
+		 */
+		public final long getByteOffset() {
+			return byteOffset;
+		}
+
+		/**
+		 * @return the key of the record (null if there is no key)
+		 */
+		public final String getKey() {
+			return key;
+		}
+	}
+
+	private static class KeyExtractor {
+		final LayoutDetail layout;
+		final IFieldDetail field;
+		final LineProvider lineProvider;
+
+		KeyExtractor(LayoutDetail layout, IFieldDetail field) {
+			this.layout = layout;
+			this.field = field;
+			this.lineProvider = LineIOProvider.getInstance().getLineProvider(layout);
+		}
+
+		String getKey(byte[] rec) {
+			return lineProvider.getLine(layout, rec).getFieldValue(field).asString();
+		}
+	}
+
+	/**
+	 * Byte reader that positions the file at an index entry, then reads forward to
+	 * the requested record / key.
+	 */
+	private class IndexedByteReader extends AbstractByteReader {
+		private final AbstractByteReader reader;
+		private final IndexEntry entry;
+		private final long recordNo;
+		private final String key;
+		private final KeyExtractor keyExtractor;
+		private long offsetAdjustment;
+		private byte[] pending = null;
+
+		IndexedByteReader(AbstractByteReader reader, IndexEntry entry, long recordNo, String key, KeyExtractor keyExtractor) {
+			this.reader = reader;
+			this.entry = entry;
+			this.recordNo = recordNo;
+			this.key = key;
+			this.keyExtractor = keyExtractor;
+		}
+
+		@Override
+		public void open(InputStream inputStream) throws IOException {
+			InputStream in = inputStream;
+			long offset = entry.byteOffset;
+
+			if (headerLength > 0) {
+				byte[] header = new byte[headerLength];
+				if (readBuffer(inputStream, header) < headerLength) {
+					throw new IOException("Invalid file header");
+				}
+				skip(inputStream, offset - headerLength);
+				in = new SequenceInputStream(new ByteArrayInputStream(header), inputStream);
+				offsetAdjustment = offset - headerLength;
+			} else {
+				skip(inputStream, offset);
+				offsetAdjustment = offset;
+			}
+			reader.open(in);
+
+			if (keyExtractor == null) {
+				for (long i = entry.recordNumber; i < recordNo && reader.read() != null; i++) {
+				}
+			} else {
+				while ((pending = reader.read()) != null && compareKeys(keyExtractor.getKey(pending), key) < 0) {
+				}
+			}
+		}
+
+		private void skip(InputStream in, long count) throws IOException {
+			long remaining = count;
+			while (remaining > 0) {
+				long num = in.skip(remaining);
+				if (num <= 0) {
+					if (in.read() < 0) {
+						throw new IOException("Index does not match the file, offset " + count + " is past the end of file");
+					}
+					num = 1;
+				}
+				remaining -= num;
+			}
+		}
+
+		@Override
+		public byte[] readImplementation() throws IOException {
+			if (pending != null) {
+				byte[] ret = pending;
+				pending = null;
+				return ret;
+			}
+			return reader.read();
+		}
+
+		@Override
+		public void setLineLength(int lineLength) {
+			reader.setLineLength(lineLength);
+		}
+
+		@Override
+		public long getBytesRead() {
+			return reader.getBytesRead() + offsetAdjustment;
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
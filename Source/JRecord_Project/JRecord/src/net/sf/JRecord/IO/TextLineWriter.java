@@ -98,7 +98,7 @@ public class TextLineWriter extends AbstractLineWriter {
      * @see net.sf.JRecord.IO.AbstractLineWriter#write(net.sf.JRecord.Details.AbstractLine)
      */
     @SuppressWarnings("deprecation")
-	public void write(AbstractLine line) throws IOException  {
+	public void writeImplementation(AbstractLine line) throws IOException  {
 
     	LayoutDetail layout =  line.getLayout();
 	    String sep = Constants.LINE_SEPERATOR;
@@ -180,6 +180,28 @@ public class TextLineWriter extends AbstractLineWriter {
     }
 
 
+    /**
+     * The field names are not written when restarting
+     * @see net.sf.JRecord.IO.AbstractLineWriter#openForRestart(java.io.OutputStream)
+     */
+    @Override
+    public void openForRestart(OutputStream outputStream) throws IOException {
+    	open(outputStream);
+    	writeNames = false;
+    }
+
+
+    /**
+     * @see net.sf.JRecord.IO.AbstractLineWriter#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+    	if (writer != null) {
+    		writer.flush();
+    	}
+    }
+
+
     /**
      * @see net.sf.JRecord.IO.AbstractLineWriter#close()
      */
@@ -42,6 +42,7 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
 import net.sf.JRecord.Common.Conversion;
+import net.sf.JRecord.Common.RecordException;
 import net.sf.JRecord.Common.XmlConstants;
 import net.sf.JRecord.Details.AbstractLine;
 import net.sf.JRecord.Details.LayoutDetail;
@@ -90,7 +91,7 @@ public class XmlLineWriter extends AbstractLineWriter {
     /**
      * @see net.sf.JRecord.IO.AbstractLineWriter#write(net.sf.JRecord.Details.AbstractLine)
      */
-    public void write(AbstractLine line) throws IOException {
+    public void writeImplementation(AbstractLine line) throws IOException {
         //String name = toString(line.getField(line.getPreferredLayoutIdx(), 0));
         String name = toString(line.getLayout().getRecord(line.getPreferredLayoutIdx()).getRecordName());
 
@@ -254,6 +255,31 @@ public class XmlLineWriter extends AbstractLineWriter {
     }
 
 
+    /**
+     * An Xml document can not be continued
+     * @see net.sf.JRecord.IO.AbstractLineWriter#openForRestart(java.io.OutputStream)
+     */
+    @Override
+    public void openForRestart(OutputStream outputStream) throws IOException {
+    	throw new RecordException("Restart is not supported for Xml files");
+    }
+
+
+    /**
+     * @see net.sf.JRecord.IO.AbstractLineWriter#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+    	if (writer != null) {
+    		try {
+    			writer.flush();
+    		} catch (XMLStreamException e) {
+    			throw new IOException("Error flushing XML Writer: " + e.getMessage());
+    		}
+    	}
+    }
+
+
     /**
      * @see net.sf.JRecord.IO.AbstractLineWriter#close()
      */
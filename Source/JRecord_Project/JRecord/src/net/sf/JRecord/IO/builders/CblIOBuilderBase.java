@@ -36,12 +36,15 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.stream.Stream;
 
 import net.sf.JRecord.ByteIO.IByteRecordReader;
 import net.sf.JRecord.ByteIO.IByteRecordWriter;
+import net.sf.JRecord.ByteIO.ReadAheadInputStream;
 import net.sf.JRecord.Common.CommonBits;
 import net.sf.JRecord.Common.Constants;
 import net.sf.JRecord.Common.Conversion;
+import net.sf.JRecord.Common.IOMetrics;
 import net.sf.JRecord.Details.AbstractLine;
 import net.sf.JRecord.Details.CharLineProvider;
 import net.sf.JRecord.Details.LayoutDetail;
@@ -55,6 +58,7 @@ import net.sf.JRecord.IO.AbstractLineWriter;
 import net.sf.JRecord.IO.LineByteRecordReaderWrapper;
 import net.sf.JRecord.IO.LineByteRecordWriterWrapper;
 import net.sf.JRecord.IO.LineIOProvider;
+import net.sf.JRecord.IO.LineStream;
 import net.sf.JRecord.Log.AbsSSLogger;
 import net.sf.JRecord.Log.TextLog;
 import net.sf.JRecord.Option.IRecordPositionOption;
@@ -90,6 +94,8 @@ public abstract class CblIOBuilderBase<IOB> /*implements ISchemaIOBuilder*/  {
 	boolean dropCopybookNameFromFields = false;
 	Boolean initToSpaces = null;
 	int recordLength = -1;
+	int readAheadBufferSize = 0, readAheadBufferCount = 0;
+	private IOMetrics metrics = null;
 	 
 	
     AbsSSLogger log = DEFAULT_LOG; 
@@ -216,6 +222,23 @@ public abstract class CblIOBuilderBase<IOB> /*implements ISchemaIOBuilder*/  {
 		return self;
 	} 
 	
+	/* (non-Javadoc)
+	 * @see net.sf.JRecord.def.IO.builders.IIOBuilder#setReadAhead(int, int)
+	 */
+	public final IOB setReadAhead(int bufferSize, int bufferCount) {
+		this.readAheadBufferSize = bufferSize;
+		this.readAheadBufferCount = bufferCount;
+		return self;
+	}
+	
+	/* (non-Javadoc)
+	 * @see net.sf.JRecord.def.IO.builders.IIOBuilder#setMetrics(net.sf.JRecord.Common.IOMetrics)
+	 */
+	public final IOB setMetrics(IOMetrics metrics) {
+		this.metrics = metrics;
+		return self;
+	}
+	
 	
     /**
 	 * @see net.sf.JRecord.def.IO.builders.ICobolIOBuilder#newLine()
@@ -253,15 +276,57 @@ public abstract class CblIOBuilderBase<IOB> /*implements ISchemaIOBuilder*/  {
 		LayoutDetail schema = getLayout();
 		AbstractLineReader r = LineIOProvider.getInstance().getLineReader(schema);
 		
+		if (metrics != null) {
+			datastream = metrics.wrap(datastream);
+			r.setMetrics(metrics);
+		}
+		if (readAheadBufferSize > 0) {
+			datastream = new ReadAheadInputStream(datastream, readAheadBufferSize, readAheadBufferCount);
+		}
 		r.open(datastream, schema);
 		return r;
 	}
 	
+	/* (non-Javadoc)
+	 * @see net.sf.JRecord.def.IO.builders.ISchemaIOBuilder#stream(java.lang.String)
+	 */
+	public final LineStream stream(String filename) throws IOException {
+		checkOk(true);
+		return LineStream.newStream(getLayout(), filename, new LineStream.IReaderCreator() {
+			@Override public AbstractLineReader newReader(InputStream in) throws IOException {
+				return CblIOBuilderBase.this.newReader(in);
+			}
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see net.sf.JRecord.def.IO.builders.ISchemaIOBuilder#stream(java.io.InputStream)
+	 */
+	public final LineStream stream(InputStream datastream) throws IOException {
+		return new LineStream(newReader(datastream));
+	}
+
+	/* (non-Javadoc)
+	 * @see net.sf.JRecord.def.IO.builders.ISchemaIOBuilder#lines(java.lang.String)
+	 */
+	public final Stream<AbstractLine> lines(String filename) throws IOException {
+		return stream(filename).stream();
+	}
+
+	/* (non-Javadoc)
+	 * @see net.sf.JRecord.def.IO.builders.ISchemaIOBuilder#lines(java.io.InputStream)
+	 */
+	public final Stream<AbstractLine> lines(InputStream datastream) throws IOException {
+		return stream(datastream).stream();
+	}
+	
 	public final AbstractLineReader newReader(IByteRecordReader reader) throws IOException {
 		checkOk(true);
 		LayoutDetail schema = getLayout();
+		AbstractLineReader r = new LineByteRecordReaderWrapper<IByteRecordReader>(lineProvider, reader, schema);
 		
-		return new LineByteRecordReaderWrapper<IByteRecordReader>(lineProvider, reader, schema);
+		r.setMetrics(metrics);
+		return r;
 	}
 	
 	/* (non-Javadoc)
@@ -279,7 +344,9 @@ public abstract class CblIOBuilderBase<IOB> /*implements ISchemaIOBuilder*/  {
 		checkOk(false);
 		//LayoutDetail schema = getLayout();
 
-		return new LineByteRecordWriterWrapper<IByteRecordWriter>(writer);
+		AbstractLineWriter w = new LineByteRecordWriterWrapper<IByteRecordWriter>(writer);
+		w.setMetrics(metrics);
+		return w;
 	}
 	
 	/* (non-Javadoc)
@@ -290,6 +357,10 @@ public abstract class CblIOBuilderBase<IOB> /*implements ISchemaIOBuilder*/  {
 		LayoutDetail schema = getLayout();
 		AbstractLineWriter r = LineIOProvider.getInstance().getLineWriter(schema);
 		
+		if (metrics != null) {
+			datastream = metrics.wrap(datastream);
+			r.setMetrics(metrics);
+		}
 		r.open(datastream);
 		return r;
 	}
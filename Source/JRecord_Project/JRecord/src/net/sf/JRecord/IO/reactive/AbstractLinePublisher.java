@@ -0,0 +1,199 @@
+package net.sf.JRecord.IO.reactive;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.sf.JRecord.Details.AbstractLine;
+
+/**
+ * Common code for the Line-Publishers. Lines are only fetched when the subscriber has
+ * requested them; they are delivered either on the thread that requests them or (when an
+ * Executor is supplied) by tasks on the executor, each task delivering at most one batch.
+ * Only one subscriber is supported.
+ *
+ * @author Bruce Martin
+ *
+ */
+public abstract class AbstractLinePublisher implements IPublisher<AbstractLine> {
+
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	private final Executor executor;
+	private final int batchSize;
+
+	private final AtomicReference<ISubscriber<? super AbstractLine>> subscriber
+				= new AtomicReference<ISubscriber<? super AbstractLine>>();
+	private final AtomicLong requested = new AtomicLong();
+	private final AtomicInteger wip = new AtomicInteger();
+	private volatile boolean cancelled = false;
+	private volatile Throwable requestError = null;
+	private volatile Throwable sourceError = null;
+	private boolean terminated = false;
+
+	private final Runnable drainTask = new Runnable() {
+		@Override public void run() {
+			drain();
+		}
+	};
+
+	/**
+	 * @param executor executor that delivers the lines (null - lines are delivered on the
+	 * thread that requests them)
+	 * @param batchSize maximum lines delivered by one executor task
+	 */
+	protected AbstractLinePublisher(Executor executor, int batchSize) {
+		this.executor = executor;
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * @see net.sf.JRecord.IO.reactive.IPublisher#subscribe(net.sf.JRecord.IO.reactive.ISubscriber)
+	 */
+	@Override
+	public void subscribe(ISubscriber<? super AbstractLine> s) {
+		if (s == null) {
+			throw new NullPointerException("Subscriber must not be null");
+		}
+		if (! subscriber.compareAndSet(null, s)) {
+			s.onSubscribe(new ISubscription() {
+				@Override public void request(long n) { }
+				@Override public void cancel() { }
+			});
+			s.onError(new IllegalStateException("Only one subscriber is supported"));
+			return;
+		}
+		s.onSubscribe(new ISubscription() {
+			@Override public void request(long n) {
+				if (n <= 0) {
+					requestError = new IllegalArgumentException("Request must be greater than 0: " + n);
+				} else {
+					long r, u;
+					do {
+						r = requested.get();
+						u = r + n < 0 ? Long.MAX_VALUE : r + n;
+					} while (! requested.compareAndSet(r, u));
+				}
+				signal();
+			}
+
+			@Override public void cancel() {
+				cancelled = true;
+				signal();
+			}
+		});
+		signal();
+	}
+
+	/**
+	 * The source has failed; the error is passed to the subscriber straight away
+	 * (it does not need to have requested any lines) and any lines not yet
+	 * delivered are discarded.
+	 * @param t error
+	 */
+	protected final void fail(Throwable t) {
+		sourceError = t;
+		signal();
+	}
+
+	/**
+	 * Signal that lines may be available (or the subscription has changed)
+	 */
+	protected final void signal() {
+		if (subscriber.get() != null && wip.getAndIncrement() == 0) {
+			if (executor == null) {
+				drain();
+			} else {
+				executor.execute(drainTask);
+			}
+		}
+	}
+
+	private void drain() {
+		ISubscriber<? super AbstractLine> s = subscriber.get();
+		int missed = 1;
+
+		for (;;) {
+			int emitted = 0;
+			while (! terminated) {
+				if (cancelled) {
+					terminate(s, null, false);
+				} else if (requestError != null) {
+					terminate(s, requestError, true);
+				} else if (sourceError != null) {
+					terminate(s, sourceError, true);
+				} else if (requested.get() == 0) {
+					if (isExhausted()) {
+						terminate(s, null, true);
+					}
+					break;
+				} else {
+					AbstractLine l;
+					try {
+						l = nextLine();
+					} catch (Throwable t) {
+						terminate(s, t, true);
+						break;
+					}
+					if (l == null) {
+						if (isExhausted()) {
+							terminate(s, null, true);
+						}
+						break;
+					}
+					if (requested.get() != Long.MAX_VALUE) {
+						requested.decrementAndGet();
+					}
+					s.onNext(l);
+
+					if (++emitted >= batchSize && executor != null) {
+						executor.execute(drainTask);
+						return;
+					}
+				}
+			}
+
+			missed = wip.addAndGet(-missed);
+			if (missed == 0) {
+				return;
+			}
+		}
+	}
+
+	private void terminate(ISubscriber<? super AbstractLine> s, Throwable error, boolean notify) {
+		terminated = true;
+		try {
+			release();
+		} catch (Throwable t) {
+			if (error == null) {
+				error = t;
+			}
+		}
+		if (notify) {
+			if (error == null) {
+				s.onComplete();
+			} else {
+				s.onError(error);
+			}
+		}
+	}
+
+	/**
+	 * Get the next line if one is available
+	 * @return the next line or null if none is available (now)
+	 * @throws Exception any error
+	 */
+	protected abstract AbstractLine nextLine() throws Exception;
+
+	/**
+	 * @return wether all lines have been returned
+	 */
+	protected abstract boolean isExhausted();
+
+	/**
+	 * Release any resources (called once when the publisher completes, fails or is cancelled)
+	 * @throws Exception any error
+	 */
+	protected abstract void release() throws Exception;
+}
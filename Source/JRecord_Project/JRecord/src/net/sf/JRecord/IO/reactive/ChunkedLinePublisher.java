@@ -0,0 +1,181 @@
+package net.sf.JRecord.IO.reactive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.JRecord.ByteIO.RecordFramer;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.LineProvider;
+import net.sf.JRecord.IO.LineIOProvider;
+
+/**
+ * Publishes lines from data that is pushed to it in chunks (e.g. from a non-blocking
+ * network source). The chunks are split into records by a {@link RecordFramer}
+ * and the lines held until the subscriber requests them.
+ *
+ * <p>Back pressure is passed to the source: {@link #feed(ByteBuffer)} returns false when
+ * more than <i>highWaterMark</i> lines are waiting; the source should then stop reading until
+ * the <i>resume</i> callback is called (when half the waiting lines have been delivered).
+ * When lines are delivered by an Executor, <i>resume</i> may be called (on the executor thread)
+ * before feed returns false; the source should remember it so it does not stay paused.
+ *
+ * <pre>
+ *     ChunkedLinePublisher publisher = new ChunkedLinePublisher(
+ *             iob.getLayout(), new VbRecordFramer(), 1000, resumeReading);
+ *     publisher.subscribe(subscriber);
+ *          ...
+ *     // network callback
+ *     if (! publisher.feed(buffer)) {
+ *         pauseReading();
+ *     }
+ *          ...
+ *     publisher.complete();
+ * </pre>
+ *
+ * <p>feed / complete / error must not be called by more than one thread at a time.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class ChunkedLinePublisher extends AbstractLinePublisher {
+
+	private final LayoutDetail layout;
+	private final LineProvider lineProvider;
+	private final RecordFramer framer;
+	private final int highWaterMark;
+	private final Runnable resume;
+
+	private final ConcurrentLinkedQueue<AbstractLine> lines = new ConcurrentLinkedQueue<AbstractLine>();
+	private final AtomicInteger waiting = new AtomicInteger();
+	private final AtomicBoolean paused = new AtomicBoolean();
+	private volatile boolean complete = false;
+
+	private final RecordFramer.IRecordConsumer consumer = new RecordFramer.IRecordConsumer() {
+		@Override public void record(byte[] record) {
+			lines.add(lineProvider.getLine(layout, record));
+			waiting.incrementAndGet();
+		}
+	};
+
+	/**
+	 * Create publisher that delivers lines on the thread feeding / requesting them
+	 * @param layout record layout
+	 * @param framer splits the data into records
+	 * @param highWaterMark maximum lines to be held before the source is asked to pause
+	 * @param resume called when the source should resume reading (may be null)
+	 */
+	public ChunkedLinePublisher(LayoutDetail layout, RecordFramer framer, int highWaterMark, Runnable resume) {
+		this(layout, framer, highWaterMark, resume, null);
+	}
+
+	/**
+	 * Create publisher
+	 * @param layout record layout
+	 * @param framer splits the data into records
+	 * @param highWaterMark maximum lines to be held before the source is asked to pause
+	 * @param resume called when the source should resume reading (may be null)
+	 * @param executor executor that delivers the lines (null - thread feeding / requesting them)
+	 */
+	public ChunkedLinePublisher(LayoutDetail layout, RecordFramer framer, int highWaterMark,
+			Runnable resume, Executor executor) {
+		super(executor, DEFAULT_BATCH_SIZE);
+		this.layout = layout;
+		this.lineProvider = LineIOProvider.getInstance().getLineProvider(layout);
+		this.framer = framer;
+		this.highWaterMark = Math.max(1, highWaterMark);
+		this.resume = resume;
+	}
+
+	/**
+	 * Add a chunk of data
+	 * @param chunk data (all remaining bytes are used)
+	 * @return wether the source can continue sending data
+	 * (false: wait for the resume callback)
+	 * @throws IOException if the data is invalid
+	 */
+	public boolean feed(ByteBuffer chunk) throws IOException {
+		checkOpen();
+		try {
+			framer.feed(chunk, consumer);
+		} catch (IOException e) {
+			error(e);
+			throw e;
+		}
+		if (waiting.get() >= highWaterMark) {
+			paused.set(true);
+		}
+		signal();
+		if (paused.get() && waiting.get() <= highWaterMark / 2) {
+			paused.compareAndSet(true, false);	// lines were delivered while pausing
+		}
+		return ! paused.get();
+	}
+
+	/**
+	 * End of the data
+	 * @throws IOException if there is an incomplete record
+	 */
+	public void complete() throws IOException {
+		checkOpen();
+		try {
+			framer.finish(consumer);
+		} catch (IOException e) {
+			error(e);
+			throw e;
+		}
+		complete = true;
+		signal();
+	}
+
+	/**
+	 * The source has failed, the error is passed to the subscriber straight away
+	 * (without waiting for a request); lines not yet delivered are discarded.
+	 * @param t error
+	 */
+	public void error(Throwable t) {
+		fail(t);
+		complete = true;
+	}
+
+	/**
+	 * @return number of lines waiting to be delivered
+	 */
+	public int getWaitingCount() {
+		return waiting.get();
+	}
+
+	@Override
+	protected AbstractLine nextLine() throws Exception {
+		AbstractLine l = lines.poll();
+		if (l != null
+		&& waiting.decrementAndGet() <= highWaterMark / 2
+		&& paused.get()
+		&& paused.compareAndSet(true, false)
+		&& resume != null) {
+			resume.run();
+		}
+		return l;
+	}
+
+	@Override
+	protected boolean isExhausted() {
+		return complete && lines.isEmpty();
+	}
+
+	@Override
+	protected void release() {
+		lines.clear();
+		waiting.set(0);
+	}
+
+	private void checkOpen() throws IOException {
+		if (complete) {
+			throw new IOException("The publisher has been completed");
+		}
+	}
+}
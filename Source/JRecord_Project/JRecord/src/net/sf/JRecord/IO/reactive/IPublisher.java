@@ -0,0 +1,19 @@
+package net.sf.JRecord.IO.reactive;
+
+/**
+ * Source of a (potentially unbounded) sequence of items, published according to
+ * the demand received from its Subscriber. This mirrors <b>org.reactivestreams.Publisher</b>
+ * (and java.util.concurrent.Flow.Publisher) so it can be bridged to any Reactive-Streams library.
+ *
+ * @author Bruce Martin
+ *
+ * @param <T> type of item published
+ */
+public interface IPublisher<T> {
+
+	/**
+	 * Request the publisher to start streaming data
+	 * @param subscriber receives the data
+	 */
+	public void subscribe(ISubscriber<? super T> subscriber);
+}
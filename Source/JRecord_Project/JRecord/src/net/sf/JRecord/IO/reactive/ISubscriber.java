@@ -0,0 +1,35 @@
+package net.sf.JRecord.IO.reactive;
+
+/**
+ * Receives items from a Publisher; mirrors <b>org.reactivestreams.Subscriber</b>.
+ * No items are received until demand is signalled via {@link ISubscription#request(long)}.
+ *
+ * @author Bruce Martin
+ *
+ * @param <T> type of item received
+ */
+public interface ISubscriber<T> {
+
+	/**
+	 * Called once when the subscriber is subscribed
+	 * @param subscription used to request items / cancel
+	 */
+	public void onSubscribe(ISubscription subscription);
+
+	/**
+	 * Next item
+	 * @param item the item
+	 */
+	public void onNext(T item);
+
+	/**
+	 * Terminal error
+	 * @param t the error
+	 */
+	public void onError(Throwable t);
+
+	/**
+	 * Called when all items have been sent
+	 */
+	public void onComplete();
+}
@@ -0,0 +1,21 @@
+package net.sf.JRecord.IO.reactive;
+
+/**
+ * Link between a Publisher and a Subscriber; mirrors <b>org.reactivestreams.Subscription</b>.
+ *
+ * @author Bruce Martin
+ *
+ */
+public interface ISubscription {
+
+	/**
+	 * Request more items
+	 * @param n number of extra items wanted (must be greater than 0)
+	 */
+	public void request(long n);
+
+	/**
+	 * Stop sending items (and release any resources)
+	 */
+	public void cancel();
+}
@@ -0,0 +1,75 @@
+package net.sf.JRecord.IO.reactive;
+
+import java.util.concurrent.Executor;
+
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.AbstractLineReader;
+
+/**
+ * Publishes the lines read by a Line-Reader. Lines are only read when the subscriber
+ * has requested them, so a slow subscriber never causes lines to be buffered.
+ * The reader is closed when the last line has been read, on an error or
+ * when the subscription is cancelled.
+ *
+ * <pre>
+ *     ExecutorService executor = Executors.newFixedThreadPool(2);
+ *     LinePublisher publisher = new LinePublisher(iob.newReader(fileName), executor);
+ *     publisher.subscribe(subscriber);
+ * </pre>
+ *
+ * <p>Reading is blocking, so an Executor should be supplied when the requesting thread
+ * must not block (e.g. an event loop thread).
+ *
+ * @author Bruce Martin
+ *
+ */
+public class LinePublisher extends AbstractLinePublisher {
+
+	private final AbstractLineReader reader;
+	private volatile boolean eof = false;
+
+	/**
+	 * Publish the lines on the requesting thread
+	 * @param reader reader to be published
+	 */
+	public LinePublisher(AbstractLineReader reader) {
+		this(reader, null, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Publish the lines from an executor
+	 * @param reader reader to be published
+	 * @param executor executor used to read / deliver the lines
+	 */
+	public LinePublisher(AbstractLineReader reader, Executor executor) {
+		this(reader, executor, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Publish the lines from an executor
+	 * @param reader reader to be published
+	 * @param executor executor used to read / deliver the lines (null - requesting thread)
+	 * @param batchSize maximum number of lines read by one executor task
+	 */
+	public LinePublisher(AbstractLineReader reader, Executor executor, int batchSize) {
+		super(executor, batchSize);
+		this.reader = reader;
+	}
+
+	@Override
+	protected AbstractLine nextLine() throws Exception {
+		AbstractLine l = reader.read();
+		eof = l == null;
+		return l;
+	}
+
+	@Override
+	protected boolean isExhausted() {
+		return eof;
+	}
+
+	@Override
+	protected void release() throws Exception {
+		reader.close();
+	}
+}
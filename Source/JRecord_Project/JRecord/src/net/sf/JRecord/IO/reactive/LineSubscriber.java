@@ -0,0 +1,171 @@
+package net.sf.JRecord.IO.reactive;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.AbstractLineWriter;
+
+/**
+ * Writes the lines it receives using a Line-Writer. Lines are requested in batches,
+ * more lines being requested when half the batch has been written, so the
+ * publisher can never get more than one batch ahead of the writer.
+ * The writer is closed when the publisher completes or fails.
+ *
+ * <pre>
+ *     LineSubscriber subscriber = new LineSubscriber(iob.newWriter(outFile));
+ *     publisher.subscribe(subscriber);
+ *     subscriber.await();
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ */
+public class LineSubscriber implements ISubscriber<AbstractLine> {
+
+	private final AbstractLineWriter writer;
+	private final int batchSize, replenish;
+	private final CountDownLatch done = new CountDownLatch(1);
+
+	private ISubscription subscription = null;
+	private int received = 0;
+	private long count = 0;
+	private volatile Throwable error = null;
+	private boolean finished = false;
+
+	/**
+	 * @param writer writer used to write the lines
+	 */
+	public LineSubscriber(AbstractLineWriter writer) {
+		this(writer, AbstractLinePublisher.DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param writer writer used to write the lines
+	 * @param batchSize maximum number of lines requested at once
+	 */
+	public LineSubscriber(AbstractLineWriter writer, int batchSize) {
+		this.writer = writer;
+		this.batchSize = Math.max(1, batchSize);
+		this.replenish = Math.max(1, this.batchSize / 2);
+	}
+
+	@Override
+	public synchronized void onSubscribe(ISubscription s) {
+		if (subscription != null || finished) {
+			s.cancel();
+			return;
+		}
+		subscription = s;
+		s.request(batchSize);
+	}
+
+	@Override
+	public void onNext(AbstractLine line) {
+		ISubscription s;
+		synchronized (this) {
+			if (finished) {
+				return;
+			}
+			try {
+				writer.write(line);
+			} catch (IOException e) {
+				finish(e);
+				subscription.cancel();
+				return;
+			}
+			count += 1;
+			if (++received < replenish) {
+				return;
+			}
+			received = 0;
+			s = subscription;
+		}
+		s.request(replenish);
+	}
+
+	@Override
+	public synchronized void onError(Throwable t) {
+		finish(t == null ? new NullPointerException("null error") : t);
+	}
+
+	@Override
+	public synchronized void onComplete() {
+		finish(null);
+	}
+
+	/**
+	 * Wait for the publisher to finish
+	 * @throws IOException if the publisher failed or a line could not be written
+	 * @throws InterruptedException if the thread is interrupted
+	 */
+	public void await() throws IOException, InterruptedException {
+		done.await();
+		checkError();
+	}
+
+	/**
+	 * Wait for the publisher to finish
+	 * @param timeout maximum time to wait
+	 * @param unit unit of the timeout
+	 * @return wether the publisher has finished
+	 * @throws IOException if the publisher failed or a line could not be written
+	 * @throws InterruptedException if the thread is interrupted
+	 */
+	public boolean await(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+		if (! done.await(timeout, unit)) {
+			return false;
+		}
+		checkError();
+		return true;
+	}
+
+	/**
+	 * @return wether the publisher has finished
+	 */
+	public boolean isDone() {
+		return done.getCount() == 0;
+	}
+
+	/**
+	 * @return the error (if any)
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	/**
+	 * @return number of lines written
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	private void finish(Throwable t) {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		error = t;
+		try {
+			writer.close();
+		} catch (IOException e) {
+			if (error == null) {
+				error = e;
+			}
+		}
+		done.countDown();
+	}
+
+	private void checkError() throws IOException {
+		Throwable t = error;
+		if (t instanceof IOException) {
+			throw (IOException) t;
+		} else if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		} else if (t != null) {
+			throw new IOException(t);
+		}
+	}
+}
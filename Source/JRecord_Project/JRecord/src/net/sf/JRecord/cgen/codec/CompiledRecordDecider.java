@@ -0,0 +1,133 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.cgen.codec;
+
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.IRecordDeciderX;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.detailsSelection.RecordSel;
+import net.sf.JRecord.detailsSelection.RecordSelection;
+
+/**
+ * Record Decider that uses {@link CompiledSelection}'s of the Record-Selections
+ * defined in the Layout. It returns the same record as the standard (interpreted)
+ * Record-Selection logic in the Line classes, but the field tests are done on the
+ * raw record bytes where possible.
+ *
+ * <pre>
+ *      ICobolIOBuilder iob = JRecordInterface1.COBOL
+ *              .newIOBuilder(copybookName)
+ *                  .setSplitCopybook(CopybookLoader.SPLIT_01_LEVEL)
+ *                  .setRecordSelection("Header-Record", newFieldSelection("Record-Type", "H"))
+ *                  .setRecordSelection("Detail-Record", newFieldSelection("Record-Type", "D"))
+ *                  .<b>setRecordDecider(new CompiledRecordDecider())</b>;
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ */
+public class CompiledRecordDecider implements IRecordDeciderX {
+
+	private Selections selections = null;
+
+	/**
+	 * @see net.sf.JRecord.Details.IRecordDeciderX#setLayout(net.sf.JRecord.Details.LayoutDetail)
+	 */
+	@Override
+	public void setLayout(LayoutDetail layout) {
+		selections = new Selections(layout);
+	}
+
+	/**
+	 * @see net.sf.JRecord.Details.RecordDecider#getPreferedIndex(net.sf.JRecord.Details.AbstractLine)
+	 */
+	@Override
+	public int getPreferedIndex(AbstractLine line) {
+		LayoutDetail layout = line.getLayout();
+		Selections s = selections;
+		if (s == null || s.layout != layout) {
+			// The decider has been used with more than one layout
+			selections = s = new Selections(layout);
+		}
+
+		int defaultIdx = Constants.NULL_INTEGER;
+		int defCount = -1;
+		for (int i = 0; i < s.compiled.length; i++) {
+			RecordSelection sel = layout.getRecord(i).getRecordSelection();
+			RecordSel recSel = sel.getRecSel();
+			boolean selected;
+
+			if (recSel == null) {
+				selected = sel.isDefaultRecord();
+			} else {
+				Compiled c = s.compiled[i];
+				if (c == null || c.recSel != recSel) {
+					// Record Selections are set after the layout has been created
+					s.compiled[i] = c = new Compiled(recSel, CompiledSelection.compile(layout, recSel));
+				}
+				selected = c.selection.isSelected(line);
+			}
+
+			if (selected) {
+				if (! sel.isDefaultRecord()) {
+					return i;
+				}
+				if (sel.size() > defCount) {
+					defaultIdx = i;
+					defCount = sel.size();
+				}
+			}
+		}
+		return defaultIdx;
+	}
+
+	/**
+	 * Compiled Record Selections for a layout
+	 */
+	private static final class Selections {
+		final LayoutDetail layout;
+		final Compiled[] compiled;
+
+		Selections(LayoutDetail layout) {
+			this.layout = layout;
+			this.compiled = new Compiled[layout.getRecordCount()];
+		}
+	}
+
+	private static final class Compiled {
+		final RecordSel recSel;
+		final CompiledSelection selection;
+
+		Compiled(RecordSel recSel, CompiledSelection selection) {
+			this.recSel = recSel;
+			this.selection = selection;
+		}
+	}
+}
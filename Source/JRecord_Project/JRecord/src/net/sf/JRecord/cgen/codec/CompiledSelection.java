@@ -0,0 +1,440 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.cgen.codec;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import net.sf.JRecord.Common.Conversion;
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.IFieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.LayoutGetFieldByName;
+import net.sf.JRecord.Details.Line;
+import net.sf.JRecord.ExternalRecordSelection.ExternalSelection;
+import net.sf.JRecord.Types.Type;
+import net.sf.JRecord.Types.smallBin.ITypeBinaryExtendedNumeric;
+import net.sf.JRecord.Types.smallBin.TypeZonedAsciiSmall;
+import net.sf.JRecord.Types.smallBin.TypeZonedEbcdicSmall;
+import net.sf.JRecord.detailsSelection.AbsGroup;
+import net.sf.JRecord.detailsSelection.AndSelection;
+import net.sf.JRecord.detailsSelection.Convert;
+import net.sf.JRecord.detailsSelection.FieldSelect;
+import net.sf.JRecord.detailsSelection.FieldSelectX;
+import net.sf.JRecord.detailsSelection.OrSelection;
+import net.sf.JRecord.detailsSelection.RecordSel;
+
+/**
+ * A Record Selection compiled for a specific Layout. The selection tree
+ * (And / Or groups and field tests) is converted once into a tree of small final classes
+ * with the field offsets, lengths and comparison values resolved up front:
+ * <ul>
+ *   <li><b>And / Or</b> groups evaluate an array of children and short-circuit.
+ *   <li><b>Text</b> comparisons (=, !=, &gt;, &gt;=, &lt;, &lt;=) on single byte character fields
+ *   are done on the record bytes using a byte-to-char table; no String is created.
+ *   <li><b>Numeric</b> comparisons on Packed-Decimal and Binary fields (that fit in a long)
+ *   compare unscaled longs; no BigDecimal is created.
+ *   <li>Everything else (Contains, Regular Expressions, Group functions, Csv or
+ *   Occurs-Depending layouts etc) uses the standard (interpreted) selection.
+ * </ul>
+ * The result is always the same as the interpreted selection. When the raw data can not be
+ * checked (e.g. invalid Packed-Decimal or a short record) the interpreted selection is used
+ * for that test.
+ *
+ * <pre>
+ *      CompiledSelection filter = CompiledSelection.<b>compile</b>(
+ *              layout,
+ *              ExternalFieldSelection.newFieldSelection("Record-Type", "=", "D"));
+ *
+ *      while ((line = reader.read()) != null) {
+ *          if (filter.<b>isSelected</b>(line)) {
+ *              ...
+ *          }
+ *      }
+ * </pre>
+ *
+ * <p>Compiling a selection takes time, so compile it once and keep the compiled selection
+ * (as {@link net.sf.JRecord.IO.FilterLineReader} does); it reflects the selection as it
+ * was when it was compiled. See {@link CompiledRecordDecider} for using compiled selections to decide the record type.
+ *
+ * @author Bruce Martin
+ *
+ */
+public abstract class CompiledSelection {
+
+	private static final CompiledSelection ALL = new Const();
+
+	/**
+	 * Compile a selection for a Layout.
+	 *
+	 * @param layout record layout (schema)
+	 * @param selection selection to be compiled, field names are looked up
+	 * in the first record then in the whole layout. A null selection selects every line.
+	 * @return compiled selection
+	 */
+	public static CompiledSelection compile(LayoutDetail layout, ExternalSelection selection) {
+		if (selection == null) {
+			return ALL;
+		}
+		RecordSel sel;
+		if (selection instanceof RecordSel) {
+			sel = (RecordSel) selection;
+		} else {
+			sel = (new Convert()).convert(selection, new LayoutGetFieldByName(layout, layout.getRecord(0)));
+		}
+		return compile(new Compiler(layout), sel);
+	}
+
+	/**
+	 * Check if a line is selected
+	 * @param line line to be checked
+	 * @return wether the line is selected
+	 */
+	public abstract boolean isSelected(AbstractLine line);
+
+	/**
+	 * @return number of field tests that are done on the raw record bytes
+	 */
+	public abstract int getCompiledTestCount();
+
+	/**
+	 * @return number of tests that use the standard (interpreted) selection
+	 */
+	public abstract int getInterpretedTestCount();
+
+
+	private static CompiledSelection compile(Compiler compiler, RecordSel sel) {
+		Class<?> c = sel.getClass();
+
+		if (c == AndSelection.class || c == OrSelection.class) {
+			AbsGroup g = (AbsGroup) sel;
+			if (g.size() > 0) {
+				CompiledSelection[] children = new CompiledSelection[g.size()];
+				for (int i = 0; i < children.length; i++) {
+					children[i] = compile(compiler, g.get(i));
+				}
+				return c == AndSelection.class ? new And(children) : new Or(children);
+			}
+		} else if (c == FieldSelect.TrueSelect.class) {
+			return ALL;
+		} else if (sel instanceof FieldSelectX) {
+			CompiledSelection ret = compiler.compileField((FieldSelectX) sel);
+			if (ret != null) {
+				return ret;
+			}
+		}
+		return new Interpreted(sel);
+	}
+
+
+	/**
+	 * Works out which field tests can be done on the raw record bytes
+	 */
+	private static final class Compiler {
+		private final boolean fixedPositions;
+
+		Compiler(LayoutDetail layout) {
+			boolean fixed = ! layout.isCsvLayout();
+			for (int i = 0; fixed && i < layout.getRecordCount(); i++) {
+				fixed = ! layout.getRecord(i).hasDependingOn();
+			}
+			this.fixedPositions = fixed;
+		}
+
+		CompiledSelection compileField(FieldSelectX sel) {
+			Class<?> c = sel.getClass();
+			IFieldDetail fld = sel.getFieldDetail();
+
+			if (! fixedPositions
+			|| (c != FieldSelectX.EqualsSelect.class && c != FieldSelectX.NotEqualsSelect.class
+					&& c != FieldSelectX.GreaterThan.class && c != FieldSelectX.LessThan.class)
+			|| ! (fld instanceof FieldDetail)
+			|| sel.getRecordIdx() >= 0
+			|| sel.getFieldValue() == null
+			|| ! fld.isFixedFormat()
+			|| ((FieldDetail) fld).getDependingOnDtls() != null) {
+				return null;
+			}
+			FieldDetail field = (FieldDetail) fld;
+
+			if (sel.isNumeric()) {
+				ITypeBinaryExtendedNumeric type = FieldCodec.getUnscaledLongType(field);
+				if (type == null || type instanceof TypeZonedEbcdicSmall || type instanceof TypeZonedAsciiSmall) {
+					// Zoned-Decimal is not checked for invalid data by the small types
+					return null;
+				}
+				return NumericTest.newTest(sel, field, type);
+			} else if (field.getType() == Type.ftChar && Conversion.isSingleByte(field.getFontName())) {
+				return new TextTest(sel, field);
+			}
+			return null;
+		}
+	}
+
+
+	/**
+	 * Selects every line
+	 */
+	private static final class Const extends CompiledSelection {
+		@Override public boolean isSelected(AbstractLine line) {
+			return true;
+		}
+
+		@Override public int getCompiledTestCount() {
+			return 0;
+		}
+
+		@Override public int getInterpretedTestCount() {
+			return 0;
+		}
+	}
+
+	/**
+	 * Uses the standard selection
+	 */
+	private static final class Interpreted extends CompiledSelection {
+		private final RecordSel sel;
+
+		Interpreted(RecordSel sel) {
+			this.sel = sel;
+		}
+
+		@Override public boolean isSelected(AbstractLine line) {
+			return sel.isSelected(line);
+		}
+
+		@Override public int getCompiledTestCount() {
+			return 0;
+		}
+
+		@Override public int getInterpretedTestCount() {
+			return 1;
+		}
+	}
+
+	/**
+	 * Group of selections
+	 */
+	private static abstract class Group extends CompiledSelection {
+		protected final CompiledSelection[] children;
+
+		Group(CompiledSelection[] children) {
+			this.children = children;
+		}
+
+		@Override public int getCompiledTestCount() {
+			int count = 0;
+			for (CompiledSelection c : children) {
+				count += c.getCompiledTestCount();
+			}
+			return count;
+		}
+
+		@Override public int getInterpretedTestCount() {
+			int count = 0;
+			for (CompiledSelection c : children) {
+				count += c.getInterpretedTestCount();
+			}
+			return count;
+		}
+	}
+
+	private static final class And extends Group {
+		And(CompiledSelection[] children) {
+			super(children);
+		}
+
+		@Override public boolean isSelected(AbstractLine line) {
+			for (CompiledSelection c : children) {
+				if (! c.isSelected(line)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static final class Or extends Group {
+		Or(CompiledSelection[] children) {
+			super(children);
+		}
+
+		@Override public boolean isSelected(AbstractLine line) {
+			for (CompiledSelection c : children) {
+				if (c.isSelected(line)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Field test done on the raw record bytes
+	 */
+	private static abstract class FieldTest extends CompiledSelection {
+		protected final FieldSelectX sel;
+		protected final FieldDetail field;
+		/** offset (zero based) of the field in the record */
+		protected final int offset;
+		protected final int length;
+
+		FieldTest(FieldSelectX sel, FieldDetail field) {
+			this.sel = sel;
+			this.field = field;
+			this.offset = field.getPos() - 1;
+			this.length = field.getLen();
+		}
+
+		@Override public int getCompiledTestCount() {
+			return 1;
+		}
+
+		@Override public int getInterpretedTestCount() {
+			return 0;
+		}
+	}
+
+	/**
+	 * Compare a single byte character field. The comparison matches
+	 * String.compareTo / compareToIgnoreCase on the (trimmed) field value.
+	 */
+	private static final class TextTest extends FieldTest {
+		private final char[] toChar = new char[256];
+		private final char[] value;
+		private final byte padByte;
+
+		TextTest(FieldSelectX sel, FieldDetail field) {
+			super(sel, field);
+			String font = field.getFontName();
+			byte[] b = new byte[256];
+			for (int i = 0; i < 256; i++) {
+				b[i] = (byte) i;
+			}
+			Conversion.getString(b, 0, 256, font).getChars(0, 256, toChar, 0);
+			padByte = Conversion.getBytes(" ", font)[0];
+			value = sel.getFieldValue().toCharArray();
+
+			if (! sel.isCaseSensitive()) {
+				for (int i = 0; i < 256; i++) {
+					toChar[i] = fold(toChar[i]);
+				}
+				for (int i = 0; i < value.length; i++) {
+					value[i] = fold(value[i]);
+				}
+			}
+		}
+
+		private static char fold(char c) {
+			return Character.toLowerCase(Character.toUpperCase(c));
+		}
+
+		@Override public boolean isSelected(AbstractLine line) {
+			if (! (line instanceof Line)) {
+				return sel.isSelected(line);
+			}
+			byte[] rec = line.getData();
+			int end = Math.min(offset + length, rec.length);
+			int i = offset;
+
+			while (i < end && rec[i] == 0) {
+				i += 1;
+			}
+			if (i >= end) {
+				end = offset;
+			} else {
+				while (end > offset && (rec[end - 1] == padByte || toChar[rec[end - 1] & 0xFF] == ' ')) {
+					end -= 1;
+				}
+			}
+
+			int len = end - offset;
+			int lim = Math.min(len, value.length);
+			for (i = 0; i < lim; i++) {
+				char c = toChar[rec[offset + i] & 0xFF];
+				if (c != value[i]) {
+					return sel.isCompareSelected(c - value[i]);
+				}
+			}
+			return sel.isCompareSelected(len - value.length);
+		}
+	}
+
+	/**
+	 * Compare a Packed-Decimal / Binary field that fits in a long
+	 */
+	private static final class NumericTest extends FieldTest {
+		private final ITypeBinaryExtendedNumeric type;
+		private final int position;
+		/** compare value (unscaled) rounded down */
+		private final long floor;
+		/** wether the compare value is exactly floor */
+		private final boolean exact;
+
+		static NumericTest newTest(FieldSelectX sel, FieldDetail field, ITypeBinaryExtendedNumeric type) {
+			BigDecimal value;
+			try {
+				value = new BigDecimal(sel.getFieldValue().trim()).movePointRight(field.getDecimal());
+			} catch (NumberFormatException e) {
+				return null;
+			}
+			if (value.abs().compareTo(BigDecimal.valueOf(Long.MAX_VALUE / 10)) >= 0) {
+				return null;
+			}
+			BigDecimal floor = value.setScale(0, RoundingMode.FLOOR);
+			return new NumericTest(sel, field, type, floor.longValue(), floor.compareTo(value) == 0);
+		}
+
+		private NumericTest(FieldSelectX sel, FieldDetail field, ITypeBinaryExtendedNumeric type, long floor, boolean exact) {
+			super(sel, field);
+			this.type = type;
+			this.position = field.getPos();
+			this.floor = floor;
+			this.exact = exact;
+		}
+
+		@Override public boolean isSelected(AbstractLine line) {
+			if (line instanceof Line) {
+				byte[] rec = line.getData();
+				if (rec.length >= offset + length) {
+					long v;
+					try {
+						v = type.asUnscaledLong(rec, position, field);
+					} catch (RecordException e) {
+						return sel.isSelected(line);
+					}
+					return sel.isCompareSelected(v > floor ? 1 : (v == floor && exact ? 0 : -1));
+				}
+			}
+			return sel.isSelected(line);
+		}
+	}
+}
@@ -0,0 +1,282 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.cgen.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+import net.sf.JRecord.Common.Conversion;
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Types.Type;
+import net.sf.JRecord.Types.TypeManager;
+import net.sf.JRecord.Types.smallBin.ITypeBinaryExtendedNumeric;
+import net.sf.JRecord.Types.smallBin.TypeBaseXBinary;
+
+/**
+ * Decode / Encode one field at a fixed offset in a record. The codec is chosen
+ * when the {@link RecordCodec} is built (not when the field is accessed) so each
+ * field gets a small final class with its offset, length and Type resolved up front:
+ * <ul>
+ *   <li><b>Text</b> fields in a single byte character set are converted with a
+ *   lookup table.
+ *   <li><b>Packed-Decimal, Binary and Zoned</b> fields that fit in a long use the
+ *   JRecord <i>small binary</i> types (no String / BigInteger conversion).
+ *   Integers are returned as Long, fields with decimal places as BigDecimal.
+ *   <li>Everything else uses the standard JRecord Type.
+ * </ul>
+ *
+ * @author Bruce Martin
+ *
+ */
+public abstract class FieldCodec {
+
+	private static final long[] POT = {1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000,
+			10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+			1000000000000000L, 10000000000000000L, 100000000000000000L,
+			1000000000000000000L};
+
+	/** field definition */
+	public final FieldDetail field;
+	/** offset (zero based) of the field in the record */
+	protected final int offset;
+	/** JRecord position (one based) of the field in the record */
+	protected final int position;
+	protected final int length;
+
+	protected FieldCodec(FieldDetail field) {
+		this.field = field;
+		this.position = field.getPos();
+		this.offset = position - 1;
+		this.length = field.getLen();
+	}
+
+	/**
+	 * Get the field value from the record
+	 * @param record record (byte array) to extract the field from
+	 * @return field value
+	 */
+	public abstract Object decode(byte[] record);
+
+	/**
+	 * Update the field in the record
+	 * @param record record to be updated; it should be at least as long as the Record
+	 * @param value new field value
+	 */
+	public abstract void encode(byte[] record, Object value);
+
+	/**
+	 * Create the best Codec for a field
+	 * @param field field to be decoded / encoded
+	 * @return codec for the field
+	 */
+	public static FieldCodec newCodec(FieldDetail field) {
+		int typeId = field.getType();
+		String font = field.getFontName();
+		TypeManager typeManager = TypeManager.getInstance();
+		Type type = typeManager.getType(typeId);
+
+		if (typeId == Type.ftChar && Conversion.isSingleByte(font)) {
+			return new CharCodec(field);
+		}
+		ITypeBinaryExtendedNumeric shortType = getUnscaledLongType(field);
+		if (shortType != null) {
+			return new UnscaledLongCodec(field, type, shortType);
+		}
+		return new TypeCodec(field, type);
+	}
+
+	/**
+	 * Get the <i>small binary</i> type that can read / write a numeric field
+	 * as an unscaled long (Packed Decimal, Binary and Zoned fields that fit in a long)
+	 * @param field field to be checked
+	 * @return small binary type or null if the field can not be held in a long
+	 */
+	public static ITypeBinaryExtendedNumeric getUnscaledLongType(FieldDetail field) {
+		int typeId = field.getType();
+		TypeManager typeManager = TypeManager.getInstance();
+		Type type = typeManager.getType(typeId);
+
+		if (type instanceof ITypeBinaryExtendedNumeric) {
+			// Layout was built with optimized types
+			return (ITypeBinaryExtendedNumeric) type;
+		}
+		if (typeId < TypeManager.FIRST_SHORT_BIN && TypeManager.isNumeric(typeId)
+		&& ! TypeManager.hasFloatingDecimal(typeId)) {
+			int shortTypeId = typeManager.getShortType(typeId, field.getLen(), field.getFontName());
+			if (shortTypeId >= TypeManager.FIRST_SHORT_BIN) {
+				return typeManager.getShortLengthType(shortTypeId);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Codec using the standard JRecord Type
+	 */
+	private static final class TypeCodec extends FieldCodec {
+		private final Type type;
+
+		TypeCodec(FieldDetail field, Type type) {
+			super(field);
+			this.type = type;
+		}
+
+		@Override
+		public Object decode(byte[] record) {
+			return type.getField(record, position, field);
+		}
+
+		@Override
+		public void encode(byte[] record, Object value) {
+			type.setField(record, position, field, value == null ? "" : value);
+		}
+	}
+
+	/**
+	 * Numeric field that fits in a long (Packed Decimal, Binary, Zoned Decimal)
+	 */
+	private static final class UnscaledLongCodec extends FieldCodec {
+		private final Type type;
+		private final ITypeBinaryExtendedNumeric shortType;
+		private final int scale;
+
+		UnscaledLongCodec(FieldDetail field, Type type, ITypeBinaryExtendedNumeric shortType) {
+			super(field);
+			this.type = type;
+			this.shortType = shortType;
+			this.scale = field.getDecimal();
+		}
+
+		@Override
+		public Object decode(byte[] record) {
+			long v;
+			try {
+				v = shortType.asUnscaledLong(record, position, field);
+			} catch (RecordException e) {
+				// Invalid data (e.g. spaces / low-values); let the standard type handle it
+				return type.getField(record, position, field);
+			}
+			if (scale == 0) {
+				return Long.valueOf(v);
+			}
+			return BigDecimal.valueOf(v, scale);
+		}
+
+		@Override
+		public void encode(byte[] record, Object value) {
+			if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+				long v = ((Number) value).longValue();
+				if (scale > 0) {
+					if (scale >= POT.length || v > Long.MAX_VALUE / POT[scale] || v < Long.MIN_VALUE / POT[scale]) {
+						throw toBig(value);
+					}
+					v = v * POT[scale];
+				}
+				setUnscaledLong(record, v, value);
+			} else if (value instanceof BigDecimal || value instanceof BigInteger) {
+				BigDecimal v = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal((BigInteger) value);
+				BigInteger unscaled = v.setScale(scale, RoundingMode.HALF_UP).unscaledValue();
+				if (unscaled.bitLength() > 63) {
+					throw toBig(value);
+				}
+				setUnscaledLong(record, unscaled.longValue(), value);
+			} else {
+				type.setField(record, position, field, value == null ? "0" : value);
+			}
+		}
+
+		/**
+		 * The small binary types do not check the value fits in the field, so check it here
+		 */
+		private void setUnscaledLong(byte[] record, long unscaled, Object value) {
+			if (shortType instanceof TypeBaseXBinary
+			&& ! ((TypeBaseXBinary) shortType).isInRange(field, unscaled)) {
+				throw toBig(value);
+			}
+			shortType.setUnscaledLong(record, position, field, unscaled);
+		}
+
+		private RecordException toBig(Object value) {
+			return new RecordException("Value " + value + " is to big for field: " + field.getName());
+		}
+	}
+
+	/**
+	 * Text field in a single byte character set
+	 */
+	private static final class CharCodec extends FieldCodec {
+		private final char[] toChar = new char[256];
+		private final byte padByte;
+		private final String font;
+
+		CharCodec(FieldDetail field) {
+			super(field);
+			this.font = field.getFontName();
+			byte[] b = new byte[256];
+			for (int i = 0; i < 256; i++) {
+				b[i] = (byte) i;
+			}
+			Conversion.getString(b, 0, 256, font).getChars(0, 256, toChar, 0);
+			padByte = Conversion.getBytes(" ", font)[0];
+		}
+
+		@Override
+		public Object decode(byte[] record) {
+			int end = Math.min(offset + length, record.length);
+			int i = offset;
+
+			while (i < end && record[i] == 0) {
+				i += 1;
+			}
+			if (i >= end) {
+				return "";
+			}
+			while (end > offset && (record[end - 1] == padByte || toChar[record[end - 1] & 0xFF] == ' ')) {
+				end -= 1;
+			}
+			char[] c = new char[end - offset];
+			for (i = offset; i < end; i++) {
+				c[i - offset] = toChar[record[i] & 0xFF];
+			}
+			return new String(c);
+		}
+
+		@Override
+		public void encode(byte[] record, Object value) {
+			byte[] b = Conversion.getBytes(value == null ? "" : value.toString(), font);
+			int len = Math.min(b.length, length);
+			System.arraycopy(b, 0, record, offset, len);
+			for (int i = offset + len; i < offset + length; i++) {
+				record[i] = padByte;
+			}
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.cgen.codec;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.RecordDetail;
+import net.sf.JRecord.cgen.def.IDeserializer;
+import net.sf.JRecord.cgen.def.ISerializer;
+
+/**
+ * Runtime equivalent of the <b>CodeGen</b> generated Serializer / Deserializer classes.
+ * It converts a Fixed-Width record (byte array) to / from an array of field values
+ * (one value per field in the RecordDetail). The field codecs (offsets, lengths and Type
+ * conversions) are resolved once when the RecordCodec is created, so it is
+ * useful when Copybooks are only known at runtime.
+ *
+ * <pre>
+ *      RecordCodec codec = RecordCodec.<b>getCodec</b>(ioBuilder.getLayout(), 0);
+ *
+ *      Object[] values = codec.<b>deserialize</b>(bytes);
+ *      values[codec.getFieldIndex("Qty-Sold")] = 2L;
+ *      byte[] updated = codec.<b>serialize</b>(values);
+ * </pre>
+ *
+ * <p>Codecs are cached by Layout. Records with <i>Occurs Depending On</i>
+ * (i.e. fields without a fixed position) and Csv Layouts are not supported.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class RecordCodec implements IDeserializer<Object[]>, ISerializer<Object[]> {
+
+	private static final Map<LayoutDetail, RecordCodec[]> CACHE = new WeakHashMap<LayoutDetail, RecordCodec[]>();
+
+	private final RecordDetail record;
+	private final FieldCodec[] codecs;
+	private final byte[] template;
+
+	/**
+	 * Get the (cached) codec for a record in a layout
+	 *
+	 * @param layout record layout (schema)
+	 * @param recordIdx record index in the layout
+	 * @return the Record Codec
+	 */
+	public static RecordCodec getCodec(LayoutDetail layout, int recordIdx) {
+		synchronized (CACHE) {
+			RecordCodec[] codecs = CACHE.get(layout);
+			if (codecs == null) {
+				codecs = new RecordCodec[layout.getRecordCount()];
+				CACHE.put(layout, codecs);
+			}
+			if (codecs[recordIdx] == null) {
+				codecs[recordIdx] = new RecordCodec(layout, layout.getRecord(recordIdx));
+			}
+			return codecs[recordIdx];
+		}
+	}
+
+	/**
+	 * Get the (cached) codec for a record in a layout
+	 *
+	 * @param layout record layout (schema)
+	 * @param recordName record name
+	 * @return the Record Codec
+	 */
+	public static RecordCodec getCodec(LayoutDetail layout, String recordName) {
+		int idx = layout.getRecordIndex(recordName);
+		if (idx < 0) {
+			throw new RecordException("Record: " + recordName + " does not exist in the layout");
+		}
+		return getCodec(layout, idx);
+	}
+
+	private RecordCodec(LayoutDetail layout, RecordDetail record) {
+		if (layout.isCsvLayout()) {
+			throw new RecordException("RecordCodec only supports Fixed Width records, not Csv: " + record.getRecordName());
+		}
+		if (record.hasDependingOn()) {
+			throw new RecordException("RecordCodec does not support Occurs Depending On: " + record.getRecordName());
+		}
+		this.record = record;
+		this.template = new byte[record.getLength()];
+		if (layout.getInitByte() != 0) {
+			Arrays.fill(template, layout.getInitByte());
+		}
+		this.codecs = new FieldCodec[record.getFieldCount()];
+
+		for (int i = 0; i < codecs.length; i++) {
+			codecs[i] = FieldCodec.newCodec(record.getField(i));
+		}
+	}
+
+	/**
+	 * Convert a record (byte array) to an array of field values
+	 * @see net.sf.JRecord.cgen.def.IDeserializer#deserialize(byte[])
+	 */
+	@Override
+	public Object[] deserialize(byte[] rec) {
+		Object[] values = new Object[codecs.length];
+		for (int i = 0; i < codecs.length; i++) {
+			values[i] = codecs[i].decode(rec);
+		}
+		return values;
+	}
+
+	/**
+	 * Convert an array of field values to a record (byte array). Fillers and
+	 * fields without a value are initialised the same way as a new Line
+	 * (i.e. to the layout's init byte).
+	 * @see net.sf.JRecord.cgen.def.ISerializer#serialize(java.lang.Object)
+	 */
+	@Override
+	public byte[] serialize(Object[] values) {
+		byte[] rec = template.clone();
+		int count = Math.min(values.length, codecs.length);
+		for (int i = 0; i < count; i++) {
+			codecs[i].encode(rec, values[i]);
+		}
+		return rec;
+	}
+
+	/**
+	 * Get one field value from a record
+	 * @param rec record
+	 * @param fieldIdx field index
+	 * @return field value
+	 */
+	public final Object decode(byte[] rec, int fieldIdx) {
+		return codecs[fieldIdx].decode(rec);
+	}
+
+	/**
+	 * Update one field in the record
+	 * @param rec record to be updated
+	 * @param fieldIdx field index
+	 * @param value new value
+	 */
+	public final void encode(byte[] rec, int fieldIdx, Object value) {
+		codecs[fieldIdx].encode(rec, value);
+	}
+
+	/**
+	 * @param fieldName name of the field
+	 * @return index of the field (in the values array)
+	 */
+	public final int getFieldIndex(String fieldName) {
+		return record.getFieldIndex(fieldName);
+	}
+
+	/**
+	 * @return the number of fields
+	 */
+	public final int getFieldCount() {
+		return codecs.length;
+	}
+
+	/**
+	 * @param fieldIdx field index
+	 * @return codec for the field
+	 */
+	public final FieldCodec getFieldCodec(int fieldIdx) {
+		return codecs[fieldIdx];
+	}
+
+	/**
+	 * @return the record definition
+	 */
+	public final RecordDetail getRecord() {
+		return record;
+	}
+}
@@ -0,0 +1,475 @@
+package net.sf.JRecord.cgen.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+import net.sf.JRecord.Common.Conversion;
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Types.Type;
+import net.sf.JRecord.Types.TypeManager;
+
+
+/**
+ * Base class for the <i>flyweight</i> classes generated by CodeGen (<b>flyweight</b> template).
+ * A flyweight does not hold any field values, it is a <i>view</i> of a record held in a
+ * ByteBuffer (or byte array) at a specified offset. Field offsets / lengths are
+ * generated as constants, so each get / set method only decodes / encodes the field
+ * it accesses. A flyweight can be re-pointed at another record with <b>wrap</b>
+ * (e.g. while stepping through a memory mapped file):
+ *
+ * <pre>
+ *      MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+ *      FlyweightDtar020 rec = new FlyweightDtar020();
+ *
+ *      for (int pos = 0; pos + rec.getRecordLength() <= buf.limit(); pos += rec.getRecordLength()) {
+ *          rec.<b>wrap</b>(buf, pos);
+ *          total = total.add(rec.getSalePrice());
+ *      }
+ * </pre>
+ *
+ * <p>The following are decoded directly from the buffer:
+ * <ul>
+ *   <li>Text fields in a single byte character set.
+ *   <li>Packed-Decimal, Binary (big / little endian) and Zoned-Decimal / unsigned display
+ *   numeric fields that fit in a long.
+ * </ul>
+ * All other fields are copied to a work array and converted by the standard JRecord Type.
+ *
+ * <p>Flyweights are <b>not</b> thread safe; use one flyweight per thread.
+ *
+ * @author Bruce Martin
+ *
+ * @param <Flyweight> the generated flyweight class
+ */
+public abstract class AbstractFlyweight<Flyweight extends AbstractFlyweight<Flyweight>> {
+
+	private static final HashMap<String, char[]> CHAR_TABLES = new HashMap<String, char[]>();
+	private static final long[] POWERS_OF_10 = new long[19];
+
+	static {
+		POWERS_OF_10[0] = 1;
+		for (int i = 1; i < POWERS_OF_10.length; i++) {
+			POWERS_OF_10[i] = POWERS_OF_10[i - 1] * 10;
+		}
+	}
+
+	protected ByteBuffer buffer;
+	protected int offset;
+
+	private final String font;
+	private final char[] toChar;
+	private final byte padByte, zeroByte;
+	private byte[] work = new byte[32];
+
+	/**
+	 * Create flyweight
+	 * @param font character set of the record
+	 */
+	protected AbstractFlyweight(String font) {
+		this.font = font;
+		this.toChar = getCharTable(font);
+		byte[] b = Conversion.getBytes(" 0", font);
+		this.padByte = b[0];
+		this.zeroByte = b[b.length - 1];
+	}
+
+	/**
+	 * Point the flyweight at a record in a ByteBuffer
+	 * @param buffer buffer holding the record
+	 * @param offset offset of the record in the buffer
+	 * @return this flyweight
+	 */
+	@SuppressWarnings("unchecked")
+	public final Flyweight wrap(ByteBuffer buffer, int offset) {
+		this.buffer = buffer;
+		this.offset = offset;
+		return (Flyweight) this;
+	}
+
+	/**
+	 * Point the flyweight at a record in a byte array
+	 * @param data array holding the record
+	 * @param offset offset of the record in the array
+	 * @return this flyweight
+	 */
+	public final Flyweight wrap(byte[] data, int offset) {
+		return wrap(ByteBuffer.wrap(data), offset);
+	}
+
+	/**
+	 * Point the flyweight at a record
+	 * @param record record to be accessed
+	 * @return this flyweight
+	 */
+	public final Flyweight wrap(byte[] record) {
+		return wrap(ByteBuffer.wrap(record), 0);
+	}
+
+	/**
+	 * @return the buffer the flyweight is pointing at
+	 */
+	public final ByteBuffer buffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return the offset of the record in the buffer
+	 */
+	public final int offset() {
+		return offset;
+	}
+
+	/**
+	 * Copy the current record to a new byte array
+	 * @return the current record
+	 */
+	public final byte[] toBytes() {
+		byte[] rec = new byte[getRecordLength()];
+		for (int i = 0; i < rec.length; i++) {
+			rec[i] = buffer.get(offset + i);
+		}
+		return rec;
+	}
+
+	/**
+	 * @return the length of the record (in bytes)
+	 */
+	public abstract int getRecordLength();
+
+	/**
+	 * Get a text field (trailing spaces are removed)
+	 * @param pos field offset in the record
+	 * @param len field length
+	 * @return field value
+	 */
+	protected final String getText(int pos, int len) {
+		int start = offset + pos;
+		int end = start + len;
+		int i = start;
+
+		while (i < end && buffer.get(i) == 0) {
+			i += 1;
+		}
+		if (i >= end) {
+			return "";
+		}
+		byte b;
+		while (end > start && ((b = buffer.get(end - 1)) == padByte || toChar[b & 0xFF] == ' ')) {
+			end -= 1;
+		}
+		char[] c = new char[end - start];
+		for (i = start; i < end; i++) {
+			c[i - start] = toChar[buffer.get(i) & 0xFF];
+		}
+		return new String(c);
+	}
+
+	/**
+	 * Update a text field (the value is space padded / truncated to the field length)
+	 * @param pos field offset in the record
+	 * @param len field length
+	 * @param value new value
+	 */
+	protected final void setText(int pos, int len, String value) {
+		byte[] b = Conversion.getBytes(value == null ? "" : value, font);
+		int start = offset + pos;
+		int l = Math.min(b.length, len);
+
+		for (int i = 0; i < l; i++) {
+			buffer.put(start + i, b[i]);
+		}
+		for (int i = l; i < len; i++) {
+			buffer.put(start + i, padByte);
+		}
+	}
+
+	/**
+	 * Get a Packed-Decimal (comp-3) field
+	 * @param pos field offset in the record
+	 * @param len field length
+	 * @return unscaled value of the field
+	 */
+	protected final long getPacked(int pos, int len) {
+		int start = offset + pos;
+		int end = start + len - 1;
+		long v = 0;
+		int b;
+
+		for (int i = start; i < end; i++) {
+			b = buffer.get(i) & 0xFF;
+			v = v * 100 + packedDigit(b >> 4) * 10 + packedDigit(b & 0x0F);
+		}
+		b = buffer.get(end) & 0xFF;
+		v = v * 10 + packedDigit(b >> 4);
+
+		b = b & 0x0F;
+		if (b == 0x0D || b == 0x0B) {
+			return -v;
+		} else if (b < 0x0A) {
+			throw new RecordException("Invalid Packed Decimal sign nibble at offset: " + end);
+		}
+		return v;
+	}
+
+	private static int packedDigit(int nibble) {
+		if (nibble > 9) {
+			throw new RecordException("Invalid Packed Decimal digit: " + Integer.toHexString(nibble));
+		}
+		return nibble;
+	}
+
+	/**
+	 * Update a Packed-Decimal (comp-3) field
+	 * @param pos field offset in the record
+	 * @param len field length
+	 * @param value new (unscaled) value
+	 * @param positive wether it is an unsigned field (sign nibble x'F')
+	 */
+	protected final void setPacked(int pos, int len, long value, boolean positive) {
+		checkSize(value, len * 2 - 1, positive);
+
+		int start = offset + pos;
+		int i = start + len - 1;
+		long v = Math.abs(value);
+		int sign = positive ? 0x0F : value < 0 ? 0x0D : 0x0C;
+
+		buffer.put(i--, (byte) ((v % 10) << 4 | sign));
+		v = v / 10;
+		for (; i >= start; i--) {
+			buffer.put(i, (byte) ((v / 10 % 10) << 4 | v % 10));
+			v = v / 100;
+		}
+	}
+
+	/**
+	 * Get a binary integer field
+	 * @param pos field offset in the record
+	 * @param len field length
+	 * @param bigEndian wether the field is big endian (mainframe) or little endian (Intel)
+	 * @param unsigned wether the field is an unsigned integer
+	 * @return field value
+	 */
+	protected final long getBinary(int pos, int len, boolean bigEndian, boolean unsigned) {
+		int start = offset + pos;
+		long v = 0;
+
+		if (bigEndian) {
+			for (int i = start; i < start + len; i++) {
+				v = (v << 8) | (buffer.get(i) & 0xFF);
+			}
+		} else {
+			for (int i = start + len - 1; i >= start; i--) {
+				v = (v << 8) | (buffer.get(i) & 0xFF);
+			}
+		}
+		if (unsigned || len >= 8) {
+			return v;
+		}
+		int shift = 64 - len * 8;
+		return (v << shift) >> shift;
+	}
+
+	/**
+	 * Update a binary integer field
+	 * @param pos field offset in the record
+	 * @param len field length
+	 * @param bigEndian wether the field is big endian (mainframe) or little endian (Intel)
+	 * @param unsigned wether the field is an unsigned integer
+	 * @param value new value
+	 */
+	protected final void setBinary(int pos, int len, boolean bigEndian, boolean unsigned, long value) {
+		if (len < 8) {
+			long max = 1L << (len * 8 - (unsigned ? 0 : 1));
+			if (unsigned ? value < 0 || value >= max : value < -max || value >= max) {
+				throw new RecordException("Value is to big for the field: " + value);
+			}
+		}
+		int start = offset + pos;
+		long v = value;
+
+		if (bigEndian) {
+			for (int i = start + len - 1; i >= start; i--) {
+				buffer.put(i, (byte) v);
+				v = v >> 8;
+			}
+		} else {
+			for (int i = start; i < start + len; i++) {
+				buffer.put(i, (byte) v);
+				v = v >> 8;
+			}
+		}
+	}
+
+	/**
+	 * Get a Zoned-Decimal (sign in the last byte) or unsigned display numeric field.
+	 * Leading spaces are treated as zero.
+	 *
+	 * @param pos field offset in the record
+	 * @param len field length
+	 * @param signed wether the sign is held in the zone nibble of the last byte (Mainframe Zoned decimal)
+	 * @return unscaled value of the field
+	 */
+	protected final long getZoned(int pos, int len, boolean signed) {
+		int start = offset + pos;
+		int end = start + len - 1;
+		long v = 0;
+		byte b;
+
+		for (int i = start; i < end; i++) {
+			b = buffer.get(i);
+			if (b != padByte) {
+				v = v * 10 + zonedDigit(b);
+			}
+		}
+		b = buffer.get(end);
+		if (signed && (b & 0xF0) == 0xD0) {
+			return -(v * 10 + (b & 0x0F));
+		} else if (signed && (b & 0xF0) == 0xC0) {
+			return v * 10 + (b & 0x0F);
+		}
+		return v * 10 + zonedDigit(b);
+	}
+
+	private int zonedDigit(byte b) {
+		int d = b - zeroByte;
+		if (d < 0 || d > 9) {
+			throw new RecordException("Invalid numeric byte: " + Integer.toHexString(b & 0xFF));
+		}
+		return d;
+	}
+
+	/**
+	 * Update a Zoned-Decimal or unsigned display numeric field
+	 * @param pos field offset in the record
+	 * @param len field length
+	 * @param value new (unscaled) value
+	 * @param signed wether the sign is held in the zone nibble of the last byte (Mainframe Zoned decimal)
+	 */
+	protected final void setZoned(int pos, int len, long value, boolean signed) {
+		checkSize(value, len, ! signed);
+
+		int start = offset + pos;
+		long v = Math.abs(value);
+
+		for (int i = start + len - 1; i >= start; i--) {
+			buffer.put(i, (byte) (zeroByte + v % 10));
+			v = v / 10;
+		}
+		if (signed) {
+			int last = start + len - 1;
+			buffer.put(last, (byte) ((buffer.get(last) & 0x0F) | (value < 0 ? 0xD0 : 0xC0)));
+		}
+	}
+
+	private static void checkSize(long value, int digits, boolean positive) {
+		if (positive && value < 0) {
+			throw new RecordException("Negative value not allowed for an unsigned field: " + value);
+		}
+		if (digits < POWERS_OF_10.length && Math.abs(value) >= POWERS_OF_10[digits]) {
+			throw new RecordException("Value is to big for the field: " + value);
+		}
+	}
+
+	/**
+	 * Get a field value using the standard JRecord Type.
+	 * @param pos field offset in the record
+	 * @param field field definition (with a position of 1)
+	 * @return field value
+	 */
+	protected final Object getValue(int pos, FieldDetail field) {
+		Type type = TypeManager.getInstance().getType(field.getType());
+		return type.getField(copyToWork(pos, field.getLen()), 1, field);
+	}
+
+	/**
+	 * Update a field using the standard JRecord Type
+	 * @param pos field offset in the record
+	 * @param field field definition (with a position of 1)
+	 * @param value new value
+	 */
+	protected final void setValue(int pos, FieldDetail field, Object value) {
+		Type type = TypeManager.getInstance().getType(field.getType());
+		int len = field.getLen();
+		byte[] b = type.setField(copyToWork(pos, len), 1, field, value == null ? "" : value);
+		for (int i = 0; i < len; i++) {
+			buffer.put(offset + pos + i, b[i]);
+		}
+	}
+
+	private byte[] copyToWork(int pos, int len) {
+		if (work.length != len) {
+			work = new byte[len];
+		}
+		for (int i = 0; i < len; i++) {
+			work[i] = buffer.get(offset + pos + i);
+		}
+		return work;
+	}
+
+	/**
+	 * Convert a BigDecimal to an unscaled long
+	 * @param value value to be converted
+	 * @param scale number of decimal places
+	 * @return unscaled value
+	 */
+	protected static long unscaled(BigDecimal value, int scale) {
+		return value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValue();
+	}
+
+	protected static String asString(Object value) {
+		return value == null ? "" : value.toString().trim();
+	}
+
+	protected static long asLong(Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		String s = asString(value);
+		return s.length() == 0 ? 0 : new BigDecimal(s).longValue();
+	}
+
+	protected static double asDouble(Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		String s = asString(value);
+		return s.length() == 0 ? 0 : Double.parseDouble(s);
+	}
+
+	protected static BigDecimal asBigDecimal(Object value) {
+		if (value instanceof BigDecimal) {
+			return (BigDecimal) value;
+		}
+		String s = asString(value);
+		return s.length() == 0 ? BigDecimal.ZERO : new BigDecimal(s);
+	}
+
+	protected static BigInteger asBigInteger(Object value) {
+		if (value instanceof BigInteger) {
+			return (BigInteger) value;
+		}
+		return asBigDecimal(value).toBigInteger();
+	}
+
+	private static char[] getCharTable(String font) {
+		synchronized (CHAR_TABLES) {
+			char[] toChar = CHAR_TABLES.get(font);
+			if (toChar == null) {
+				byte[] b = new byte[256];
+				for (int i = 0; i < 256; i++) {
+					b[i] = (byte) i;
+				}
+				toChar = new char[256];
+				if (Conversion.isSingleByte(font)) {
+					Conversion.getString(b, 0, 256, font).getChars(0, 256, toChar, 0);
+				}
+				CHAR_TABLES.put(font, toChar);
+			}
+			return toChar;
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.stream.Stream;
 
 import net.sf.JRecord.ByteIO.ByteIOProvider;
 import net.sf.JRecord.Details.AbstractLine;
@@ -82,6 +83,28 @@ public class IoBuilder<Pojo> {
 		return new ReadLine<Pojo>(builder.newReader(in), pojoConverter);
 	}
 
+	/**
+	 * Create an Iterable of the records in a file (for use in a <b>for</b> loop)
+	 * @param filename name of file to be read
+	 * @return Iterable of the records, it should be closed if not read to the end
+	 * 
+	 * @throws IOException
+	 */
+	public ReaderIterable<Pojo> stream(String filename) throws IOException {
+		return new ReaderIterable<Pojo>(newReader(filename));
+	}
+
+	/**
+	 * Create a java.util.stream.Stream of the records in a file (see {@link IReader#stream()})
+	 * @param filename name of file to be read
+	 * @return Stream of the records, it should be closed (e.g. try-with-resources)
+	 * 
+	 * @throws IOException
+	 */
+	public Stream<Pojo> lines(String filename) throws IOException {
+		return newReader(filename).stream();
+	}
+
 	/**
 	 * Create Writer for the file
 	 * @param filename file to be written
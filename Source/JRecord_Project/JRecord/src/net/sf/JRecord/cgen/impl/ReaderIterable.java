@@ -0,0 +1,88 @@
+package net.sf.JRecord.cgen.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.cgen.def.IReader;
+
+/**
+ * Lets a (single use) {@link IReader} be used in a <b>for</b> loop.
+ * The reader is closed when the last record has been read.
+ *
+ * <pre>
+ *     ReaderIterable&lt;Pojo&gt; pojos = new ReaderIterable&lt;Pojo&gt;(ioBuilder.newReader(fileName));
+ *     for (Pojo p : pojos) {
+ *         ...
+ *     }
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ * @param <T> type of record being read
+ */
+public class ReaderIterable<T> implements Iterable<T>, Closeable {
+
+	private final IReader<T> reader;
+	private boolean started = false, closed = false;
+
+	public ReaderIterable(IReader<T> reader) {
+		this.reader = reader;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		if (started) {
+			throw new IllegalStateException("The reader has already been read");
+		}
+		started = true;
+		return new Iterator<T>() {
+			private T next = null;
+			private boolean done = false;
+
+			@Override
+			public boolean hasNext() {
+				if (next == null && ! done) {
+					try {
+						if (closed || (next = reader.read()) == null) {
+							done = true;
+							close();
+						}
+					} catch (IOException e) {
+						throw new RecordException("Error reading record", e);
+					}
+				}
+				return next != null;
+			}
+
+			@Override
+			public T next() {
+				if (! hasNext()) {
+					throw new NoSuchElementException();
+				}
+				T ret = next;
+				next = null;
+				return ret;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Close the reader
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (! closed) {
+			closed = true;
+			reader.close();
+		}
+	}
+}
@@ -28,6 +28,7 @@
 
 package net.sf.JRecord.def.IO.builders;
 
+import net.sf.JRecord.Common.IOMetrics;
 import net.sf.JRecord.Details.RecordDecider;
 import net.sf.JRecord.ExternalRecordSelection.ExternalSelection;
 import net.sf.JRecord.Log.AbsSSLogger;
@@ -172,6 +173,10 @@ public interface ICobolIOBuilder extends IIOBuilder, Icb2xmlLoadOptions {
 	 */
 	public abstract ICobolIOBuilder setLog(AbsSSLogger log);
 
+	@Override public abstract ICobolIOBuilder setReadAhead(int bufferSize, int bufferCount);
+
+	@Override public abstract ICobolIOBuilder setMetrics(IOMetrics metrics);
+
 	/**
 	 * whether to drop the copybook name from the start of the Field names. On the 
 	 * mainframe it is quite common to start (or end) a field name with the copybook name. This parameter
@@ -31,6 +31,7 @@ package net.sf.JRecord.def.IO.builders;
 import java.io.InputStream;
 import java.io.Reader;
 
+import net.sf.JRecord.Common.IOMetrics;
 import net.sf.JRecord.Details.RecordDecider;
 import net.sf.JRecord.ExternalRecordSelection.ExternalSelection;
 import net.sf.JRecord.Log.AbsSSLogger;
@@ -91,6 +92,10 @@ public interface ICobolMultiCopybookIOBuilder extends  ICobolIOBuilder {
 
 	@Override public abstract ICobolMultiCopybookIOBuilder setFont(String font);
 
+	@Override public abstract ICobolMultiCopybookIOBuilder setReadAhead(int bufferSize, int bufferCount);
+
+	@Override public abstract ICobolMultiCopybookIOBuilder setMetrics(IOMetrics metrics);
+
 
 	@Override public abstract ICobolMultiCopybookIOBuilder setRecordPositionCode(
 			String recordName, IRecordPositionOption positionOption);
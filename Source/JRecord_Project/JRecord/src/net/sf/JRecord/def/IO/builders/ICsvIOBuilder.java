@@ -28,6 +28,8 @@
 
 package net.sf.JRecord.def.IO.builders;
 
+import net.sf.JRecord.Common.IOMetrics;
+
 /**
  * <p>This interface is for creating CSV-Readers and writers</p>
  * 
@@ -91,6 +93,10 @@ public interface ICsvIOBuilder extends IIOBuilder {
 	 */
 	public abstract ICsvIOBuilder setFont(String font);
 
+	@Override public abstract ICsvIOBuilder setReadAhead(int bufferSize, int bufferCount);
+
+	@Override public abstract ICsvIOBuilder setMetrics(IOMetrics metrics);
+
 	/**
 	 * Set the type of parser to use
 	 * @param csvParser type of parser to use. Options include<ul>
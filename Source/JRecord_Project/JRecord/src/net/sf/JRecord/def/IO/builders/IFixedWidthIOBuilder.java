@@ -28,6 +28,7 @@
 
 package net.sf.JRecord.def.IO.builders;
 
+import net.sf.JRecord.Common.IOMetrics;
 import net.sf.JRecord.ExternalRecordSelection.ExternalSelection;
 
 /**
@@ -126,6 +127,10 @@ public interface IFixedWidthIOBuilder extends IIOBuilder {
 	 */
 	public abstract IFixedWidthIOBuilder setFont(String font);
 
+	@Override public abstract IFixedWidthIOBuilder setReadAhead(int bufferSize, int bufferCount);
+
+	@Override public abstract IFixedWidthIOBuilder setMetrics(IOMetrics metrics);
+
 	
 
 	/**
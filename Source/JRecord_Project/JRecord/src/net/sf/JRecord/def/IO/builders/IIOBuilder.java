@@ -30,6 +30,7 @@ package net.sf.JRecord.def.IO.builders;
 
 import java.io.IOException;
 
+import net.sf.JRecord.Common.IOMetrics;
 import net.sf.JRecord.External.ExternalRecord;
 
 
@@ -69,6 +70,25 @@ public interface IIOBuilder extends ISchemaIOBuilder{
 	 * @param font the font (or character set) of the File e.g CP037 is US-EBCDIC, CP273 is German EBCDIC
 	 */
 	public abstract IIOBuilder setFont(String font);
+
+	/**
+	 * Read the file ahead on a background thread, so that reading the file and
+	 * processing the records overlap (useful for network file systems).
+	 * See {@link net.sf.JRecord.ByteIO.ReadAheadInputStream}.
+	 * 
+	 * @param bufferSize size of each read-ahead buffer (0 turns read-ahead off)
+	 * @param bufferCount maximum number of buffers in use (minimum 2)
+	 */
+	public abstract IIOBuilder setReadAhead(int bufferSize, int bufferCount);
+
+	/**
+	 * Count records / bytes read and written (and time spent on I/O / decoding)
+	 * for the readers and writers created by this builder.
+	 * See {@link net.sf.JRecord.Common.IOMetrics}.
+	 * 
+	 * @param metrics where the counts are stored (null turns metrics off)
+	 */
+	public abstract IIOBuilder setMetrics(IOMetrics metrics);
 	
 	/**
 	 * Get the ExternalRecord (Schema-Builder) class
@@ -32,6 +32,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.stream.Stream;
 
 import net.sf.JRecord.ByteIO.IByteRecordReader;
 import net.sf.JRecord.ByteIO.IByteRecordWriter;
@@ -39,6 +40,7 @@ import net.sf.JRecord.Details.AbstractLine;
 import net.sf.JRecord.Details.LayoutDetail;
 import net.sf.JRecord.IO.AbstractLineReader;
 import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.IO.LineStream;
 
 
 /**
@@ -145,6 +147,66 @@ public interface ISchemaIOBuilder extends INewLineCreator {
 	public abstract AbstractLineReader newReader(IByteRecordReader byteReader)
 			throws IOException;
 
+	/**
+	 * Create a stream (Iterable) of the lines in a file. Fixed-Length, Text (single byte / UTF-8)
+	 * and VB-Dump files can be split into sections and processed in parallel.
+	 * 
+	 * <pre>
+	 *<b>Example:</b>
+     *      LineStream lines = JRecordInterface1.COBOL
+     *              .newIOBuilder("file-name")
+     *                  .setFileOrganization(Constants.IO_FIXED_LENGTH)
+     *              .<b>stream("Data-Filename")</b>;
+     *              
+     *      for (AbstractLine l : lines) { ... }
+     *      lines.close()
+     * </pre>
+	 * 
+	 * @param filename name of the file to be read
+	 * @return stream of lines (see {@link LineStream})
+	 * @throws IOException any IO error
+	 */
+	public abstract LineStream stream(String filename) throws IOException;
+
+	/**
+	 * Create a stream (Iterable) of the lines in an input stream (the stream can not be split)
+	 * 
+	 * @param datastream input datastream
+	 * @return stream of lines (see {@link LineStream})
+	 * @throws IOException any IO error
+	 */
+	public abstract LineStream stream(InputStream datastream) throws IOException;
+
+	/**
+	 * Create a java.util.stream.Stream of the lines in a file. When the Stream is made
+	 * parallel, the file is split in the same way as {@link LineStream#trySplit()}.
+	 * The Stream should be closed (e.g. try-with-resources) so the readers are closed.
+	 * 
+	 * <pre>
+	 *<b>Example:</b>
+     *      try (Stream&lt;AbstractLine&gt; lines = JRecordInterface1.COBOL
+     *              .newIOBuilder("file-name")
+     *                  .setFileOrganization(Constants.IO_FIXED_LENGTH)
+     *              .<b>lines("Data-Filename")</b>) {
+     *          long count = lines.parallel().filter(...).count();
+     *      }
+	 * </pre>
+	 * 
+	 * @param filename name of the file to be read
+	 * @return Stream of lines
+	 * @throws IOException any IO error
+	 */
+	public abstract Stream<AbstractLine> lines(String filename) throws IOException;
+
+	/**
+	 * Create a (sequential) java.util.stream.Stream of the lines in an input stream
+	 * 
+	 * @param datastream input datastream
+	 * @return Stream of lines
+	 * @throws IOException any IO error
+	 */
+	public abstract Stream<AbstractLine> lines(InputStream datastream) throws IOException;
+
 	
 	/**
 	 * Create LineWriter for a supplied filename
@@ -28,6 +28,7 @@
 
 package net.sf.JRecord.def.IO.builders;
 
+import net.sf.JRecord.Common.IOMetrics;
 import net.sf.JRecord.Details.RecordDecider;
 import net.sf.JRecord.ExternalRecordSelection.ExternalSelection;
 import net.sf.JRecord.Log.AbsSSLogger;
@@ -80,6 +81,10 @@ public interface Icb2xmlIOBuilder extends IIOBuilder, Icb2xmlLoadOptions {
 
 	@Override public abstract Icb2xmlIOBuilder setFont(String font);
 
+	@Override public abstract Icb2xmlIOBuilder setReadAhead(int bufferSize, int bufferCount);
+
+	@Override public abstract Icb2xmlIOBuilder setMetrics(IOMetrics metrics);
+
 	@Override public abstract Icb2xmlIOBuilder setRecordSelection(String recordName, ExternalSelection selectionCriteria);
 
 	@Override public abstract Icb2xmlIOBuilder setRecordPositionCode(String recordName, IRecordPositionOption positionOption);
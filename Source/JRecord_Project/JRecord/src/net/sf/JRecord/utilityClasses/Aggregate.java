@@ -0,0 +1,627 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+
+package net.sf.JRecord.utilityClasses;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.JRecord.Common.CommonBits;
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.RecordDetail;
+import net.sf.JRecord.Details.fieldValue.IFieldValue;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.IO.LineIOProvider;
+import net.sf.JRecord.IO.SparseRecordIndex;
+import net.sf.JRecord.Types.TypeManager;
+import net.sf.JRecord.Types.smallBin.ITypeBinaryExtendedNumeric;
+import net.sf.JRecord.cgen.codec.FieldCodec;
+import net.sf.JRecord.detailsSelection.GetValue;
+
+/**
+ * Streaming group-by aggregation (e.g. control totals). A file is read once and the
+ * aggregates (Sum, Average, Min, Max, First, Last, Count) are accumulated for each
+ * distinct value of the group-by key fields.
+ *
+ * <p>Groups are held in an open-addressing hash table keyed on the raw (encoded) key bytes.
+ * Packed-Decimal, Binary and Zoned fields that fit in a long are summed as scaled longs
+ * (switching to BigDecimal if the sum overflows); other numeric fields are summed as BigDecimal.
+ *
+ * <pre>
+ *     Aggregate agg = new Aggregate(layout, "Branch", "Department")
+ *             .add(GetValue.GT_SUM, "Amount")
+ *             .add(GetValue.GT_MAX, "Tran-Date")
+ *             .addCount();
+ *     Aggregate.Result result = agg.aggregate(reader);
+ *     for (int g = 0; g < result.getGroupCount(); g++) {
+ *         System.out.println(Arrays.toString(result.getKey(g)) + " " + result.getValue(g, 0));
+ *     }
+ * </pre>
+ *
+ * <p>Partial results (e.g. for different parts of a file) can be merged with
+ * {@link Result#merge(Result)}; {@link #aggregate(String, SparseRecordIndex, int)} does this
+ * for the splits of a file on separate threads.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class Aggregate {
+
+	/** Count of the records in the group */
+	public static final int GT_COUNT = GetValue.GT_MAXIMUM_ID + 1;
+
+	private static final int AVERAGE_SCALE = 10;
+
+	private final LayoutDetail layout;
+	private final FieldDetail[] keyFields;
+	private final boolean[] rawKey;
+	private final ArrayList<AggregateField> aggregates = new ArrayList<AggregateField>();
+
+	/**
+	 * Create an aggregation
+	 * @param layout record layout (only one record type is allowed)
+	 * @param keyFieldNames group-by fields (none means one group for the whole file)
+	 */
+	public Aggregate(LayoutDetail layout, String... keyFieldNames) {
+		this.layout = layout;
+		RecordDetail rec = record();
+
+		keyFields = new FieldDetail[keyFieldNames.length];
+		rawKey = new boolean[keyFieldNames.length];
+		for (int i = 0; i < keyFields.length; i++) {
+			keyFields[i] = getField(rec, keyFieldNames[i]);
+			rawKey[i] = keyFields[i].isFixedFormat();
+		}
+	}
+
+	/**
+	 * Add an aggregate
+	 * @param aggregateType aggregate (GetValue.GT_SUM, GT_AVE, GT_MIN, GT_MAX, GT_FIRST, GT_LAST or GT_COUNT)
+	 * @param fieldName field to be aggregated
+	 * @return this Aggregate
+	 */
+	public Aggregate add(int aggregateType, String fieldName) {
+		if (aggregateType < GetValue.GT_FIRST || aggregateType > GT_COUNT) {
+			throw new RecordException("Invalid Aggregate: " + aggregateType);
+		}
+		aggregates.add(new AggregateField(aggregateType, fieldName == null ? null : getField(record(), fieldName)));
+		return this;
+	}
+
+	/**
+	 * Add a record count
+	 * @return this Aggregate
+	 */
+	public Aggregate addCount() {
+		return add(GT_COUNT, null);
+	}
+
+	/**
+	 * @return a new (empty) result to accumulate records into
+	 */
+	public Result newResult() {
+		return new Result();
+	}
+
+	/**
+	 * Aggregate all the records from a reader (the reader is closed)
+	 * @param reader reader to read the records from
+	 * @return the aggregated values
+	 * @throws IOException any IO error
+	 */
+	public Result aggregate(AbstractLineReader reader) throws IOException {
+		Result result = new Result();
+		try {
+			AbstractLine line;
+			while ((line = reader.read()) != null) {
+				result.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		return result;
+	}
+
+	/**
+	 * Aggregate a file
+	 * @param fileName file to be aggregated
+	 * @return the aggregated values
+	 * @throws IOException any IO error
+	 */
+	public Result aggregate(String fileName) throws IOException {
+		AbstractLineReader reader = LineIOProvider.getInstance().getLineReader(layout);
+		reader.open(fileName, layout);
+		return aggregate(reader);
+	}
+
+	/**
+	 * Aggregate a file in parallel. The file is split (using a sparse index) and each split
+	 * is aggregated on its own thread, the partial results are then merged.
+	 *
+	 * @param fileName file to be aggregated
+	 * @param index sparse index of the file
+	 * @param threads number of threads (and splits)
+	 * @return the aggregated values
+	 * @throws IOException any IO error
+	 */
+	public Result aggregate(final String fileName, final SparseRecordIndex index, int threads) throws IOException {
+		final List<SparseRecordIndex.IndexEntry> splits = index.getSplitPoints(threads);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, splits.size()));
+		ArrayList<Future<Result>> futures = new ArrayList<Future<Result>>(splits.size());
+
+		try {
+			for (int i = 0; i < splits.size(); i++) {
+				final long start = splits.get(i).getRecordNumber();
+				final long end = i + 1 < splits.size() ? splits.get(i + 1).getRecordNumber() : Long.MAX_VALUE;
+				futures.add(executor.submit(new Callable<Result>() {
+					@Override public Result call() throws IOException {
+						Result result = new Result();
+						AbstractLineReader reader = index.newReaderAtRecord(layout, fileName, start);
+						try {
+							AbstractLine line;
+							for (long recNo = start; recNo < end && (line = reader.read()) != null; recNo++) {
+								result.add(line);
+							}
+						} finally {
+							reader.close();
+						}
+						return result;
+					}
+				}));
+			}
+
+			Result result = new Result();
+			for (Future<Result> f : futures) {
+				result.merge(f.get());
+			}
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while aggregating " + fileName, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new RecordException("Error aggregating " + fileName, e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private RecordDetail record() {
+		if (layout.getRecordCount() != 1) {
+			throw new RecordException("Only one Record Type is allowed on the RecordLayout");
+		}
+		return layout.getRecord(0);
+	}
+
+	private static FieldDetail getField(RecordDetail rec, String name) {
+		FieldDetail f = rec.getField(name);
+		if (f == null) {
+			throw new RecordException("Field " + name + " does not exist in Record: " + rec.getRecordName());
+		}
+		return f;
+	}
+
+	/**
+	 * Definition of one aggregate
+	 */
+	private static class AggregateField {
+		final int aggregateType;
+		final FieldDetail field;
+		final boolean numeric;
+		final ITypeBinaryExtendedNumeric longType;
+		final int scale;
+
+		AggregateField(int aggregateType, FieldDetail field) {
+			this.aggregateType = aggregateType;
+			this.field = field;
+			this.numeric = field != null && TypeManager.isNumeric(field.getType());
+			this.longType = numeric && field.isFixedFormat() ? FieldCodec.getUnscaledLongType(field) : null;
+			this.scale = field == null ? 0 : Math.max(0, field.getDecimal());
+
+			if (field == null && aggregateType != GT_COUNT) {
+				throw new RecordException("A field is required for aggregate: " + aggregateType);
+			}
+			if (! numeric && (aggregateType == GetValue.GT_SUM || aggregateType == GetValue.GT_AVE)) {
+				throw new RecordException("Field " + field.getName() + " is not numeric");
+			}
+		}
+	}
+
+	/**
+	 * Aggregated values for each group.
+	 */
+	public class Result {
+		private int[] slots = new int[64];		// group number + 1 (0 = empty)
+		private byte[][] keys = new byte[32][];
+		private int[] hashes = new int[32];
+		private Object[][] keyValues = new Object[32][];
+		private int groupCount = 0;
+
+		private final int aggCount = aggregates.size();
+		private long[][] longValues = new long[aggCount][32];
+		private long[][] counts = new long[aggCount][32];
+		private BigDecimal[][] bigValues = new BigDecimal[aggCount][];
+		private Object[][] objValues = new Object[aggCount][];
+
+		Result() {
+		}
+
+		/**
+		 * Add a record to the aggregates
+		 * @param line record to be added
+		 */
+		public void add(AbstractLine line) {
+			byte[] key = key(line);
+			int group = findGroup(key, Arrays.hashCode(key));
+			byte[] data = null;
+
+			if (keyValues[group] == null) {
+				Object[] kv = new Object[keyFields.length];
+				for (int i = 0; i < kv.length; i++) {
+					kv[i] = line.getField(keyFields[i]);
+				}
+				keyValues[group] = kv;
+			}
+
+			for (int i = 0; i < aggCount; i++) {
+				AggregateField agg = aggregates.get(i);
+				if (agg.aggregateType == GT_COUNT) {
+					counts[i][group] += 1;
+				} else if (agg.longType != null) {
+					if (data == null) {
+						data = line.getData();
+					}
+					int pos = agg.field.calculateActualPosition(line);
+					if (pos + agg.field.getLen() - 1 <= data.length) {
+						long v;
+						try {
+							v = agg.longType.asUnscaledLong(data, pos, agg.field);
+						} catch (RecordException e) {
+							continue;						// Invalid data (e.g. spaces) is ignored like a null value
+						}
+						addLong(i, agg, group, v);
+					}
+				} else {
+					IFieldValue fv = line.getFieldValue(agg.field);
+					if (fv.isFieldInRecord()) {
+						addObject(i, agg, group, agg.numeric ? toDecimal(fv.asString()) : fv.asString());
+					}
+				}
+			}
+		}
+
+		/**
+		 * Merge another (partial) result into this result. For First / Last, the
+		 * other result should be for records after the records in this result.
+		 * @param other result to be merged
+		 */
+		public void merge(Result other) {
+			for (int og = 0; og < other.groupCount; og++) {
+				int group = findGroup(other.keys[og], other.hashes[og]);
+				if (keyValues[group] == null) {
+					keyValues[group] = other.keyValues[og];
+				}
+				for (int i = 0; i < aggCount; i++) {
+					AggregateField agg = aggregates.get(i);
+					long n = other.counts[i][og];
+					if (agg.aggregateType == GT_COUNT) {
+						counts[i][group] += n;
+					} else if (n == 0) {
+					} else if (other.bigValues[i] != null && other.bigValues[i][og] != null) {
+						addObject(i, agg, group, other.bigValues[i][og], n);
+					} else if (other.objValues[i] != null && other.objValues[i][og] != null) {
+						addObject(i, agg, group, other.objValues[i][og], n);
+					} else {
+						addLong(i, agg, group, other.longValues[i][og], n);
+					}
+				}
+			}
+		}
+
+		/**
+		 * @return number of groups (distinct keys)
+		 */
+		public int getGroupCount() {
+			return groupCount;
+		}
+
+		/**
+		 * @param group group number
+		 * @return key field values for the group
+		 */
+		public Object[] getKey(int group) {
+			checkGroup(group);
+			return keyValues[group];
+		}
+
+		/**
+		 * Get an aggregated value
+		 * @param group group number
+		 * @param aggregateIdx aggregate index (in the order they were added)
+		 * @return aggregated value (BigDecimal for numeric fields, Long for a Count,
+		 * null if there were no values)
+		 */
+		public Object getValue(int group, int aggregateIdx) {
+			checkGroup(group);
+			AggregateField agg = aggregates.get(aggregateIdx);
+			long n = counts[aggregateIdx][group];
+
+			if (agg.aggregateType == GT_COUNT) {
+				return Long.valueOf(n);
+			}
+			if (n == 0) {
+				return agg.aggregateType == GetValue.GT_SUM ? BigDecimal.ZERO : null;
+			}
+
+			Object v;
+			if (bigValues[aggregateIdx] != null && bigValues[aggregateIdx][group] != null) {
+				v = bigValues[aggregateIdx][group];
+			} else if (objValues[aggregateIdx] != null && objValues[aggregateIdx][group] != null) {
+				v = objValues[aggregateIdx][group];
+			} else {
+				v = BigDecimal.valueOf(longValues[aggregateIdx][group], agg.scale);
+			}
+
+			if (agg.aggregateType == GetValue.GT_AVE) {
+				return ((BigDecimal) v).divide(BigDecimal.valueOf(n), AVERAGE_SCALE, RoundingMode.UP);
+			}
+			return v;
+		}
+
+		/**
+		 * Write the results; the output fields are the key fields followed by the
+		 * aggregates (in the order they were added).
+		 *
+		 * @param writer output writer (it is closed)
+		 * @param outSchema output layout
+		 * @return number of records written
+		 * @throws IOException any IO error
+		 */
+		public int write(AbstractLineWriter writer, LayoutDetail outSchema) throws IOException {
+			try {
+				for (int g = 0; g < groupCount; g++) {
+					AbstractLine outLine = LineIOProvider.getInstance().getLineProvider(outSchema).getLine(outSchema);
+					Object[] kv = keyValues[g];
+					for (int i = 0; i < kv.length + aggCount; i++) {
+						Object v = i < kv.length ? kv[i] : getValue(g, i - kv.length);
+						IFieldValue fieldValue = outLine.getFieldValue(0, i);
+						if (! fieldValue.isFieldInRecord()) {
+						} else if (v == null || v.toString().length() == 0) {
+							fieldValue.set(CommonBits.NULL_VALUE);
+						} else {
+							fieldValue.set(v instanceof BigDecimal ? ((BigDecimal) v).toPlainString() : v.toString());
+						}
+					}
+					writer.write(outLine);
+				}
+			} finally {
+				writer.close();
+			}
+			return groupCount;
+		}
+
+		private void addLong(int aggIdx, AggregateField agg, int group, long v) {
+			addLong(aggIdx, agg, group, v, 1);
+		}
+
+		private void addLong(int aggIdx, AggregateField agg, int group, long v, long n) {
+			long[] lv = longValues[aggIdx];
+			long count = counts[aggIdx][group];
+			counts[aggIdx][group] += n;
+
+			if (bigValues[aggIdx] != null && bigValues[aggIdx][group] != null) {
+				addObject(aggIdx, agg, group, BigDecimal.valueOf(v, agg.scale), 0);
+				return;
+			}
+			switch (agg.aggregateType) {
+			case GetValue.GT_SUM:
+			case GetValue.GT_AVE:
+				long r = lv[group] + v;
+				if (((lv[group] ^ r) & (v ^ r)) < 0) {		// overflow
+					setBig(aggIdx, group, BigDecimal.valueOf(lv[group], agg.scale).add(BigDecimal.valueOf(v, agg.scale)));
+				} else {
+					lv[group] = r;
+				}
+				break;
+			case GetValue.GT_MIN:	lv[group] = count == 0 ? v : Math.min(v, lv[group]);	break;
+			case GetValue.GT_MAX:	lv[group] = count == 0 ? v : Math.max(v, lv[group]);	break;
+			case GetValue.GT_FIRST:	lv[group] = count == 0 ? v : lv[group];					break;
+			case GetValue.GT_LAST:	lv[group] = v;											break;
+			}
+		}
+
+		private void addObject(int aggIdx, AggregateField agg, int group, Object v) {
+			if (v != null) {
+				addObject(aggIdx, agg, group, v, 1);
+			}
+		}
+
+		/**
+		 * Add a BigDecimal (numeric) or String value
+		 */
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private void addObject(int aggIdx, AggregateField agg, int group, Object v, long n) {
+			Object current = null;
+			if (bigValues[aggIdx] != null && bigValues[aggIdx][group] != null) {
+				current = bigValues[aggIdx][group];
+			} else if (objValues[aggIdx] != null && objValues[aggIdx][group] != null) {
+				current = objValues[aggIdx][group];
+			} else if (counts[aggIdx][group] > 0 && agg.longType != null) {
+				current = BigDecimal.valueOf(longValues[aggIdx][group], agg.scale);
+			}
+			counts[aggIdx][group] += n;
+
+			Object result;
+			switch (agg.aggregateType) {
+			case GetValue.GT_SUM:
+			case GetValue.GT_AVE:
+				result = current == null ? v : ((BigDecimal) current).add((BigDecimal) v);
+				break;
+			case GetValue.GT_MIN:	result = current == null || ((Comparable) v).compareTo(current) < 0 ? v : current; break;
+			case GetValue.GT_MAX:	result = current == null || ((Comparable) v).compareTo(current) > 0 ? v : current; break;
+			case GetValue.GT_FIRST:	result = current == null ? v : current;	break;
+			default:				result = v;
+			}
+
+			if (result instanceof BigDecimal && agg.longType != null) {
+				setBig(aggIdx, group, (BigDecimal) result);
+			} else {
+				if (objValues[aggIdx] == null) {
+					objValues[aggIdx] = new Object[keys.length];
+				}
+				objValues[aggIdx][group] = result;
+			}
+		}
+
+		private void setBig(int aggIdx, int group, BigDecimal v) {
+			if (bigValues[aggIdx] == null) {
+				bigValues[aggIdx] = new BigDecimal[keys.length];
+			}
+			bigValues[aggIdx][group] = v;
+		}
+
+		private byte[] key(AbstractLine line) {
+			if (keyFields.length == 0) {
+				return new byte[0];
+			}
+			byte[] data = line.getData();
+			byte[][] parts = new byte[keyFields.length][];
+			int len = 0;
+			for (int i = 0; i < keyFields.length; i++) {
+				if (rawKey[i]) {
+					int pos = Math.min(data.length, keyFields[i].calculateActualPosition(line) - 1);
+					parts[i] = Arrays.copyOfRange(data, pos, Math.min(data.length, pos + keyFields[i].getLen()));
+				} else {
+					Object v = line.getField(keyFields[i]);
+					parts[i] = v == null ? new byte[0] : v.toString().getBytes();
+				}
+				len += parts[i].length + 2;
+			}
+
+			byte[] key = new byte[len];
+			int pos = 0;
+			for (byte[] p : parts) {
+				key[pos++] = (byte) (p.length >> 8);
+				key[pos++] = (byte) p.length;
+				System.arraycopy(p, 0, key, pos, p.length);
+				pos += p.length;
+			}
+			return key;
+		}
+
+		/**
+		 * Find (or create) the group for a key
+		 */
+		private int findGroup(byte[] key, int hash) {
+			int mask = slots.length - 1;
+			int slot = mix(hash) & mask;
+			int g;
+			while ((g = slots[slot]) != 0) {
+				if (hashes[g - 1] == hash && Arrays.equals(keys[g - 1], key)) {
+					return g - 1;
+				}
+				slot = (slot + 1) & mask;
+			}
+
+			if (groupCount == keys.length) {
+				grow();
+				return findGroup(key, hash);
+			}
+			int group = groupCount++;
+			keys[group] = key;
+			hashes[group] = hash;
+			slots[slot] = group + 1;
+			return group;
+		}
+
+		private void grow() {
+			int size = keys.length * 2;
+			keys = Arrays.copyOf(keys, size);
+			hashes = Arrays.copyOf(hashes, size);
+			keyValues = Arrays.copyOf(keyValues, size);
+			for (int i = 0; i < aggCount; i++) {
+				longValues[i] = Arrays.copyOf(longValues[i], size);
+				counts[i] = Arrays.copyOf(counts[i], size);
+				if (bigValues[i] != null) {
+					bigValues[i] = Arrays.copyOf(bigValues[i], size);
+				}
+				if (objValues[i] != null) {
+					objValues[i] = Arrays.copyOf(objValues[i], size);
+				}
+			}
+
+			slots = new int[size * 2];
+			int mask = slots.length - 1;
+			for (int g = 0; g < groupCount; g++) {
+				int slot = mix(hashes[g]) & mask;
+				while (slots[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = g + 1;
+			}
+		}
+
+		private void checkGroup(int group) {
+			if (group < 0 || group >= groupCount) {
+				throw new IndexOutOfBoundsException("Invalid group: " + group + ", group count=" + groupCount);
+			}
+		}
+	}
+
+	private static int mix(int h) {
+		h ^= (h >>> 16);
+		return h * 0x45d9f3b;
+	}
+
+	private static BigDecimal toDecimal(String s) {
+		if (s == null || s.trim().length() == 0) {
+			return null;
+		}
+		try {
+			return new BigDecimal(s.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,493 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+
+package net.sf.JRecord.utilityClasses;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.def.IO.builders.ISchemaIOBuilder;
+import net.sf.JRecord.schema.CobolSchemaReader;
+
+/**
+ * Converts all the files in a directory (e.g. Cobol to Csv / Json / Xml). Each file is
+ * matched (by name) to a copybook using glob rules; the builder for each copybook is created
+ * (and the copybook loaded) once and shared by all the files that use it.
+ *
+ * <p>Files are converted in parallel on a work-stealing pool
+ * ({@link ForkJoinPool}, one thread per CPU by default, see {@link #setThreads(int)});
+ * each thread converts one file at a time. Where the Java runtime supports
+ * virtual threads (Java 21+), {@link #setUseVirtualThreads(boolean)} converts each file on its own
+ * virtual thread, the number of files converted at once still being limited to the number of threads.
+ *
+ * <pre>
+ *     BatchConverter&lt;ICobol2Json&gt; batch = new BatchConverter&lt;ICobol2Json&gt;(
+ *             new BatchConverter.IBuilderCreator&lt;ICobol2Json&gt;() {
+ *                 public ICobol2Json newBuilder(String copybook) {
+ *                     return Cobol2Json.newCobol2Json(copybook)
+ *                                 .setFileOrganization(Constants.IO_FIXED_LENGTH)
+ *                                 .setFont("cp037");
+ *                 }
+ *             },
+ *             new BatchConverter.IConverter&lt;ICobol2Json&gt;() {
+ *                 public void convert(ICobol2Json cbl2json, InputStream in, OutputStream out) throws Exception {
+ *                     cbl2json.cobol2json(in, out);
+ *                 }
+ *             });
+ *     batch.addRule("SALES*.dat", "copybooks/Sales.cbl")
+ *          .addRule("*.dat",      "copybooks/Other.cbl")
+ *          .setOutput(new File("json"), ".json");
+ *     BatchConverter.printReport(batch.convert(new File("in"), "*.dat"), System.out);
+ * </pre>
+ *
+ * <p>The builders are used by several threads at once, so the converter must only use them
+ * to create readers (or do the conversion) and not change them. Copybooks are loaded
+ * outside of any lock (files for other copybooks are not held up) and a copybook that fails
+ * to load is not retried; every file that uses it gets the same error.
+ *
+ * @author Bruce Martin
+ *
+ * @param <B> builder (e.g. ICobolIOBuilder, ICobol2Json, ICobol2Xml) used to convert a file
+ */
+public class BatchConverter<B> {
+
+	/**
+	 * Creates the builder for a copybook
+	 * @param <B> builder type
+	 */
+	public static interface IBuilderCreator<B> {
+		/**
+		 * Create a builder
+		 * @param copybook copybook file name
+		 * @return builder for the copybook
+		 * @throws Exception any error
+		 */
+		public B newBuilder(String copybook) throws Exception;
+	}
+
+	/**
+	 * Converts one file
+	 * @param <B> builder type
+	 */
+	public static interface IConverter<B> {
+		/**
+		 * Convert a file
+		 * @param builder builder for the files copybook
+		 * @param in input file
+		 * @param out output file (closed by the caller)
+		 * @throws Exception any error
+		 */
+		public void convert(B builder, InputStream in, OutputStream out) throws Exception;
+	}
+
+	private final IBuilderCreator<B> builderCreator;
+	private final IConverter<B> converter;
+	private final ArrayList<Rule> rules = new ArrayList<Rule>();
+	private final ConcurrentHashMap<String, FutureTask<B>> builders
+			= new ConcurrentHashMap<String, FutureTask<B>>();
+
+	private File outputDirectory = null;
+	private String outputExtension = ".out";
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private boolean useVirtualThreads = false;
+
+	/**
+	 * Create a Batch converter
+	 * @param builderCreator creates the builder for each copybook
+	 * @param converter converts a file
+	 */
+	public BatchConverter(IBuilderCreator<B> builderCreator, IConverter<B> converter) {
+		this.builderCreator = builderCreator;
+		this.converter = converter;
+	}
+
+	/**
+	 * Add a copybook rule; rules are checked in the order they are added and
+	 * the first match is used. Files that do not match any rule are not converted.
+	 *
+	 * @param fileGlob glob pattern for the file name (e.g. <b>SALES*.dat</b>)
+	 * @param copybook copybook for files matching the pattern
+	 * @return this converter
+	 */
+	public BatchConverter<B> addRule(String fileGlob, String copybook) {
+		rules.add(new Rule(FileSystems.getDefault().getPathMatcher("glob:" + fileGlob), copybook));
+		return this;
+	}
+
+	/**
+	 * Set where the output files are written
+	 * @param directory output directory (null - same directory as the input file)
+	 * @param extension extension for the output files (replaces the input extension)
+	 * @return this converter
+	 */
+	public BatchConverter<B> setOutput(File directory, String extension) {
+		this.outputDirectory = directory;
+		this.outputExtension = extension == null ? "" : extension;
+		return this;
+	}
+
+	/**
+	 * @param threads number of threads converting files (i.e. the number of files converted at once)
+	 * @return this converter
+	 */
+	public BatchConverter<B> setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+		return this;
+	}
+
+	/**
+	 * @param useVirtualThreads convert each file on its own virtual thread (ignored when the
+	 * Java runtime does not support virtual threads)
+	 * @return this converter
+	 */
+	public BatchConverter<B> setUseVirtualThreads(boolean useVirtualThreads) {
+		this.useVirtualThreads = useVirtualThreads;
+		return this;
+	}
+
+	/**
+	 * Convert the files in a directory
+	 * @param directory input directory
+	 * @param fileGlob glob pattern of the files to convert (null - all files)
+	 * @return result for each file matched by a rule (in file name order)
+	 * @throws IOException any error listing the directory
+	 */
+	public List<FileResult> convert(File directory, String fileGlob) throws IOException {
+		ArrayList<File> files = new ArrayList<File>();
+		DirectoryStream<Path> dir = fileGlob == null
+				? Files.newDirectoryStream(directory.toPath())
+				: Files.newDirectoryStream(directory.toPath(), fileGlob);
+		try {
+			for (Path p : dir) {
+				if (Files.isRegularFile(p)) {
+					files.add(p.toFile());
+				}
+			}
+		} finally {
+			dir.close();
+		}
+		Collections.sort(files);
+
+		return convert(files);
+	}
+
+	/**
+	 * Convert a list of files
+	 * @param files files to be converted
+	 * @return result for each file matched by a rule (in the order supplied)
+	 * @throws IOException any IO error
+	 */
+	public List<FileResult> convert(List<File> files) throws IOException {
+		ArrayList<FileResult> results = new ArrayList<FileResult>(files.size());
+		for (File f : files) {
+			String copybook = getCopybook(f);
+			if (copybook != null) {
+				results.add(new FileResult(f, getOutputFile(f), copybook));
+			}
+		}
+
+		ExecutorService executor = newVirtualThreadExecutor();
+		final Semaphore running;
+		if (executor == null) {
+			executor = new ForkJoinPool(threads);
+			running = null;
+		} else {
+			running = new Semaphore(threads);
+		}
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>(results.size());
+
+		try {
+			for (final FileResult r : results) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override public Void call() throws InterruptedException {
+						if (running == null) {
+							convert(r);
+						} else {
+							running.acquire();
+							try {
+								convert(r);
+							} finally {
+								running.release();
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while converting files", e);
+		} catch (ExecutionException e) {
+			throw new RecordException("Error converting files", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return results;
+	}
+
+	/**
+	 * Convert one file recording the result
+	 */
+	private void convert(FileResult r) {
+		long start = System.nanoTime();
+		try {
+			B builder = getBuilder(r.copybook);
+			InputStream in = new FileInputStream(r.inputFile);
+			try {
+				OutputStream out = new BufferedOutputStream(new FileOutputStream(r.outputFile), 0x4000);
+				try {
+					converter.convert(builder, in, out);
+				} finally {
+					out.close();
+				}
+			} finally {
+				in.close();
+			}
+			r.bytesWritten = r.outputFile.length();
+		} catch (Exception e) {
+			r.error = e;
+		}
+		r.bytesRead = r.inputFile.length();
+		r.nanos = System.nanoTime() - start;
+	}
+
+	/**
+	 * Get the builder for a copybook, the builder is created (and the copybook loaded)
+	 * by the first thread to ask for it; other threads wanting the same copybook wait
+	 * for it. The result (builder or error) is kept for the other files.
+	 */
+	private B getBuilder(final String copybook) throws Exception {
+		FutureTask<B> task = builders.get(copybook);
+		if (task == null) {
+			FutureTask<B> newTask = new FutureTask<B>(new Callable<B>() {
+				@Override public B call() throws Exception {
+					return newBuilder(copybook);
+				}
+			});
+			task = builders.putIfAbsent(copybook, newTask);
+			if (task == null) {
+				task = newTask;
+				task.run();
+			}
+		}
+
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw new RecordException("Error loading copybook " + copybook, cause);
+		}
+	}
+
+	private B newBuilder(String copybook) throws Exception {
+		B builder = builderCreator.newBuilder(copybook);
+		if (builder instanceof CobolSchemaReader) {
+			((CobolSchemaReader<?>) builder).getCobolSchemaDetails();
+		} else if (builder instanceof ISchemaIOBuilder) {
+			((ISchemaIOBuilder) builder).getLayout();
+		}
+		return builder;
+	}
+
+	private String getCopybook(File f) {
+		Path name = f.toPath().getFileName();
+		for (Rule r : rules) {
+			if (r.matcher.matches(name)) {
+				return r.copybook;
+			}
+		}
+		return null;
+	}
+
+	private File getOutputFile(File f) {
+		String name = f.getName();
+		int pos = name.lastIndexOf('.');
+		if (pos > 0) {
+			name = name.substring(0, pos);
+		}
+		return new File(outputDirectory == null ? f.getParentFile() : outputDirectory, name + outputExtension);
+	}
+
+	/**
+	 * @return virtual thread executor or null if virtual threads are not
+	 * being used (or are not supported)
+	 */
+	private ExecutorService newVirtualThreadExecutor() {
+		if (useVirtualThreads) {
+			try {
+				return (ExecutorService) Executors.class
+						.getMethod("newVirtualThreadPerTaskExecutor")
+						.invoke(null);
+			} catch (Exception e) {
+				// virtual threads are not supported by this Java runtime
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Print a throughput report
+	 * @param results conversion results
+	 * @param out where to print the report
+	 */
+	public static void printReport(List<FileResult> results, PrintStream out) {
+		long bytes = 0, nanos = 0;
+		int errors = 0;
+		for (FileResult r : results) {
+			out.println(r);
+			bytes += r.bytesRead;
+			nanos += r.nanos;
+			if (r.error != null) {
+				errors += 1;
+			}
+		}
+		out.println(String.format(Locale.US, "%d files, %d errors, %d bytes read, %.1f ms (total file time)",
+				results.size(), errors, bytes, nanos / 1000000.0));
+	}
+
+	private static class Rule {
+		final PathMatcher matcher;
+		final String copybook;
+
+		Rule(PathMatcher matcher, String copybook) {
+			this.matcher = matcher;
+			this.copybook = copybook;
+		}
+	}
+
+	/**
+	 * Result of converting one file
+	 */
+	public static class FileResult {
+		private final File inputFile, outputFile;
+		private final String copybook;
+		private volatile long bytesRead, bytesWritten, nanos;
+		private volatile Exception error = null;
+
+		private FileResult(File inputFile, File outputFile, String copybook) {
+			this.inputFile = inputFile;
+			this.outputFile = outputFile;
+			this.copybook = copybook;
+		}
+
+		/**
+		 * @return the input file
+		 */
+		public final File getInputFile() {
+			return inputFile;
+		}
+
+		/**
+		 * @return the output file
+		 */
+		public final File getOutputFile() {
+			return outputFile;
+		}
+
+		/**
+		 * @return the copybook used to convert the file
+		 */
+		public final String getCopybook() {
+			return copybook;
+		}
+
+		/**
+		 * @return the number of bytes read
+		 */
+		public final long getBytesRead() {
+			return bytesRead;
+		}
+
+		/**
+		 * @return the number of bytes written
+		 */
+		public final long getBytesWritten() {
+			return bytesWritten;
+		}
+
+		/**
+		 * @return time taken to convert the file (nanoseconds)
+		 */
+		public final long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return throughput in MB (input) per second
+		 */
+		public final double getMBPerSecond() {
+			return nanos <= 0 ? 0 : bytesRead * 1000.0 / nanos;
+		}
+
+		/**
+		 * @return the error converting the file (null if the conversion worked)
+		 */
+		public final Exception getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US, "%s -> %s (%s): %d bytes, %.1f ms, %.2f MB/s%s",
+					inputFile.getName(), outputFile.getName(), copybook, bytesRead,
+					nanos / 1000000.0, getMBPerSecond(), error == null ? "" : ", error: " + error);
+		}
+	}
+}
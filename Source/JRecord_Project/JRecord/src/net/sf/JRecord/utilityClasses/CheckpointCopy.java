@@ -0,0 +1,243 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+
+package net.sf.JRecord.utilityClasses;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import net.sf.JRecord.ByteIO.DurableOutputStream;
+import net.sf.JRecord.ByteIO.ReadPosition;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.IO.LineIOProvider;
+
+/**
+ * Checkpointing version of {@link Copy}. Every <i>interval</i> records the output file
+ * is flushed to disk and the input / output positions are saved in a checkpoint
+ * (properties) file. If the copy fails, running it again with the same checkpoint file
+ * will continue from the last checkpoint, so at most one interval is re-processed.
+ * The checkpoint file is deleted when the copy completes.
+ *
+ * <pre>
+ *     new CheckpointCopy(checkpointFileName, 100000)
+ *          .copyFileByFieldNumber(inSchema, inFileName, outSchema, outFileName);
+ * </pre>
+ *
+ * <p>Only Byte-Reader based input files (Fixed Length, VB, Text, Csv etc) can be restarted.
+ * An output file that is continued does not get a second header (Csv field names).
+ *
+ * @author Bruce Martin
+ *
+ */
+public class CheckpointCopy {
+
+	public static final String IN_FILE  = "inFile";
+	public static final String OUT_FILE = "outFile";
+	public static final String IN_POSITION  = "inPosition";
+	public static final String OUT_POSITION = "outPosition";
+	public static final String RECORD_COUNT = "recordCount";
+
+	private final CheckpointStore store;
+	private final int interval;
+
+	/**
+	 * Create a checkpointing copy
+	 * @param checkpointFileName file where the checkpoint is stored
+	 * @param interval number of records between checkpoints
+	 */
+	public CheckpointCopy(String checkpointFileName, int interval) {
+		if (interval <= 0) {
+			throw new IllegalArgumentException("Invalid checkpoint interval: " + interval);
+		}
+		this.store = new CheckpointStore(checkpointFileName);
+		this.interval = interval;
+	}
+
+	/**
+	 * Copy a file matching fields by field number
+	 * (see {@link Copy#copyFileByFieldNumber(AbstractLineReader, AbstractLineWriter, LayoutDetail)}).
+	 *
+	 * @param inSchema input schema (layout or file description)
+	 * @param inFileName input filename
+	 * @param outSchema output schema (layout or file description)
+	 * @param outFileName output filename
+	 * @return total number of records copied
+	 *
+	 * @throws IOException Any IO error
+	 */
+	public long copyFileByFieldNumber(
+			LayoutDetail inSchema,  String inFileName,
+			LayoutDetail outSchema, String outFileName)
+	throws IOException {
+		return copy(inSchema, inFileName, outSchema, outFileName, false);
+	}
+
+	/**
+	 * Copy a file matching fields by field name
+	 * (see {@link Copy#copyFileByMatchingFieldNames(AbstractLineReader, AbstractLineWriter, LayoutDetail)}).
+	 *
+	 * @param inSchema input schema (layout or file description)
+	 * @param inFileName input filename
+	 * @param outSchema output schema (layout or file description)
+	 * @param outFileName output filename
+	 * @return total number of records copied
+	 *
+	 * @throws IOException Any IO error
+	 */
+	public long copyFileByMatchingFieldNames(
+			LayoutDetail inSchema,  String inFileName,
+			LayoutDetail outSchema, String outFileName)
+	throws IOException {
+		return copy(inSchema, inFileName, outSchema, outFileName, true);
+	}
+
+	private long copy(
+			LayoutDetail inSchema,  String inFileName,
+			LayoutDetail outSchema, String outFileName,
+			boolean byName)
+	throws IOException {
+		LineIOProvider ioProvider = LineIOProvider.getInstance();
+		AbstractLineReader reader = ioProvider.getLineReader(inSchema);
+		AbstractLineWriter writer = ioProvider.getLineWriter(outSchema);
+		Properties checkpoint = store.load();
+		DurableOutputStream out;
+		long startCount = 0;
+
+		if (checkpoint == null) {
+			reader.open(inFileName, inSchema);
+			out = new DurableOutputStream(outFileName);
+			writer.open(out);
+		} else {
+			if (! inFileName.equals(checkpoint.getProperty(IN_FILE))
+			||  ! outFileName.equals(checkpoint.getProperty(OUT_FILE))) {
+				throw new RecordException("Checkpoint " + store.getCheckpointFileName() + " is for a different copy: "
+						+ checkpoint.getProperty(IN_FILE) + " -> " + checkpoint.getProperty(OUT_FILE));
+			}
+			startCount = Long.parseLong(checkpoint.getProperty(RECORD_COUNT));
+			reader.open(inFileName, inSchema, ReadPosition.parse(checkpoint.getProperty(IN_POSITION)));
+			out = new DurableOutputStream(outFileName, Long.parseLong(checkpoint.getProperty(OUT_POSITION)));
+			writer.openForRestart(out);
+		}
+
+		CheckpointWriter cpWriter = new CheckpointWriter(reader, writer, out, inFileName, outFileName, startCount);
+		if (byName) {
+			Copy.copyFileByMatchingFieldNames(reader, cpWriter, outSchema);
+		} else {
+			Copy.copyFileByFieldNumber(reader, cpWriter, outSchema);
+		}
+
+		store.delete();
+		return cpWriter.count;
+	}
+
+	/**
+	 * Save the checkpoint (see {@link CheckpointStore#save(Properties)}).
+	 *
+	 * @param checkpoint checkpoint details
+	 * @throws IOException any IO error
+	 */
+	protected void saveCheckpoint(Properties checkpoint) throws IOException {
+		store.save(checkpoint);
+	}
+
+	/**
+	 * Writer wrapper that takes a checkpoint every <i>interval</i> records.
+	 * Copy reads an input record then writes it, so when the n'th record is
+	 * written, exactly n records have been read.
+	 */
+	private class CheckpointWriter extends AbstractLineWriter {
+		private final AbstractLineReader reader;
+		private final AbstractLineWriter writer;
+		private final DurableOutputStream out;
+		private final String inFileName, outFileName;
+		private long count;
+		private int sinceCheckpoint = 0;
+
+		CheckpointWriter(AbstractLineReader reader, AbstractLineWriter writer, DurableOutputStream out,
+				String inFileName, String outFileName, long count) {
+			this.reader = reader;
+			this.writer = writer;
+			this.out = out;
+			this.inFileName = inFileName;
+			this.outFileName = outFileName;
+			this.count = count;
+		}
+
+		@Override
+		public void open(OutputStream outputStream) throws IOException {
+			throw new RecordException("The checkpoint writer is already open");
+		}
+
+		@Override
+		public void writeImplementation(AbstractLine line) throws IOException {
+			writer.write(line);
+			count += 1;
+			if (++sinceCheckpoint >= interval) {
+				checkpoint();
+			}
+		}
+
+		private void checkpoint() throws IOException {
+			ReadPosition inPosition = reader.getPosition();
+			if (inPosition == null) {
+				return;						// not at a restartable position, try the next record
+			}
+			writer.flush();
+
+			Properties p = new Properties();
+			p.setProperty(IN_FILE, inFileName);
+			p.setProperty(OUT_FILE, outFileName);
+			p.setProperty(IN_POSITION, inPosition.toString());
+			p.setProperty(OUT_POSITION, Long.toString(out.sync()));
+			p.setProperty(RECORD_COUNT, Long.toString(count));
+			saveCheckpoint(p);
+			sinceCheckpoint = 0;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			writer.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			writer.close();
+		}
+
+		@Override
+		public void setLayout(LayoutDetail layout) {
+			writer.setLayout(layout);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+
+package net.sf.JRecord.utilityClasses;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Stores a checkpoint (a properties file) for checkpoint / restart processing
+ * (see {@link CheckpointCopy}). The checkpoint is written to a work file which is
+ * then renamed so there is always a complete checkpoint file.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class CheckpointStore {
+
+	private final String checkpointFileName;
+
+	/**
+	 * @param checkpointFileName file where the checkpoint is stored
+	 */
+	public CheckpointStore(String checkpointFileName) {
+		this.checkpointFileName = checkpointFileName;
+	}
+
+	/**
+	 * @return the checkpoint file name
+	 */
+	public final String getCheckpointFileName() {
+		return checkpointFileName;
+	}
+
+	/**
+	 * Load the checkpoint
+	 * @return the checkpoint or null if there is no checkpoint
+	 * @throws IOException any IO error
+	 */
+	public Properties load() throws IOException {
+		File cpFile = new File(checkpointFileName);
+		if (! cpFile.exists()) {
+			return null;
+		}
+
+		Properties p = new Properties();
+		InputStream in = new FileInputStream(cpFile);
+		try {
+			p.load(in);
+		} finally {
+			in.close();
+		}
+		return p;
+	}
+
+	/**
+	 * Save the checkpoint
+	 * @param checkpoint checkpoint details
+	 * @throws IOException any IO error
+	 */
+	public void save(Properties checkpoint) throws IOException {
+		File cpFile = new File(checkpointFileName);
+		File tmpFile = new File(checkpointFileName + ".tmp");
+		FileOutputStream os = new FileOutputStream(tmpFile);
+		try {
+			checkpoint.store(os, "JRecord checkpoint");
+			os.flush();
+			os.getFD().sync();
+		} finally {
+			os.close();
+		}
+		if (! tmpFile.renameTo(cpFile)) {
+			cpFile.delete();
+			if (! tmpFile.renameTo(cpFile)) {
+				throw new IOException("Could not rename " + tmpFile.getPath() + " to " + checkpointFileName);
+			}
+		}
+	}
+
+	/**
+	 * Delete the checkpoint (the process has completed)
+	 */
+	public void delete() {
+		new File(checkpointFileName).delete();
+	}
+}
@@ -38,11 +38,15 @@ import net.sf.JRecord.Common.RecordException;
 import net.sf.JRecord.Details.AbstractLine;
 import net.sf.JRecord.Details.fieldValue.IFieldValue ;
 import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.Line;
 import net.sf.JRecord.Details.LineProvider;
 import net.sf.JRecord.Details.RecordDetail;
+import net.sf.JRecord.ExternalRecordSelection.ExternalSelection;
 import net.sf.JRecord.IO.AbstractLineReader;
 import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.IO.FilterLineReader;
 import net.sf.JRecord.IO.LineIOProvider;
+import net.sf.JRecord.cgen.codec.CompiledSelection;
 import net.sf.JRecord.def.IO.builders.INewLineCreator;
 
 /**
@@ -165,6 +169,25 @@ public class Copy {
 		return doCopy(reader, writer, fieldMapping, inLine, lineCreator);
 	}
 	
+	/**
+	 * Copy the input lines that match a selection (filter) to an output file. The fields on the
+	 * input record are copied to the output record by matching the field names.
+	 * The filter is compiled for the input layout (see {@link CompiledSelection}).
+	 *
+	 * @param reader input reader source of input lines (or records)
+	 * @param writer output writer
+	 * @param outSchema output layout
+	 * @param filter selection of the lines to be copied
+	 * @return number of records written
+	 * 
+	 * @throws IOException any IO exception that occurs
+	 */
+	public static int copyFileByMatchingFieldNames(AbstractLineReader reader, AbstractLineWriter writer,  
+			LayoutDetail outSchema, ExternalSelection filter) 
+	throws IOException {
+		return copyFileByMatchingFieldNames(new FilterLineReader(reader, filter), writer, outSchema);
+	}
+	
 	/**
 	 * This method copies an input file to an output file record by record.
 	 * The fields on the input record are copies to the output record by matching
@@ -359,9 +382,18 @@ public class Copy {
 		int lineNumber = 0;
 		int fieldCount = fieldMapping.size();
 		String v = "";
+		TranscodePlan plan = null;
+		if (inLine instanceof Line && lineCreator instanceof LineCreator) {
+			plan = TranscodePlan.create(inLine.getLayout(), ((LineCreator) lineCreator).schema, fieldMapping);
+		}
 		try {			
 			while (inLine != null) {
 				lineNumber += 1;
+				if (plan != null && inLine instanceof Line) {
+					writer.write(plan.transcode(inLine));
+					inLine = reader.read();
+					continue;
+				}
 				AbstractLine outLine = lineCreator.newLine();
 				
 				for (fldNum = 0; fldNum < fieldCount; fldNum++) {
@@ -0,0 +1,1095 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.utilityClasses;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Common.Conversion;
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.Line;
+import net.sf.JRecord.Details.RecordDetail;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.LineIOProvider;
+import net.sf.JRecord.IO.SparseRecordIndex;
+import net.sf.JRecord.Types.Type;
+import net.sf.JRecord.Types.TypeManager;
+import net.sf.JRecord.Types.smallBin.ITypeBinaryExtendedNumeric;
+import net.sf.JRecord.Types.smallBin.TypeZonedAsciiSmall;
+import net.sf.JRecord.Types.smallBin.TypeZonedEbcdicSmall;
+import net.sf.JRecord.cgen.codec.FieldCodec;
+
+/**
+ * Data-Quality profile of a file. The file is read once and for each field of each
+ * Record-Type the following are collected:
+ * <ul>
+ *   <li><b>count</b> - number of records where the field is present
+ *   <li><b>nulls</b> - field is all low-values (x'00') or all spaces
+ *   (binary integer fields are never null)
+ *   <li><b>invalid</b> - numeric fields that do not hold a valid number
+ *   <li><b>min</b> / <b>max</b> values
+ *   <li><b>distinct</b> - estimated number of distinct values (HyperLogLog)
+ *   <li><b>top</b> - most frequent values (Misra-Gries summary; the counts are exact
+ *   when there are fewer distinct values than the summary size)
+ * </ul>
+ *
+ * <p>Fixed position fields are profiled on the raw record bytes: Packed-Decimal and Binary
+ * fields are read as longs, single byte Text fields are compared / hashed as bytes, values are
+ * only decoded for the report. Other fields (Zoned-Decimal, Csv etc) are decoded.
+ *
+ * <pre>
+ *     DataProfiler.Profile profile = new DataProfiler(layout)
+ *             .setTopCount(5)
+ *             .profile(fileName, 4);
+ *     profile.writeJson(writer);
+ * </pre>
+ *
+ * <p>Partial profiles can be merged with {@link Profile#merge(Profile)}; {@link #profile(String, int)}
+ * and {@link #profile(String, SparseRecordIndex, int)} profile the splits of a file on separate threads.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class DataProfiler {
+
+	public static final int DEFAULT_TOP_COUNT = 10;
+	public static final int DEFAULT_DISTINCT_PRECISION = 12;
+
+	private static final int SPLIT_INDEX_INTERVAL = 10000;
+
+	private static final int KIND_TEXT  = 1;		// single byte text; raw bytes
+	private static final int KIND_LONG  = 2;		// Packed-Decimal / Binary; raw bytes as a long
+	private static final int KIND_NUMERIC = 3;		// decoded numeric
+	private static final int KIND_OBJECT  = 4;		// decoded value
+
+	private final LayoutDetail layout;
+	private int topCount = DEFAULT_TOP_COUNT;
+	private int distinctPrecision = DEFAULT_DISTINCT_PRECISION;
+
+	/**
+	 * Create a profiler
+	 * @param layout layout (schema) of the files to be profiled
+	 */
+	public DataProfiler(LayoutDetail layout) {
+		this.layout = layout;
+	}
+
+	/**
+	 * @param topCount number of most frequent values reported for each field
+	 * @return this profiler
+	 */
+	public DataProfiler setTopCount(int topCount) {
+		this.topCount = Math.max(0, topCount);
+		return this;
+	}
+
+	/**
+	 * @param precision HyperLogLog precision (4 to 16); 2^precision registers are used for
+	 * each field, the standard error is about 1.04 / sqrt(2^precision)
+	 * @return this profiler
+	 */
+	public DataProfiler setDistinctPrecision(int precision) {
+		if (precision < 4 || precision > 16) {
+			throw new IllegalArgumentException("Invalid precision: " + precision);
+		}
+		this.distinctPrecision = precision;
+		return this;
+	}
+
+	/**
+	 * @return a new (empty) profile
+	 */
+	public Profile newProfile() {
+		return new Profile();
+	}
+
+	/**
+	 * Profile all the records from a reader (the reader is closed)
+	 * @param reader reader to read the records from
+	 * @return the profile
+	 * @throws IOException any IO error
+	 */
+	public Profile profile(AbstractLineReader reader) throws IOException {
+		Profile profile = new Profile();
+		try {
+			AbstractLine line;
+			while ((line = reader.read()) != null) {
+				profile.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		return profile;
+	}
+
+	/**
+	 * Profile a file
+	 * @param fileName file to be profiled
+	 * @return the profile
+	 * @throws IOException any IO error
+	 */
+	public Profile profile(String fileName) throws IOException {
+		AbstractLineReader reader = LineIOProvider.getInstance().getLineReader(layout);
+		reader.open(fileName, layout);
+		return profile(reader);
+	}
+
+	/**
+	 * Profile a file in parallel. Fixed-Length files (with one record type) are split by
+	 * byte offset, other files are split using a sparse index (built with an extra
+	 * byte-level pass of the file).
+	 *
+	 * @param fileName file to be profiled
+	 * @param threads number of threads (and splits)
+	 * @return the profile
+	 * @throws IOException any IO error
+	 */
+	public Profile profile(final String fileName, int threads) throws IOException {
+		final int recordLength = fixedRecordLength();
+		if (recordLength <= 0) {
+			return profile(fileName, SparseRecordIndex.build(layout, fileName, SPLIT_INDEX_INTERVAL), threads);
+		}
+
+		FileInputStream in = new FileInputStream(fileName);
+		long recordCount = in.getChannel().size() / recordLength;
+		in.close();
+
+		int count = (int) Math.max(1, Math.min(threads, recordCount));
+		List<Callable<Profile>> tasks = new ArrayList<Callable<Profile>>(count);
+		for (int i = 0; i < count; i++) {
+			final long start = recordCount * i / count;
+			final long end = recordCount * (i + 1) / count;
+			tasks.add(new Callable<Profile>() {
+				@Override public Profile call() throws IOException {
+					FileInputStream in = new FileInputStream(fileName);
+					in.getChannel().position(start * recordLength);
+					AbstractLineReader reader = LineIOProvider.getInstance().getLineReader(layout);
+					reader.open(in, layout);
+					return profile(reader, end - start);
+				}
+			});
+		}
+		return run(fileName, tasks);
+	}
+
+	/**
+	 * Profile a file in parallel. The file is split (using a sparse index) and each split
+	 * is profiled on its own thread, the partial profiles are then merged.
+	 *
+	 * @param fileName file to be profiled
+	 * @param index sparse index of the file
+	 * @param threads number of threads (and splits)
+	 * @return the profile
+	 * @throws IOException any IO error
+	 */
+	public Profile profile(final String fileName, final SparseRecordIndex index, int threads) throws IOException {
+		final List<SparseRecordIndex.IndexEntry> splits = index.getSplitPoints(threads);
+		List<Callable<Profile>> tasks = new ArrayList<Callable<Profile>>(splits.size());
+
+		for (int i = 0; i < splits.size(); i++) {
+			final long start = splits.get(i).getRecordNumber();
+			final long end = i + 1 < splits.size() ? splits.get(i + 1).getRecordNumber() : Long.MAX_VALUE;
+			tasks.add(new Callable<Profile>() {
+				@Override public Profile call() throws IOException {
+					return profile(index.newReaderAtRecord(layout, fileName, start), end - start);
+				}
+			});
+		}
+		return run(fileName, tasks);
+	}
+
+	/**
+	 * Profile (up to) count records from a reader; the reader is closed
+	 */
+	private Profile profile(AbstractLineReader reader, long count) throws IOException {
+		Profile profile = new Profile();
+		try {
+			AbstractLine line;
+			for (long i = 0; i < count && (line = reader.read()) != null; i++) {
+				profile.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		return profile;
+	}
+
+	private Profile run(String fileName, List<Callable<Profile>> tasks) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, tasks.size()));
+		ArrayList<Future<Profile>> futures = new ArrayList<Future<Profile>>(tasks.size());
+
+		try {
+			for (Callable<Profile> task : tasks) {
+				futures.add(executor.submit(task));
+			}
+			Profile profile = new Profile();
+			for (Future<Profile> f : futures) {
+				profile.merge(f.get());
+			}
+			return profile;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while profiling " + fileName, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new RecordException("Error profiling " + fileName, e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return the record length if the file can be split by byte offset, otherwise 0
+	 */
+	private int fixedRecordLength() {
+		if (layout.getFileStructure() != Constants.IO_FIXED_LENGTH || layout.getRecordCount() != 1
+		|| layout.isCsvLayout() || layout.getRecord(0).hasDependingOn()) {
+			return 0;
+		}
+		return Math.max(0, layout.getMaximumRecordLength());
+	}
+
+
+	/**
+	 * Profile of a file (or part of a file)
+	 */
+	public class Profile {
+		private final RecordProfile[] records = new RecordProfile[layout.getRecordCount()];
+		private long recordCount = 0;
+		private long undeterminedCount = 0;
+
+		Profile() {
+		}
+
+		/**
+		 * Add a record to the profile
+		 * @param line record to be added
+		 */
+		public void add(AbstractLine line) {
+			int idx = line.getPreferredLayoutIdx();
+
+			recordCount += 1;
+			if (idx < 0 || idx >= records.length) {
+				undeterminedCount += 1;
+				return;
+			}
+			if (records[idx] == null) {
+				records[idx] = new RecordProfile(layout.getRecord(idx));
+			}
+			records[idx].add(line);
+		}
+
+		/**
+		 * Merge another (partial) profile into this profile
+		 * @param other profile to be merged
+		 */
+		public void merge(Profile other) {
+			recordCount += other.recordCount;
+			undeterminedCount += other.undeterminedCount;
+			for (int i = 0; i < records.length; i++) {
+				if (other.records[i] == null) {
+				} else if (records[i] == null) {
+					records[i] = other.records[i];
+				} else {
+					records[i].merge(other.records[i]);
+				}
+			}
+		}
+
+		/**
+		 * @return the total number of records
+		 */
+		public long getRecordCount() {
+			return recordCount;
+		}
+
+		/**
+		 * @return number of records where the Record-Type could not be determined
+		 */
+		public long getUndeterminedCount() {
+			return undeterminedCount;
+		}
+
+		/**
+		 * @param recordIdx record index in the layout
+		 * @return number of records of a Record-Type
+		 */
+		public long getRecordCount(int recordIdx) {
+			return records[recordIdx] == null ? 0 : records[recordIdx].count;
+		}
+
+		/**
+		 * @param recordIdx record index in the layout
+		 * @param fieldIdx field index in the record
+		 * @return the profile of a field (null if there are no records of the Record-Type)
+		 */
+		public FieldProfile getFieldProfile(int recordIdx, int fieldIdx) {
+			return records[recordIdx] == null ? null : records[recordIdx].fields[fieldIdx];
+		}
+
+		/**
+		 * @param recordIdx record index in the layout
+		 * @param fieldName field name
+		 * @return the profile of a field (null if there are no records of the Record-Type)
+		 */
+		public FieldProfile getFieldProfile(int recordIdx, String fieldName) {
+			int idx = layout.getRecord(recordIdx).getFieldIndex(fieldName);
+			if (idx < 0) {
+				throw new RecordException("Field " + fieldName + " does not exist in Record: "
+						+ layout.getRecord(recordIdx).getRecordName());
+			}
+			return getFieldProfile(recordIdx, idx);
+		}
+
+		/**
+		 * Write the profile as JSON
+		 * @param w where to write the profile
+		 * @throws IOException any IO error
+		 */
+		public void writeJson(Writer w) throws IOException {
+			w.write("{\n  \"records\": " + recordCount + ",\n  \"undetermined\": " + undeterminedCount
+					+ ",\n  \"recordTypes\": [");
+			String sep = "";
+			for (int i = 0; i < records.length; i++) {
+				if (records[i] != null) {
+					w.write(sep);
+					records[i].writeJson(w);
+					sep = ",";
+				}
+			}
+			w.write("\n  ]\n}\n");
+			w.flush();
+		}
+
+		/**
+		 * @return the profile as a JSON string
+		 */
+		public String toJson() {
+			StringWriter w = new StringWriter();
+			try {
+				writeJson(w);
+			} catch (IOException e) {
+				throw new RecordException("Error writing Json", e);
+			}
+			return w.toString();
+		}
+	}
+
+	/**
+	 * Profile of one Record-Type
+	 */
+	private class RecordProfile {
+		final RecordDetail record;
+		final FieldProfile[] fields;
+		long count = 0;
+
+		RecordProfile(RecordDetail record) {
+			this.record = record;
+			this.fields = new FieldProfile[record.getFieldCount()];
+			boolean fixed = ! layout.isCsvLayout() && ! record.hasDependingOn();
+			for (int i = 0; i < fields.length; i++) {
+				fields[i] = new FieldProfile(record.getField(i), fixed, topCount, distinctPrecision);
+			}
+		}
+
+		void add(AbstractLine line) {
+			count += 1;
+			if (line instanceof Line) {
+				byte[] data = line.getData();
+				for (FieldProfile f : fields) {
+					f.add(line, data);
+				}
+			} else {
+				for (FieldProfile f : fields) {
+					f.addDecoded(line);
+				}
+			}
+		}
+
+		void merge(RecordProfile other) {
+			count += other.count;
+			for (int i = 0; i < fields.length; i++) {
+				fields[i].merge(other.fields[i]);
+			}
+		}
+
+		void writeJson(Writer w) throws IOException {
+			w.write("\n    {\"name\": " + jsonString(record.getRecordName()) + ", \"records\": " + count
+					+ ", \"fields\": [");
+			for (int i = 0; i < fields.length; i++) {
+				w.write(i == 0 ? "\n" : ",\n");
+				fields[i].writeJson(w);
+			}
+			w.write("\n    ]}");
+		}
+	}
+
+	/**
+	 * Profile of one field
+	 */
+	public static final class FieldProfile {
+		private final FieldDetail field;
+		private final Type type;
+		private final int kind;
+		private final int offset, length;
+		private final boolean canBeNull;
+		private final byte spaceByte;
+		private final char[] toChar;
+		private final ITypeBinaryExtendedNumeric longType;
+		private final ByteKey probe = new ByteKey();
+
+		private long count = 0, nullCount = 0, invalidCount = 0;
+		private boolean hasMinMax = false;
+		private long minLong, maxLong;
+		private byte[] minBytes, maxBytes;
+		private Comparable<Object> minValue, maxValue;
+		private final HyperLogLog distinct;
+		private final TopValues top;
+		private final int topCount;
+
+		FieldProfile(FieldDetail field, boolean fixedRecord, int topCount, int precision) {
+			this.field = field;
+			this.type = TypeManager.getInstance().getType(field.getType());
+			this.offset = field.getPos() - 1;
+			this.length = field.getLen();
+			this.topCount = topCount;
+			this.distinct = new HyperLogLog(precision);
+			this.top = new TopValues(Math.max(64, topCount * 8));
+
+			String font = field.getFontName();
+			boolean fixed = fixedRecord && field.isFixedFormat() && field.getDependingOnDtls() == null;
+			boolean numeric = type.isNumeric();
+			ITypeBinaryExtendedNumeric lt = fixed && numeric ? FieldCodec.getUnscaledLongType(field) : null;
+			if (lt instanceof TypeZonedEbcdicSmall || lt instanceof TypeZonedAsciiSmall) {
+				lt = null;						// Zoned-Decimal is not checked for invalid data by the small types
+			}
+			this.longType = lt;
+
+			if (lt != null) {
+				kind = KIND_LONG;
+			} else if (numeric) {
+				kind = KIND_NUMERIC;
+			} else if (fixed && field.getType() == Type.ftChar && Conversion.isSingleByte(font)) {
+				kind = KIND_TEXT;
+			} else {
+				kind = KIND_OBJECT;
+			}
+			canBeNull = ! type.isBinary() || TypeManager.isPackedDecimal(field.getType());
+			spaceByte = Conversion.getBytes(" ", font)[0];
+
+			char[] chars = null;
+			if (kind == KIND_TEXT) {
+				byte[] b = new byte[256];
+				for (int i = 0; i < 256; i++) {
+					b[i] = (byte) i;
+				}
+				chars = new char[256];
+				Conversion.getString(b, 0, 256, font).getChars(0, 256, chars, 0);
+			}
+			toChar = chars;
+		}
+
+		void add(AbstractLine line, byte[] data) {
+			if (kind != KIND_TEXT && kind != KIND_LONG) {
+				addDecoded(line);
+				return;
+			}
+			if (data.length < offset + length) {
+				return;
+			}
+			count += 1;
+			if (canBeNull && isNull(data)) {
+				nullCount += 1;
+				return;
+			}
+
+			if (kind == KIND_LONG) {
+				long v;
+				try {
+					v = longType.asUnscaledLong(data, offset + 1, field);
+				} catch (RecordException e) {
+					invalidCount += 1;
+					return;
+				}
+				if (! hasMinMax) {
+					minLong = maxLong = v;
+					hasMinMax = true;
+				} else if (v < minLong) {
+					minLong = v;
+				} else if (v > maxLong) {
+					maxLong = v;
+				}
+				distinct.add(HyperLogLog.hash(v));
+				top.add(Long.valueOf(v));
+			} else {
+				if (! hasMinMax) {
+					minBytes = copy(data);
+					maxBytes = minBytes;
+					hasMinMax = true;
+				} else if (compare(data, minBytes) < 0) {
+					minBytes = copy(data);
+				} else if (compare(data, maxBytes) > 0) {
+					maxBytes = copy(data);
+				}
+				distinct.add(HyperLogLog.hash(data, offset, length));
+				probe.set(data, offset, length);
+				if (! top.increment(probe)) {
+					top.add(new ByteKey(copy(data)));
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		void addDecoded(AbstractLine line) {
+			Object o;
+			if (! line.getFieldValue(field).isFieldInRecord()) {
+				return;
+			}
+			count += 1;
+			if (line instanceof Line && field.isFixedFormat() && canBeNull) {
+				byte[] data = line.getData();
+				int pos = field.calculateActualPosition(line) - 1;
+				if (data.length >= pos + length && isNull(data, pos)) {
+					nullCount += 1;
+					return;
+				}
+			}
+			try {
+				o = line.getField(field);
+			} catch (RuntimeException e) {
+				invalidCount += 1;
+				return;
+			}
+			String s = o == null ? "" : o.toString().trim();
+			if (s.length() == 0 && canBeNull) {
+				nullCount += 1;
+				return;
+			}
+
+			Comparable<Object> v;
+			if (kind == KIND_NUMERIC) {
+				try {
+					v = (Comparable<Object>) (Comparable<?>) new BigDecimal(Conversion.numTrim(s));
+				} catch (RuntimeException e) {
+					invalidCount += 1;
+					return;
+				}
+			} else {
+				v = (Comparable<Object>) (Comparable<?>) o.toString();
+			}
+			if (! hasMinMax) {
+				minValue = maxValue = v;
+				hasMinMax = true;
+			} else if (v.compareTo(minValue) < 0) {
+				minValue = v;
+			} else if (v.compareTo(maxValue) > 0) {
+				maxValue = v;
+			}
+			distinct.add(HyperLogLog.hash(v.toString()));
+			top.add(v);
+		}
+
+		void merge(FieldProfile other) {
+			count += other.count;
+			nullCount += other.nullCount;
+			invalidCount += other.invalidCount;
+			if (other.hasMinMax) {
+				if (! hasMinMax) {
+					minLong = other.minLong;
+					maxLong = other.maxLong;
+					minBytes = other.minBytes;
+					maxBytes = other.maxBytes;
+					minValue = other.minValue;
+					maxValue = other.maxValue;
+					hasMinMax = true;
+				} else if (kind == KIND_LONG) {
+					minLong = Math.min(minLong, other.minLong);
+					maxLong = Math.max(maxLong, other.maxLong);
+				} else if (kind == KIND_TEXT) {
+					if (compare(other.minBytes, 0, minBytes) < 0) {
+						minBytes = other.minBytes;
+					}
+					if (compare(other.maxBytes, 0, maxBytes) > 0) {
+						maxBytes = other.maxBytes;
+					}
+				} else {
+					if (other.minValue.compareTo(minValue) < 0) {
+						minValue = other.minValue;
+					}
+					if (other.maxValue.compareTo(maxValue) > 0) {
+						maxValue = other.maxValue;
+					}
+				}
+			}
+			distinct.merge(other.distinct);
+			top.merge(other.top);
+		}
+
+		private boolean isNull(byte[] data) {
+			return isNull(data, offset);
+		}
+
+		private boolean isNull(byte[] data, int pos) {
+			byte b = data[pos];
+			if (b != 0 && b != spaceByte) {
+				return false;
+			}
+			for (int i = pos + 1; i < pos + length; i++) {
+				if (data[i] != b) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private byte[] copy(byte[] data) {
+			byte[] b = new byte[length];
+			System.arraycopy(data, offset, b, 0, length);
+			return b;
+		}
+
+		private int compare(byte[] data, byte[] value) {
+			return compare(data, offset, value);
+		}
+
+		/**
+		 * Compare field bytes using the character set order
+		 */
+		private int compare(byte[] data, int off, byte[] value) {
+			for (int i = 0; i < length; i++) {
+				char c1 = toChar[data[off + i] & 0xFF];
+				char c2 = toChar[value[i] & 0xFF];
+				if (c1 != c2) {
+					return c1 - c2;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Convert a (raw) value to the value reported
+		 */
+		private Object toValue(Object o) {
+			if (o instanceof Long) {
+				long v = ((Long) o).longValue();
+				return field.getDecimal() > 0 ? BigDecimal.valueOf(v, field.getDecimal()) : o;
+			} else if (o instanceof ByteKey) {
+				return decode(((ByteKey) o).data);
+			}
+			return o;
+		}
+
+		private Object decode(byte[] value) {
+			byte[] rec = new byte[offset + length];
+			System.arraycopy(value, 0, rec, offset, length);
+			return type.getField(rec, offset + 1, field);
+		}
+
+		/**
+		 * @return the field definition
+		 */
+		public FieldDetail getField() {
+			return field;
+		}
+
+		/**
+		 * @return number of records where the field is present
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * @return number of null (low-values / spaces) values
+		 */
+		public long getNullCount() {
+			return nullCount;
+		}
+
+		/**
+		 * @return number of invalid (numeric) values
+		 */
+		public long getInvalidCount() {
+			return invalidCount;
+		}
+
+		/**
+		 * @return minimum (valid, non null) value or null if there are no values
+		 */
+		public Object getMin() {
+			if (! hasMinMax) {
+				return null;
+			}
+			switch (kind) {
+			case KIND_LONG: return toValue(Long.valueOf(minLong));
+			case KIND_TEXT: return decode(minBytes);
+			default: return minValue;
+			}
+		}
+
+		/**
+		 * @return maximum (valid, non null) value or null if there are no values
+		 */
+		public Object getMax() {
+			if (! hasMinMax) {
+				return null;
+			}
+			switch (kind) {
+			case KIND_LONG: return toValue(Long.valueOf(maxLong));
+			case KIND_TEXT: return decode(maxBytes);
+			default: return maxValue;
+			}
+		}
+
+		/**
+		 * @return estimated number of distinct (valid, non null) values
+		 */
+		public long getDistinctEstimate() {
+			return distinct.estimate();
+		}
+
+		/**
+		 * @return the most frequent values (most frequent first)
+		 */
+		public List<ValueCount> getTopValues() {
+			List<Map.Entry<Object, long[]>> entries = top.top(topCount);
+			List<ValueCount> ret = new ArrayList<ValueCount>(entries.size());
+			for (Map.Entry<Object, long[]> e : entries) {
+				ret.add(new ValueCount(toValue(e.getKey()), e.getValue()[0]));
+			}
+			return ret;
+		}
+
+		private boolean isNumeric() {
+			return kind == KIND_LONG || kind == KIND_NUMERIC;
+		}
+
+		void writeJson(Writer w) throws IOException {
+			w.write("      {\"name\": " + jsonString(field.getName())
+					+ ", \"type\": " + field.getType()
+					+ ", \"position\": " + field.getPos()
+					+ ", \"length\": " + field.getLen()
+					+ ", \"count\": " + count
+					+ ", \"nulls\": " + nullCount
+					+ ", \"invalid\": " + invalidCount
+					+ ", \"min\": " + jsonValue(getMin())
+					+ ", \"max\": " + jsonValue(getMax())
+					+ ", \"distinct\": " + getDistinctEstimate()
+					+ ", \"top\": [");
+			String sep = "";
+			for (ValueCount vc : getTopValues()) {
+				w.write(sep + "{\"value\": " + jsonValue(vc.value) + ", \"count\": " + vc.count + "}");
+				sep = ", ";
+			}
+			w.write("]}");
+		}
+
+		private String jsonValue(Object o) {
+			if (o == null) {
+				return "null";
+			} else if (isNumeric()) {
+				if (o instanceof BigDecimal) {
+					return ((BigDecimal) o).toPlainString();
+				}
+				try {
+					return new BigDecimal(Conversion.numTrim(o.toString())).toPlainString();
+				} catch (RuntimeException e) {
+				}
+			}
+			return jsonString(o.toString());
+		}
+	}
+
+	/**
+	 * A value and its (approximate) count
+	 */
+	public static final class ValueCount {
+		private final Object value;
+		private final long count;
+
+		ValueCount(Object value, long count) {
+			this.value = value;
+			this.count = count;
+		}
+
+		/**
+		 * @return the value
+		 */
+		public Object getValue() {
+			return value;
+		}
+
+		/**
+		 * @return the count
+		 */
+		public long getCount() {
+			return count;
+		}
+	}
+
+	/**
+	 * Raw field bytes used as a map key. The same instance is reused for
+	 * lookups (set(...)) so a copy is only made when a new value is added.
+	 */
+	private static final class ByteKey {
+		byte[] data;
+		int off, len, hash;
+
+		ByteKey() {
+		}
+
+		ByteKey(byte[] data) {
+			set(data, 0, data.length);
+		}
+
+		void set(byte[] d, int o, int l) {
+			data = d;
+			off = o;
+			len = l;
+			int h = 1;
+			for (int i = o; i < o + l; i++) {
+				h = 31 * h + d[i];
+			}
+			hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (! (obj instanceof ByteKey)) {
+				return false;
+			}
+			ByteKey k = (ByteKey) obj;
+			if (k.hash != hash || k.len != len) {
+				return false;
+			}
+			for (int i = 0; i < len; i++) {
+				if (data[off + i] != k.data[k.off + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * HyperLogLog distinct count estimate
+	 */
+	private static final class HyperLogLog {
+		private final int precision;
+		private final byte[] registers;
+
+		HyperLogLog(int precision) {
+			this.precision = precision;
+			this.registers = new byte[1 << precision];
+		}
+
+		void add(long hash) {
+			int idx = (int) (hash >>> (64 - precision));
+			int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1;
+			if (rank > registers[idx]) {
+				registers[idx] = (byte) rank;
+			}
+		}
+
+		void merge(HyperLogLog other) {
+			for (int i = 0; i < registers.length; i++) {
+				registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+			}
+		}
+
+		long estimate() {
+			int m = registers.length;
+			double sum = 0;
+			int zeros = 0;
+			for (byte r : registers) {
+				sum += 1.0 / (1L << r);
+				if (r == 0) {
+					zeros += 1;
+				}
+			}
+			double e = 0.7213 / (1 + 1.079 / m) * m * m / sum;
+			if (e <= 2.5 * m && zeros > 0) {
+				e = m * Math.log((double) m / zeros);		// linear counting for small cardinalities
+			}
+			return Math.round(e);
+		}
+
+		static long hash(long v) {
+			return mix(v * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L);
+		}
+
+		static long hash(byte[] data, int off, int len) {
+			long h = 0xcbf29ce484222325L;
+			for (int i = off; i < off + len; i++) {
+				h ^= data[i] & 0xFF;
+				h *= 0x100000001b3L;
+			}
+			return mix(h);
+		}
+
+		static long hash(String s) {
+			long h = 0xcbf29ce484222325L;
+			for (int i = 0; i < s.length(); i++) {
+				h ^= s.charAt(i);
+				h *= 0x100000001b3L;
+			}
+			return mix(h);
+		}
+
+		private static long mix(long k) {
+			k ^= k >>> 33;
+			k *= 0xff51afd7ed558ccdL;
+			k ^= k >>> 33;
+			k *= 0xc4ceb9fe1a85ec53L;
+			k ^= k >>> 33;
+			return k;
+		}
+	}
+
+	/**
+	 * Most frequent values (Misra-Gries summary)
+	 */
+	private static final class TopValues {
+		private final int capacity;
+		private final HashMap<Object, long[]> counts;
+
+		TopValues(int capacity) {
+			this.capacity = capacity;
+			this.counts = new HashMap<Object, long[]>(capacity * 2);
+		}
+
+		/**
+		 * Increment the count of a value that is already held
+		 * @return wether the value was found
+		 */
+		boolean increment(Object key) {
+			long[] c = counts.get(key);
+			if (c == null) {
+				return false;
+			}
+			c[0] += 1;
+			return true;
+		}
+
+		void add(Object key) {
+			if (increment(key)) {
+			} else if (counts.size() < capacity) {
+				counts.put(key, new long[] {1});
+			} else {
+				reduce(1);
+			}
+		}
+
+		void merge(TopValues other) {
+			for (Map.Entry<Object, long[]> e : other.counts.entrySet()) {
+				long[] c = counts.get(e.getKey());
+				if (c == null) {
+					counts.put(e.getKey(), new long[] {e.getValue()[0]});
+				} else {
+					c[0] += e.getValue()[0];
+				}
+			}
+			if (counts.size() > capacity) {
+				List<Map.Entry<Object, long[]>> entries = top(capacity + 1);
+				reduce(entries.get(capacity).getValue()[0]);
+			}
+		}
+
+		/**
+		 * Subtract an amount from every count, dropping values that reach zero
+		 */
+		private void reduce(long amount) {
+			Iterator<long[]> it = counts.values().iterator();
+			while (it.hasNext()) {
+				long[] c = it.next();
+				c[0] -= amount;
+				if (c[0] <= 0) {
+					it.remove();
+				}
+			}
+		}
+
+		List<Map.Entry<Object, long[]>> top(int num) {
+			List<Map.Entry<Object, long[]>> entries = new ArrayList<Map.Entry<Object, long[]>>(counts.entrySet());
+			Collections.sort(entries, new Comparator<Map.Entry<Object, long[]>>() {
+				@Override public int compare(Map.Entry<Object, long[]> o1, Map.Entry<Object, long[]> o2) {
+					return Long.compare(o2.getValue()[0], o1.getValue()[0]);
+				}
+			});
+			return entries.subList(0, Math.min(num, entries.size()));
+		}
+	}
+
+	static String jsonString(String s) {
+		StringBuilder b = new StringBuilder(s.length() + 2).append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':	b.append("\\\"");	break;
+			case '\\':	b.append("\\\\");	break;
+			case '\n':	b.append("\\n");	break;
+			case '\r':	b.append("\\r");	break;
+			case '\t':	b.append("\\t");	break;
+			default:
+				if (c < 0x20) {
+					b.append(String.format("\\u%04x", (int) c));
+				} else {
+					b.append(c);
+				}
+			}
+		}
+		return b.append('"').toString();
+	}
+}
@@ -0,0 +1,832 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+
+package net.sf.JRecord.utilityClasses;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.LineProvider;
+import net.sf.JRecord.Details.RecordDetail;
+import net.sf.JRecord.Details.RecordStore;
+import net.sf.JRecord.Details.fieldValue.IFieldValue;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.IO.LineIOProvider;
+import net.sf.JRecord.Types.TypeManager;
+
+/**
+ * Compare two generations (old / new) of a data file described by the same copybook.
+ * Records are paired on key fields and each difference is passed to a
+ * {@link IDiffListener}:
+ * <ul>
+ *   <li><b>inserted</b> - key is only in the new file
+ *   <li><b>deleted</b> - key is only in the old file
+ *   <li><b>changed</b> - key in both files, with the list of fields that differ
+ * </ul>
+ * Fields are compared as raw bytes first, they are only decoded when the bytes differ
+ * (so for example packed decimal +0 / -0 or trailing spaces are not reported as changes).
+ *
+ * <p>If both files are sorted on the key (see {@link #setSorted(boolean)}) the files are merged
+ * in a single pass using very little memory. Otherwise the old file is loaded into an
+ * in-memory hash table; if it exceeds the memory budget both files are partitioned
+ * (on the key hash) to temporary files and each partition is compared separately.
+ * For unsorted files, deletes are reported after the inserts / changes (of each partition).
+ *
+ * <pre>
+ *     FileDiff diff = new FileDiff("Customer-Id").setSorted(true);
+ *     diff.diff(oldReader, newReader, new FileDiff.CdcListener(cdcWriter, cdcLayout, "Change-Code"));
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ */
+public class FileDiff {
+
+	public static final String INSERT = "I";
+	public static final String DELETE = "D";
+	public static final String UPDATE = "U";
+
+	public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+	public static final int DEFAULT_PARTITIONS = 32;
+
+	private static final int ENTRY_OVERHEAD = 80;
+
+	/**
+	 * Receives the differences between the old and new files
+	 */
+	public static interface IDiffListener {
+		/**
+		 * Record is only in the new file
+		 * @param newLine new record
+		 */
+		public void inserted(AbstractLine newLine) throws IOException;
+
+		/**
+		 * Record is only in the old file
+		 * @param oldLine old record
+		 */
+		public void deleted(AbstractLine oldLine) throws IOException;
+
+		/**
+		 * Record has been changed
+		 * @param oldLine old record
+		 * @param newLine new record
+		 * @param changedFields fields (in the new record) that have changed
+		 */
+		public void changed(AbstractLine oldLine, AbstractLine newLine, List<FieldDetail> changedFields) throws IOException;
+	}
+
+	private final String[] keyFieldNames;
+	private boolean sorted = false;
+	private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+	private int partitionCount = DEFAULT_PARTITIONS;
+	private File workDirectory = null;
+
+	private long insertCount, deleteCount, changeCount, unchangedCount;
+
+	/**
+	 * Create a file compare
+	 * @param keyFieldNames names of the key fields
+	 */
+	public FileDiff(String... keyFieldNames) {
+		if (keyFieldNames == null || keyFieldNames.length == 0) {
+			throw new IllegalArgumentException("At least one key field is required");
+		}
+		this.keyFieldNames = keyFieldNames;
+	}
+
+	/**
+	 * @param sorted wether both files are sorted on the key fields. Numeric keys
+	 * are in numeric sequence, other keys in (unsigned) byte sequence.
+	 * @return this FileDiff
+	 */
+	public FileDiff setSorted(boolean sorted) {
+		this.sorted = sorted;
+		return this;
+	}
+
+	/**
+	 * @param memoryBudget maximum number of bytes used for the in-memory (old file) table
+	 * before the files are partitioned to disk (unsorted files only)
+	 * @return this FileDiff
+	 */
+	public FileDiff setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+		return this;
+	}
+
+	/**
+	 * @param partitionCount number of partitions used when the old file exceeds the memory budget
+	 * @return this FileDiff
+	 */
+	public FileDiff setPartitionCount(int partitionCount) {
+		this.partitionCount = Math.max(2, partitionCount);
+		return this;
+	}
+
+	/**
+	 * @param workDirectory directory for the partition files (default is the temp directory)
+	 * @return this FileDiff
+	 */
+	public FileDiff setWorkDirectory(File workDirectory) {
+		this.workDirectory = workDirectory;
+		return this;
+	}
+
+	/**
+	 * Compare 2 files, the readers are closed at the end.
+	 *
+	 * @param oldReader reader for the old (previous) file
+	 * @param newReader reader for the new (current) file
+	 * @param listener receives the differences
+	 * @return number of differences (inserts + deletes + changes)
+	 *
+	 * @throws IOException any IO error
+	 */
+	public long diff(AbstractLineReader oldReader, AbstractLineReader newReader, IDiffListener listener)
+	throws IOException {
+		DiffDetails dtls = new DiffDetails(oldReader.getLayout(), newReader.getLayout(), keyFieldNames);
+
+		insertCount = 0;
+		deleteCount = 0;
+		changeCount = 0;
+		unchangedCount = 0;
+		try {
+			if (sorted) {
+				mergeDiff(dtls, oldReader, newReader, listener);
+			} else {
+				hashDiff(dtls, oldReader, newReader, listener);
+			}
+		} finally {
+			oldReader.close();
+			newReader.close();
+		}
+		return insertCount + deleteCount + changeCount;
+	}
+
+	/**
+	 * @return number of inserted records (from the last diff)
+	 */
+	public long getInsertCount() {
+		return insertCount;
+	}
+
+	/**
+	 * @return number of deleted records (from the last diff)
+	 */
+	public long getDeleteCount() {
+		return deleteCount;
+	}
+
+	/**
+	 * @return number of changed records (from the last diff)
+	 */
+	public long getChangeCount() {
+		return changeCount;
+	}
+
+	/**
+	 * @return number of unchanged records (from the last diff)
+	 */
+	public long getUnchangedCount() {
+		return unchangedCount;
+	}
+
+	/**
+	 * Create a listener that writes a (text) report of the differences
+	 * @param writer where the report is written to (it is not closed)
+	 * @return report listener
+	 */
+	public IDiffListener newReportListener(Writer writer) {
+		return new ReportListener(writer);
+	}
+
+	/**
+	 * Sorted files: single pass merge of the 2 files
+	 */
+	private void mergeDiff(DiffDetails dtls, AbstractLineReader oldReader, AbstractLineReader newReader, IDiffListener listener)
+	throws IOException {
+		AbstractLine oldLine = oldReader.read();
+		AbstractLine newLine = newReader.read();
+
+		while (oldLine != null || newLine != null) {
+			int c = oldLine == null ? 1
+				  : newLine == null ? -1
+				  : dtls.compareKeys(oldLine, dtls.oldKeys, newLine, dtls.newKeys);
+
+			if (c < 0) {
+				delete(listener, oldLine);
+				oldLine = readNext(dtls, oldReader, oldLine, dtls.oldKeys, "Old");
+			} else if (c > 0) {
+				insert(listener, newLine);
+				newLine = readNext(dtls, newReader, newLine, dtls.newKeys, "New");
+			} else {
+				compare(dtls, listener, oldLine, newLine);
+				oldLine = readNext(dtls, oldReader, oldLine, dtls.oldKeys, "Old");
+				newLine = readNext(dtls, newReader, newLine, dtls.newKeys, "New");
+			}
+		}
+	}
+
+	private static AbstractLine readNext(DiffDetails dtls, AbstractLineReader reader, AbstractLine last,
+			FieldDetail[] keys, String side)
+	throws IOException {
+		AbstractLine line = reader.read();
+		if (line != null && dtls.compareKeys(last, keys, line, keys) > 0) {
+			throw new RecordException("The " + side + " file is not in key sequence at key: " + dtls.keyString(line, keys));
+		}
+		return line;
+	}
+
+	/**
+	 * Unsorted files: hash the old file and look up each new record
+	 */
+	private void hashDiff(DiffDetails dtls, AbstractLineReader oldReader, AbstractLineReader newReader, IDiffListener listener)
+	throws IOException {
+		OldTable table = new OldTable(dtls);
+		AbstractLine line;
+
+		while ((line = oldReader.read()) != null) {
+			table.add(line);
+		}
+
+		if (table.partitions == null) {
+			while ((line = newReader.read()) != null) {
+				table.probe(line, listener);
+			}
+			table.reportDeletes(listener);
+			table.store.close();
+			return;
+		}
+
+		PartitionFiles oldParts = table.partitions;
+		PartitionFiles newParts = new PartitionFiles("JRecordDiff", partitionCount, workDirectory);
+		try {
+			oldParts.closeOutput();
+			while ((line = newReader.read()) != null) {
+				newParts.write(dtls.key(line, dtls.newKeys).hash, line.getData());
+			}
+			newParts.closeOutput();
+
+			for (int i = 0; i < partitionCount; i++) {
+				OldTable partTable = new OldTable(dtls);
+				byte[] rec;
+
+				DataInputStream in = oldParts.openInput(i);
+				try {
+					while ((rec = PartitionFiles.readRecord(in)) != null) {
+						partTable.addInMemory(dtls.oldProvider.getLine(dtls.oldLayout, rec));
+					}
+				} finally {
+					in.close();
+				}
+
+				in = newParts.openInput(i);
+				try {
+					while ((rec = PartitionFiles.readRecord(in)) != null) {
+						partTable.probe(dtls.newProvider.getLine(dtls.newLayout, rec), listener);
+					}
+				} finally {
+					in.close();
+				}
+				partTable.reportDeletes(listener);
+				partTable.store.close();
+			}
+		} finally {
+			oldParts.delete();
+			newParts.delete();
+		}
+	}
+
+	private void insert(IDiffListener listener, AbstractLine newLine) throws IOException {
+		insertCount += 1;
+		listener.inserted(newLine);
+	}
+
+	private void delete(IDiffListener listener, AbstractLine oldLine) throws IOException {
+		deleteCount += 1;
+		listener.deleted(oldLine);
+	}
+
+	private void compare(DiffDetails dtls, IDiffListener listener, AbstractLine oldLine, AbstractLine newLine)
+	throws IOException {
+		List<FieldDetail> changedFields = dtls.changedFields(oldLine, newLine);
+		if (changedFields.size() == 0) {
+			unchangedCount += 1;
+		} else {
+			changeCount += 1;
+			listener.changed(oldLine, newLine, changedFields);
+		}
+	}
+
+
+	/**
+	 * Key / compare fields for the 2 files
+	 */
+	private static class DiffDetails {
+		final LayoutDetail oldLayout, newLayout;
+		final LineProvider oldProvider, newProvider;
+		final FieldDetail[] oldKeys, newKeys, oldFields, newFields;
+		final boolean[] rawKey, rawField;
+		final boolean allRaw;
+
+		DiffDetails(LayoutDetail oldLayout, LayoutDetail newLayout, String[] keyFieldNames) {
+			LineIOProvider ioProvider = LineIOProvider.getInstance();
+
+			this.oldLayout = oldLayout;
+			this.newLayout = newLayout;
+			this.oldProvider = ioProvider.getLineProvider(oldLayout);
+			this.newProvider = ioProvider.getLineProvider(newLayout);
+
+			RecordDetail oldRec = singleRecord(oldLayout, "Old");
+			RecordDetail newRec = singleRecord(newLayout, "New");
+
+			oldKeys = new FieldDetail[keyFieldNames.length];
+			newKeys = new FieldDetail[keyFieldNames.length];
+			rawKey = new boolean[keyFieldNames.length];
+			for (int i = 0; i < oldKeys.length; i++) {
+				oldKeys[i] = getField(oldRec, keyFieldNames[i], "Old");
+				newKeys[i] = getField(newRec, keyFieldNames[i], "New");
+				rawKey[i] = sameRepresentation(oldKeys[i], newKeys[i]);
+			}
+
+			int fieldCount = newRec.getFieldCount();
+			boolean raw = ! oldLayout.isCsvLayout() && oldRec.getLength() == newRec.getLength();
+			oldFields = new FieldDetail[fieldCount];
+			newFields = new FieldDetail[fieldCount];
+			rawField = new boolean[fieldCount];
+			for (int i = 0; i < fieldCount; i++) {
+				newFields[i] = newRec.getField(i);
+				oldFields[i] = oldRec.getField(newFields[i].getName());
+				rawField[i] = oldFields[i] != null && sameRepresentation(oldFields[i], newFields[i])
+						   && oldFields[i].getPos() == newFields[i].getPos();
+				raw = raw && rawField[i];
+			}
+			allRaw = raw && oldRec.getFieldCount() == fieldCount && ! oldRec.hasDependingOn();
+		}
+
+		/**
+		 * Compare the keys of 2 records
+		 */
+		int compareKeys(AbstractLine line1, FieldDetail[] keys1, AbstractLine line2, FieldDetail[] keys2) {
+			for (int i = 0; i < keys1.length; i++) {
+				int c;
+				if (rawKey[i]) {
+					byte[] d1 = line1.getData(), d2 = line2.getData();
+					int p1 = keys1[i].calculateActualPosition(line1) - 1;
+					int p2 = keys2[i].calculateActualPosition(line2) - 1;
+					if (rangeEquals(d1, p1, d2, p2, keys1[i].getLen())) {
+						continue;
+					}
+					if (! TypeManager.isNumeric(keys1[i].getType())) {
+						int len = keys1[i].getLen();
+						c = compareBytes(d1, p1, Math.min(len, d1.length - p1), d2, p2, Math.min(len, d2.length - p2));
+						if (c != 0) {
+							return c;
+						}
+						continue;
+					}
+				}
+				c = compareValues(line1.getFieldValue(keys1[i]), line2.getFieldValue(keys2[i]), keys1[i]);
+				if (c != 0) {
+					return c;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Get the fields that have changed; the bytes are compared first and the field
+		 * is only decoded when the bytes differ.
+		 */
+		List<FieldDetail> changedFields(AbstractLine oldLine, AbstractLine newLine) {
+			ArrayList<FieldDetail> changed = new ArrayList<FieldDetail>();
+			byte[] oldData = oldLine.getData();
+			byte[] newData = newLine.getData();
+
+			if (allRaw && Arrays.equals(oldData, newData)) {
+				return changed;
+			}
+			for (int i = 0; i < newFields.length; i++) {
+				if (oldFields[i] == null) {
+					continue;
+				}
+				if (rawField[i]) {
+					int p1 = oldFields[i].calculateActualPosition(oldLine) - 1;
+					int p2 = newFields[i].calculateActualPosition(newLine) - 1;
+					if (rangeEquals(oldData, p1, newData, p2, newFields[i].getLen())) {
+						continue;
+					}
+				}
+				if (compareValues(oldLine.getFieldValue(oldFields[i]), newLine.getFieldValue(newFields[i]), newFields[i]) != 0) {
+					changed.add(newFields[i]);
+				}
+			}
+			return changed;
+		}
+
+		/**
+		 * Hash key for a record; text keys use the raw bytes, numeric keys are decoded
+		 * (so different encodings of the same value match).
+		 */
+		DiffKey key(AbstractLine line, FieldDetail[] keys) {
+			StringBuilder b = new StringBuilder();
+			for (int i = 0; i < keys.length; i++) {
+				if (rawKey[i] && ! TypeManager.isNumeric(keys[i].getType())) {
+					byte[] data = line.getData();
+					int pos = keys[i].calculateActualPosition(line) - 1;
+					int end = Math.min(data.length, pos + keys[i].getLen());
+					for (int j = pos; j < end; j++) {
+						b.append((char) (data[j] & 0xFF));
+					}
+					b.append('\u0000');
+					continue;
+				}
+				IFieldValue value = line.getFieldValue(keys[i]);
+				String s = "";
+				if (value.isFieldInRecord()) {
+					s = value.asString();
+					if (TypeManager.isNumeric(keys[i].getType())) {
+						s = normaliseNumber(s.trim());
+					} else {
+						s = trimRight(s);
+					}
+				}
+				b.append(s).append('\u0000');
+			}
+			return new DiffKey(b.toString());
+		}
+
+		String keyString(AbstractLine line, FieldDetail[] keys) {
+			StringBuilder b = new StringBuilder();
+			String sep = "";
+			for (FieldDetail k : keys) {
+				IFieldValue value = line.getFieldValue(k);
+				b.append(sep).append(value.isFieldInRecord() ? value.asString() : "");
+				sep = ", ";
+			}
+			return b.toString();
+		}
+
+		private static int compareValues(IFieldValue v1, IFieldValue v2, FieldDetail field) {
+			String s1 = v1.isFieldInRecord() ? v1.asString() : "";
+			String s2 = v2.isFieldInRecord() ? v2.asString() : "";
+
+			if (TypeManager.isNumeric(field.getType())) {
+				try {
+					BigDecimal d1 = new BigDecimal(s1.trim().length() == 0 ? "0" : s1.trim());
+					BigDecimal d2 = new BigDecimal(s2.trim().length() == 0 ? "0" : s2.trim());
+					return d1.compareTo(d2);
+				} catch (NumberFormatException e) {
+				}
+			}
+			return trimRight(s1).compareTo(trimRight(s2));
+		}
+
+		private static String normaliseNumber(String s) {
+			try {
+				BigDecimal d = new BigDecimal(s);
+				return d.signum() == 0 ? "0" : d.stripTrailingZeros().toPlainString();
+			} catch (NumberFormatException e) {
+				return s;
+			}
+		}
+
+		private static String trimRight(String s) {
+			int end = s.length();
+			while (end > 0 && s.charAt(end - 1) == ' ') {
+				end -= 1;
+			}
+			return s.substring(0, end);
+		}
+
+		private static boolean rangeEquals(byte[] d1, int p1, byte[] d2, int p2, int len) {
+			if (p1 + len > d1.length || p2 + len > d2.length) {
+				return false;
+			}
+			for (int i = 0; i < len; i++) {
+				if (d1[p1 + i] != d2[p2 + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static int compareBytes(byte[] d1, int p1, int len1, byte[] d2, int p2, int len2) {
+			int len = Math.min(len1, len2);
+			for (int i = 0; i < len; i++) {
+				int c = (d1[p1 + i] & 0xFF) - (d2[p2 + i] & 0xFF);
+				if (c != 0) {
+					return c;
+				}
+			}
+			return len1 - len2;
+		}
+
+		private static boolean sameRepresentation(FieldDetail f1, FieldDetail f2) {
+			String font1 = f1.getFontName(), font2 = f2.getFontName();
+			return f1.isFixedFormat() && f2.isFixedFormat()
+				&& f1.getType() == f2.getType()
+				&& f1.getLen() == f2.getLen()
+				&& f1.getDecimal() == f2.getDecimal()
+				&& (font1 == null ? "" : font1).equalsIgnoreCase(font2 == null ? "" : font2);
+		}
+
+		private static RecordDetail singleRecord(LayoutDetail layout, String side) {
+			if (layout.getRecordCount() != 1) {
+				throw new RecordException("Only one Record Type is allowed on the " + side + " RecordLayout");
+			}
+			return layout.getRecord(0);
+		}
+
+		private static FieldDetail getField(RecordDetail rec, String name, String side) {
+			FieldDetail f = rec.getField(name);
+			if (f == null) {
+				throw new RecordException("Field " + name + " does not exist in the " + side + " Record: " + rec.getRecordName());
+			}
+			return f;
+		}
+	}
+
+	/**
+	 * Key (normalised key field values)
+	 */
+	private static final class DiffKey {
+		final String key;
+		final int hash;
+
+		DiffKey(String key) {
+			this.key = key;
+			this.hash = key.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof DiffKey && key.equals(((DiffKey) obj).key);
+		}
+	}
+
+	/**
+	 * In memory hash table of the old records. The records are held in a
+	 * {@link RecordStore}; the table maps the key to the first record, <i>next</i>
+	 * chains records with the same key.
+	 */
+	private class OldTable {
+		final DiffDetails dtls;
+		final RecordStore store;
+		final HashMap<DiffKey, Integer> table = new HashMap<DiffKey, Integer>();
+		final BitSet matched = new BitSet();
+		int[] next = new int[1024];
+		long keyBytes = 0;
+		PartitionFiles partitions = null;
+
+		OldTable(DiffDetails dtls) {
+			this.dtls = dtls;
+			this.store = new RecordStore(dtls.oldLayout, RecordStore.DEFAULT_SLAB_SIZE / 4, false);
+		}
+
+		void add(AbstractLine line) throws IOException {
+			if (partitions != null) {
+				partitions.write(dtls.key(line, dtls.oldKeys).hash, line.getData());
+			} else {
+				addInMemory(line);
+				if (getMemoryUsed() > memoryBudget) {
+					spill();
+				}
+			}
+		}
+
+		void addInMemory(AbstractLine line) {
+			DiffKey key = dtls.key(line, dtls.oldKeys);
+			int idx = store.add(line.getData());
+
+			if (idx == next.length) {
+				next = Arrays.copyOf(next, next.length * 2);
+			}
+			Integer first = table.put(key, idx);
+			next[idx] = first == null ? -1 : first;
+			if (first == null) {
+				keyBytes += key.key.length() * 2;
+			}
+		}
+
+		/**
+		 * Look up a new record and report the insert / change
+		 */
+		void probe(AbstractLine newLine, IDiffListener listener) throws IOException {
+			Integer first = table.get(dtls.key(newLine, dtls.newKeys));
+			int match = -1;
+
+			if (first != null) {
+				for (int idx = first; idx >= 0; idx = next[idx]) {
+					if (! matched.get(idx)) {
+						match = idx;			// chain is newest first, so this finds the earliest unmatched record
+					}
+				}
+			}
+			if (match < 0) {
+				insert(listener, newLine);
+			} else {
+				matched.set(match);
+				compare(dtls, listener, store.getLine(match), newLine);
+			}
+		}
+
+		void reportDeletes(IDiffListener listener) throws IOException {
+			for (int idx = matched.nextClearBit(0); idx < store.size(); idx = matched.nextClearBit(idx + 1)) {
+				delete(listener, store.getLine(idx));
+			}
+		}
+
+		private long getMemoryUsed() {
+			return store.getBytesStored() + store.size() * 18L + table.size() * (long) ENTRY_OVERHEAD + keyBytes;
+		}
+
+		/**
+		 * Table is too big, move the records to partition files
+		 */
+		private void spill() throws IOException {
+			partitions = new PartitionFiles("JRecordDiff", partitionCount, workDirectory);
+			for (int i = 0; i < store.size(); i++) {
+				AbstractLine line = store.getLine(i);
+				partitions.write(dtls.key(line, dtls.oldKeys).hash, line.getData());
+			}
+			store.close();
+			table.clear();
+			next = new int[0];
+		}
+	}
+
+	/**
+	 * Writes a text report of the differences
+	 */
+	private class ReportListener implements IDiffListener {
+		private final Writer writer;
+		private final String[] keyNames = keyFieldNames;
+
+		ReportListener(Writer writer) {
+			this.writer = writer;
+		}
+
+		@Override
+		public void inserted(AbstractLine newLine) throws IOException {
+			writer.write("Insert  " + keyString(newLine) + "\n");
+		}
+
+		@Override
+		public void deleted(AbstractLine oldLine) throws IOException {
+			writer.write("Delete  " + keyString(oldLine) + "\n");
+		}
+
+		@Override
+		public void changed(AbstractLine oldLine, AbstractLine newLine, List<FieldDetail> changedFields)
+		throws IOException {
+			writer.write("Change  " + keyString(newLine) + "\n");
+			for (FieldDetail f : changedFields) {
+				IFieldValue oldValue = oldLine.getFieldValue(f.getName());
+				writer.write("            " + f.getName() + ": "
+						+ (oldValue.isFieldInRecord() ? oldValue.asString() : "")
+						+ " -> " + newLine.getFieldValue(f).asString() + "\n");
+			}
+		}
+
+		private String keyString(AbstractLine line) {
+			StringBuilder b = new StringBuilder();
+			String sep = "";
+			for (String k : keyNames) {
+				b.append(sep).append(k).append('=').append(line.getFieldValue(k).asString());
+				sep = ", ";
+			}
+			return b.toString();
+		}
+	}
+
+	/**
+	 * Writes a Change-Data-Capture (CDC) file. Each output record has a change-code field
+	 * ({@link FileDiff#INSERT}, {@link FileDiff#DELETE} or {@link FileDiff#UPDATE}); the other
+	 * fields are copied (by name) from the new record (old record for deletes).
+	 * The old and new files may have different layouts. The writer is not closed.
+	 */
+	public static class CdcListener implements IDiffListener {
+		private final AbstractLineWriter writer;
+		private final LayoutDetail cdcLayout;
+		private final LineProvider provider;
+		private final String changeCodeFieldName;
+		private final HashMap<LayoutDetail, FieldDetail[]> sourceFields = new HashMap<LayoutDetail, FieldDetail[]>(4);
+
+		/**
+		 * Create a CDC listener
+		 * @param writer CDC file writer
+		 * @param cdcLayout CDC file layout
+		 * @param changeCodeFieldName name of the change-code field in the CDC layout
+		 */
+		public CdcListener(AbstractLineWriter writer, LayoutDetail cdcLayout, String changeCodeFieldName) {
+			this.writer = writer;
+			this.cdcLayout = cdcLayout;
+			this.provider = LineIOProvider.getInstance().getLineProvider(cdcLayout);
+			this.changeCodeFieldName = changeCodeFieldName;
+			if (cdcLayout.getRecordCount() != 1 || cdcLayout.getRecord(0).getField(changeCodeFieldName) == null) {
+				throw new RecordException("Change Code field " + changeCodeFieldName + " is not in the CDC layout");
+			}
+		}
+
+		@Override
+		public void inserted(AbstractLine newLine) throws IOException {
+			write(INSERT, newLine);
+		}
+
+		@Override
+		public void deleted(AbstractLine oldLine) throws IOException {
+			write(DELETE, oldLine);
+		}
+
+		@Override
+		public void changed(AbstractLine oldLine, AbstractLine newLine, List<FieldDetail> changedFields)
+		throws IOException {
+			write(UPDATE, newLine);
+		}
+
+		private void write(String changeCode, AbstractLine line) throws IOException {
+			FieldDetail[] source = getSourceFields(line.getLayout());
+			AbstractLine out = provider.getLine(cdcLayout);
+			out.getFieldValue(changeCodeFieldName).set(changeCode);
+			for (int i = 0; i < source.length; i++) {
+				if (source[i] != null) {
+					IFieldValue fieldValue = out.getFieldValue(0, i);
+					IFieldValue sfv = line.getFieldValue(source[i]);
+					if (fieldValue.isFieldInRecord() && sfv.isFieldInRecord()) {
+						String v = sfv.asString();
+						if (v != null && v.length() > 0) {
+							fieldValue.set(v);
+						}
+					}
+				}
+			}
+			writer.write(out);
+		}
+
+		/**
+		 * Get the input field for each CDC field, the old and new
+		 * layouts each have their own mapping
+		 */
+		private FieldDetail[] getSourceFields(LayoutDetail layout) {
+			FieldDetail[] source = sourceFields.get(layout);
+			if (source == null) {
+				RecordDetail cdcRec = cdcLayout.getRecord(0);
+				RecordDetail rec = layout.getRecord(0);
+				source = new FieldDetail[cdcRec.getFieldCount()];
+				for (int i = 0; i < source.length; i++) {
+					if (! changeCodeFieldName.equalsIgnoreCase(cdcRec.getField(i).getName())) {
+						source[i] = rec.getField(cdcRec.getField(i).getLookupName());
+					}
+				}
+				sourceFields.put(layout, source);
+			}
+			return source;
+		}
+	}
+}
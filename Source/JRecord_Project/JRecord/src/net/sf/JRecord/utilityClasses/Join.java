@@ -0,0 +1,531 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+
+package net.sf.JRecord.utilityClasses;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import net.sf.JRecord.Common.CommonBits;
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.LineProvider;
+import net.sf.JRecord.Details.RecordDetail;
+import net.sf.JRecord.Details.RecordStore;
+import net.sf.JRecord.Details.fieldValue.IFieldValue;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.IO.LineIOProvider;
+import net.sf.JRecord.Types.TypeManager;
+
+/**
+ * Hash join (lookup) of two files on key fields. The <i>build</i> file (e.g. a customer master)
+ * is loaded into a hash table keyed on the key fields; the <i>probe</i> file (e.g. transactions)
+ * is then read and each record is looked up. Output records are created using an output
+ * layout and a field-name mapping (like {@link Copy#copyFileUsingMap}).
+ *
+ * <p>Keys are compared as raw (encoded) bytes when the build / probe key fields have the same
+ * type, length and character set; otherwise they are decoded (numeric keys compare by value,
+ * text keys ignoring trailing spaces).
+ *
+ * <p>If the build file does not fit in the memory budget, both files are partitioned (on the key hash)
+ * to temporary files and each partition is joined separately; in this case the output is in
+ * partition order rather than probe file order.
+ *
+ * <pre>
+ *     Join join = new Join(Join.LEFT_JOIN, new String[] {"Cust-Id"}, new String[] {"Customer-Number"});
+ *     join.join(customerReader, transactionReader, writer, outLayout,
+ *               Arrays.asList("probe.Tran-Date", "Customer-Number", "build.Customer-Name", "Amount"));
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ */
+public class Join {
+
+	/** Output build / probe record pairs where the key matches */
+	public static final int INNER_JOIN = 1;
+	/** Output all probe records, build fields are empty when there is no match */
+	public static final int LEFT_JOIN  = 2;
+	/** Output probe records that do not have a match in the build file */
+	public static final int ANTI_JOIN  = 3;
+
+	/** Prefix for an output mapping name that refers to a build-file field */
+	public static final String BUILD_PREFIX = "build.";
+	/** Prefix for an output mapping name that refers to a probe-file field */
+	public static final String PROBE_PREFIX = "probe.";
+
+	public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+	public static final int DEFAULT_PARTITIONS = 32;
+
+	private static final int ENTRY_OVERHEAD = 80;
+
+	private final int joinType;
+	private final String[] buildKeyNames, probeKeyNames;
+	private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+	private int partitionCount = DEFAULT_PARTITIONS;
+	private File workDirectory = null;
+
+	/**
+	 * Create a Join
+	 * @param joinType type of join (INNER_JOIN, LEFT_JOIN or ANTI_JOIN)
+	 * @param buildKeyNames key field names in the build file
+	 * @param probeKeyNames matching key field names in the probe file
+	 */
+	public Join(int joinType, String[] buildKeyNames, String[] probeKeyNames) {
+		if (joinType != INNER_JOIN && joinType != LEFT_JOIN && joinType != ANTI_JOIN) {
+			throw new IllegalArgumentException("Invalid Join Type: " + joinType);
+		}
+		if (buildKeyNames == null || probeKeyNames == null
+		|| buildKeyNames.length == 0 || buildKeyNames.length != probeKeyNames.length) {
+			throw new IllegalArgumentException("There must be the same (non zero) number of build and probe key fields");
+		}
+		this.joinType = joinType;
+		this.buildKeyNames = buildKeyNames;
+		this.probeKeyNames = probeKeyNames;
+	}
+
+	/**
+	 * @param memoryBudget maximum number of bytes used for the in-memory build table
+	 * before the files are partitioned to disk
+	 * @return this Join
+	 */
+	public Join setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+		return this;
+	}
+
+	/**
+	 * @param partitionCount number of partitions used when the build file exceeds the memory budget
+	 * @return this Join
+	 */
+	public Join setPartitionCount(int partitionCount) {
+		this.partitionCount = Math.max(2, partitionCount);
+		return this;
+	}
+
+	/**
+	 * @param workDirectory directory for the partition files (default is the temp directory)
+	 * @return this Join
+	 */
+	public Join setWorkDirectory(File workDirectory) {
+		this.workDirectory = workDirectory;
+		return this;
+	}
+
+	/**
+	 * Join two files
+	 *
+	 * @param buildReader reader for the build (lookup) file
+	 * @param probeReader reader for the probe (streamed) file
+	 * @param writer output writer
+	 * @param outSchema output layout
+	 * @param nameList source field for each output field (in field order). Names can be prefixed
+	 * with <b>build.</b> or <b>probe.</b>; unprefixed names are looked up in the probe record then the
+	 * build record. A null nameList matches the output field names.
+	 * @return number of records written
+	 *
+	 * @throws IOException any IO error
+	 */
+	public long join(AbstractLineReader buildReader, AbstractLineReader probeReader,
+			AbstractLineWriter writer, LayoutDetail outSchema, List<String> nameList)
+	throws IOException {
+		JoinDetails dtls = new JoinDetails(buildReader.getLayout(), probeReader.getLayout(), outSchema, nameList,
+				buildKeyNames, probeKeyNames);
+
+		try {
+			BuildTable table = new BuildTable(dtls);
+			AbstractLine line;
+			while ((line = buildReader.read()) != null) {
+				table.add(line);
+			}
+
+			if (table.partitions == null) {
+				long count = 0;
+				while ((line = probeReader.read()) != null) {
+					count += table.probe(line, writer);
+				}
+				return count;
+			}
+			return joinPartitions(dtls, table, probeReader, writer);
+		} finally {
+			buildReader.close();
+			probeReader.close();
+			writer.close();
+		}
+	}
+
+	private long joinPartitions(JoinDetails dtls, BuildTable table, AbstractLineReader probeReader, AbstractLineWriter writer)
+	throws IOException {
+		PartitionFiles buildParts = table.partitions;
+		PartitionFiles probeParts = newPartitionFiles();
+		long count = 0;
+
+		try {
+			AbstractLine line;
+			buildParts.closeOutput();
+			while ((line = probeReader.read()) != null) {
+				probeParts.write(dtls.probeKey(line).hash, line.getData());
+			}
+			probeParts.closeOutput();
+
+			for (int i = 0; i < partitionCount; i++) {
+				BuildTable partTable = new BuildTable(dtls);
+				byte[] rec;
+
+				DataInputStream in = buildParts.openInput(i);
+				try {
+					while ((rec = PartitionFiles.readRecord(in)) != null) {
+						partTable.addInMemory(dtls.buildProvider.getLine(dtls.buildLayout, rec));
+					}
+				} finally {
+					in.close();
+				}
+
+				in = probeParts.openInput(i);
+				try {
+					while ((rec = PartitionFiles.readRecord(in)) != null) {
+						count += partTable.probe(dtls.probeProvider.getLine(dtls.probeLayout, rec), writer);
+					}
+				} finally {
+					in.close();
+				}
+				partTable.store.close();
+			}
+		} finally {
+			buildParts.delete();
+			probeParts.delete();
+		}
+		return count;
+	}
+
+	private PartitionFiles newPartitionFiles() throws IOException {
+		return new PartitionFiles("JRecordJoin", partitionCount, workDirectory);
+	}
+
+
+	/**
+	 * Key fields / output mapping for the join
+	 */
+	private static class JoinDetails {
+		final LayoutDetail buildLayout, probeLayout, outSchema;
+		final LineProvider buildProvider, probeProvider, outProvider;
+		final FieldDetail[] buildKeys, probeKeys;
+		final boolean[] rawKey;
+		final FieldDetail[] outSource;
+		final boolean[] fromBuild;
+
+		JoinDetails(LayoutDetail buildLayout, LayoutDetail probeLayout, LayoutDetail outSchema, List<String> nameList,
+				String[] buildKeyNames, String[] probeKeyNames) {
+			LineIOProvider ioProvider = LineIOProvider.getInstance();
+
+			this.buildLayout = buildLayout;
+			this.probeLayout = probeLayout;
+			this.outSchema = outSchema;
+			this.buildProvider = ioProvider.getLineProvider(buildLayout);
+			this.probeProvider = ioProvider.getLineProvider(probeLayout);
+			this.outProvider = ioProvider.getLineProvider(outSchema);
+
+			RecordDetail buildRec = singleRecord(buildLayout, "Build");
+			RecordDetail probeRec = singleRecord(probeLayout, "Probe");
+			RecordDetail outRec = singleRecord(outSchema, "Output");
+
+			buildKeys = new FieldDetail[buildKeyNames.length];
+			probeKeys = new FieldDetail[buildKeyNames.length];
+			rawKey = new boolean[buildKeyNames.length];
+			for (int i = 0; i < buildKeys.length; i++) {
+				buildKeys[i] = getField(buildRec, buildKeyNames[i], "Build");
+				probeKeys[i] = getField(probeRec, probeKeyNames[i], "Probe");
+				rawKey[i] = buildKeys[i].isFixedFormat() && probeKeys[i].isFixedFormat()
+						 && buildKeys[i].getType() == probeKeys[i].getType()
+						 && buildKeys[i].getLen() == probeKeys[i].getLen()
+						 && buildKeys[i].getDecimal() == probeKeys[i].getDecimal()
+						 && sameFont(buildKeys[i].getFontName(), probeKeys[i].getFontName());
+			}
+
+			int fieldCount = outRec.getFieldCount();
+			outSource = new FieldDetail[fieldCount];
+			fromBuild = new boolean[fieldCount];
+			for (int i = 0; i < fieldCount; i++) {
+				String name = nameList == null ? outRec.getField(i).getName() : nameList.get(i);
+				if (name == null) {
+				} else if (name.toLowerCase().startsWith(BUILD_PREFIX)) {
+					outSource[i] = getField(buildRec, name.substring(BUILD_PREFIX.length()), "Build");
+					fromBuild[i] = true;
+				} else if (name.toLowerCase().startsWith(PROBE_PREFIX)) {
+					outSource[i] = getField(probeRec, name.substring(PROBE_PREFIX.length()), "Probe");
+				} else if ((outSource[i] = probeRec.getField(name)) == null) {
+					outSource[i] = buildRec.getField(name);
+					fromBuild[i] = true;
+					if (outSource[i] == null) {
+						System.out.println("No Field Match found for " + outRec.getField(i).getLookupName());
+					}
+				}
+			}
+		}
+
+		JoinKey buildKey(AbstractLine line) {
+			return key(line, buildKeys);
+		}
+
+		JoinKey probeKey(AbstractLine line) {
+			return key(line, probeKeys);
+		}
+
+		private JoinKey key(AbstractLine line, FieldDetail[] keys) {
+			byte[][] parts = new byte[keys.length][];
+			int len = 0;
+			byte[] data = null;
+
+			for (int i = 0; i < keys.length; i++) {
+				if (rawKey[i]) {
+					if (data == null) {
+						data = line.getData();
+					}
+					int pos = keys[i].calculateActualPosition(line) - 1;
+					int end = Math.max(pos, Math.min(data.length, pos + keys[i].getLen()));
+					parts[i] = pos >= data.length ? new byte[0] : Arrays.copyOfRange(data, pos, end);
+				} else {
+					parts[i] = decodedKey(line.getFieldValue(keys[i]), keys[i]);
+				}
+				len += parts[i].length + 2;
+			}
+
+			byte[] key = new byte[len];
+			int pos = 0;
+			for (byte[] p : parts) {
+				key[pos++] = (byte) (p.length >> 8);
+				key[pos++] = (byte) p.length;
+				System.arraycopy(p, 0, key, pos, p.length);
+				pos += p.length;
+			}
+			return new JoinKey(key);
+		}
+
+		private static byte[] decodedKey(IFieldValue value, FieldDetail field) {
+			String s;
+			if (! value.isFieldInRecord()) {
+				s = "";
+			} else if (TypeManager.isNumeric(field.getType())) {
+				s = value.asString().trim();
+				try {
+					BigDecimal d = new BigDecimal(s);
+					s = d.signum() == 0 ? "0" : d.stripTrailingZeros().toPlainString();
+				} catch (NumberFormatException e) {
+				}
+			} else {
+				s = value.asString();
+				int end = s.length();
+				while (end > 0 && s.charAt(end - 1) == ' ') {
+					end -= 1;
+				}
+				s = s.substring(0, end);
+			}
+			try {
+				return s.getBytes("UTF-8");
+			} catch (java.io.UnsupportedEncodingException e) {
+				throw new RecordException("UTF-8 is not supported", e);
+			}
+		}
+
+		/**
+		 * Create an output line from the probe and (optional) build lines
+		 */
+		AbstractLine newLine(AbstractLine probeLine, AbstractLine buildLine) throws IOException {
+			AbstractLine outLine = outProvider.getLine(outSchema);
+
+			for (int i = 0; i < outSource.length; i++) {
+				IFieldValue fieldValue = outLine.getFieldValue(0, i);
+				AbstractLine src = fromBuild[i] ? buildLine : probeLine;
+
+				if (! fieldValue.isFieldInRecord()) {
+				} else if (outSource[i] == null || src == null) {
+					fieldValue.set(CommonBits.NULL_VALUE);
+				} else {
+					IFieldValue sfv = src.getFieldValue(outSource[i]);
+					String v = sfv.isFieldInRecord() ? sfv.asString() : null;
+
+					if (v == null || v.length() == 0) {
+						fieldValue.set(CommonBits.NULL_VALUE);
+					} else {
+						fieldValue.set(v);
+					}
+				}
+			}
+			return outLine;
+		}
+
+		private static RecordDetail singleRecord(LayoutDetail layout, String side) {
+			if (layout.getRecordCount() != 1) {
+				throw new RecordException("Only one Record Type is allowed on the " + side + " RecordLayout");
+			}
+			return layout.getRecord(0);
+		}
+
+		private static FieldDetail getField(RecordDetail rec, String name, String side) {
+			FieldDetail f = rec.getField(name);
+			if (f == null) {
+				throw new RecordException("Field " + name + " does not exist in the " + side + " Record: " + rec.getRecordName());
+			}
+			return f;
+		}
+
+		private static boolean sameFont(String f1, String f2) {
+			return (f1 == null ? "" : f1).equalsIgnoreCase(f2 == null ? "" : f2);
+		}
+	}
+
+	/**
+	 * Key (the encoded key fields)
+	 */
+	private static final class JoinKey {
+		final byte[] key;
+		final int hash;
+
+		JoinKey(byte[] key) {
+			this.key = key;
+			this.hash = Arrays.hashCode(key);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof JoinKey && Arrays.equals(key, ((JoinKey) obj).key);
+		}
+	}
+
+	/**
+	 * In memory hash table of the build records. The records are held in a
+	 * {@link RecordStore}; the table maps the key to the first record, <i>next</i>
+	 * chains records with the same key.
+	 */
+	private class BuildTable {
+		final JoinDetails dtls;
+		final RecordStore store;
+		final HashMap<JoinKey, Integer> table = new HashMap<JoinKey, Integer>();
+		int[] next = new int[1024];
+		long keyBytes = 0;
+		PartitionFiles partitions = null;
+
+		BuildTable(JoinDetails dtls) {
+			this.dtls = dtls;
+			this.store = new RecordStore(dtls.buildLayout, RecordStore.DEFAULT_SLAB_SIZE / 4, false);
+		}
+
+		void add(AbstractLine line) throws IOException {
+			if (partitions != null) {
+				partitions.write(dtls.buildKey(line).hash, line.getData());
+			} else {
+				addInMemory(line);
+				if (getMemoryUsed() > memoryBudget) {
+					spill();
+				}
+			}
+		}
+
+		void addInMemory(AbstractLine line) {
+			JoinKey key = dtls.buildKey(line);
+			int idx = store.add(line.getData());
+
+			if (idx == next.length) {
+				next = Arrays.copyOf(next, next.length * 2);
+			}
+			Integer first = table.put(key, idx);
+			next[idx] = first == null ? -1 : first;
+			if (first == null) {
+				keyBytes += key.key.length;
+			}
+		}
+
+		/**
+		 * Lookup a probe record and write the output record(s)
+		 * @return number of records written
+		 */
+		int probe(AbstractLine probeLine, AbstractLineWriter writer) throws IOException {
+			Integer first = table.get(dtls.probeKey(probeLine));
+
+			switch (joinType) {
+			case ANTI_JOIN:
+				if (first != null) {
+					return 0;
+				}
+				writer.write(dtls.newLine(probeLine, null));
+				return 1;
+			case LEFT_JOIN:
+				if (first == null) {
+					writer.write(dtls.newLine(probeLine, null));
+					return 1;
+				}
+				break;
+			default:
+				if (first == null) {
+					return 0;
+				}
+			}
+
+			int count = 0;
+			for (int idx = first; idx >= 0; idx = next[idx]) {
+				AbstractLine buildLine = dtls.buildProvider.getLine(dtls.buildLayout, store.getRecord(idx));
+				writer.write(dtls.newLine(probeLine, buildLine));
+				count += 1;
+			}
+			return count;
+		}
+
+		private long getMemoryUsed() {
+			return store.getBytesStored() + store.size() * 18L + table.size() * (long) ENTRY_OVERHEAD + keyBytes;
+		}
+
+		/**
+		 * Build table is too big, move the records to partition files
+		 */
+		private void spill() throws IOException {
+			partitions = newPartitionFiles();
+			for (int i = 0; i < store.size(); i++) {
+				AbstractLine line = dtls.buildProvider.getLine(dtls.buildLayout, store.getRecord(i));
+				partitions.write(dtls.buildKey(line).hash, store.getRecord(i));
+			}
+			store.close();
+			table.clear();
+			next = new int[0];
+		}
+	}
+}
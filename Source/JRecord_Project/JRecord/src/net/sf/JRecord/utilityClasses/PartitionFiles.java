@@ -0,0 +1,130 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+
+package net.sf.JRecord.utilityClasses;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Temporary partition files used by the utilities (Join / FileDiff) when the data does
+ * not fit in memory. Records are assigned to a partition on their key hash and
+ * are written as length + data.
+ *
+ * @author Bruce Martin
+ *
+ */
+class PartitionFiles {
+	private final int partitionCount;
+	private final File[] files;
+	private final DataOutputStream[] out;
+
+	/**
+	 * Create the partition files
+	 * @param prefix temporary file name prefix
+	 * @param partitionCount number of partitions
+	 * @param workDirectory directory for the files (null for the temp directory)
+	 * @throws IOException any IO error
+	 */
+	PartitionFiles(String prefix, int partitionCount, File workDirectory) throws IOException {
+		this.partitionCount = partitionCount;
+		this.files = new File[partitionCount];
+		this.out = new DataOutputStream[partitionCount];
+		try {
+			for (int i = 0; i < partitionCount; i++) {
+				files[i] = File.createTempFile(prefix, ".part", workDirectory);
+				files[i].deleteOnExit();
+				out[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(files[i]), 64 * 1024));
+			}
+		} catch (IOException e) {
+			delete();
+			throw e;
+		}
+	}
+
+	void write(int hash, byte[] rec) throws IOException {
+		DataOutputStream o = out[(hash & Integer.MAX_VALUE) % partitionCount];
+		o.writeInt(rec.length);
+		o.write(rec);
+	}
+
+	void closeOutput() throws IOException {
+		for (int i = 0; i < partitionCount; i++) {
+			if (out[i] != null) {
+				out[i].close();
+				out[i] = null;
+			}
+		}
+	}
+
+	int getPartitionCount() {
+		return partitionCount;
+	}
+
+	DataInputStream openInput(int partition) throws IOException {
+		return new DataInputStream(new BufferedInputStream(new FileInputStream(files[partition]), 64 * 1024));
+	}
+
+	/**
+	 * Read the next record from a partition
+	 * @return the record or null at the end of the partition
+	 */
+	static byte[] readRecord(DataInputStream in) throws IOException {
+		int len;
+		try {
+			len = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		byte[] rec = new byte[len];
+		in.readFully(rec);
+		return rec;
+	}
+
+	void delete() {
+		for (int i = 0; i < partitionCount; i++) {
+			try {
+				if (out[i] != null) {
+					out[i].close();
+				}
+			} catch (IOException e) {
+			}
+			if (files[i] != null) {
+				files[i].delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,337 @@
+/*  -------------------------------------------------------------------------
+ *
+ *                Project: JRecord
+ *    
+ *    Sub-Project purpose: Provide support for reading Cobol-Data files 
+ *                        using a Cobol Copybook in Java.
+ *                         Support for reading Fixed Width / Binary / Csv files
+ *                        using a Xml schema.
+ *                         General Fixed Width / Csv file processing in Java.
+ *    
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+
+package net.sf.JRecord.utilityClasses;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.JRecord.Common.CommonBits;
+import net.sf.JRecord.Common.Conversion;
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.Line;
+import net.sf.JRecord.Details.LineProvider;
+import net.sf.JRecord.Details.RecordDetail;
+import net.sf.JRecord.Details.fieldValue.IFieldValue;
+import net.sf.JRecord.IO.LineIOProvider;
+import net.sf.JRecord.Types.Type;
+import net.sf.JRecord.Types.smallBin.ITypeBinaryExtendedNumeric;
+import net.sf.JRecord.Types.smallBin.TypeBaseXBinary;
+import net.sf.JRecord.cgen.codec.FieldCodec;
+
+/**
+ * Pre-compiled plan for copying fields from one (fixed width) record layout to another
+ * at the byte level. For each output field the cheapest available operation is chosen
+ * when the plan is built:
+ * <ul>
+ *   <li><b>COPY</b> - identical representation (type, length, decimal places and character set):
+ *   the bytes are copied.
+ *   <li><b>TRANSLATE</b> - text fields in different single byte character sets (e.g. EBCDIC to ASCII):
+ *   table driven translation of each byte.
+ *   <li><b>RECODE</b> - numeric fields that fit in a long (Packed-Decimal, Zoned, Binary of either
+ *   endianness): the value is read as an unscaled long and written in the new format.
+ *   <li><b>CONVERT</b> - anything else uses the standard field get / set (decode / encode).
+ * </ul>
+ * Plans are used by {@link Copy} when both layouts are fixed width, single record
+ * layouts without <i>depending on</i> arrays.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TranscodePlan {
+
+	public static final int COPY      = 1;
+	public static final int TRANSLATE = 2;
+	public static final int RECODE    = 3;
+	public static final int CONVERT   = 4;
+	public static final int NO_SOURCE = 5;
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final LayoutDetail outSchema;
+	private final LineProvider outProvider;
+	private final byte[] template;
+	private final FieldOp[] ops;
+
+	private TranscodePlan(LayoutDetail outSchema, RecordDetail outRec, FieldOp[] ops) {
+		this.outSchema = outSchema;
+		this.outProvider = LineIOProvider.getInstance().getLineProvider(outSchema);
+		this.ops = ops;
+		this.template = new byte[outRec.getLength()];
+		if (outSchema.getInitByte() != 0) {
+			Arrays.fill(template, outSchema.getInitByte());
+		}
+	}
+
+	/**
+	 * Create a transcoding plan
+	 *
+	 * @param inSchema input layout
+	 * @param outSchema output layout
+	 * @param fieldMapping input field for each output field (null when there is no input field)
+	 * @return the plan or null if a byte level copy is not possible for these layouts
+	 */
+	public static TranscodePlan create(LayoutDetail inSchema, LayoutDetail outSchema, List<FieldDetail> fieldMapping) {
+		if (! isFixedWidth(inSchema) || ! isFixedWidth(outSchema)) {
+			return null;
+		}
+		RecordDetail outRec = outSchema.getRecord(0);
+		if (fieldMapping.size() != outRec.getFieldCount()) {
+			return null;
+		}
+		FieldOp[] ops = new FieldOp[outRec.getFieldCount()];
+
+		for (int i = 0; i < ops.length; i++) {
+			ops[i] = newOp(i, fieldMapping.get(i), outRec.getField(i));
+		}
+		return new TranscodePlan(outSchema, outRec, ops);
+	}
+
+	/**
+	 * @param outFieldIdx output field index
+	 * @return the action (COPY, TRANSLATE, RECODE, CONVERT or NO_SOURCE) for an output field
+	 */
+	public int getAction(int outFieldIdx) {
+		return ops[outFieldIdx].action;
+	}
+
+	/**
+	 * Create the output line for an input line. The fields are processed in
+	 * output field sequence (as {@link Copy} does) so where output fields overlap
+	 * (redefines) the last field wins.
+	 * @param inLine input line
+	 * @return output line
+	 * @throws IOException any error
+	 */
+	public AbstractLine transcode(AbstractLine inLine) throws IOException {
+		byte[] src = inLine.getData();
+		byte[] out = template.clone();
+		AbstractLine outLine = outProvider.getLine(outSchema, out);
+
+		for (FieldOp op : ops) {
+			if (op.action == CONVERT || op.action == NO_SOURCE || ! op.apply(src, out)) {
+				op.convert(inLine, outLine);
+			}
+		}
+		return outLine;
+	}
+
+	private static boolean isFixedWidth(LayoutDetail schema) {
+		if (schema.getRecordCount() != 1 || schema.isCsvLayout()) {
+			return false;
+		}
+		RecordDetail rec = schema.getRecord(0);
+		if (rec.hasDependingOn() || rec.getLength() <= 0) {
+			return false;
+		}
+		LineProvider p = LineIOProvider.getInstance().getLineProvider(schema);
+		if (! (p.getLine(schema, new byte[0]) instanceof Line)) {
+			return false;
+		}
+		for (int i = 0; i < rec.getFieldCount(); i++) {
+			if (! rec.getField(i).isFixedFormat()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static FieldOp newOp(int outIdx, FieldDetail in, FieldDetail out) {
+		if (in == null) {
+			return new FieldOp(NO_SOURCE, outIdx, in, out);
+		}
+		int type = in.getType();
+		boolean sameFont = sameFont(in.getFontName(), out.getFontName());
+
+		if (type == out.getType() && in.getLen() == out.getLen() && in.getDecimal() == out.getDecimal() && sameFont) {
+			return new FieldOp(COPY, outIdx, in, out);
+		}
+		if (type == Type.ftChar && out.getType() == Type.ftChar && in.getLen() <= out.getLen()
+		&& Conversion.isSingleByte(in.getFontName()) && Conversion.isSingleByte(out.getFontName())) {
+			try {
+				return new TranslateOp(outIdx, in, out);
+			} catch (UnsupportedEncodingException e) {
+			}
+		}
+		ITypeBinaryExtendedNumeric inType = FieldCodec.getUnscaledLongType(in);
+		ITypeBinaryExtendedNumeric outType = FieldCodec.getUnscaledLongType(out);
+		if (inType != null && outType instanceof TypeBaseXBinary && in.getDecimal() <= out.getDecimal()
+		&& out.getDecimal() - in.getDecimal() < POWERS_OF_TEN.length) {
+			return new RecodeOp(outIdx, in, out, inType, (TypeBaseXBinary) outType);
+		}
+		return new FieldOp(CONVERT, outIdx, in, out);
+	}
+
+	private static boolean sameFont(String f1, String f2) {
+		return (f1 == null ? "" : f1).equalsIgnoreCase(f2 == null ? "" : f2);
+	}
+
+	/**
+	 * One output field; the base class does a byte copy or a standard get / set.
+	 */
+	private static class FieldOp {
+		final int action, outIdx;
+		final FieldDetail in, out;
+		final int inOffset, outOffset, len;
+
+		FieldOp(int action, int outIdx, FieldDetail in, FieldDetail out) {
+			this.action = action;
+			this.outIdx = outIdx;
+			this.in = in;
+			this.out = out;
+			this.inOffset = in == null ? 0 : in.getPos() - 1;
+			this.outOffset = out.getPos() - 1;
+			this.len = in == null ? 0 : in.getLen();
+		}
+
+		/**
+		 * Byte level copy
+		 * @return wether the field was copied
+		 */
+		boolean apply(byte[] src, byte[] dest) {
+			if (inOffset + len > src.length) {
+				return false;
+			}
+			System.arraycopy(src, inOffset, dest, outOffset, len);
+			return true;
+		}
+
+		/**
+		 * Standard (decode / encode) copy, the same as Copy.doCopy
+		 */
+		void convert(AbstractLine inLine, AbstractLine outLine) throws IOException {
+			IFieldValue fieldValue = outLine.getFieldValue(0, outIdx);
+
+			if (fieldValue.isFieldInRecord()) {
+				String v = null;
+				if (in != null) {
+					IFieldValue sfv = inLine.getFieldValue(in);
+					if (sfv.isFieldInRecord()) {
+						v = sfv.asString();
+					}
+				}
+				if (v == null || v.length() == 0) {
+					fieldValue.set(CommonBits.NULL_VALUE);
+				} else {
+					fieldValue.set(v);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Text in one single byte character set to another
+	 */
+	private static final class TranslateOp extends FieldOp {
+		private final byte[] table = new byte[256];
+		private final byte pad;
+		private final int outLen;
+
+		TranslateOp(int outIdx, FieldDetail in, FieldDetail out) throws UnsupportedEncodingException {
+			super(TRANSLATE, outIdx, in, out);
+
+			String inFont = in.getFontName();
+			String outFont = out.getFontName();
+			byte[] all = new byte[256];
+			for (int i = 0; i < 256; i++) {
+				all[i] = (byte) i;
+			}
+			String chars = inFont == null || inFont.length() == 0 ? new String(all) : new String(all, inFont);
+			for (int i = 0; i < 256; i++) {
+				byte[] b = Conversion.getBytes(chars.substring(i, i + 1), outFont);
+				table[i] = b.length == 1 ? b[0] : (byte) '?';
+			}
+			this.pad = Conversion.getBytes(" ", outFont)[0];
+			this.outLen = out.getLen();
+		}
+
+		@Override
+		boolean apply(byte[] src, byte[] dest) {
+			if (inOffset + len > src.length) {
+				return false;
+			}
+			for (int i = 0; i < len; i++) {
+				dest[outOffset + i] = table[src[inOffset + i] & 0xFF];
+			}
+			for (int i = len; i < outLen; i++) {
+				dest[outOffset + i] = pad;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Numeric field (that fits in a long) to another numeric format e.g. Packed-Decimal to Zoned.
+	 * Values that do not fit in the output field are left to the standard conversion
+	 * (which reports the error).
+	 */
+	private static final class RecodeOp extends FieldOp {
+		private final ITypeBinaryExtendedNumeric inType;
+		private final TypeBaseXBinary outType;
+		private final long multiplier;
+
+		RecodeOp(int outIdx, FieldDetail in, FieldDetail out,
+				ITypeBinaryExtendedNumeric inType, TypeBaseXBinary outType) {
+			super(RECODE, outIdx, in, out);
+			this.inType = inType;
+			this.outType = outType;
+			this.multiplier = POWERS_OF_TEN[out.getDecimal() - in.getDecimal()];
+		}
+
+		@Override
+		boolean apply(byte[] src, byte[] dest) {
+			if (inOffset + len > src.length) {
+				return false;
+			}
+			try {
+				long v = inType.asUnscaledLong(src, in.getPos(), in);
+				long scaled = v * multiplier;
+				if ((multiplier != 1 && scaled / multiplier != v)
+				|| ! outType.isInRange(out, scaled)) {
+					return false;
+				}
+				outType.setUnscaledLong(dest, out.getPos(), out, scaled);
+			} catch (RecordException e) {
+				return false;						// invalid / overflow, use the standard conversion
+			}
+			return true;
+		}
+	}
+}
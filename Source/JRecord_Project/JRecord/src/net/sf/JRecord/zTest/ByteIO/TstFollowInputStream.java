@@ -0,0 +1,189 @@
+package net.sf.JRecord.zTest.ByteIO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.ByteIO.AbstractByteReader;
+import net.sf.JRecord.ByteIO.AbstractByteWriter;
+import net.sf.JRecord.ByteIO.ByteTextReader;
+import net.sf.JRecord.ByteIO.ByteTextWriter;
+import net.sf.JRecord.ByteIO.FixedLengthByteReader;
+import net.sf.JRecord.ByteIO.FixedLengthByteWriter;
+import net.sf.JRecord.ByteIO.FollowInputStream;
+import net.sf.JRecord.ByteIO.MicroFocusByteReader;
+import net.sf.JRecord.ByteIO.MicroFocusByteWriter;
+import net.sf.JRecord.ByteIO.MicroFocusFileHeader;
+import net.sf.JRecord.ByteIO.VbByteReader;
+import net.sf.JRecord.ByteIO.VbByteWriter;
+import net.sf.JRecord.zTest.Common.TstConstants;
+
+/**
+ * Testing reading a file while it is being written (FollowInputStream)
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstFollowInputStream extends TestCase {
+
+	private static final String TMP_DIRECTORY = TstConstants.TEMP_DIRECTORY;
+	private static final int RECORD_COUNT = 300;
+
+	public void testVbMarker() throws Exception {
+		List<byte[]> records = records(false);
+		File file = tempFile(".dat");
+		File marker = new File(file.getPath() + ".done");
+		Appender appender = new Appender(file, write(new VbByteWriter(), records), 37);
+		appender.marker = marker;
+
+		check(records, new VbByteReader(),
+				new FollowInputStream(file).setCompletionMarker(marker), appender);
+		marker.delete();
+	}
+
+	public void testFixedRename() throws Exception {
+		List<byte[]> records = records(true);
+		File file = tempFile(".dat");
+		Appender appender = new Appender(file, write(new FixedLengthByteWriter(40), records), 25);
+		appender.renameTo = new File(file.getPath() + ".moved");
+
+		check(records, new FixedLengthByteReader(40),
+				FollowInputStream.newFollowStream(file.getPath(), FollowInputStream.FINISH_ON_RENAME)
+						.setUseWatchService(true),
+				appender);
+		appender.renameTo.delete();
+	}
+
+	public void testTextIdle() throws Exception {
+		List<byte[]> records = new ArrayList<byte[]>();
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			records.add(("Line " + i + " ......................".substring(0, i % 20)).getBytes());
+		}
+		File file = tempFile(".txt");
+		Appender appender = new Appender(file, write(new ByteTextWriter("\n".getBytes()), records), 11);
+
+		check(records, new ByteTextReader(),
+				new FollowInputStream(file).setIdleTimeout(1000).setPollInterval(20), appender);
+	}
+
+	public void testMicroFocusFinish() throws Exception {
+		List<byte[]> records = records(false);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		MicroFocusByteWriter w = new MicroFocusByteWriter();
+		w.open(os);
+		w.writeHeader(new MicroFocusFileHeader(MicroFocusFileHeader.FORMAT_SEQUENTIAL, 1, 120));
+		for (byte[] rec : records) {
+			w.write(rec);
+		}
+		w.close();
+
+		File file = tempFile(".dat");
+		FollowInputStream in = new FollowInputStream(file);
+		Appender appender = new Appender(file, os.toByteArray(), 100);
+		appender.finish = in;
+
+		check(records, new MicroFocusByteReader(), in, appender);
+	}
+
+	private static void check(List<byte[]> expected, AbstractByteReader reader, FollowInputStream in, Appender appender)
+	throws Exception {
+		appender.start();
+		reader.open(in);
+		try {
+			byte[] rec;
+			int i = 0;
+			while ((rec = reader.read()) != null) {
+				assertTrue("Record " + i, i < expected.size());
+				assertTrue("Record " + i, Arrays.equals(expected.get(i), rec));
+				i += 1;
+			}
+			assertEquals(expected.size(), i);
+		} finally {
+			reader.close();
+			appender.join();
+			appender.file.delete();
+		}
+		if (appender.error != null) {
+			throw appender.error;
+		}
+	}
+
+	private static byte[] write(AbstractByteWriter w, List<byte[]> records) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		w.open(os);
+		for (byte[] rec : records) {
+			w.write(rec);
+		}
+		w.close();
+		return os.toByteArray();
+	}
+
+	private static List<byte[]> records(boolean fixed) {
+		ArrayList<byte[]> ret = new ArrayList<byte[]>(RECORD_COUNT);
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			byte[] rec = new byte[fixed ? 40 : i % 113 + 1];
+			for (int j = 0; j < rec.length; j++) {
+				rec[j] = (byte) (i + j);
+			}
+			ret.add(rec);
+		}
+		return ret;
+	}
+
+	private static File tempFile(String suffix) throws IOException {
+		File f = new File(TMP_DIRECTORY + "Follow" + suffix);
+		f.delete();
+		f.createNewFile();
+		f.deleteOnExit();
+		return f;
+	}
+
+	/**
+	 * Write the file in small chunks (splitting records), then signal completion
+	 */
+	private static class Appender extends Thread {
+		final File file;
+		final byte[] data;
+		final int chunk;
+		File marker, renameTo;
+		FollowInputStream finish;
+		Exception error;
+
+		Appender(File file, byte[] data, int chunk) {
+			this.file = file;
+			this.data = data;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public void run() {
+			try {
+				FileOutputStream os = new FileOutputStream(file);
+				for (int i = 0; i < data.length; i += chunk) {
+					os.write(data, i, Math.min(chunk, data.length - i));
+					os.flush();
+					if (i % (chunk * 20) == 0) {
+						Thread.sleep(5);
+					}
+				}
+				os.close();
+				if (marker != null) {
+					new FileOutputStream(marker).close();
+				}
+				if (renameTo != null && ! file.renameTo(renameTo)) {
+					throw new IOException("Rename failed");
+				}
+				if (finish != null) {
+					finish.finish();
+				}
+			} catch (Exception e) {
+				error = e;
+			}
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package net.sf.JRecord.zTest.ByteIO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.ByteIO.AbstractByteReader;
+import net.sf.JRecord.ByteIO.ReadAheadByteReader;
+import net.sf.JRecord.ByteIO.ReadAheadInputStream;
+import net.sf.JRecord.ByteIO.VbByteReader;
+import net.sf.JRecord.ByteIO.VbByteWriter;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+import net.sf.JRecord.zTest.Common.TstConstants;
+
+/**
+ * Testing the read-ahead (double buffered) InputStream / Byte-Reader
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstReadAhead extends TestCase {
+
+	private static final String TMP_DIRECTORY = TstConstants.TEMP_DIRECTORY;
+	private static final byte[] DATA = new byte[100000];
+
+	static {
+		new Random(121).nextBytes(DATA);
+	}
+
+	public void testStream() throws IOException {
+		int[][] sizes = {{1, 2}, {7, 2}, {100, 3}, {4096, 2}, {200000, 4}};
+
+		for (int[] s : sizes) {
+			assertTrue(Arrays.equals(DATA, readAll(new ReadAheadInputStream(new ByteArrayInputStream(DATA), s[0], s[1]), 13)));
+			assertTrue(Arrays.equals(DATA, readAll(new ReadAheadInputStream(new ByteArrayInputStream(DATA), s[0], s[1]), 10000)));
+		}
+	}
+
+	public void testSingleByte() throws IOException {
+		ReadAheadInputStream in = new ReadAheadInputStream(new ByteArrayInputStream(DATA, 0, 1000), 64, 2);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(DATA[i] & 0xFF, in.read());
+		}
+		assertEquals(-1, in.read());
+		assertEquals(-1, in.read(new byte[10], 0, 10));
+		in.close();
+	}
+
+	public void testFile() throws IOException {
+		File f = new File(TMP_DIRECTORY + "ReadAhead.bin");
+		try {
+			FileOutputStream os = new FileOutputStream(f);
+			os.write(DATA);
+			os.close();
+
+			assertTrue(Arrays.equals(DATA, readAll(new ReadAheadInputStream(new FileInputStream(f), 1000, 3), 777)));
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testError() throws IOException {
+		InputStream failing = new InputStream() {
+			int count = 0;
+			@Override public int read() throws IOException {
+				if (count++ >= 500) {
+					throw new IOException("Test Error");
+				}
+				return 1;
+			}
+		};
+		ReadAheadInputStream in = new ReadAheadInputStream(failing, 100, 2);
+		byte[] b = new byte[50];
+		int total = 0, num;
+		try {
+			while ((num = in.read(b, 0, b.length)) >= 0) {
+				total += num;
+			}
+			fail("Expected an IOException");
+		} catch (IOException e) {
+			assertEquals("Test Error", e.getMessage());
+		}
+		assertEquals(500, total);
+		in.close();
+	}
+
+	public void testClose() throws IOException, InterruptedException {
+		ReadAheadInputStream in = new ReadAheadInputStream(new ByteArrayInputStream(DATA), 10, 2);
+		assertEquals(5, in.read(new byte[5], 0, 5));
+		in.close();
+
+		try {
+			in.read();
+			fail("Expected an IOException");
+		} catch (IOException e) {
+		}
+		in.close();
+	}
+
+	public void testByteReader() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		VbByteWriter w = new VbByteWriter();
+		byte[][] lines = new byte[500][];
+		w.open(os);
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = Arrays.copyOfRange(DATA, i, i + 1 + i % 151);
+			w.write(lines[i]);
+		}
+		w.close();
+
+		AbstractByteReader r = new ReadAheadByteReader(new VbByteReader(), 333, 2);
+		r.open(new ByteArrayInputStream(os.toByteArray()));
+		for (int i = 0; i < lines.length; i++) {
+			assertTrue(Arrays.equals(lines[i], r.read()));
+		}
+		assertNull(r.read());
+		assertEquals(os.size(), r.getBytesRead());
+		r.close();
+	}
+
+	public void testIOBuilder() throws IOException {
+		String copybook
+				= "        01  Rec.\n"
+				+ "            03 Key        pic x(8).\n"
+				+ "            03 Amount     pic s9(7)v99 comp-3.\n";
+		ICobolIOBuilder iob = JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(copybook), "Rec")
+					.setFont("cp037")
+					.setFileOrganization(Constants.IO_FIXED_LENGTH);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		AbstractLineWriter w = iob.newWriter(os);
+		for (int i = 0; i < 1000; i++) {
+			AbstractLine l = iob.newLine();
+			l.getFieldValue("Key").set("k" + i);
+			l.getFieldValue("Amount").set(i);
+			w.write(l);
+		}
+		w.close();
+
+		AbstractLineReader r = iob.setReadAhead(100, 2).newReader(new ByteArrayInputStream(os.toByteArray()));
+		AbstractLine l;
+		int i = 0;
+		while ((l = r.read()) != null) {
+			assertEquals("k" + i, l.getFieldValue("Key").asString());
+			assertEquals(i, l.getFieldValue("Amount").asInt());
+			i += 1;
+		}
+		r.close();
+		assertEquals(1000, i);
+	}
+
+	private static byte[] readAll(InputStream in, int chunk) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		byte[] b = new byte[chunk];
+		int num;
+		while ((num = in.read(b, 0, chunk)) >= 0) {
+			os.write(b, 0, num);
+		}
+		in.close();
+		return os.toByteArray();
+	}
+}
@@ -0,0 +1,234 @@
+package net.sf.JRecord.zTest.ByteIO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.ByteIO.AbstractByteReader;
+import net.sf.JRecord.ByteIO.AbstractByteWriter;
+import net.sf.JRecord.ByteIO.ByteIOProvider;
+import net.sf.JRecord.ByteIO.ByteTextReader;
+import net.sf.JRecord.ByteIO.ByteTextWriter;
+import net.sf.JRecord.ByteIO.FixedLengthByteReader;
+import net.sf.JRecord.ByteIO.FixedLengthByteWriter;
+import net.sf.JRecord.ByteIO.FixedLengthRecordFramer;
+import net.sf.JRecord.ByteIO.MicroFocusByteReader;
+import net.sf.JRecord.ByteIO.MicroFocusByteWriter;
+import net.sf.JRecord.ByteIO.MicroFocusFileHeader;
+import net.sf.JRecord.ByteIO.MicroFocusRecordFramer;
+import net.sf.JRecord.ByteIO.RecordFramer;
+import net.sf.JRecord.ByteIO.TextRecordFramer;
+import net.sf.JRecord.ByteIO.VbByteReader;
+import net.sf.JRecord.ByteIO.VbByteWriter;
+import net.sf.JRecord.ByteIO.VbDumpByteReader;
+import net.sf.JRecord.ByteIO.VbDumpByteWriter;
+import net.sf.JRecord.ByteIO.VbRecordFramer;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.LayoutDetail;
+
+/**
+ * Testing the push based Record-Framers against the equivalent Byte-Readers
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstRecordFramer extends TestCase {
+
+	private static final int RECORD_COUNT = 500;
+
+	public void testFixedLength() throws IOException {
+		byte[] data = write(new FixedLengthByteWriter(40), true);
+		check("Fixed", data, new FixedLengthByteReader(40), new FixedLengthRecordFramer(40));
+	}
+
+	public void testFixedPartial() throws IOException {
+		Collector c = new Collector();
+		RecordFramer framer = new FixedLengthRecordFramer(4);
+		framer.feed(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6}), c);
+		assertEquals(1, c.records.size());
+		assertEquals(2, framer.getPendingLength());
+		framer.finish(c);
+		assertTrue(Arrays.equals(new byte[] {5, 6, 0, 0}, c.records.get(1)));
+	}
+
+	public void testVb() throws IOException {
+		byte[] data = write(new VbByteWriter(), false);
+		check("VB", data, new VbByteReader(), new VbRecordFramer());
+	}
+
+	public void testVbDump() throws IOException {
+		byte[] data = write(new VbDumpByteWriter(700), false);
+		check("VB Dump", data, new VbDumpByteReader(), new VbRecordFramer(VbByteReader.MODE_ORIG_BLOCK_LENGTH, true));
+	}
+
+	public void testText() throws IOException {
+		for (String eol : new String[] {"\n", "\r\n", "\r"}) {
+			for (String charset : new String[] {"CP1252", "CP037"}) {
+				byte[] data = write(new ByteTextWriter(eol.getBytes(charset)), false, charset);
+				check("Text " + charset + " " + eol.length(), data, new ByteTextReader(charset), new TextRecordFramer(charset));
+
+				byte[] noEol = Arrays.copyOf(data, data.length - eol.length());
+				check("Text (no final eol) " + charset + " " + eol.length(), noEol,
+						new ByteTextReader(charset), new TextRecordFramer(charset));
+			}
+		}
+	}
+
+	public void testMicroFocus() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		MicroFocusByteWriter w = new MicroFocusByteWriter();
+		w.open(os);
+		w.writeHeader(new MicroFocusFileHeader(MicroFocusFileHeader.FORMAT_SEQUENTIAL, 1, 120));
+		for (byte[] rec : records(false, "CP1252")) {
+			w.write(rec);
+		}
+		w.close();
+
+		MicroFocusRecordFramer framer = new MicroFocusRecordFramer();
+		check("Micro Focus", os.toByteArray(), new MicroFocusByteReader(), framer);
+		assertEquals(MicroFocusFileHeader.FORMAT_SEQUENTIAL, framer.getHeaderRecord().getFileFormat());
+	}
+
+	/**
+	 * Records inside one chunk must be passed as a slice of the chunk
+	 */
+	public void testNoCopy() throws IOException {
+		final byte[] data = write(new VbByteWriter(), false);
+		final int[] counts = {0, 0};
+		RecordFramer framer = new VbRecordFramer();
+		RecordFramer.IRecordSliceConsumer consumer = new RecordFramer.IRecordSliceConsumer() {
+			@Override public void record(byte[] buf, int offset, int length) {
+				counts[buf == data ? 0 : 1] += 1;
+			}
+		};
+		framer.feed(ByteBuffer.wrap(data, 0, 1000), consumer);
+		framer.feed(ByteBuffer.wrap(data, 1000, data.length - 1000), consumer);
+		framer.finish(consumer);
+
+		assertEquals(RECORD_COUNT, counts[0] + counts[1]);
+		assertEquals(1, counts[1]);
+
+		List<byte[]> recs = new VbRecordFramer().feed(ByteBuffer.wrap(data));
+		assertEquals(RECORD_COUNT, recs.size());
+	}
+
+	public void testProvider() throws IOException {
+		int[] structures = {
+				Constants.IO_FIXED_LENGTH, Constants.IO_VB, Constants.IO_VB_DUMP, Constants.IO_VB_DUMP2,
+				Constants.IO_VB_GNU_COBOL, Constants.IO_BIN_TEXT, Constants.IO_MICROFOCUS};
+		for (int fileStructure : structures) {
+			LayoutDetail l = JRecordInterface1.COBOL
+					.newIOBuilder(new StringReader("        01  Rec.\n            03 f  pic x(10).\n"), "Rec")
+						.setFileOrganization(fileStructure)
+					.getLayout();
+			assertNotNull("File Structure: " + fileStructure, ByteIOProvider.getInstance().getRecordFramer(l));
+		}
+	}
+
+	public void testVbIncomplete() throws IOException {
+		Collector c = new Collector();
+		RecordFramer framer = new VbRecordFramer();
+		framer.feed(ByteBuffer.wrap(new byte[] {0, 6, 0, 0, 1}), c);
+		assertEquals(0, c.records.size());
+		try {
+			framer.finish(c);
+			fail("Expected an IOException");
+		} catch (IOException e) {
+		}
+		try {
+			framer.feed(ByteBuffer.wrap(new byte[] {0, 6, 1, 0, 1, 1}), c);
+			fail("Expected an IOException");
+		} catch (IOException e) {
+		}
+	}
+
+	/**
+	 * Feed the data in different chunk sizes and check the records match those read
+	 * by the Byte-Reader
+	 */
+	private static void check(String id, byte[] data, AbstractByteReader reader, RecordFramer framer) throws IOException {
+		List<byte[]> expected = new ArrayList<byte[]>();
+		reader.open(new ByteArrayInputStream(data));
+		byte[] rec;
+		while ((rec = reader.read()) != null) {
+			expected.add(rec);
+		}
+		reader.close();
+		assertEquals(id, RECORD_COUNT, expected.size());
+
+		Random r = new Random(11);
+		for (int chunkSize : new int[] {1, 3, 7, 64, 1000, data.length, -1}) {
+			Collector c = new Collector();
+			int pos = 0;
+			while (pos < data.length) {
+				int len = Math.min(data.length - pos, chunkSize > 0 ? chunkSize : r.nextInt(300) + 1);
+				ByteBuffer chunk = chunkSize == 7
+						? (ByteBuffer) ByteBuffer.allocateDirect(len).put(data, pos, len).flip()
+						: ByteBuffer.wrap(data, pos, len);
+				framer.feed(chunk, c);
+				assertEquals(0, chunk.remaining());
+				pos += len;
+			}
+			framer.finish(c);
+
+			assertEquals(id + " " + chunkSize, expected.size(), c.records.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertTrue(id + " " + chunkSize + ": " + i, Arrays.equals(expected.get(i), c.records.get(i)));
+			}
+		}
+	}
+
+	private static byte[] write(AbstractByteWriter w, boolean fixed) throws IOException {
+		return write(w, fixed, null);
+	}
+
+	private static byte[] write(AbstractByteWriter w, boolean fixed, String charset) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		w.open(os);
+		for (byte[] rec : records(fixed, charset)) {
+			w.write(rec);
+		}
+		w.close();
+		return os.toByteArray();
+	}
+
+	/**
+	 * Test records, text records (charset not null) do not contain End-of-Line characters
+	 */
+	private static List<byte[]> records(boolean fixed, String charset) throws IOException {
+		ArrayList<byte[]> ret = new ArrayList<byte[]>(RECORD_COUNT);
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			if (charset == null) {
+				byte[] rec = new byte[fixed ? 40 : i % 113 + 1];
+				for (int j = 0; j < rec.length; j++) {
+					rec[j] = (byte) (i + j);
+				}
+				ret.add(rec);
+			} else {
+				StringBuilder b = new StringBuilder();
+				for (int j = 0; j < i % 113 + 1; j++) {
+					b.append((char) ('a' + (i + j) % 26));
+				}
+				ret.add(b.toString().getBytes(charset));
+			}
+		}
+		return ret;
+	}
+
+	private static class Collector implements RecordFramer.IRecordConsumer {
+		final List<byte[]> records = new ArrayList<byte[]>();
+
+		@Override
+		public void record(byte[] record) {
+			records.add(record);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package net.sf.JRecord.zTest.ByteIO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.ByteIO.AbstractByteReader;
+import net.sf.JRecord.ByteIO.AbstractByteWriter;
+import net.sf.JRecord.ByteIO.ByteIOProvider;
+import net.sf.JRecord.ByteIO.VbBlockedByteWriter;
+import net.sf.JRecord.ByteIO.VbByteReader;
+import net.sf.JRecord.ByteIO.VbsByteReader;
+import net.sf.JRecord.Common.Constants;
+
+/**
+ * Testing the Blocked VB / VBS writer by reading the files back
+ * with the VB / VBS readers and checking the block descriptors.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstVbBlockedIO extends TestCase {
+
+	private static final int[] LENGTHS = {1, 10, 92, 0, 50, 45, 91, 93, 3, 7, 60, 200, 350, 5, 96, 17};
+
+	public void testVbBlocked() throws IOException {
+		byte[][] lines = newLines(92);
+		byte[] data = write(new VbBlockedByteWriter(100, false, true), lines);
+
+		checkBlocks(data, 100, false);
+		check(lines, new VbByteReader(VbByteReader.MODE_ORIG_BLOCK_LENGTH, true), data);
+	}
+
+	public void testVbProvider() throws IOException {
+		byte[][] lines = newLines(92);
+		byte[] data = write(ByteIOProvider.getInstance().getBlockedByteWriter(Constants.IO_VB, 100), lines);
+
+		checkBlocks(data, 100, false);
+		check(lines, new VbByteReader(VbByteReader.MODE_ORIG_BLOCK_LENGTH, true), data);
+	}
+
+	public void testVbRecordToLong() throws IOException {
+		VbBlockedByteWriter w = new VbBlockedByteWriter(100, false, true);
+		w.open(new ByteArrayOutputStream());
+		w.write(new byte[92]);
+		try {
+			w.write(new byte[93]);
+			fail("Expected an IOException");
+		} catch (IOException e) {
+		}
+	}
+
+	public void testVbsBlocked() throws IOException {
+		byte[][] lines = newLines(Integer.MAX_VALUE);
+
+		for (int blockSize = 9; blockSize < 120; blockSize += 7) {
+			byte[] data = write(ByteIOProvider.getInstance().getBlockedByteWriter(Constants.IO_VBS, blockSize), lines);
+
+			checkBlocks(data, blockSize, true);
+			check(lines, new VbsByteReader(true, true), data);
+		}
+	}
+
+	public void testVbsUnblocked() throws IOException {
+		byte[][] lines = newLines(Integer.MAX_VALUE);
+		byte[] data = write(ByteIOProvider.getInstance().getByteWriter(Constants.IO_VBS), lines);
+
+		check(lines, ByteIOProvider.getInstance().getByteReader(Constants.IO_VBS), data);
+	}
+
+	public void testExtendedBdw() throws IOException {
+		byte[][] lines = new byte[20][];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = line(i, 2000 + i * 31);
+		}
+		byte[] data = write(new VbBlockedByteWriter(40000, false, true), lines);
+
+		assertTrue(data[0] < 0);
+		check(lines, new VbByteReader(VbByteReader.MODE_ORIG_BLOCK_LENGTH, true), data);
+	}
+
+	private static byte[][] newLines(int maxLength) {
+		byte[][] lines = new byte[LENGTHS.length * 3][];
+		int j = 0;
+		for (int i = 0; i < lines.length; i++) {
+			while (LENGTHS[j % LENGTHS.length] > maxLength) {
+				j += 1;
+			}
+			lines[i] = line(i, LENGTHS[j++ % LENGTHS.length]);
+		}
+		return lines;
+	}
+
+	private static byte[] line(int lineNum, int length) {
+		byte[] b = new byte[length];
+		for (int i = 0; i < length; i++) {
+			b[i] = (byte) (lineNum + i);
+		}
+		return b;
+	}
+
+	private static byte[] write(AbstractByteWriter w, byte[][] lines) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		w.open(os);
+		for (byte[] l : lines) {
+			w.write(l);
+		}
+		w.close();
+		return os.toByteArray();
+	}
+
+	private static void check(byte[][] lines, AbstractByteReader r, byte[] data) throws IOException {
+		byte[] l;
+		int i = 0;
+
+		r.open(new ByteArrayInputStream(data));
+		while ((l = r.read()) != null) {
+			assertTrue("Line " + i, Arrays.equals(lines[i], l));
+			i += 1;
+		}
+		r.close();
+		assertEquals(lines.length, i);
+	}
+
+	/**
+	 * Check the Block / Segment descriptors
+	 */
+	private static void checkBlocks(byte[] data, int blockSize, boolean spanned) {
+		int pos = 0;
+		while (pos < data.length) {
+			int blockLength = ((data[pos] & 0xFF) << 8) + (data[pos + 1] & 0xFF);
+			assertTrue(blockLength <= blockSize);
+			assertEquals(0, data[pos + 2]);
+			assertEquals(0, data[pos + 3]);
+
+			int segPos = pos + 4;
+			while (segPos < pos + blockLength) {
+				int segLength = ((data[segPos] & 0xFF) << 8) + (data[segPos + 1] & 0xFF);
+				assertTrue(segLength >= 4);
+				assertTrue(spanned ? data[segPos + 2] <= 3 : data[segPos + 2] == 0);
+				segPos += segLength;
+			}
+			assertEquals(pos + blockLength, segPos);
+			pos = segPos;
+		}
+		assertEquals(data.length, pos);
+	}
+}
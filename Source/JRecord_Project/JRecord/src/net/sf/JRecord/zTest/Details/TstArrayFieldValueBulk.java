@@ -0,0 +1,280 @@
+package net.sf.JRecord.zTest.Details;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.fieldValue.IArrayFieldValue;
+import net.sf.JRecord.Details.fieldValue.LineFieldCreator;
+import net.sf.JRecord.cgen.def.IIndex;
+import net.sf.JRecord.cgen.impl.ArrayFieldDefinition1;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+
+/**
+ * Testing the bulk (whole table) array accessors
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstArrayFieldValueBulk extends TestCase {
+
+	private static final int MONTHS = 12, DAYS = 31, RATES = 3;
+	private static final String RATE_COPYBOOK
+			= "        01  Rate-Table.\n"
+			+ "            03 Key            pic x(4).\n"
+			+ "            03 Month          occurs 12.\n"
+			+ "               05 Month-Name  pic x(3).\n"
+			+ "               05 Day         occurs 31.\n"
+			+ "                  07 Rate     pic s9(3)v99 comp-3 occurs 3.\n"
+			+ "                  07 Zoned    pic s9(5)        occurs 3.\n";
+
+	private static final String ODO_COPYBOOK
+			= "        01  Odo-Rec.\n"
+			+ "            03 Cnt            pic 99.\n"
+			+ "            03 Item           occurs 1 to 10 depending on Cnt.\n"
+			+ "               05 Amount      pic s9(5)v99 comp-3.\n"
+			+ "               05 Qty         occurs 2.\n"
+			+ "                  07 Num      pic 9(3).\n"
+			+ "            03 Trailer        pic x(4).\n";
+
+	private static final String DECIMAL_COPYBOOK
+			= "        01  Decimal-Rec.\n"
+			+ "            03 Packed         pic s9(3)v9 comp-3 occurs 6.\n"
+			+ "            03 Bin            pic s9(3)v9 comp   occurs 6.\n"
+			+ "            03 Display        pic s9(3)v9        occurs 6.\n";
+
+	public void testGet3Dim() throws IOException {
+		ICobolIOBuilder iob = getIOBuilder(RATE_COPYBOOK, "Rate-Table");
+		AbstractLine line = newRateLine(iob);
+
+		for (String name : new String[] {"Rate", "Zoned"}) {
+			IArrayFieldValue array = array3(line, name);
+			long[] longs = new long[MONTHS * DAYS * RATES];
+			BigDecimal[] decimals = new BigDecimal[longs.length];
+			String[] strings = new String[longs.length];
+
+			assertEquals(longs.length, array.getLongs(longs));
+			assertEquals(longs.length, array.getBigDecimals(decimals));
+			assertEquals(longs.length, array.getStrings(strings));
+
+			int i = 0;
+			for (int m = 0; m < MONTHS; m++) {
+				for (int d = 0; d < DAYS; d++) {
+					for (int r = 0; r < RATES; r++) {
+						String id = name + " " + m + ", " + d + ", " + r;
+						assertEquals(id, array.setIndex(m, d, r).asLong(), longs[i]);
+						assertEquals(id, array.setIndex(m, d, r).asBigDecimal(), decimals[i]);
+						assertEquals(id, array.setIndex(m, d, r).asString(), strings[i]);
+						i += 1;
+					}
+				}
+			}
+		}
+	}
+
+	public void testSlice() throws IOException {
+		ICobolIOBuilder iob = getIOBuilder(RATE_COPYBOOK, "Rate-Table");
+		AbstractLine line = newRateLine(iob);
+		IArrayFieldValue array = array3(line, "Rate");
+
+		BigDecimal[] month = new BigDecimal[DAYS * RATES];
+		BigDecimal[] day = new BigDecimal[RATES];
+		assertEquals(month.length, array.getBigDecimals(month, 7));
+		assertEquals(day.length, array.getBigDecimals(day, 7, 30));
+		for (int d = 0; d < DAYS; d++) {
+			for (int r = 0; r < RATES; r++) {
+				assertEquals(rate(7, d, r), month[d * RATES + r]);
+			}
+		}
+		for (int r = 0; r < RATES; r++) {
+			assertEquals(rate(7, 30, r), day[r]);
+		}
+
+		try {
+			array.getLongs(new long[RATES], 1, 2, 3);
+			fail("Expected a RecordException");
+		} catch (RecordException e) {
+		}
+		try {
+			array.getLongs(new long[RATES - 1], 1, 2);
+			fail("Expected a RecordException");
+		} catch (RecordException e) {
+		}
+	}
+
+	public void testSet() throws IOException {
+		ICobolIOBuilder iob = getIOBuilder(RATE_COPYBOOK, "Rate-Table");
+
+		for (String name : new String[] {"Rate", "Zoned"}) {
+			AbstractLine line = iob.newLine();
+			IArrayFieldValue array = array3(line, name);
+			long[] values = new long[MONTHS * DAYS * RATES];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = i % 2 == 0 ? i % 900 : -(i % 900);
+			}
+			assertEquals(values.length, array.setLongs(values));
+			assertEquals(RATES, array.setLongs(new long[] {1, 2, 3}, 11, 30));
+			values[values.length - 3] = 1;
+			values[values.length - 2] = 2;
+			values[values.length - 1] = 3;
+
+			long[] check = new long[values.length];
+			array.getLongs(check);
+			int i = 0;
+			for (int m = 0; m < MONTHS; m++) {
+				for (int d = 0; d < DAYS; d++) {
+					for (int r = 0; r < RATES; r++) {
+						assertEquals(name + " " + i, values[i], check[i]);
+						assertEquals(name + " " + i, values[i], array.setIndex(m, d, r).asLong());
+						i += 1;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * getLongs must convert each element the way asLong converts it
+	 * (the optimized small binary types round, the other types truncate).
+	 */
+	public void testLongRounding() throws IOException {
+		double[] values = {12.5, -12.5, 12.4, -12.4, 12.6, -12.6};
+		for (boolean optimize : new boolean[] {true, false}) {
+			ICobolIOBuilder iob = getIOBuilder(DECIMAL_COPYBOOK, "Decimal-Rec").setOptimizeTypes(optimize);
+			AbstractLine line = iob.newLine();
+			for (String name : new String[] {"Packed", "Bin", "Display"}) {
+				for (int i = 0; i < values.length; i++) {
+					line.getFieldValue(name + " (" + i + ")").set(values[i]);
+				}
+			}
+
+			for (String name : new String[] {"Packed", "Bin", "Display"}) {
+				IArrayFieldValue array = array(line, name, values.length);
+				long[] longs = new long[values.length];
+				assertEquals(values.length, array.getLongs(longs));
+				assertEquals(name, optimize ? 13 : 12, longs[0]);
+				assertEquals(name, optimize ? -13 : -12, longs[1]);
+				for (int i = 0; i < values.length; i++) {
+					String id = name + " " + optimize + " " + values[i];
+					assertEquals(id, line.getFieldValue(name + " (" + i + ")").asLong(), longs[i]);
+					assertEquals(id, array.setIndex(i).asLong(), longs[i]);
+				}
+			}
+		}
+	}
+
+	public void testOccursDepending() throws IOException {
+		ICobolIOBuilder iob = getIOBuilder(ODO_COPYBOOK, "Odo-Rec");
+
+		for (int count = 0; count <= 10; count += 5) {
+			AbstractLine line = iob.newLine();
+			line.getFieldValue("Cnt").set(count);
+			for (int i = 0; i < count; i++) {
+				line.getFieldValue("Amount (" + i + ")").set(i * 1.5);
+				line.getFieldValue("Num (" + i + ", 0)").set(i);
+				line.getFieldValue("Num (" + i + ", 1)").set(i + 100);
+			}
+			line.getFieldValue("Trailer").set("tttt");
+
+			IArrayFieldValue amounts = array(line, "Amount", 10);
+			BigDecimal[] decimals = new BigDecimal[10];
+			assertEquals(count, amounts.getBigDecimals(decimals));
+			for (int i = 0; i < 10; i++) {
+				assertEquals(i < count ? new BigDecimal(i * 1.5).setScale(2) : null, decimals[i]);
+			}
+
+			IArrayFieldValue nums = array(line, "Num", 10, 2);
+			long[] longs = new long[20];
+			assertEquals(count * 2, nums.getLongs(longs));
+			for (int i = 0; i < count; i++) {
+				assertEquals(i, longs[i * 2]);
+				assertEquals(i + 100, longs[i * 2 + 1]);
+			}
+
+			long[] upd = new long[10];
+			for (int i = 0; i < upd.length; i++) {
+				upd[i] = -i;
+			}
+			assertEquals(count, amounts.setLongs(upd));
+			assertEquals(count, line.getFieldValue("Cnt").asInt());
+			assertEquals("tttt", line.getFieldValue("Trailer").asString());
+			for (int i = 0; i < count; i++) {
+				assertEquals(-i, line.getFieldValue("Amount (" + i + ")").asLong());
+			}
+		}
+	}
+
+	private static IArrayFieldValue array3(AbstractLine line, String name) {
+		return array(line, name, MONTHS, DAYS, RATES);
+	}
+
+	/**
+	 * Create an array field value (the array definition is built the same way
+	 * as the generated code builds it)
+	 */
+	private static IArrayFieldValue array(AbstractLine line, String name, int... lengths) {
+		LayoutDetail schema = line.getLayout();
+		ArrayFieldDefinition1 def = new ArrayFieldDefinition1(lengths);
+		int[] idx = new int[lengths.length];
+		boolean more = true;
+		while (more) {
+			StringBuilder b = new StringBuilder(name).append(" (").append(idx[0]);
+			for (int i = 1; i < idx.length; i++) {
+				b.append(", ").append(idx[i]);
+			}
+			def.setField(new Index(idx.clone()), (FieldDetail) schema.getFieldFromName(b.append(')').toString()));
+
+			int i = idx.length - 1;
+			for (; i >= 0 && ++idx[i] >= lengths[i]; i--) {
+				idx[i] = 0;
+			}
+			more = i >= 0;
+		}
+		return LineFieldCreator.getInstance().newArrayFieldValue(line, def);
+	}
+
+	private static AbstractLine newRateLine(ICobolIOBuilder iob) throws IOException {
+		AbstractLine line = iob.newLine();
+		line.getFieldValue("Key").set("k1");
+		for (int m = 0; m < MONTHS; m++) {
+			line.getFieldValue("Month-Name (" + m + ")").set("m" + m);
+			for (int d = 0; d < DAYS; d++) {
+				for (int r = 0; r < RATES; r++) {
+					String idx = " (" + m + ", " + d + ", " + r + ")";
+					line.getFieldValue("Rate" + idx).set(rate(m, d, r));
+					line.getFieldValue("Zoned" + idx).set((m - 6) * 1000 + d * 10 + r);
+				}
+			}
+		}
+		return line;
+	}
+
+	private static BigDecimal rate(int m, int d, int r) {
+		return BigDecimal.valueOf(((m - 6) * 1000 + d * 10 + r) * 3 + 1, 2);
+	}
+
+	private static class Index implements IIndex {
+		private final int[] idx;
+
+		Index(int[] idx) {
+			this.idx = idx;
+		}
+
+		@Override
+		public int getIndex(int indexNumber) {
+			return idx[indexNumber];
+		}
+	}
+
+	private static ICobolIOBuilder getIOBuilder(String copybook, String name) {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(copybook), name)
+					.setFont("cp037");
+	}
+}
@@ -0,0 +1,121 @@
+package net.sf.JRecord.zTest.Details;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.ByteIO.AbstractByteWriter;
+import net.sf.JRecord.ByteIO.ByteIOProvider;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.Line;
+import net.sf.JRecord.Details.RecordStore;
+import net.sf.JRecord.zTest.Common.TstConstants;
+
+/**
+ * Testing the (off-heap) Record Store
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstRecordStore extends TestCase {
+
+	private static final String TMP_DIRECTORY = TstConstants.TEMP_DIRECTORY;
+	private static final String COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Key        pic 9(8).\n"
+			+ "            03 Data       pic x(80).\n";
+
+	public void testAddView() throws IOException {
+		LayoutDetail layout = getLayout(Constants.IO_VB);
+		int[] slabSizes = {RecordStore.DEFAULT_SLAB_SIZE, 100, 1};
+		for (int slabSize : slabSizes) {
+			for (boolean direct : new boolean[] {true, false}) {
+				RecordStore store = new RecordStore(layout, slabSize, direct);
+				for (int i = 0; i < 5000; i++) {
+					assertEquals(i, store.add(record(i)));
+				}
+				assertEquals(5000, store.size());
+				check(store);
+				store.close();
+				assertEquals(0, store.size());
+			}
+		}
+	}
+
+	public void testRecordType() throws IOException {
+		LayoutDetail layout = getLayout(Constants.IO_VB);
+		RecordStore store = new RecordStore(layout, 1000, false);
+		Line line = new Line(layout, record(1));
+
+		store.add(line);
+		store.add(record(2));
+		store.add(record(40), 0, 20, 0);
+
+		assertEquals(0, store.getRecordType(0));
+		assertEquals(Constants.NULL_INTEGER, store.getRecordType(1));
+		assertEquals(0, store.getRecordType(2));
+		assertEquals(20, store.getRecordLength(2));
+		assertEquals(80, store.view(2, null).getFieldValue("Key").asInt());
+		try {
+			store.getRecord(3);
+			fail("Expected an IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+
+	public void testLoad() throws IOException {
+		LayoutDetail layout = getLayout(Constants.IO_VB);
+		File f = new File(TMP_DIRECTORY + "RecordStore.bin");
+		try {
+			AbstractByteWriter w = ByteIOProvider.getInstance().getByteWriter(Constants.IO_VB, "CP1252");
+			w.open(new FileOutputStream(f));
+			for (int i = 0; i < 5000; i++) {
+				w.write(record(i));
+			}
+			w.close();
+
+			RecordStore store = new RecordStore(layout, 4096, true);
+			assertEquals(5000, store.load(f.getPath()));
+			check(store);
+			store.close();
+		} finally {
+			f.delete();
+		}
+	}
+
+	private static void check(RecordStore store) throws IOException {
+		Line view = null;
+		for (int i = 0; i < store.size(); i++) {
+			byte[] rec = record(i);
+			view = store.view(i, view);
+			assertEquals(i * 2, view.getFieldValue("Key").asLong());
+			assertEquals(new String(rec, 8, rec.length - 8, "CP1252"), view.getFieldValue("Data").asString());
+			assertEquals(rec.length, store.getRecordLength(i));
+			assertTrue(java.util.Arrays.equals(rec, store.getRecord(i)));
+		}
+		AbstractLine l = store.getLine(store.size() - 1);
+		assertEquals((store.size() - 1) * 2, l.getFieldValue("Key").asLong());
+		assertNotSame(l, store.getLine(store.size() - 1));
+	}
+
+	private static byte[] record(int i) throws IOException {
+		StringBuilder b = new StringBuilder(88).append(String.format("%08d", i * 2));
+		for (int j = 0; j < i % 77 + 2; j++) {
+			b.append((char) ('a' + (i + j) % 26));
+		}
+		return b.toString().getBytes("CP1252");
+	}
+
+	private static LayoutDetail getLayout(int fileStructure) throws IOException {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(COPYBOOK), "Rec")
+					.setFont("CP1252")
+					.setFileOrganization(fileStructure)
+				.getLayout();
+	}
+}
@@ -0,0 +1,297 @@
+package net.sf.JRecord.zTest.cgen;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.LayoutGetFieldByName;
+import net.sf.JRecord.ExternalRecordSelection.ExternalFieldSelection;
+import net.sf.JRecord.ExternalRecordSelection.ExternalGroupSelection;
+import net.sf.JRecord.ExternalRecordSelection.ExternalSelection;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.IO.FilterLineReader;
+import net.sf.JRecord.External.CopybookLoader;
+import net.sf.JRecord.cgen.codec.CompiledRecordDecider;
+import net.sf.JRecord.cgen.codec.CompiledSelection;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+import net.sf.JRecord.detailsSelection.Convert;
+import net.sf.JRecord.detailsSelection.RecordSel;
+
+/**
+ * Check a CompiledSelection gives the same result as the standard (interpreted) selection
+ */
+public class TstCompiledSelection extends TestCase {
+
+	private static final String COPYBOOK
+			= "        01  Sel-Rec.\n"
+			+ "            03 Rec-Type       pic x(2).\n"
+			+ "            03 Name           pic x(10).\n"
+			+ "            03 Amount         pic s9(7)v99 comp-3.\n"
+			+ "            03 Qty            pic s9(4) comp.\n"
+			+ "            03 Cnt            pic 9(4) comp.\n"
+			+ "            03 Zoned          pic s9(5).\n";
+
+	private static final String MULTI_RECORD_COPYBOOK
+			= "        01  Header-Record.\n"
+			+ "            03 Record-Type    pic x(2).\n"
+			+ "            03 Run-Date       pic 9(8).\n"
+			+ "        01  Detail-Record.\n"
+			+ "            03 Record-Type    pic x(2).\n"
+			+ "            03 Amount         pic s9(7)v99 comp-3.\n"
+			+ "            03 Desc           pic x(10).\n"
+			+ "        01  Big-Detail-Record.\n"
+			+ "            03 Record-Type    pic x(2).\n"
+			+ "            03 Amount         pic s9(7)v99 comp-3.\n"
+			+ "            03 Desc           pic x(10).\n"
+			+ "        01  Trailer-Record.\n"
+			+ "            03 Record-Type    pic x(2).\n"
+			+ "            03 Count          pic 9(8).\n";
+
+	private static final String[][] FIELD_TESTS = {
+		{"Rec-Type", "=", "D1"},
+		{"Rec-Type", "!=", "d1"},
+		{"Rec-Type", ">", "C"},
+		{"Rec-Type", "<=", "D"},
+		{"Name", "=", "abc"},
+		{"Name", ">=", "AbC"},
+		{"Name", "<", "m"},
+		{"Name", "ne", ""},
+		{"Name", Constants.TEXT_GT, "Name 5"},
+		{"Name", Constants.CONTAINS, "b"},
+		{"Amount", "=", "123.45"},
+		{"Amount", ">", "123.449"},
+		{"Amount", "<", "-10"},
+		{"Amount", "ge", "0"},
+		{"Amount", Constants.NUM_NE, "0.5"},
+		{"Qty", ">", "-100"},
+		{"Qty", "<=", "20"},
+		{"Qty", Constants.NUM_EQ, "7"},
+		{"Cnt", ">", "1000"},
+		{"Cnt", "!=", "0"},
+		{"Zoned", "<", "50"},
+		{"Zoned", "=", "-3"},
+	};
+
+	private static final String[] NAMES = {"abc", "ABC", "Abd", "Name 5", "name 55", "", "  x", "zzz", "m"};
+	private static final String[] TYPES = {"D1", "d1", "C", "D", "E1", "  ", "DD"};
+
+	public void testEbcdic() throws IOException {
+		tstFieldTests("cp037");
+	}
+
+	public void testAscii() throws IOException {
+		tstFieldTests("");
+	}
+
+	public void testGroups() throws IOException {
+		ICobolIOBuilder iob = newIOBuilder("cp037");
+		LayoutDetail layout = iob.getLayout();
+		List<AbstractLine> lines = newLines(iob, new Random(11));
+		List<ExternalSelection> tests = new ArrayList<ExternalSelection>();
+		for (String[] t : FIELD_TESTS) {
+			tests.add(newTest(t, false));
+		}
+		ExternalSelection and = ExternalGroupSelection.newAnd(
+				tests.get(0), tests.get(6), tests.get(10), tests.get(15));
+		ExternalSelection or = ExternalGroupSelection.newOr(
+				and, tests.get(2), ExternalGroupSelection.newAnd(tests.get(11), tests.get(18)),
+				tests.get(9));
+		ExternalSelection all = ExternalGroupSelection.newOr(tests.toArray(new ExternalSelection[tests.size()]));
+
+		check(layout, lines, and, 4, 0);
+		check(layout, lines, or, 7, 1);
+		check(layout, lines, all, FIELD_TESTS.length - 3, 3);
+		check(layout, lines, ExternalGroupSelection.newAnd(tests.toArray(new ExternalSelection[tests.size()])),
+				FIELD_TESTS.length - 3, 3);
+
+		// a selection that is changed is compiled again (there is no cache)
+		ExternalGroupSelection<ExternalSelection> changed = ExternalGroupSelection.newOr(tests.get(0));
+		check(layout, lines, changed, 1, 0);
+		changed.add(tests.get(2));
+		check(layout, lines, changed, 2, 0);
+
+		assertTrue(CompiledSelection.compile(layout, null).isSelected(lines.get(0)));
+	}
+
+	public void testRecordDecider() throws IOException {
+		ICobolIOBuilder standard = newMultiRecordIOBuilder();
+		ICobolIOBuilder compiled = newMultiRecordIOBuilder()
+				.setRecordDecider(new CompiledRecordDecider());
+		LayoutDetail standardLayout = standard.getLayout();
+		LayoutDetail compiledLayout = compiled.getLayout();
+		Random r = new Random(5);
+		String[] recordTypes = {"HD", "DT", "TR", "XX", "dt", "  "};
+		int[] counts = new int[compiledLayout.getRecordCount() + 1];
+
+		assertTrue(compiledLayout.getDecider() instanceof CompiledRecordDecider);
+		for (int i = 0; i < 500; i++) {
+			byte[] data = new byte[12 + r.nextInt(4)];
+			r.nextBytes(data);
+			byte[] type = recordTypes[r.nextInt(recordTypes.length)].getBytes("cp037");
+			System.arraycopy(type, 0, data, 0, 2);
+			if (r.nextBoolean()) {
+				System.arraycopy(new byte[] {0x12, 0x34, 0x56, 0x78, (byte) (r.nextBoolean() ? 0x0C : 0x0D)}, 0, data, 2, 5);
+			}
+			AbstractLine s = standard.newLine(data.clone());
+			AbstractLine c = compiled.newLine(data);
+
+			assertSame(standardLayout, s.getLayout());
+			int expected, idx;
+			try {
+				expected = s.getPreferredLayoutIdx();
+			} catch (RuntimeException e) {
+				expected = -2;
+			}
+			try {
+				idx = c.getPreferredLayoutIdx();
+			} catch (RuntimeException e) {
+				idx = -2;
+			}
+			assertEquals(expected, idx);
+			counts[idx < 0 ? counts.length - 1 : idx] += 1;
+		}
+		for (int i = 0; i < counts.length - 1; i++) {
+			assertTrue(counts[i] > 0);
+		}
+	}
+
+	public void testFilterReader() throws IOException {
+		ICobolIOBuilder iob = newIOBuilder("cp037").setFileOrganization(Constants.IO_FIXED_LENGTH);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		AbstractLineWriter w = iob.newWriter(os);
+		int expected = 0;
+		for (int i = 0; i < 200; i++) {
+			AbstractLine l = iob.newLine();
+			l.getFieldValue("Rec-Type").set(i % 3 == 0 ? "D1" : "H1");
+			l.getFieldValue("Amount").set(i);
+			w.write(l);
+			if (i % 3 == 0 && i > 100) {
+				expected += 1;
+			}
+		}
+		w.close();
+
+		AbstractLineReader r = new FilterLineReader(
+				iob.newReader(new ByteArrayInputStream(os.toByteArray())),
+				ExternalGroupSelection.newAnd(
+						ExternalFieldSelection.newFieldSelection("Rec-Type", "=", "D1"),
+						ExternalFieldSelection.newFieldSelection("Amount", ">", "100")));
+		AbstractLine l;
+		int count = 0;
+		while ((l = r.read()) != null) {
+			assertEquals("D1", l.getFieldValue("Rec-Type").asString());
+			assertTrue(l.getFieldValue("Amount").asInt() > 100);
+			count += 1;
+		}
+		r.close();
+		assertEquals(expected, count);
+	}
+
+	private void tstFieldTests(String font) throws IOException {
+		ICobolIOBuilder iob = newIOBuilder(font);
+		LayoutDetail layout = iob.getLayout();
+		List<AbstractLine> lines = newLines(iob, new Random(7));
+
+		for (String[] t : FIELD_TESTS) {
+			// Contains and Zoned-Decimal tests are not compiled
+			int compiledCount = Constants.CONTAINS.equals(t[1]) || "Zoned".equals(t[0]) ? 0 : 1;
+			check(layout, lines, newTest(t, false), compiledCount, 1 - compiledCount);
+			check(layout, lines, newTest(t, true), compiledCount, 1 - compiledCount);
+		}
+	}
+
+	private static void check(LayoutDetail layout, List<AbstractLine> lines, ExternalSelection sel,
+			int compiledCount, int interpretedCount) {
+		CompiledSelection compiled = CompiledSelection.compile(layout, sel);
+		RecordSel interpreted = (new Convert()).convert(sel, new LayoutGetFieldByName(layout, layout.getRecord(0)));
+		int selected = 0;
+
+		assertEquals(compiledCount, compiled.getCompiledTestCount());
+		assertEquals(interpretedCount, compiled.getInterpretedTestCount());
+		for (AbstractLine l : lines) {
+			String expected, actual;
+			try {
+				expected = Boolean.toString(interpreted.isSelected(l));
+			} catch (RuntimeException e) {
+				expected = e.getClass().getName();
+			}
+			try {
+				actual = Boolean.toString(compiled.isSelected(l));
+			} catch (RuntimeException e) {
+				actual = e.getClass().getName();
+			}
+			assertEquals(l.getFullLine(), expected, actual);
+			if ("true".equals(actual)) {
+				selected += 1;
+			}
+		}
+		assertTrue(selected > 0 || interpretedCount > 0 || compiledCount > 1);
+	}
+
+	private static ExternalSelection newTest(String[] t, boolean caseSensitive) {
+		return ExternalFieldSelection.newFieldSelection(caseSensitive, t[0], t[1], t[2]);
+	}
+
+	/**
+	 * Create lines with valid values, random bytes (invalid numerics),
+	 * short records and empty (hex-zero) records
+	 */
+	private static List<AbstractLine> newLines(ICobolIOBuilder iob, Random r) throws IOException {
+		List<AbstractLine> lines = new ArrayList<AbstractLine>();
+		int length = iob.getLayout().getMaximumRecordLength();
+
+		for (int i = 0; i < 400; i++) {
+			AbstractLine l = iob.newLine();
+			l.getFieldValue("Rec-Type").set(TYPES[r.nextInt(TYPES.length)]);
+			l.getFieldValue("Name").set(NAMES[r.nextInt(NAMES.length)]);
+			l.getFieldValue("Amount").set((r.nextInt(40000) - 20000) / 100.0);
+			l.getFieldValue("Qty").set(r.nextInt(300) - 150);
+			l.getFieldValue("Cnt").set(r.nextInt(3000));
+			l.getFieldValue("Zoned").set(r.nextInt(200) - 100);
+			lines.add(l);
+		}
+		lines.get(0).getFieldValue("Amount").set("123.45");
+		lines.get(1).getFieldValue("Qty").set(7);
+		lines.get(2).getFieldValue("Zoned").set(-3);
+		lines.get(3).getFieldValue("Amount").set("0.5");
+
+		for (int i = 0; i < 200; i++) {
+			byte[] data = new byte[r.nextInt(length + 4)];
+			r.nextBytes(data);
+			lines.add(iob.newLine(data));
+		}
+		lines.add(iob.newLine(new byte[length]));
+		lines.add(iob.newLine(new byte[0]));
+		return lines;
+	}
+
+	private static ICobolIOBuilder newIOBuilder(String font) {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(COPYBOOK), "Sel-Rec")
+					.setFont(font);
+	}
+
+	private static ICobolIOBuilder newMultiRecordIOBuilder() {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(MULTI_RECORD_COPYBOOK), "Multi")
+					.setFont("cp037")
+					.setSplitCopybook(CopybookLoader.SPLIT_01_LEVEL)
+					.setRecordSelection("Header-Record", ExternalFieldSelection.newFieldSelection("Record-Type", "HD"))
+					.setRecordSelection("Detail-Record",
+							ExternalGroupSelection.newAnd(
+									ExternalFieldSelection.newFieldSelection("Record-Type", "DT"),
+									ExternalFieldSelection.newFieldSelection("Amount", "<", "1000")))
+					.setRecordSelection("Big-Detail-Record", ExternalFieldSelection.newFieldSelection("Record-Type", "DT"))
+					.setRecordSelection("Trailer-Record", ExternalFieldSelection.newFieldSelection("Record-Type", "TR"));
+	}
+}
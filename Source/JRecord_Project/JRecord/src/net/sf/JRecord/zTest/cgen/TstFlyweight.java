@@ -0,0 +1,167 @@
+package net.sf.JRecord.zTest.cgen;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.RecordDetail;
+import net.sf.JRecord.Types.Type;
+import net.sf.JRecord.cgen.impl.AbstractFlyweight;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+
+/**
+ * Check AbstractFlyweight (the base class of the CodeGen <i>flyweight</i> classes)
+ * gives the same values / bytes as the standard JRecord Line.
+ */
+public class TstFlyweight extends TestCase {
+
+	private static final String COPYBOOK
+			= "        01  Fly-Rec.\n"
+			+ "            03 Rec-Key        pic x(8).\n"
+			+ "            03 Price          pic s9(7)v99 comp-3.\n"
+			+ "            03 Qty            pic s9(4) comp.\n"
+			+ "            03 Count          pic 9(9) comp.\n"
+			+ "            03 Zoned          pic s9(5).\n"
+			+ "            03 Zoned-Dec      pic 9(3)v9.\n"
+			+ "            03 Pos-Packed     pic 9(5) comp-3.\n"
+			+ "            03 Dbl                      comp-2.\n";
+
+	private static final String[][] VALUES = {
+		{"Key1", "123.45", "12", "1", "-123", "1.5", "1", "1.25"},
+		{"Key 2", "-9999999.99", "-32000", "999999999", "99999", "999.9", "99999", "-7.5"},
+		{"", "0", "0", "0", "0", "0", "0", "0"},
+	};
+
+	/**
+	 * Equivalent of a generated flyweight class
+	 */
+	private static final class FlyRec extends AbstractFlyweight<FlyRec> {
+		private static final FieldDetail FLD_DBL = FieldDetail.newFixedWidthField("Dbl", Type.ftDouble, 1, 8, 0, "cp037");
+
+		FlyRec(String font) {
+			super(font);
+		}
+
+		@Override public int getRecordLength() { return 39; }
+
+		String getRecKey()             { return getText(0, 8); }
+		BigDecimal getPrice()          { return BigDecimal.valueOf(getPacked(8, 5), 2); }
+		short getQty()                 { return (short) getBinary(13, 2, true, false); }
+		long getCount()                { return getBinary(15, 4, true, true); }
+		int getZoned()                 { return (int) getZoned(19, 5, true); }
+		BigDecimal getZonedDec()       { return BigDecimal.valueOf(getZoned(24, 4, false), 1); }
+		int getPosPacked()             { return (int) getPacked(28, 3); }
+		double getDbl()                { return asDouble(getValue(31, FLD_DBL)); }
+
+		FlyRec setRecKey(String v)     { setText(0, 8, v); return this; }
+		FlyRec setPrice(BigDecimal v)  { setPacked(8, 5, unscaled(v, 2), false); return this; }
+		FlyRec setQty(int v)           { setBinary(13, 2, true, false, v); return this; }
+		FlyRec setCount(long v)        { setBinary(15, 4, true, true, v); return this; }
+		FlyRec setZoned(int v)         { setZoned(19, 5, v, true); return this; }
+		FlyRec setZonedDec(BigDecimal v) { setZoned(24, 4, unscaled(v, 1), false); return this; }
+		FlyRec setPosPacked(int v)     { setPacked(28, 3, v, true); return this; }
+		FlyRec setDbl(double v)        { setValue(31, FLD_DBL, v); return this; }
+	}
+
+	public void testEbcdic() throws IOException {
+		tstFlyweight("cp037");
+	}
+
+	public void testWrap() throws IOException {
+		ICobolIOBuilder iob = newIOBuilder("cp037");
+		int recLen = iob.getLayout().getRecord(0).getLength();
+		ByteBuffer buf = ByteBuffer.allocateDirect(recLen * VALUES.length + 3);
+		FlyRec fly = new FlyRec("cp037");
+
+		for (int i = 0; i < VALUES.length; i++) {
+			buf.position(3 + i * recLen);
+			buf.put(newLine(iob, VALUES[i]).getData());
+		}
+		for (int i = 0; i < VALUES.length; i++) {
+			fly.wrap(buf, 3 + i * recLen);
+			assertEquals(VALUES[i][0], fly.getRecKey());
+			assertEquals(new BigDecimal(VALUES[i][1]).setScale(2), fly.getPrice());
+			assertEquals(Integer.parseInt(VALUES[i][4]), fly.getZoned());
+			assertTrue(Arrays.equals(newLine(iob, VALUES[i]).getData(), fly.toBytes()));
+		}
+	}
+
+	public void testInvalidValues() {
+		FlyRec fly = new FlyRec("cp037").wrap(new byte[39]);
+
+		checkInvalid(fly, "setQty");
+		checkInvalid(fly, "setCount");
+		checkInvalid(fly, "setPosPacked");
+		checkInvalid(fly, "setPrice");
+	}
+
+	private void checkInvalid(FlyRec fly, String method) {
+		try {
+			if ("setQty".equals(method)) {
+				fly.setQty(40000);
+			} else if ("setCount".equals(method)) {
+				fly.setCount(-1);
+			} else if ("setPosPacked".equals(method)) {
+				fly.setPosPacked(-1);
+			} else {
+				fly.setPrice(new BigDecimal("10000000"));
+			}
+			fail(method);
+		} catch (RecordException e) {
+		}
+	}
+
+	private void tstFlyweight(String font) throws IOException {
+		ICobolIOBuilder iob = newIOBuilder(font);
+		FlyRec fly = new FlyRec(font);
+
+		for (String[] v : VALUES) {
+			AbstractLine line = newLine(iob, v);
+			byte[] data = line.getData();
+
+			fly.wrap(data);
+			assertEquals(line.getFieldValue("Rec-Key").asString(), fly.getRecKey());
+			assertEquals(line.getFieldValue("Price").asBigDecimal(), fly.getPrice());
+			assertEquals(line.getFieldValue("Qty").asInt(), fly.getQty());
+			assertEquals(line.getFieldValue("Count").asLong(), fly.getCount());
+			assertEquals(line.getFieldValue("Zoned").asInt(), fly.getZoned());
+			assertEquals(line.getFieldValue("Zoned-Dec").asBigDecimal(), fly.getZonedDec());
+			assertEquals(line.getFieldValue("Pos-Packed").asInt(), fly.getPosPacked());
+			assertEquals(line.getFieldValue("Dbl").asDouble(), fly.getDbl(), 0.00001);
+
+			byte[] rec = new byte[data.length];
+			fly.wrap(rec)
+				.setRecKey(v[0])
+				.setPrice(new BigDecimal(v[1]))
+				.setQty(Short.parseShort(v[2]))
+				.setCount(Long.parseLong(v[3]))
+				.setZoned(Integer.parseInt(v[4]))
+				.setZonedDec(new BigDecimal(v[5]))
+				.setPosPacked(Integer.parseInt(v[6]))
+				.setDbl(Double.parseDouble(v[7]));
+			assertTrue(Arrays.equals(data, rec));
+		}
+	}
+
+	private static AbstractLine newLine(ICobolIOBuilder iob, String[] v) throws IOException {
+		AbstractLine line = iob.newLine();
+		RecordDetail record = iob.getLayout().getRecord(0);
+		for (int i = 0; i < v.length; i++) {
+			line.getFieldValue(record.getField(i)).set(v[i]);
+		}
+		return line;
+	}
+
+	private static ICobolIOBuilder newIOBuilder(String font) {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(COPYBOOK), "Fly-Rec")
+					.setFont(font);
+	}
+}
@@ -0,0 +1,181 @@
+package net.sf.JRecord.zTest.cgen;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.RecordDetail;
+import net.sf.JRecord.cgen.codec.RecordCodec;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+
+/**
+ * Check the RecordCodec gives the same values / bytes as the standard JRecord Line
+ */
+public class TstRecordCodec extends TestCase {
+
+	private static final String COPYBOOK
+			= "        01  Codec-Rec.\n"
+			+ "            03 Rec-Key        pic x(8).\n"
+			+ "            03 Price          pic s9(7)v99 comp-3.\n"
+			+ "            03 Qty            pic s9(4) comp.\n"
+			+ "            03 Zoned          pic s9(5).\n"
+			+ "            03 Zoned-Dec      pic 9(3)v9.\n"
+			+ "            03 Big-Packed     pic s9(23) comp-3.\n"
+			+ "            03 Dbl                      comp-2.\n"
+			+ "            03 Txt            pic x(5).\n";
+
+	private static final String FILLER_COPYBOOK
+			= "        01  Filler-Rec.\n"
+			+ "            03 Rec-Key        pic x(4).\n"
+			+ "            03 filler         pic x(3).\n"
+			+ "            03 Amount         pic s9(3) comp-3.\n"
+			+ "            03 filler         pic x(2).\n"
+			+ "            03 Txt            pic x(3).\n";
+
+	private static final Object[][] VALUES = {
+		{"Key1", "123.45", "12", "-123", "1.5", "12345678901234567890", "1.25", "ab"},
+		{"Key 2", "-9999999.99", "-32000", "99999", "999.9", "-1", "-7.5", "abcde"},
+		{"", "0", "0", "0", "0", "0", "0", ""},
+	};
+
+	public void testEbcdic() throws IOException {
+		tstCodec("cp037");
+	}
+
+	public void testAscii() throws IOException {
+		tstCodec("");
+	}
+
+	public void testCache() throws IOException {
+		LayoutDetail layout = newIOBuilder("cp037").getLayout();
+
+		assertSame(RecordCodec.getCodec(layout, 0), RecordCodec.getCodec(layout, "Codec-Rec"));
+		assertNotSame(RecordCodec.getCodec(layout, 0), RecordCodec.getCodec(newIOBuilder("cp037").getLayout(), 0));
+	}
+
+	private void tstCodec(String font) throws IOException {
+		ICobolIOBuilder iob = newIOBuilder(font);
+		LayoutDetail layout = iob.getLayout();
+		RecordDetail record = layout.getRecord(0);
+		RecordCodec codec = RecordCodec.getCodec(layout, 0);
+
+		assertEquals(record.getFieldCount(), codec.getFieldCount());
+
+		for (Object[] v : VALUES) {
+			AbstractLine line = iob.newLine();
+			for (int i = 0; i < v.length; i++) {
+				line.getFieldValue(record.getField(i)).set(v[i]);
+			}
+			byte[] data = line.getData();
+
+			Object[] decoded = codec.deserialize(data);
+			for (int i = 0; i < decoded.length; i++) {
+				FieldDetail field = record.getField(i);
+				String expected = line.getFieldValue(field).asString();
+				if (field.isFixedFormat() && line.getFieldValue(field).isNumeric()) {
+					assertEquals(field.getName(), 0,
+							new BigDecimal(expected).compareTo(new BigDecimal(decoded[i].toString())));
+				} else {
+					assertEquals(field.getName(), expected, decoded[i]);
+				}
+			}
+			assertTrue(Arrays.equals(data, codec.serialize(decoded)));
+			assertTrue(Arrays.equals(data, codec.serialize(v)));
+		}
+	}
+
+	/**
+	 * Fillers and fields without a value must be initialised like a new Line
+	 */
+	public void testInitialValue() throws IOException {
+		for (String font : new String[] {"cp037", ""}) {
+			for (boolean initToSpaces : new boolean[] {true, false}) {
+				ICobolIOBuilder iob = JRecordInterface1.COBOL
+						.newIOBuilder(new StringReader(FILLER_COPYBOOK), "Filler-Rec")
+							.setFont(font)
+							.setInitToSpaces(initToSpaces);
+				LayoutDetail layout = iob.getLayout();
+				RecordCodec codec = RecordCodec.getCodec(layout, 0);
+				String id = font + " " + initToSpaces;
+
+				byte[] empty = codec.serialize(new Object[0]);
+				assertEquals(id, layout.getRecord(0).getLength(), empty.length);
+				for (byte b : empty) {
+					assertEquals(id, initToSpaces ? layout.getSpaceByte() : 0, b);
+				}
+
+				AbstractLine line = iob.newLine();
+				line.getFieldValue("Rec-Key").set("k1");
+				line.getFieldValue("Amount").set(-12);
+				line.getFieldValue("Txt").set("t");
+				assertTrue(id, Arrays.equals(line.getData(), codec.serialize(new Object[] {"k1", -12, "t"})));
+			}
+		}
+	}
+
+	public void testEncodeTypes() throws IOException {
+		LayoutDetail layout = newIOBuilder("cp037").getLayout();
+		RecordCodec codec = RecordCodec.getCodec(layout, 0);
+		byte[] rec = codec.serialize(new Object[0]);
+		int priceIdx = codec.getFieldIndex("Price");
+		int qtyIdx = codec.getFieldIndex("Qty");
+
+		codec.encode(rec, priceIdx, 12L);
+		assertEquals(new BigDecimal("12.00"), codec.decode(rec, priceIdx));
+		codec.encode(rec, priceIdx, new BigDecimal("1.235"));
+		assertEquals(new BigDecimal("1.24"), codec.decode(rec, priceIdx));
+		codec.encode(rec, priceIdx, "-3.5");
+		assertEquals(new BigDecimal("-3.50"), codec.decode(rec, priceIdx));
+
+		codec.encode(rec, qtyIdx, 17);
+		assertEquals(17L, codec.decode(rec, qtyIdx));
+	}
+
+	public void testEncodeToBig() throws IOException {
+		for (String font : new String[] {"cp037", ""}) {
+			LayoutDetail layout = newIOBuilder(font).getLayout();
+			RecordCodec codec = RecordCodec.getCodec(layout, 0);
+			byte[] rec = codec.serialize(new Object[0]);
+			int zonedIdx = codec.getFieldIndex("Zoned");
+			int zonedDecIdx = codec.getFieldIndex("Zoned-Dec");
+			int priceIdx = codec.getFieldIndex("Price");
+			int qtyIdx = codec.getFieldIndex("Qty");
+
+			codec.encode(rec, zonedIdx, -99999L);
+			assertEquals(-99999L, codec.decode(rec, zonedIdx));
+			codec.encode(rec, qtyIdx, -32768);
+			assertEquals(-32768L, codec.decode(rec, qtyIdx));
+
+			chkToBig(codec, rec, zonedIdx, 123456L);
+			chkToBig(codec, rec, zonedIdx, new BigDecimal("-100000"));
+			chkToBig(codec, rec, zonedDecIdx, 1000);
+			chkToBig(codec, rec, zonedDecIdx, -1);
+			chkToBig(codec, rec, priceIdx, Long.MAX_VALUE);
+			chkToBig(codec, rec, priceIdx, new BigDecimal("1E+30"));
+			chkToBig(codec, rec, qtyIdx, 32768);
+
+			assertEquals(-99999L, codec.decode(rec, zonedIdx));
+		}
+	}
+
+	private static void chkToBig(RecordCodec codec, byte[] rec, int idx, Object value) {
+		try {
+			codec.encode(rec, idx, value);
+			fail("Expected a RecordException for " + value);
+		} catch (RecordException e) {
+		}
+	}
+
+	private static ICobolIOBuilder newIOBuilder(String font) {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(COPYBOOK), "Codec-Rec")
+					.setFont(font);
+	}
+}
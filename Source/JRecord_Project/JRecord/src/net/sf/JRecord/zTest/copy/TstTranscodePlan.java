@@ -0,0 +1,239 @@
+package net.sf.JRecord.zTest.copy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.Details.Line;
+import net.sf.JRecord.Details.RecordDetail;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.Numeric.ICopybookDialects;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+import net.sf.JRecord.utilityClasses.Copy;
+import net.sf.JRecord.utilityClasses.TranscodePlan;
+import net.sf.JRecord.zTest.Common.TstConstants;
+
+/**
+ * Testing the byte level transcoding used by Copy
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstTranscodePlan extends TestCase {
+
+	private static final String TMP_DIRECTORY = TstConstants.TEMP_DIRECTORY;
+	private static final int RECORD_COUNT = 250;
+	private static final String IN_COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Key        pic s9(6).\n"
+			+ "            03 Name       pic x(10).\n"
+			+ "            03 Desc       pic x(10).\n"
+			+ "            03 Amount     pic s9(7)v99 comp-3.\n"
+			+ "            03 Qty        pic s9(4) comp.\n"
+			+ "            03 Rate       pic s9(3)v9 comp-3.\n"
+			+ "            03 Code       pic x(4).\n";
+	private static final String OUT_COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Key        pic s9(6).\n"
+			+ "            03 Name       pic x(12).\n"
+			+ "            03 Desc       pic x(6).\n"
+			+ "            03 Amount     pic s9(7)v99.\n"
+			+ "            03 Qty        pic s9(8) comp.\n"
+			+ "            03 Rate       pic s9(5)v999 comp-3.\n"
+			+ "            03 Code       pic 9(4).\n";
+
+	private static final String BINARY_COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Qty        pic s9(4) comp-5.\n";
+
+	private static final String BIG_COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Num        pic s9(7).\n"
+			+ "            03 Cnt        pic s9(5) comp-3.\n";
+	private static final String SMALL_COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Num        pic s9(3).\n"
+			+ "            03 Cnt        pic 9(5) comp-3.\n";
+
+	private static final String OVERLAP_IN_COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Desc       pic x(10).\n"
+			+ "            03 Code       pic x(4).\n";
+	private static final String OVERLAP_OUT_COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Desc       pic x(4).\n"
+			+ "            03 Code redefines Desc pic x(4).\n";
+
+	private ICobolIOBuilder inIob = newIOBuilder(IN_COPYBOOK, "cp037", ICopybookDialects.FMT_MAINFRAME);
+	private ICobolIOBuilder outIob = newIOBuilder(OUT_COPYBOOK, "cp1252", ICopybookDialects.FMT_MAINFRAME);
+
+	public void testActions() throws IOException {
+		LayoutDetail inSchema = inIob.getLayout();
+		LayoutDetail outSchema = outIob.getLayout();
+		TranscodePlan plan = TranscodePlan.create(inSchema, outSchema, getMapping(inSchema, outSchema));
+
+		assertNotNull(plan);
+		assertEquals(TranscodePlan.RECODE,    plan.getAction(0));
+		assertEquals(TranscodePlan.TRANSLATE, plan.getAction(1));
+		assertEquals(TranscodePlan.CONVERT,   plan.getAction(2));
+		assertEquals(TranscodePlan.RECODE,    plan.getAction(3));
+		assertEquals(TranscodePlan.RECODE,    plan.getAction(4));
+		assertEquals(TranscodePlan.RECODE,    plan.getAction(5));
+		assertEquals(TranscodePlan.CONVERT,   plan.getAction(6));
+
+		LayoutDetail binSchema = newIOBuilder(BINARY_COPYBOOK, "cp1252", ICopybookDialects.FMT_GNU_COBOL_MVS).getLayout();
+		plan = TranscodePlan.create(inSchema, binSchema, getMapping(inSchema, binSchema));
+		assertEquals(TranscodePlan.RECODE, plan.getAction(0));
+		AbstractLine inLine = inIob.newLine();
+		inLine.getFieldValue("Qty").set(-1234);
+		assertEquals(-1234, plan.transcode(inLine).getFieldValue("Qty").asInt());
+
+		plan = TranscodePlan.create(inSchema, inSchema, getMapping(inSchema, inSchema));
+		for (int i = 0; i < inSchema.getRecord(0).getFieldCount(); i++) {
+			assertEquals(TranscodePlan.COPY, plan.getAction(i));
+		}
+
+		LayoutDetail csvSchema = JRecordInterface1.CSV.newIOBuilder(",", "\"")
+				.defineFields()
+					.addCsvField("Key", net.sf.JRecord.Types.Type.ftChar, 0)
+				.endOfRecord()
+				.getLayout();
+		assertNull(TranscodePlan.create(inSchema, csvSchema, getMapping(inSchema, csvSchema)));
+	}
+
+	/**
+	 * Values that do not fit in the output field must be handled like the standard
+	 * conversion (and not silently truncated)
+	 */
+	public void testRecodeToBig() throws IOException {
+		LayoutDetail inSchema = newIOBuilder(BIG_COPYBOOK, "cp037", ICopybookDialects.FMT_MAINFRAME).getLayout();
+		LayoutDetail outSchema = newIOBuilder(SMALL_COPYBOOK, "cp037", ICopybookDialects.FMT_MAINFRAME).getLayout();
+		TranscodePlan plan = TranscodePlan.create(inSchema, outSchema, getMapping(inSchema, outSchema));
+
+		assertEquals(TranscodePlan.RECODE, plan.getAction(0));
+		assertEquals(TranscodePlan.RECODE, plan.getAction(1));
+
+		checkRecode(plan, inSchema, outSchema, 123, 12345);
+		checkRecode(plan, inSchema, outSchema, -999, 0);
+		checkRecode(plan, inSchema, outSchema, 1000, 1);
+		checkRecode(plan, inSchema, outSchema, 1234567, 1);
+		checkRecode(plan, inSchema, outSchema, -1234567, 1);
+		checkRecode(plan, inSchema, outSchema, 1, -1);
+		checkRecode(plan, inSchema, outSchema, 1, -12345);
+	}
+
+	private void checkRecode(TranscodePlan plan, LayoutDetail inSchema, LayoutDetail outSchema, int num, int cnt)
+	throws IOException {
+		AbstractLine inLine = new Line(inSchema);
+		inLine.getFieldValue("Num").set(num);
+		inLine.getFieldValue("Cnt").set(cnt);
+
+		String expected, actual;
+		try {
+			AbstractLine outLine = new Line(outSchema);
+			outLine.getFieldValue("Num").set(inLine.getFieldValue("Num").asString());
+			outLine.getFieldValue("Cnt").set(inLine.getFieldValue("Cnt").asString());
+			expected = outLine.getFullLine();
+		} catch (RuntimeException e) {
+			expected = "Error";
+		}
+		try {
+			actual = plan.transcode(inLine).getFullLine();
+		} catch (RuntimeException e) {
+			actual = "Error";
+		}
+		assertEquals(num + ", " + cnt, expected, actual);
+	}
+
+	/**
+	 * Output fields must be processed in field sequence; for overlapping (redefines)
+	 * fields the last field wins as it does in the standard copy
+	 */
+	public void testOverlappingFields() throws IOException {
+		LayoutDetail inSchema = newIOBuilder(OVERLAP_IN_COPYBOOK, "cp037", ICopybookDialects.FMT_MAINFRAME).getLayout();
+		LayoutDetail outSchema = newIOBuilder(OVERLAP_OUT_COPYBOOK, "cp037", ICopybookDialects.FMT_MAINFRAME).getLayout();
+		TranscodePlan plan = TranscodePlan.create(inSchema, outSchema, getMapping(inSchema, outSchema));
+
+		assertEquals(TranscodePlan.CONVERT, plan.getAction(0));
+		assertEquals(TranscodePlan.COPY,    plan.getAction(1));
+
+		AbstractLine inLine = new Line(inSchema);
+		inLine.getFieldValue("Desc").set("abc");
+		inLine.getFieldValue("Code").set("Cd01");
+
+		AbstractLine outLine = plan.transcode(inLine);
+		assertEquals("Cd01", outLine.getFieldValue("Code").asString());
+		assertEquals("Cd01", outLine.getFieldValue("Desc").asString());
+	}
+
+	public void testCopy() throws IOException {
+		File inFile = new File(TMP_DIRECTORY + "Transcode.in");
+		File outFile = new File(TMP_DIRECTORY + "Transcode.out");
+		try {
+			AbstractLineWriter w = inIob.newWriter(inFile.getPath());
+			for (int i = 0; i < RECORD_COUNT; i++) {
+				AbstractLine l = inIob.newLine();
+				l.getFieldValue("Key").set(i);
+				l.getFieldValue("Name").set("Name " + i);
+				l.getFieldValue("Desc").set("Desc " + i + "!");
+				l.getFieldValue("Amount").set(new BigDecimal(i * 1001 - 70000).movePointLeft(2));
+				l.getFieldValue("Qty").set(i * 31 - 3000);
+				l.getFieldValue("Rate").set(new BigDecimal(i - 125).movePointLeft(1));
+				l.getFieldValue("Code").set(Integer.toString(i % 50));
+				w.write(l);
+			}
+			w.close();
+
+			Copy.copyFileByMatchingFieldNames(
+					inIob.newReader(inFile.getPath()),
+					outIob.newWriter(outFile.getPath()),
+					outIob.getLayout());
+
+			AbstractLineReader r = outIob.newReader(outFile.getPath());
+			AbstractLine l;
+			int i = 0;
+			while ((l = r.read()) != null) {
+				assertEquals(i, l.getFieldValue("Key").asInt());
+				assertEquals("Name " + i, l.getFieldValue("Name").asString());
+				assertEquals(("Desc " + i + "!").substring(0, 6).trim(), l.getFieldValue("Desc").asString());
+				assertEquals(new BigDecimal(i * 1001 - 70000).movePointLeft(2), l.getFieldValue("Amount").asBigDecimal());
+				assertEquals(i * 31 - 3000, l.getFieldValue("Qty").asInt());
+				assertEquals(new BigDecimal(i - 125).movePointLeft(1).setScale(3), l.getFieldValue("Rate").asBigDecimal());
+				assertEquals(i % 50, l.getFieldValue("Code").asInt());
+				i += 1;
+			}
+			r.close();
+			assertEquals(RECORD_COUNT, i);
+		} finally {
+			inFile.delete();
+			outFile.delete();
+		}
+	}
+
+	private static ArrayList<FieldDetail> getMapping(LayoutDetail inSchema, LayoutDetail outSchema) {
+		RecordDetail inRec = inSchema.getRecord(0);
+		RecordDetail outRec = outSchema.getRecord(0);
+		ArrayList<FieldDetail> mapping = new ArrayList<FieldDetail>();
+		for (int i = 0; i < outRec.getFieldCount(); i++) {
+			mapping.add(inRec.getField(outRec.getField(i).getLookupName()));
+		}
+		return mapping;
+	}
+
+	private static ICobolIOBuilder newIOBuilder(String copybook, String font, int dialect) {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(copybook), "Rec")
+					.setFont(font)
+					.setDialect(dialect)
+					.setFileOrganization(Constants.IO_FIXED_LENGTH);
+	}
+}
@@ -0,0 +1,246 @@
+package net.sf.JRecord.zTest.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.ByteIO.AbstractByteWriter;
+import net.sf.JRecord.ByteIO.ByteIOProvider;
+import net.sf.JRecord.ByteIO.DurableOutputStream;
+import net.sf.JRecord.ByteIO.FixedLengthByteWriter;
+import net.sf.JRecord.ByteIO.MicroFocusByteWriter;
+import net.sf.JRecord.ByteIO.MicroFocusFileHeader;
+import net.sf.JRecord.ByteIO.ReadPosition;
+import net.sf.JRecord.ByteIO.VbDumpByteWriter;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.LineIOProvider;
+import net.sf.JRecord.Types.Type;
+import net.sf.JRecord.utilityClasses.CheckpointCopy;
+import net.sf.JRecord.zTest.Common.TstConstants;
+
+/**
+ * Testing Checkpoint / Restart of readers, writers and {@link CheckpointCopy}
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstCheckpointRestart extends TestCase {
+
+	private static final String TMP_DIRECTORY = TstConstants.TEMP_DIRECTORY;
+	private static final int RECORD_COUNT = 1000;
+	private static final String COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Key        pic 9(8).\n"
+			+ "            03 Data       pic x(60).\n";
+
+	private static final int[] FILE_STRUCTURES = {
+		Constants.IO_VB, Constants.IO_VB_DUMP, Constants.IO_VB_FUJITSU,
+		Constants.IO_BIN_TEXT, Constants.IO_MICROFOCUS, Constants.IO_FIXED_LENGTH,
+	};
+
+	public void testReadPosition() {
+		ReadPosition p = new ReadPosition(1234567890123L, 77, new byte[] {0, 1, (byte) 0xFF, 0x7F});
+		ReadPosition p2 = ReadPosition.parse(p.toString());
+
+		assertEquals(p.getByteOffset(), p2.getByteOffset());
+		assertEquals(p.getRecordNumber(), p2.getRecordNumber());
+		assertTrue(Arrays.equals(p.getState(), p2.getState()));
+
+		p2 = ReadPosition.parse(new ReadPosition(121, null).toString());
+		assertEquals(121, p2.getByteOffset());
+		assertEquals(-1, p2.getRecordNumber());
+		assertNull(p2.getState());
+	}
+
+	public void testReaderRestart() throws IOException {
+		int[] restartPoints = {0, 1, 13, 499, 998, RECORD_COUNT};
+		for (int fileStructure : FILE_STRUCTURES) {
+			LayoutDetail layout = getLayout(fileStructure);
+			File f = writeFile(fileStructure);
+			String id = "File Structure: " + fileStructure;
+			try {
+				for (int restartAt : restartPoints) {
+					AbstractLineReader r = LineIOProvider.getInstance().getLineReader(layout);
+					r.open(f.getPath(), layout);
+					for (int i = 0; i < restartAt; i++) {
+						r.read();
+					}
+					ReadPosition pos = r.getPosition();
+					int recNo = restartAt;
+					while (pos == null) {
+						r.read();
+						pos = r.getPosition();
+						recNo += 1;
+					}
+					r.close();
+					assertEquals(id, recNo, pos.getRecordNumber());
+
+					r = LineIOProvider.getInstance().getLineReader(layout);
+					r.open(f.getPath(), layout, ReadPosition.parse(pos.toString()));
+					AbstractLine l;
+					while ((l = r.read()) != null) {
+						assertEquals(id + " " + restartAt, recNo * 2, l.getFieldValue("Key").asLong());
+						recNo += 1;
+					}
+					assertEquals(id, RECORD_COUNT, recNo);
+					assertEquals(id, RECORD_COUNT, r.getPosition().getRecordNumber());
+					r.close();
+				}
+			} finally {
+				f.delete();
+			}
+		}
+	}
+
+	public void testDurableOutputStream() throws IOException {
+		File f = new File(TMP_DIRECTORY + "Durable.txt");
+		try {
+			DurableOutputStream out = new DurableOutputStream(f.getPath());
+			out.write("0123456789".getBytes());
+			long pos = out.sync();
+			out.write("abcdef".getBytes());
+			out.close();
+			assertEquals(10, pos);
+			assertEquals(16, f.length());
+
+			out = new DurableOutputStream(f.getPath(), pos);
+			assertEquals(10, out.getPosition());
+			out.write("xyz".getBytes());
+			out.close();
+			assertEquals("0123456789xyz", readFile(f).get(0));
+
+			try {
+				new DurableOutputStream(f.getPath(), 100);
+				fail("Expected an IOException");
+			} catch (IOException e) {
+			}
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testCheckpointCopy() throws IOException {
+		int[] inStructures = {Constants.IO_VB, Constants.IO_VB_DUMP, Constants.IO_BIN_TEXT};
+		for (int fileStructure : inStructures) {
+			LayoutDetail inLayout = getLayout(fileStructure);
+			LayoutDetail csvLayout = JRecordInterface1.CSV
+					.newIOBuilder(",", "\"")
+						.defineFields()
+							.addCsvField("Key",  Type.ftNumAnyDecimal, 0)
+							.addCsvField("Data", Type.ftChar, 0)
+						.endOfRecord()
+						.setFileOrganization(Constants.IO_UNICODE_NAME_1ST_LINE)
+					.getLayout();
+			File in = writeFile(fileStructure);
+			File expected = new File(TMP_DIRECTORY + "CheckpointExpected.csv");
+			File out = new File(TMP_DIRECTORY + "Checkpoint.csv");
+			File cp = new File(out.getPath() + ".checkpoint");
+			String id = "File Structure: " + fileStructure;
+			try {
+				assertEquals(id, RECORD_COUNT,
+						new CheckpointCopy(cp.getPath(), 100)
+							.copyFileByFieldNumber(inLayout, in.getPath(), csvLayout, expected.getPath()));
+				assertFalse(cp.exists());
+
+				try {
+					new FailingCopy(cp.getPath(), 3)
+							.copyFileByFieldNumber(inLayout, in.getPath(), csvLayout, out.getPath());
+					fail("Expected a failure");
+				} catch (RuntimeException e) {
+				}
+				assertTrue(cp.exists());
+
+				assertEquals(id, RECORD_COUNT,
+						new CheckpointCopy(cp.getPath(), 100)
+							.copyFileByFieldNumber(inLayout, in.getPath(), csvLayout, out.getPath()));
+				assertFalse(cp.exists());
+
+				List<String> exp = readFile(expected);
+				assertEquals(id, RECORD_COUNT + 1, exp.size());
+				assertEquals(id, exp, readFile(out));
+			} finally {
+				in.delete();
+				expected.delete();
+				out.delete();
+				cp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Copy that fails after a number of checkpoints
+	 */
+	private static class FailingCopy extends CheckpointCopy {
+		private int checkpoints;
+
+		FailingCopy(String checkpointFileName, int checkpoints) {
+			super(checkpointFileName, 100);
+			this.checkpoints = checkpoints;
+		}
+
+		@Override
+		protected void saveCheckpoint(Properties checkpoint) throws IOException {
+			super.saveCheckpoint(checkpoint);
+			if (--checkpoints <= 0) {
+				throw new IOException("Simulated failure");
+			}
+		}
+	}
+
+	private static List<String> readFile(File f) throws IOException {
+		ArrayList<String> lines = new ArrayList<String>();
+		BufferedReader r = new BufferedReader(new FileReader(f));
+		String s;
+		while ((s = r.readLine()) != null) {
+			lines.add(s);
+		}
+		r.close();
+		return lines;
+	}
+
+	private static LayoutDetail getLayout(int fileStructure) throws IOException {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(COPYBOOK), "Rec")
+					.setFont("CP1252")
+					.setFileOrganization(fileStructure)
+				.getLayout();
+	}
+
+	private static File writeFile(int fileStructure) throws IOException {
+		File f = new File(TMP_DIRECTORY + "Checkpoint.bin");
+		AbstractByteWriter w;
+		switch (fileStructure) {
+		case Constants.IO_VB_DUMP:		w = new VbDumpByteWriter(1000);								break;
+		case Constants.IO_MICROFOCUS:	w = new MicroFocusByteWriter();								break;
+		case Constants.IO_FIXED_LENGTH:	w = new FixedLengthByteWriter(68);							break;
+		default:						w = ByteIOProvider.getInstance().getByteWriter(fileStructure, "CP1252");
+		}
+		w.open(new FileOutputStream(f));
+		if (w instanceof MicroFocusByteWriter) {
+			((MicroFocusByteWriter) w).writeHeader(
+					new MicroFocusFileHeader(MicroFocusFileHeader.FORMAT_SEQUENTIAL, 8, 68));
+		}
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			StringBuilder b = new StringBuilder(68).append(String.format("%08d", i * 2));
+			int len = fileStructure == Constants.IO_FIXED_LENGTH ? 60 : i % 57 + 2;
+			for (int j = 0; j < len; j++) {
+				b.append((char) ('a' + (i + j) % 26));
+			}
+			w.write(b.toString().getBytes("CP1252"));
+		}
+		w.close();
+		return f;
+	}
+}
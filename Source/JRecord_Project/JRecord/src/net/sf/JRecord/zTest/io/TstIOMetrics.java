@@ -0,0 +1,225 @@
+package net.sf.JRecord.zTest.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.ByteIO.AbstractByteReader;
+import net.sf.JRecord.ByteIO.ByteIOProvider;
+import net.sf.JRecord.ByteIO.FixedLengthByteWriter;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Common.IOMetrics;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.External.CopybookLoader;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+
+/**
+ * Testing the Reader / Writer metrics
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstIOMetrics extends TestCase {
+
+	private static final int RECORD_COUNT = 500;
+	private static final int RECORD_LENGTH = 16;
+	private static final String COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Key        pic 9(8).\n"
+			+ "            03 Amount     pic s9(7)v99 comp-3.\n"
+			+ "            03 Filler     pic x(3).\n";
+	private static final String MULTI_RECORD_COPYBOOK
+			= "        01  Header.\n"
+			+ "            03 Rec-Type   pic x.\n"
+			+ "            03 Run-Date   pic 9(8).\n"
+			+ "        01  Detail.\n"
+			+ "            03 Rec-Type   pic x.\n"
+			+ "            03 Key        pic 9(8).\n"
+			+ "            03 Amount     pic s9(7)v99 comp-3.\n";
+
+	public void testReadWrite() throws IOException {
+		IOMetrics metrics = new IOMetrics("TstReadWrite");
+		ICobolIOBuilder iob = newIOBuilder(COPYBOOK, Constants.IO_FIXED_LENGTH).setMetrics(metrics);
+
+		byte[] data = writeFile(iob);
+		IOMetrics.Snapshot s = metrics.getSnapshot();
+		assertEquals(RECORD_COUNT, s.getRecordsWritten());
+		assertEquals(RECORD_COUNT * RECORD_LENGTH, s.getBytesWritten());
+		assertEquals(RECORD_COUNT * RECORD_LENGTH, data.length);
+
+		AbstractLineReader r = iob.newReader(new ByteArrayInputStream(data));
+		while (r.read() != null) {
+		}
+		r.close();
+
+		s = metrics.getSnapshot();
+		assertEquals(RECORD_COUNT, s.getRecordsRead());
+		assertEquals(RECORD_COUNT * RECORD_LENGTH, s.getBytesRead());
+		assertEquals(0, s.getRecordTypeUndetermined());
+		assertEquals(0, s.getInvalidNumericFields());
+		assertEquals(Long.valueOf(2 * RECORD_COUNT), s.getRecordTypeCounts().get("Rec"));
+		assertTrue(s.getDecodeNanos() > 0);
+
+		metrics.reset();
+		assertEquals(0, metrics.getSnapshot().getRecordsRead());
+		assertEquals(0, metrics.getSnapshot().getRecordTypeCounts().size());
+	}
+
+	public void testInvalidNumeric() throws IOException {
+		IOMetrics metrics = new IOMetrics("TstInvalidNumeric");
+		ICobolIOBuilder iob = newIOBuilder(COPYBOOK, Constants.IO_FIXED_LENGTH);
+		byte[] data = writeFile(iob);
+
+		for (int i = 1; i < RECORD_COUNT; i += 5) {
+			data[i * RECORD_LENGTH + 2] = 'x';
+			data[i * RECORD_LENGTH + 10] = (byte) 0xAB;
+		}
+
+		metrics.setCheckNumericFields(true);
+		AbstractLineReader r = iob.setMetrics(metrics).newReader(new ByteArrayInputStream(data));
+		while (r.read() != null) {
+		}
+		r.close();
+
+		assertEquals(RECORD_COUNT, metrics.getRecordsRead());
+		assertEquals(2 * (RECORD_COUNT / 5), metrics.getInvalidNumericFields());
+	}
+
+	public void testRecordTypes() throws IOException {
+		IOMetrics metrics = new IOMetrics("TstRecordTypes");
+		ICobolIOBuilder iob = newIOBuilder(MULTI_RECORD_COPYBOOK, Constants.IO_VB)
+				.setSplitCopybook(CopybookLoader.SPLIT_01_LEVEL);
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		AbstractLineWriter w = iob.newWriter(os);
+		byte[][] recs = {new byte[9], new byte[14], new byte[14], new byte[3]};
+		for (byte[] rec : recs) {
+			w.write(iob.newLine(rec));
+		}
+		w.close();
+
+		AbstractLineReader r = iob.setMetrics(metrics).newReader(new ByteArrayInputStream(os.toByteArray()));
+		while (r.read() != null) {
+		}
+		r.close();
+
+		Map<String, Long> counts = metrics.getRecordTypeCounts();
+		assertEquals(4, metrics.getRecordsRead());
+		assertEquals(Long.valueOf(1), counts.get("Header"));
+		assertEquals(Long.valueOf(2), counts.get("Detail"));
+		assertEquals(1, metrics.getRecordTypeUndetermined());
+	}
+
+	public void testByteReaderWriter() throws IOException {
+		IOMetrics metrics = new IOMetrics("TstByteReaderWriter");
+		byte[] rec = new byte[RECORD_LENGTH];
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+		FixedLengthByteWriter w = new FixedLengthByteWriter(RECORD_LENGTH);
+		w.setMetrics(metrics);
+		w.open(metrics.wrap(os));
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			w.write(rec);
+		}
+		w.close();
+
+		AbstractByteReader r = ByteIOProvider.getInstance().getByteReader(Constants.IO_FIXED_LENGTH);
+		r.setMetrics(metrics);
+		r.setLineLength(RECORD_LENGTH);
+		r.open(metrics.wrap(new ByteArrayInputStream(os.toByteArray())));
+		while (r.read() != null) {
+		}
+		r.close();
+
+		IOMetrics.Snapshot s = metrics.getSnapshot();
+		assertEquals(RECORD_COUNT, s.getRecordsWritten());
+		assertEquals(RECORD_COUNT * RECORD_LENGTH, s.getBytesWritten());
+		assertEquals(RECORD_COUNT, s.getRecordsRead());
+		assertEquals(RECORD_COUNT * RECORD_LENGTH, s.getBytesRead());
+	}
+
+	/**
+	 * Counters updated on other threads are seen (and reset) by the thread taking the snapshot
+	 */
+	public void testOtherThreads() throws InterruptedException {
+		final IOMetrics metrics = new IOMetrics("TstThreads");
+		final int count = 20000;
+		Thread[] threads = new Thread[3];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override public void run() {
+					IOMetrics.Counters c = metrics.counters();
+					for (int i = 0; i < count; i++) {
+						c.recordRead();
+						c.addBytesRead(10);
+						c.recordType(i % 3, "Rec" + (i % 3));
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int i = 0; i < 20; i++) {
+			long read = metrics.getRecordsRead();
+			assertTrue(read >= 0 && read <= threads.length * count);
+			metrics.reset();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		IOMetrics.Snapshot s = metrics.getSnapshot();
+		assertTrue(s.getRecordsRead() <= threads.length * count);
+		assertTrue(s.getBytesRead() <= threads.length * count * 10);
+
+		metrics.reset();
+		s = metrics.getSnapshot();
+		assertEquals(0, s.getRecordsRead());
+		assertEquals(0, s.getBytesRead());
+		assertEquals(0, s.getRecordTypeCounts().size());
+
+		metrics.counters().recordRead();
+		assertEquals(1, metrics.getRecordsRead());
+	}
+
+	public void testJmx() throws Exception {
+		IOMetrics metrics = new IOMetrics("TstJmx");
+		ObjectName name = metrics.register();
+		try {
+			writeFile(newIOBuilder(COPYBOOK, Constants.IO_FIXED_LENGTH).setMetrics(metrics));
+
+			assertEquals(Long.valueOf(RECORD_COUNT),
+					ManagementFactory.getPlatformMBeanServer().getAttribute(name, "RecordsWritten"));
+		} finally {
+			metrics.unregister();
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+	}
+
+	private static byte[] writeFile(ICobolIOBuilder iob) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		AbstractLineWriter w = iob.newWriter(os);
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			AbstractLine l = iob.newLine();
+			l.getFieldValue("Key").set(i);
+			l.getFieldValue("Amount").set(i * 3);
+			w.write(l);
+		}
+		w.close();
+		return os.toByteArray();
+	}
+
+	private static ICobolIOBuilder newIOBuilder(String copybook, int fileOrganization) {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(copybook), "Rec")
+					.setFont("cp1252")
+					.setFileOrganization(fileOrganization);
+	}
+}
@@ -0,0 +1,314 @@
+package net.sf.JRecord.zTest.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.ByteIO.AbstractByteWriter;
+import net.sf.JRecord.ByteIO.ByteIOProvider;
+import net.sf.JRecord.ByteIO.FixedLengthByteWriter;
+import net.sf.JRecord.ByteIO.VbDumpByteWriter;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.LineStream;
+import net.sf.JRecord.IO.SparseRecordIndex;
+import net.sf.JRecord.cgen.def.IReader;
+import net.sf.JRecord.cgen.impl.ReaderIterable;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+import net.sf.JRecord.zTest.Common.TstConstants;
+
+/**
+ * Testing splitting / parallel processing of a LineStream
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstLineStream extends TestCase {
+
+	private static final String TMP_DIRECTORY = TstConstants.TEMP_DIRECTORY;
+	private static final int RECORD_COUNT = 3000;
+	private static final String COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Key        pic 9(8).\n"
+			+ "            03 Data       pic x(100).\n";
+
+	private static final int[] FILE_STRUCTURES = {
+		Constants.IO_FIXED_LENGTH, Constants.IO_BIN_TEXT, Constants.IO_STANDARD_TEXT_FILE, Constants.IO_VB_DUMP,
+	};
+
+	public void testSplit() throws IOException {
+		for (int fileStructure : FILE_STRUCTURES) {
+			File f = writeFile(fileStructure);
+			try {
+				String id = "File Structure: " + fileStructure;
+				for (int count = 1; count <= 7; count += 3) {
+					List<LineStream> sections = getIOBuilder(fileStructure).stream(f.getPath()).split(count);
+
+					assertEquals(id, count, sections.size());
+					checkSections(id, sections);
+				}
+
+				LineStream s = getIOBuilder(fileStructure).stream(f.getPath());
+				LineStream tail = s.trySplit();
+				assertNotNull(id, tail);
+				ArrayList<LineStream> sections = new ArrayList<LineStream>();
+				sections.add(s);
+				sections.add(tail);
+				checkSections(id, sections);
+			} finally {
+				f.delete();
+			}
+		}
+	}
+
+	/**
+	 * EBCDIC text files must be split at the EBCDIC end-of-line, not x'0A'
+	 * (which is a valid character in the data)
+	 */
+	public void testSplitEbcdic() throws IOException {
+		for (int fileStructure : new int[] {Constants.IO_BIN_TEXT, Constants.IO_STANDARD_TEXT_FILE}) {
+			File f = writeFile(fileStructure, "cp037");
+			try {
+				String id = "File Structure: " + fileStructure;
+				for (int count = 2; count <= 8; count += 3) {
+					List<LineStream> sections = getIOBuilder(fileStructure, "cp037").stream(f.getPath()).split(count);
+
+					assertEquals(id, count, sections.size());
+					checkSections(id, sections);
+				}
+			} finally {
+				f.delete();
+			}
+		}
+	}
+
+	public void testProcessParallel() throws IOException {
+		for (int fileStructure : FILE_STRUCTURES) {
+			File f = writeFile(fileStructure);
+			try {
+				List<long[]> results = getIOBuilder(fileStructure).stream(f.getPath())
+						.processParallel(4, new LineStream.IPartitionProcessor<long[]>() {
+							@Override public long[] process(LineStream section) {
+								long[] ret = {0, -1, -1};
+								for (AbstractLine l : section) {
+									long key = l.getFieldValue("Key").asLong();
+									if (ret[1] < 0) {
+										ret[1] = key;
+									}
+									ret[0] += 1;
+									ret[2] = key;
+								}
+								return ret;
+							}
+						});
+
+				String id = "File Structure: " + fileStructure;
+				long total = 0, lastKey = -2;
+				for (long[] r : results) {
+					assertTrue(id, r[0] > 0);
+					assertEquals(id, lastKey + 2, r[1]);
+					total += r[0];
+					lastKey = r[2];
+				}
+				assertEquals(id, 4, results.size());
+				assertEquals(id, RECORD_COUNT, total);
+			} finally {
+				f.delete();
+			}
+		}
+	}
+
+	public void testStream() throws IOException {
+		for (int fileStructure : FILE_STRUCTURES) {
+			File f = writeFile(fileStructure);
+			try {
+				String id = "File Structure: " + fileStructure;
+				checkStream(id, getIOBuilder(fileStructure).stream(f.getPath()).stream());
+				checkStream(id, getIOBuilder(fileStructure).stream(f.getPath()).parallelStream());
+				checkStream(id, getIOBuilder(fileStructure).lines(f.getPath()));
+				checkStream(id, getIOBuilder(fileStructure).lines(f.getPath()).parallel());
+
+				Stream<AbstractLine> lines = getIOBuilder(fileStructure).stream(f.getPath()).parallelStream();
+				try {
+					long count = lines.filter(new Predicate<AbstractLine>() {
+						@Override public boolean test(AbstractLine l) {
+							return l.getFieldValue("Key").asLong() % 4 == 0;
+						}
+					}).count();
+					assertEquals(id, RECORD_COUNT / 2, count);
+				} finally {
+					lines.close();
+				}
+			} finally {
+				f.delete();
+			}
+		}
+	}
+
+	/**
+	 * Check a (possibly parallel) Stream holds all the records in sequence
+	 */
+	private static void checkStream(final String id, Stream<AbstractLine> lines) {
+		final long[] expected = {0};
+		try {
+			lines.forEachOrdered(new Consumer<AbstractLine>() {
+				@Override public void accept(AbstractLine l) {
+					assertEquals(id, expected[0], l.getFieldValue("Key").asLong() / 2);
+					expected[0] += 1;
+				}
+			});
+		} finally {
+			lines.close();
+		}
+		assertEquals(id, RECORD_COUNT, expected[0]);
+	}
+
+	public void testIndexSplit() throws IOException {
+		File f = writeFile(Constants.IO_VB);
+		try {
+			ICobolIOBuilder iob = getIOBuilder(Constants.IO_VB);
+			SparseRecordIndex idx = SparseRecordIndex.build(iob.getLayout(), f.getPath(), 100, "Key");
+			List<LineStream> sections = LineStream.newStream(iob.getLayout(), f.getPath(), idx).split(5);
+
+			assertEquals(5, sections.size());
+			checkSections("Index", sections);
+			checkStream("Index Stream", LineStream.newStream(iob.getLayout(), f.getPath(), idx).parallelStream());
+
+			assertFalse(iob.stream(f.getPath()).isSplittable());
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testNotSplittable() throws IOException {
+		byte[] data = "00000000aa\n00000002bb\n".getBytes("CP1252");
+		LineStream s = getIOBuilder(Constants.IO_BIN_TEXT).stream(new ByteArrayInputStream(data));
+
+		assertFalse(s.isSplittable());
+		assertNull(s.trySplit());
+		assertEquals(1, s.split(3).size());
+
+		Iterator<AbstractLine> it = s.iterator();
+		assertEquals(0, it.next().getFieldValue("Key").asLong());
+		s.close();
+		assertFalse(it.hasNext());
+		try {
+			s.iterator();
+			fail("Expected an IllegalStateException");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	public void testReaderIterable() throws IOException {
+		final String[] values = {"a", "b", "c"};
+		final boolean[] closed = {false};
+		ReaderIterable<String> it = new ReaderIterable<String>(new IReader<String>() {
+			int i = 0;
+			@Override public String read() {
+				return i < values.length ? values[i++] : null;
+			}
+			@Override public void close() {
+				closed[0] = true;
+			}
+		});
+
+		int count = 0;
+		for (String s : it) {
+			assertEquals(values[count++], s);
+		}
+		assertEquals(values.length, count);
+		assertTrue(closed[0]);
+	}
+
+	public void testReaderStream() {
+		final String[] values = {"a", "b", "c"};
+		final boolean[] closed = {false};
+		Stream<String> s = new IReader<String>() {
+			int i = 0;
+			@Override public String read() {
+				return i < values.length ? values[i++] : null;
+			}
+			@Override public void close() {
+				closed[0] = true;
+			}
+		}.stream();
+
+		assertEquals(Arrays.asList(values), s.collect(Collectors.<String>toList()));
+		assertFalse(closed[0]);
+		s.close();
+		assertTrue(closed[0]);
+	}
+
+	/**
+	 * Check the sections hold all the records (in sequence)
+	 */
+	private static void checkSections(String id, List<LineStream> sections) throws IOException {
+		long expected = 0;
+		for (LineStream s : sections) {
+			long start = expected;
+			for (AbstractLine l : s) {
+				assertEquals(id, expected, l.getFieldValue("Key").asLong() / 2);
+				expected += 1;
+			}
+			assertTrue(id, sections.size() == 1 || expected > start);
+			s.close();
+		}
+		assertEquals(id, RECORD_COUNT, expected);
+	}
+
+	private static ICobolIOBuilder getIOBuilder(int fileStructure) {
+		return getIOBuilder(fileStructure, "CP1252");
+	}
+
+	private static ICobolIOBuilder getIOBuilder(int fileStructure, String font) {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(COPYBOOK), "Rec")
+					.setFont(font)
+					.setFileOrganization(fileStructure);
+	}
+
+	private static File writeFile(int fileStructure) throws IOException {
+		return writeFile(fileStructure, "CP1252");
+	}
+
+	/**
+	 * Write a test file; for EBCDIC files the data contains x'0A' (\u008E) characters
+	 */
+	private static File writeFile(int fileStructure, String font) throws IOException {
+		File f = new File(TMP_DIRECTORY + "LineStream.bin");
+		AbstractByteWriter w;
+		switch (fileStructure) {
+		case Constants.IO_VB_DUMP:		w = new VbDumpByteWriter(1000);								break;
+		case Constants.IO_FIXED_LENGTH:	w = new FixedLengthByteWriter(108);							break;
+		case Constants.IO_STANDARD_TEXT_FILE:
+										w = ByteIOProvider.getInstance().getByteWriter(Constants.IO_BIN_TEXT, font);
+										break;
+		default:						w = ByteIOProvider.getInstance().getByteWriter(fileStructure, font);
+		}
+		w.open(new FileOutputStream(f));
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			StringBuilder b = new StringBuilder(108).append(String.format("%08d", i * 2));
+			for (int j = 0; j < (fileStructure == Constants.IO_FIXED_LENGTH ? 100 : i % 97 + 2); j++) {
+				b.append((char) ('a' + (i + j) % 26));
+			}
+			if (! "CP1252".equals(font)) {
+				b.append('\u008E');
+			}
+			w.write(b.toString().getBytes(font));
+		}
+		w.close();
+		return f;
+	}
+}
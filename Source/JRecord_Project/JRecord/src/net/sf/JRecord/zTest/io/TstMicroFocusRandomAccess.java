@@ -0,0 +1,235 @@
+package net.sf.JRecord.zTest.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.ByteIO.MicroFocusByteReader;
+import net.sf.JRecord.ByteIO.MicroFocusByteWriter;
+import net.sf.JRecord.ByteIO.MicroFocusFileHeader;
+import net.sf.JRecord.ByteIO.MicroFocusRecordFile;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.MicroFocusRandomAccessReader;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+import net.sf.JRecord.zTest.Common.TstConstants;
+
+/**
+ * Testing Random access reading of Micro Focus Indexed / Relative files
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstMicroFocusRandomAccess extends TestCase {
+
+	private static final String TMP_DIRECTORY = TstConstants.TEMP_DIRECTORY;
+	private static final int RECORD_COUNT = 1000;
+	private static final int MAX_LENGTH = 33;
+	private static final String COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Key        pic x(8).\n"
+			+ "            03 Amount     pic s9(7)v99 comp-3.\n"
+			+ "            03 Descr      pic x(20).\n";
+
+	private ICobolIOBuilder iob = JRecordInterface1.COBOL
+			.newIOBuilder(new StringReader(COPYBOOK), "Rec")
+				.setFont("cp037")
+				.setFileOrganization(Constants.IO_MICROFOCUS);
+
+	public void testIndexed() throws IOException {
+		File f = writeIndexedFile();
+		try {
+			final long deleted = deleteRecord(f, 500);
+
+			final MicroFocusRecordFile mf = new MicroFocusRecordFile(f.getPath());
+			final List<Long> offsets = new ArrayList<Long>();
+			final boolean[] found = new boolean[RECORD_COUNT];
+			long count = mf.scan(new MicroFocusRecordFile.IRecordConsumer() {
+				@Override public void record(long offset, byte[] rec) throws IOException {
+					offsets.add(offset);
+					found[iob.newLine(rec).getFieldValue("Amount").asInt()] = true;
+				}
+			});
+			assertEquals(RECORD_COUNT - 1, count);
+			for (int i = 0; i < RECORD_COUNT; i++) {
+				assertEquals(i != deleted, found[i]);
+			}
+
+			for (int i = offsets.size() - 1; i >= 0; i -= 3) {
+				AbstractLine l = iob.newLine(mf.readAt(offsets.get(i)));
+				check(l, l.getFieldValue("Amount").asInt());
+			}
+			mf.close();
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testRelative() throws IOException {
+		File f = new File(TMP_DIRECTORY + "MicroFocus.rel");
+		try {
+			byte[] data = relativeFile();
+			FileOutputStream os = new FileOutputStream(f);
+			os.write(data);
+			os.close();
+
+			MicroFocusRandomAccessReader r = new MicroFocusRandomAccessReader(iob.getLayout(), f.getPath());
+			assertEquals(RECORD_COUNT, r.getRecordCount());
+			for (int i = RECORD_COUNT; i > 0; i -= 3) {
+				AbstractLine l = r.get(i);
+				if (i % 7 == 0) {
+					assertNull(l);
+				} else {
+					check(l, i);
+				}
+			}
+
+			List<AbstractLine> lines = r.getRange(1, 20);
+			assertEquals(18, lines.size());
+			assertEquals(RECORD_COUNT - RECORD_COUNT / 7, r.getRange(1, RECORD_COUNT + 5).size());
+
+			try {
+				r.get(RECORD_COUNT + 1);
+				fail("Expected an IndexOutOfBoundsException");
+			} catch (IndexOutOfBoundsException e) {
+			}
+
+			MicroFocusByteReader reader = new MicroFocusByteReader();
+			reader.open(new ByteArrayInputStream(data));
+			int i = 1;
+			byte[] rec;
+			while ((rec = reader.read()) != null) {
+				if (i % 7 == 0) {
+					i += 1;
+				}
+				check(iob.newLine(rec), i++);
+			}
+			reader.close();
+			r.close();
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testNotRelative() throws IOException {
+		File f = writeIndexedFile();
+		try {
+			MicroFocusRandomAccessReader r = new MicroFocusRandomAccessReader(iob.getLayout(), f.getPath());
+			try {
+				r.get(1);
+				fail("Expected a RecordException");
+			} catch (RecordException e) {
+			}
+			r.close();
+		} finally {
+			f.delete();
+		}
+	}
+
+	private static void check(AbstractLine l, int i) {
+		assertEquals(key(i), l.getFieldValue("Key").asString());
+		assertEquals(i, l.getFieldValue("Amount").asInt());
+		assertEquals(i % 3 == 0 ? "" : "Descr " + i, l.getFieldValue("Descr").asString());
+	}
+
+	private static String key(int i) {
+		return "k" + (10000 + i);
+	}
+
+	/**
+	 * Write an indexed data file with the records in random sequence,
+	 * every 3rd record is short (the Descr field is omitted)
+	 */
+	private File writeIndexedFile() throws IOException {
+		List<Integer> order = new ArrayList<Integer>(RECORD_COUNT);
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			order.add(i);
+		}
+		Collections.shuffle(order, new Random(7));
+
+		File f = new File(TMP_DIRECTORY + "MicroFocus.dat");
+		MicroFocusByteWriter w = new MicroFocusByteWriter();
+		w.open(new FileOutputStream(f));
+		w.writeHeader(new MicroFocusFileHeader(MicroFocusFileHeader.FORMAT_INDEXED, 13, MAX_LENGTH));
+		for (int i : order) {
+			w.write(record(i));
+		}
+		w.close();
+		return f;
+	}
+
+	/**
+	 * Mark a record as deleted
+	 * @return the (original) record number of the deleted record
+	 */
+	private long deleteRecord(File f, final int recordNumber) throws IOException {
+		final long[] offset = {0};
+		final List<byte[]> recs = new ArrayList<byte[]>();
+		MicroFocusRecordFile mf = new MicroFocusRecordFile(f.getPath());
+		mf.scan(new MicroFocusRecordFile.IRecordConsumer() {
+			@Override public void record(long off, byte[] rec) {
+				if (recs.size() == recordNumber) {
+					offset[0] = off;
+				}
+				recs.add(rec);
+			}
+		});
+		mf.close();
+
+		RandomAccessFile raf = new RandomAccessFile(f, "rw");
+		raf.seek(offset[0]);
+		int b = raf.read();
+		raf.seek(offset[0]);
+		raf.write((b & 0x0F) | 0x20);
+		raf.close();
+		return iob.newLine(recs.get(recordNumber)).getFieldValue("Amount").asInt();
+	}
+
+	/**
+	 * Create a relative file, every 7th slot is empty
+	 */
+	private byte[] relativeFile() throws IOException {
+		int slot = 2 + MAX_LENGTH + 2;
+		byte[] header = new MicroFocusFileHeader(MicroFocusFileHeader.FORMAT_RELATIVE, 13, MAX_LENGTH).getHeaderRec();
+		byte[] data = new byte[header.length + RECORD_COUNT * slot];
+		System.arraycopy(header, 0, data, 0, header.length);
+
+		for (int i = 1; i <= RECORD_COUNT; i++) {
+			int pos = header.length + (i - 1) * slot;
+			if (i % 7 == 0) {
+				data[pos + slot - 2] = 13;
+				data[pos + slot - 1] = 10;
+			} else {
+				byte[] rec = record(i);
+				data[pos] = 0x40;
+				data[pos + 1] = (byte) rec.length;
+				System.arraycopy(rec, 0, data, pos + 2, rec.length);
+				data[pos + slot - 1] = 10;
+			}
+		}
+		return data;
+	}
+
+	private byte[] record(int i) throws IOException {
+		AbstractLine l = iob.newLine();
+		l.getFieldValue("Key").set(key(i));
+		l.getFieldValue("Amount").set(i);
+		if (i % 3 == 0) {
+			byte[] rec = new byte[13];
+			System.arraycopy(l.getData(), 0, rec, 0, rec.length);
+			return rec;
+		}
+		l.getFieldValue("Descr").set("Descr " + i);
+		return l.getData();
+	}
+}
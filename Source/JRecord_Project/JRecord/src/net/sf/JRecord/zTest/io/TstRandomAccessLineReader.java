@@ -0,0 +1,137 @@
+package net.sf.JRecord.zTest.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.IO.RandomAccessLineReader;
+import net.sf.JRecord.IO.RandomAccessLineWriter;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+import net.sf.JRecord.zTest.Common.TstConstants;
+
+/**
+ * Testing Random access reading / updating of Fixed-Length files
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstRandomAccessLineReader extends TestCase {
+
+	private static final String TMP_DIRECTORY = TstConstants.TEMP_DIRECTORY;
+	private static final int RECORD_COUNT = 1000;
+	private static final String COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Key        pic x(8).\n"
+			+ "            03 Amount     pic s9(7)v99 comp-3.\n";
+
+	private ICobolIOBuilder iob = JRecordInterface1.COBOL
+			.newIOBuilder(new StringReader(COPYBOOK), "Rec")
+				.setFont("cp037")
+				.setFileOrganization(Constants.IO_FIXED_LENGTH);
+
+	public void testGet() throws IOException {
+		File f = writeFile();
+		try {
+			int[][] cacheSizes = {{65536, 64}, {13, 1}, {130, 2}, {1000, 3}};
+			for (int[] c : cacheSizes) {
+				RandomAccessLineReader r = new RandomAccessLineReader(iob.getLayout(), f.getPath(), c[0], c[1]);
+				assertEquals(RECORD_COUNT, r.getRecordCount());
+
+				for (int i = RECORD_COUNT - 1; i >= 0; i -= 7) {
+					check(r.get(i), i, i);
+				}
+				for (int i = 0; i < RECORD_COUNT; i += 3) {
+					check(r.get(i), i, i);
+				}
+				r.close();
+			}
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testGetRange() throws IOException {
+		File f = writeFile();
+		try {
+			RandomAccessLineReader r = new RandomAccessLineReader(iob.getLayout(), f.getPath(), 100, 2);
+			List<AbstractLine> lines = r.getRange(495, 20);
+			assertEquals(20, lines.size());
+			for (int i = 0; i < lines.size(); i++) {
+				check(lines.get(i), 495 + i, 495 + i);
+			}
+
+			assertEquals(5, r.getRange(RECORD_COUNT - 5, 20).size());
+			assertEquals(0, r.getRange(RECORD_COUNT, 20).size());
+
+			try {
+				r.get(RECORD_COUNT);
+				fail("Expected an IndexOutOfBoundsException");
+			} catch (IndexOutOfBoundsException e) {
+			}
+			r.close();
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testUpdate() throws IOException {
+		File f = writeFile();
+		try {
+			RandomAccessLineWriter w = new RandomAccessLineWriter(iob.getLayout(), f.getPath(), 130, 2);
+			for (int i = 0; i < RECORD_COUNT; i += 11) {
+				AbstractLine l = w.get(i);
+				l.getFieldValue("Amount").set(-i);
+				w.put(i, l);
+				check(w.get(i), i, -i);
+			}
+			AbstractLine l = iob.newLine();
+			l.getFieldValue("Key").set("k" + RECORD_COUNT);
+			l.getFieldValue("Amount").set(RECORD_COUNT);
+			assertEquals(RECORD_COUNT, w.append(l));
+			w.flush();
+			w.close();
+
+			RandomAccessLineReader r = new RandomAccessLineReader(iob.getLayout(), f.getPath());
+			assertEquals(RECORD_COUNT + 1, r.getRecordCount());
+			for (int i = 0; i <= RECORD_COUNT; i++) {
+				check(r.get(i), i, i % 11 == 0 && i < RECORD_COUNT ? -i : i);
+			}
+			r.close();
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testInvalidFileStructure() throws IOException {
+		try {
+			new RandomAccessLineReader(iob.setFileOrganization(Constants.IO_VB).getLayout(), "xx");
+			fail("Expected a RecordException");
+		} catch (RecordException e) {
+		}
+	}
+
+	private static void check(AbstractLine l, int recordNo, int amount) {
+		assertEquals("k" + recordNo, l.getFieldValue("Key").asString());
+		assertEquals(amount, l.getFieldValue("Amount").asInt());
+	}
+
+	private File writeFile() throws IOException {
+		File f = new File(TMP_DIRECTORY + "RandomAccess.bin");
+		AbstractLineWriter w = iob.newWriter(f.getPath());
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			AbstractLine l = iob.newLine();
+			l.getFieldValue("Key").set("k" + i);
+			l.getFieldValue("Amount").set(i);
+			w.write(l);
+		}
+		w.close();
+		return f;
+	}
+}
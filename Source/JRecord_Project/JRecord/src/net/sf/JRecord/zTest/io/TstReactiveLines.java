@@ -0,0 +1,279 @@
+package net.sf.JRecord.zTest.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.ByteIO.VbRecordFramer;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.IO.reactive.ChunkedLinePublisher;
+import net.sf.JRecord.IO.reactive.ISubscriber;
+import net.sf.JRecord.IO.reactive.ISubscription;
+import net.sf.JRecord.IO.reactive.LinePublisher;
+import net.sf.JRecord.IO.reactive.LineSubscriber;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+
+/**
+ * Testing the Reactive-Streams style Line publishers / subscriber
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstReactiveLines extends TestCase {
+
+	private static final int RECORD_COUNT = 2000;
+	private static final String COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Key        pic 9(8).\n"
+			+ "            03 Data       pic x(30).\n";
+
+	public void testCopy() throws IOException, InterruptedException {
+		byte[] data = writeData(Constants.IO_FIXED_LENGTH);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (ExecutorService e : new ExecutorService[] {null, executor}) {
+				ICobolIOBuilder iob = getIOBuilder(Constants.IO_FIXED_LENGTH);
+				ByteArrayOutputStream os = new ByteArrayOutputStream();
+				LineSubscriber subscriber = new LineSubscriber(iob.newWriter(os), 64);
+
+				new LinePublisher(iob.newReader(new ByteArrayInputStream(data)), e, 100)
+						.subscribe(subscriber);
+				assertTrue(subscriber.await(30, TimeUnit.SECONDS));
+				assertEquals(RECORD_COUNT, subscriber.getCount());
+				assertTrue(Arrays.equals(data, os.toByteArray()));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testDemand() throws IOException {
+		ICobolIOBuilder iob = getIOBuilder(Constants.IO_FIXED_LENGTH);
+		CountingReader reader = new CountingReader(iob.newReader(new ByteArrayInputStream(writeData(Constants.IO_FIXED_LENGTH))));
+		Collector c = new Collector();
+
+		new LinePublisher(reader).subscribe(c);
+		assertEquals(0, reader.reads);
+		c.subscription.request(3);
+		assertEquals(3, c.lines.size());
+		assertEquals(3, reader.reads);
+		c.subscription.request(5);
+		assertEquals(8, c.lines.size());
+		for (int i = 0; i < c.lines.size(); i++) {
+			assertEquals(i, c.lines.get(i).getFieldValue("Key").asInt());
+		}
+
+		c.subscription.cancel();
+		assertTrue(reader.closed);
+		c.subscription.request(5);
+		assertEquals(8, c.lines.size());
+		assertFalse(c.completed);
+
+		Collector c2 = new Collector();
+		new LinePublisher(iob.newReader(new ByteArrayInputStream(new byte[0]))).subscribe(c2);
+		c2.subscription.request(Long.MAX_VALUE);
+		assertTrue(c2.completed);
+
+		Collector c3 = new Collector();
+		new LinePublisher(iob.newReader(new ByteArrayInputStream(new byte[0]))).subscribe(c3);
+		c3.subscription.request(0);
+		assertTrue(c3.error instanceof IllegalArgumentException);
+	}
+
+	public void testChunked() throws IOException {
+		byte[] data = writeData(Constants.IO_VB);
+		ICobolIOBuilder iob = getIOBuilder(Constants.IO_VB);
+		final AtomicInteger resumed = new AtomicInteger();
+		Collector c = new Collector();
+		ChunkedLinePublisher publisher = new ChunkedLinePublisher(
+				iob.getLayout(), new VbRecordFramer(), 100, new Runnable() {
+					@Override public void run() {
+						resumed.incrementAndGet();
+					}
+				});
+		publisher.subscribe(c);
+
+		int pos = 0;
+		boolean paused = false;
+		while (pos < data.length) {
+			int len = Math.min(data.length - pos, 97);
+			if (! publisher.feed(ByteBuffer.wrap(data, pos, len))) {
+				paused = true;
+				assertTrue(publisher.getWaitingCount() >= 100);
+				c.subscription.request(publisher.getWaitingCount());
+				assertEquals(0, publisher.getWaitingCount());
+			}
+			pos += len;
+		}
+		publisher.complete();
+		assertTrue(paused);
+		assertTrue(resumed.get() > 0);
+		assertFalse(c.completed);
+
+		c.subscription.request(Long.MAX_VALUE);
+		assertTrue(c.completed);
+		assertEquals(RECORD_COUNT, c.lines.size());
+		for (int i = 0; i < c.lines.size(); i++) {
+			assertEquals(i, c.lines.get(i).getFieldValue("Key").asInt());
+		}
+	}
+
+	public void testChunkedError() throws IOException {
+		ICobolIOBuilder iob = getIOBuilder(Constants.IO_VB);
+		Collector c = new Collector();
+		ChunkedLinePublisher publisher = new ChunkedLinePublisher(iob.getLayout(), new VbRecordFramer(), 100, null);
+		publisher.subscribe(c);
+		c.subscription.request(10);
+		publisher.feed(ByteBuffer.wrap(new byte[] {0, 5, 0, 0, 'x', 0, 5}));
+		try {
+			publisher.complete();
+			fail("Expected an IOException");
+		} catch (IOException e) {
+		}
+		assertEquals(1, c.lines.size());
+		assertTrue(c.error instanceof IOException);
+	}
+
+	/**
+	 * error should reach the subscriber straight away, even when it has not requested any lines
+	 */
+	public void testChunkedErrorNoDemand() throws IOException {
+		byte[] data = writeData(Constants.IO_VB);
+		ICobolIOBuilder iob = getIOBuilder(Constants.IO_VB);
+		Collector c = new Collector();
+		ChunkedLinePublisher publisher = new ChunkedLinePublisher(iob.getLayout(), new VbRecordFramer(), 100, null);
+		publisher.subscribe(c);
+		publisher.feed(ByteBuffer.wrap(data, 0, 200));
+		assertTrue(publisher.getWaitingCount() > 0);
+
+		IOException error = new IOException("Connection lost");
+		publisher.error(error);
+		assertSame(error, c.error);
+		assertEquals(0, c.lines.size());
+		assertEquals(0, publisher.getWaitingCount());
+
+		c.subscription.request(10);
+		assertEquals(0, c.lines.size());
+		assertFalse(c.completed);
+	}
+
+	/**
+	 * Lines delivered on an executor while the source is being paused; the source
+	 * must always be resumed (or told to continue) so it never stalls.
+	 */
+	public void testChunkedExecutor() throws IOException, InterruptedException {
+		byte[] data = writeData(Constants.IO_VB);
+		ICobolIOBuilder iob = getIOBuilder(Constants.IO_VB);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			for (int run = 0; run < 20; run++) {
+				final Semaphore resumed = new Semaphore(0);
+				Collector c = new Collector();
+				ChunkedLinePublisher publisher = new ChunkedLinePublisher(
+						iob.getLayout(), new VbRecordFramer(), 4, new Runnable() {
+							@Override public void run() {
+								resumed.release();
+							}
+						},
+						executor);
+				publisher.subscribe(c);
+				c.subscription.request(Long.MAX_VALUE);
+
+				int pos = 0;
+				while (pos < data.length) {
+					int len = Math.min(data.length - pos, 61);
+					if (! publisher.feed(ByteBuffer.wrap(data, pos, len))) {
+						assertTrue("Source was not resumed", resumed.tryAcquire(10, TimeUnit.SECONDS));
+					}
+					pos += len;
+				}
+				publisher.complete();
+
+				long end = System.currentTimeMillis() + 10000;
+				while (! c.completed && System.currentTimeMillis() < end) {
+					Thread.sleep(1);
+				}
+				assertTrue(c.completed);
+				assertEquals(RECORD_COUNT, c.lines.size());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static byte[] writeData(int fileStructure) throws IOException {
+		ICobolIOBuilder iob = getIOBuilder(fileStructure);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		AbstractLineWriter w = iob.newWriter(os);
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			AbstractLine l = iob.newLine();
+			l.getFieldValue("Key").set(i);
+			l.getFieldValue("Data").set("Data " + i);
+			w.write(l);
+		}
+		w.close();
+		return os.toByteArray();
+	}
+
+	private static ICobolIOBuilder getIOBuilder(int fileStructure) {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(COPYBOOK), "Rec")
+					.setFont("CP1252")
+					.setFileOrganization(fileStructure);
+	}
+
+	private static class Collector implements ISubscriber<AbstractLine> {
+		final List<AbstractLine> lines = new ArrayList<AbstractLine>();
+		ISubscription subscription;
+		volatile boolean completed = false;
+		Throwable error = null;
+
+		@Override public void onSubscribe(ISubscription s) {
+			subscription = s;
+		}
+		@Override public void onNext(AbstractLine item) {
+			lines.add(item);
+		}
+		@Override public void onError(Throwable t) {
+			error = t;
+		}
+		@Override public void onComplete() {
+			completed = true;
+		}
+	}
+
+	private static class CountingReader extends AbstractLineReader {
+		final AbstractLineReader reader;
+		int reads = 0;
+		boolean closed = false;
+
+		CountingReader(AbstractLineReader reader) {
+			this.reader = reader;
+		}
+		@Override public void open(java.io.InputStream inputStream, net.sf.JRecord.Details.LayoutDetail layout) {
+		}
+		@Override public AbstractLine readImplementation() throws IOException {
+			reads += 1;
+			return reader.read();
+		}
+		@Override public void close() throws IOException {
+			closed = true;
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package net.sf.JRecord.zTest.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.ByteIO.AbstractByteWriter;
+import net.sf.JRecord.ByteIO.ByteIOProvider;
+import net.sf.JRecord.ByteIO.MicroFocusByteWriter;
+import net.sf.JRecord.ByteIO.MicroFocusFileHeader;
+import net.sf.JRecord.ByteIO.VbDumpByteWriter;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.SparseRecordIndex;
+import net.sf.JRecord.IO.SparseRecordIndex.IndexEntry;
+import net.sf.JRecord.zTest.Common.TstConstants;
+
+/**
+ * Testing the Sparse (sidecar) index for Variable length files
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstSparseRecordIndex extends TestCase {
+
+	private static final String TMP_DIRECTORY = TstConstants.TEMP_DIRECTORY;
+	private static final int RECORD_COUNT = 1500;
+	private static final int INTERVAL = 100;
+	private static final String COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Key        pic 9(8).\n"
+			+ "            03 Data       pic x(100).\n";
+
+	private static final int[] FILE_STRUCTURES = {
+		Constants.IO_VB, Constants.IO_VB_DUMP, Constants.IO_VB_FUJITSU,
+		Constants.IO_BIN_TEXT, Constants.IO_MICROFOCUS,
+	};
+
+	public void testRecordNumber() throws IOException {
+		for (int fileStructure : FILE_STRUCTURES) {
+			LayoutDetail layout = getLayout(fileStructure);
+			File f = writeFile(fileStructure);
+			try {
+				SparseRecordIndex idx = SparseRecordIndex.build(layout, f.getPath(), INTERVAL, "Key");
+				String id = "File Structure: " + fileStructure;
+
+				assertEquals(id, RECORD_COUNT, idx.getRecordCount());
+				checkEntries(id, idx, fileStructure != Constants.IO_VB_DUMP);
+
+				long[] recordNumbers = {0, 1, 99, 100, 101, 777, 1400, RECORD_COUNT - 1};
+				for (long recNo : recordNumbers) {
+					AbstractLineReader r = idx.newReaderAtRecord(layout, f.getPath(), recNo);
+					for (long i = recNo; i < Math.min(RECORD_COUNT, recNo + 3); i++) {
+						assertEquals(id + " " + recNo, i * 2, r.read().getFieldValue("Key").asLong());
+					}
+					r.close();
+				}
+				AbstractLineReader r = idx.newReaderAtRecord(layout, f.getPath(), RECORD_COUNT);
+				assertNull(r.read());
+				r.close();
+			} finally {
+				f.delete();
+			}
+		}
+	}
+
+	public void testKey() throws IOException {
+		for (int fileStructure : FILE_STRUCTURES) {
+			LayoutDetail layout = getLayout(fileStructure);
+			File f = writeFile(fileStructure);
+			try {
+				SparseRecordIndex idx = SparseRecordIndex.build(layout, f.getPath(), INTERVAL, "Key");
+				String id = "File Structure: " + fileStructure;
+
+				checkKey(id, idx, layout, f, "00000000", 0);
+				checkKey(id, idx, layout, f, "00000200", 200);
+				checkKey(id, idx, layout, f, "00000777", 778);
+				checkKey(id, idx, layout, f, "00002501", 2502);
+				checkKey(id, idx, layout, f, "2990", 2990);
+
+				AbstractLineReader r = idx.newReaderAtKey(layout, f.getPath(), "00003000");
+				assertNull(r.read());
+				r.close();
+			} finally {
+				f.delete();
+			}
+		}
+	}
+
+	public void testWriteRead() throws IOException {
+		LayoutDetail layout = getLayout(Constants.IO_VB);
+		File f = writeFile(Constants.IO_VB);
+		File idxFile = new File(TMP_DIRECTORY + "SparseIdx.idx");
+		try {
+			SparseRecordIndex idx = SparseRecordIndex.build(layout, f.getPath(), INTERVAL, "Key");
+			idx.write(idxFile.getPath());
+
+			SparseRecordIndex idx2 = SparseRecordIndex.read(idxFile.getPath());
+			assertTrue(idx2.isCurrent(f.getPath()));
+			assertEquals(idx.getRecordCount(), idx2.getRecordCount());
+			assertEquals(idx.getInterval(), idx2.getInterval());
+			assertEquals("Key", idx2.getKeyFieldName());
+			assertEquals(idx.getEntries().size(), idx2.getEntries().size());
+			for (int i = 0; i < idx.getEntries().size(); i++) {
+				IndexEntry e1 = idx.getEntries().get(i);
+				IndexEntry e2 = idx2.getEntries().get(i);
+				assertEquals(e1.getRecordNumber(), e2.getRecordNumber());
+				assertEquals(e1.getByteOffset(), e2.getByteOffset());
+				assertEquals(e1.getKey(), e2.getKey());
+			}
+			checkKey("", idx2, layout, f, "00000777", 778);
+
+			FileOutputStream os = new FileOutputStream(f, true);
+			os.write(new byte[] {0, 5, 0, 0, 1});
+			os.close();
+			assertFalse(idx2.isCurrent(f.getPath()));
+		} finally {
+			f.delete();
+			idxFile.delete();
+		}
+	}
+
+	public void testSplitPoints() throws IOException {
+		for (int fileStructure : FILE_STRUCTURES) {
+			LayoutDetail layout = getLayout(fileStructure);
+			File f = writeFile(fileStructure);
+			try {
+				SparseRecordIndex idx = SparseRecordIndex.build(layout, f.getPath(), INTERVAL);
+				List<IndexEntry> splits = idx.getSplitPoints(4);
+				String id = "File Structure: " + fileStructure;
+
+				assertEquals(id, 4, splits.size());
+				assertEquals(0, splits.get(0).getRecordNumber());
+
+				long expected = 0;
+				for (int i = 0; i < splits.size(); i++) {
+					long end = i + 1 < splits.size() ? splits.get(i + 1).getRecordNumber() : Long.MAX_VALUE;
+					AbstractLineReader r = idx.newReaderAtRecord(layout, f.getPath(), splits.get(i).getRecordNumber());
+					AbstractLine l;
+					for (long recNo = splits.get(i).getRecordNumber(); recNo < end && (l = r.read()) != null; recNo++) {
+						assertEquals(id, expected * 2, l.getFieldValue("Key").asLong());
+						expected += 1;
+					}
+					r.close();
+				}
+				assertEquals(id, RECORD_COUNT, expected);
+			} finally {
+				f.delete();
+			}
+		}
+	}
+
+	private static void checkEntries(String id, SparseRecordIndex idx, boolean exact) {
+		List<IndexEntry> entries = idx.getEntries();
+		long last = -INTERVAL;
+
+		if (exact) {
+			assertEquals(id, RECORD_COUNT / INTERVAL, entries.size());
+		}
+		for (IndexEntry e : entries) {
+			assertTrue(id, e.getRecordNumber() >= last + INTERVAL);
+			if (exact) {
+				assertEquals(id, last + INTERVAL, e.getRecordNumber());
+			}
+			assertEquals(id, e.getRecordNumber() * 2, Long.parseLong(e.getKey()));
+			last = e.getRecordNumber();
+		}
+	}
+
+	private static void checkKey(String id, SparseRecordIndex idx, LayoutDetail layout, File f, String key, long expected)
+	throws IOException {
+		AbstractLineReader r = idx.newReaderAtKey(layout, f.getPath(), key);
+		assertEquals(id + " " + key, expected, r.read().getFieldValue("Key").asLong());
+		assertEquals(id + " " + key, expected + 2, r.read().getFieldValue("Key").asLong());
+		r.close();
+	}
+
+	private static LayoutDetail getLayout(int fileStructure) throws IOException {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(COPYBOOK), "Rec")
+					.setFont("CP1252")
+					.setFileOrganization(fileStructure)
+				.getLayout();
+	}
+
+	private static File writeFile(int fileStructure) throws IOException {
+		File f = new File(TMP_DIRECTORY + "SparseIdx.bin");
+		AbstractByteWriter w;
+		switch (fileStructure) {
+		case Constants.IO_VB_DUMP:		w = new VbDumpByteWriter(1000);								break;
+		case Constants.IO_MICROFOCUS:	w = new MicroFocusByteWriter();								break;
+		default:						w = ByteIOProvider.getInstance().getByteWriter(fileStructure, "CP1252");
+		}
+		w.open(new FileOutputStream(f));
+		if (w instanceof MicroFocusByteWriter) {
+			((MicroFocusByteWriter) w).writeHeader(
+					new MicroFocusFileHeader(MicroFocusFileHeader.FORMAT_SEQUENTIAL, 8, 108));
+		}
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			StringBuilder b = new StringBuilder(108).append(String.format("%08d", i * 2));
+			for (int j = 0; j < i % 97 + 2; j++) {
+				b.append((char) ('a' + (i + j) % 26));
+			}
+			w.write(b.toString().getBytes("CP1252"));
+		}
+		w.close();
+		return f;
+	}
+}
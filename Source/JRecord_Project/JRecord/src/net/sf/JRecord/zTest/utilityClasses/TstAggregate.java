@@ -0,0 +1,161 @@
+package net.sf.JRecord.zTest.utilityClasses;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.IO.SparseRecordIndex;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+import net.sf.JRecord.detailsSelection.GetValue;
+import net.sf.JRecord.utilityClasses.Aggregate;
+import net.sf.JRecord.zTest.Common.TstConstants;
+
+/**
+ * Testing the streaming group-by Aggregation
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstAggregate extends TestCase {
+
+	private static final String TMP_DIRECTORY = TstConstants.TEMP_DIRECTORY;
+	private static final int RECORD_COUNT = 5000;
+	private static final BigDecimal BIG_QTY = new BigDecimal("900000000000000000");
+	private static final String COPYBOOK
+			= "        01  Tran.\n"
+			+ "            03 Branch         pic x(3).\n"
+			+ "            03 Dept           pic 9(2).\n"
+			+ "            03 Amount         pic s9(7)v99 comp-3.\n"
+			+ "            03 Qty            pic s9(18) comp.\n"
+			+ "            03 Price          pic 9(5)v99.\n"
+			+ "            03 Name           pic x(10).\n";
+
+	private ICobolIOBuilder iob = JRecordInterface1.COBOL
+			.newIOBuilder(new StringReader(COPYBOOK), "Tran")
+				.setFont("cp037")
+				.setFileOrganization(Constants.IO_VB);
+
+	public void testAggregate() throws IOException {
+		File f = writeFile();
+		try {
+			Aggregate.Result result = newAggregate().aggregate(iob.newReader(f.getPath()));
+			check(result);
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testParallel() throws IOException {
+		File f = writeFile();
+		try {
+			SparseRecordIndex idx = SparseRecordIndex.build(iob.getLayout(), f.getPath(), 100);
+			Aggregate.Result result = newAggregate().aggregate(f.getPath(), idx, 4);
+			check(result);
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testNoKey() throws IOException {
+		File f = writeFile();
+		try {
+			Aggregate.Result result = new Aggregate(iob.getLayout())
+					.add(GetValue.GT_SUM, "Price")
+					.addCount()
+					.aggregate(iob.newReader(f.getPath()));
+			BigDecimal sum = BigDecimal.ZERO;
+			for (int i = 0; i < RECORD_COUNT; i++) {
+				sum = sum.add(price(i));
+			}
+			assertEquals(1, result.getGroupCount());
+			assertEquals(0, sum.compareTo((BigDecimal) result.getValue(0, 0)));
+			assertEquals(Long.valueOf(RECORD_COUNT), result.getValue(0, 1));
+		} finally {
+			f.delete();
+		}
+	}
+
+	private Aggregate newAggregate() throws IOException {
+		return new Aggregate(iob.getLayout(), "Branch", "Dept")
+				.add(GetValue.GT_SUM, "Amount")
+				.add(GetValue.GT_AVE, "Amount")
+				.add(GetValue.GT_MIN, "Amount")
+				.add(GetValue.GT_MAX, "Price")
+				.add(GetValue.GT_SUM, "Qty")
+				.add(GetValue.GT_MIN, "Name")
+				.add(GetValue.GT_FIRST, "Price")
+				.add(GetValue.GT_LAST, "Name")
+				.addCount();
+	}
+
+	private static void check(Aggregate.Result result) {
+		Map<String, Object[]> expected = new HashMap<String, Object[]>();
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			String key = branch(i) + "|" + dept(i);
+			Object[] e = expected.get(key);
+			if (e == null) {
+				e = new Object[] {BigDecimal.ZERO, null, amount(i), price(i), BigDecimal.ZERO, name(i), price(i), null, 0L};
+				expected.put(key, e);
+			}
+			e[0] = ((BigDecimal) e[0]).add(amount(i));
+			e[2] = ((BigDecimal) e[2]).min(amount(i));
+			e[3] = ((BigDecimal) e[3]).max(price(i));
+			e[4] = ((BigDecimal) e[4]).add(BIG_QTY);
+			e[5] = name(i).compareTo((String) e[5]) < 0 ? name(i) : e[5];
+			e[7] = name(i);
+			e[8] = ((Long) e[8]) + 1;
+		}
+
+		assertEquals(expected.size(), result.getGroupCount());
+		for (int g = 0; g < result.getGroupCount(); g++) {
+			Object[] k = result.getKey(g);
+			String key = k[0].toString().trim() + "|" + k[1];
+			Object[] e = expected.get(key);
+			assertNotNull(key, e);
+			e[1] = ((BigDecimal) e[0]).divide(BigDecimal.valueOf((Long) e[8]), 10, RoundingMode.UP);
+
+			for (int i = 0; i < e.length; i++) {
+				Object v = result.getValue(g, i);
+				if (e[i] instanceof BigDecimal) {
+					assertEquals(key + " " + i, 0, ((BigDecimal) e[i]).compareTo((BigDecimal) v));
+				} else {
+					assertEquals(key + " " + i, e[i].toString(), v.toString().trim());
+				}
+			}
+		}
+		assertTrue(Arrays.asList(result.getKey(0)).size() == 2);
+	}
+
+	private static String branch(int i) { return "B" + (i % 7); }
+	private static int dept(int i) { return (i / 3) % 11; }
+	private static BigDecimal amount(int i) { return BigDecimal.valueOf((i * 37L) % 20000 - 9000, 2); }
+	private static BigDecimal price(int i) { return BigDecimal.valueOf((i * 13L) % 100000, 2); }
+	private static String name(int i) { return "n" + ((i * 7919) % 1000); }
+
+	private File writeFile() throws IOException {
+		File f = new File(TMP_DIRECTORY + "Aggregate.bin");
+		AbstractLineWriter w = iob.newWriter(f.getPath());
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			AbstractLine l = iob.newLine();
+			l.getFieldValue("Branch").set(branch(i));
+			l.getFieldValue("Dept").set(dept(i));
+			l.getFieldValue("Amount").set(amount(i));
+			l.getFieldValue("Qty").set(BIG_QTY);
+			l.getFieldValue("Price").set(price(i));
+			l.getFieldValue("Name").set(name(i));
+			w.write(l);
+		}
+		w.close();
+		return f;
+	}
+}
@@ -0,0 +1,205 @@
+package net.sf.JRecord.zTest.utilityClasses;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+import net.sf.JRecord.utilityClasses.BatchConverter;
+import net.sf.JRecord.utilityClasses.BatchConverter.FileResult;
+import net.sf.JRecord.zTest.Common.TstConstants;
+
+/**
+ * Testing the Batch (directory) converter
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstBatchConverter extends TestCase {
+
+	private static final String TMP_DIRECTORY = TstConstants.TEMP_DIRECTORY;
+	private static final String COPYBOOK_A
+			= "        01  Rec-A.\n"
+			+ "            03 Key            pic 9(6).\n"
+			+ "            03 Name           pic x(10).\n";
+	private static final String COPYBOOK_B
+			= "        01  Rec-B.\n"
+			+ "            03 Code           pic x(3).\n"
+			+ "            03 Key            pic 9(6).\n";
+
+	private final AtomicInteger builderCount = new AtomicInteger();
+
+	public void testConvert() throws IOException {
+		for (boolean virtualThreads : new boolean[] {false, true}) {
+			File dir = newTempDir();
+			File outDir = new File(dir, "out");
+			outDir.mkdir();
+			try {
+				builderCount.set(0);
+				File cblA = write(new File(dir, "RecA.cbl"), COPYBOOK_A);
+				File cblB = write(new File(dir, "RecB.cbl"), COPYBOOK_B);
+				for (int i = 0; i < 6; i++) {
+					writeData(new File(dir, "SALES" + i + ".dat"), "", i * 100 + 10);
+				}
+				writeData(new File(dir, "ORDERS.dat"), "ORD", 25);
+				writeData(new File(dir, "OTHER.dat"), "", 5);
+				write(new File(dir, "SALES.txt"), "not converted\n");
+
+				List<FileResult> results = newConverter()
+						.addRule("SALES*", cblA.getPath())
+						.addRule("ORD*", cblB.getPath())
+						.addRule("OTHER*", new File(dir, "missing.cbl").getPath())
+						.setOutput(outDir, ".keys")
+						.setThreads(3)
+						.setUseVirtualThreads(virtualThreads)
+					.convert(dir, "*.dat");
+
+				assertEquals(8, results.size());
+				assertEquals(3, builderCount.get());
+				assertEquals("ORDERS.dat", results.get(0).getInputFile().getName());
+				assertEquals("OTHER.dat", results.get(1).getInputFile().getName());
+				assertNull(results.get(0).getError());
+				assertNotNull(results.get(1).getError());
+				checkKeys(results.get(0), 25);
+				for (int i = 0; i < 6; i++) {
+					FileResult r = results.get(i + 2);
+					assertEquals("SALES" + i + ".dat", r.getInputFile().getName());
+					assertEquals(new File(outDir, "SALES" + i + ".keys"), r.getOutputFile());
+					assertEquals(cblA.getPath(), r.getCopybook());
+					assertNull(r.getError());
+					assertEquals(r.getInputFile().length(), r.getBytesRead());
+					assertTrue(r.getNanos() > 0);
+					checkKeys(r, i * 100 + 10);
+				}
+				assertFalse(new File(outDir, "SALES.keys").exists());
+			} finally {
+				delete(dir);
+			}
+		}
+	}
+
+	/**
+	 * Each copybook (including one that fails to load) should only be loaded once
+	 * when lots of files use it at the same time
+	 */
+	public void testBuilderCreatedOnce() throws IOException {
+		File dir = newTempDir();
+		try {
+			builderCount.set(0);
+			File cblA = write(new File(dir, "RecA.cbl"), COPYBOOK_A);
+			for (int i = 0; i < 40; i++) {
+				writeData(new File(dir, (i % 2 == 0 ? "SALES" : "BAD") + i + ".dat"), "", 20);
+			}
+
+			List<FileResult> results = newConverter()
+					.addRule("SALES*", cblA.getPath())
+					.addRule("BAD*", new File(dir, "missing.cbl").getPath())
+					.setOutput(dir, ".keys")
+					.setThreads(8)
+				.convert(dir, "*.dat");
+
+			assertEquals(40, results.size());
+			assertEquals(2, builderCount.get());
+			Exception badError = null;
+			for (FileResult r : results) {
+				if (r.getInputFile().getName().startsWith("SALES")) {
+					assertNull(r.getError());
+					checkKeys(r, 20);
+				} else {
+					assertNotNull(r.getError());
+					if (badError == null) {
+						badError = r.getError();
+					}
+					assertSame(badError, r.getError());
+				}
+			}
+		} finally {
+			delete(dir);
+		}
+	}
+
+	private BatchConverter.IBuilderCreator<ICobolIOBuilder> newBuilderCreator() {
+		return new BatchConverter.IBuilderCreator<ICobolIOBuilder>() {
+			@Override public ICobolIOBuilder newBuilder(String copybook) {
+				builderCount.incrementAndGet();
+				return JRecordInterface1.COBOL
+						.newIOBuilder(copybook)
+							.setFileOrganization(Constants.IO_BIN_TEXT)
+							.setFont("CP1252");
+			}
+		};
+	}
+
+	private BatchConverter<ICobolIOBuilder> newConverter() {
+		return new BatchConverter<ICobolIOBuilder>(
+				newBuilderCreator(),
+				new BatchConverter.IConverter<ICobolIOBuilder>() {
+					@Override public void convert(ICobolIOBuilder iob, InputStream in, OutputStream out) throws IOException {
+						AbstractLineReader r = iob.newReader(in);
+						AbstractLine l;
+						while ((l = r.read()) != null) {
+							out.write((l.getFieldValue("Key").asLong() + "\n").getBytes());
+						}
+						r.close();
+					}
+				});
+	}
+
+	private static void checkKeys(FileResult r, int count) throws IOException {
+		BufferedReader in = new BufferedReader(new FileReader(r.getOutputFile()));
+		try {
+			for (int i = 0; i < count; i++) {
+				assertEquals(Integer.toString(i), in.readLine());
+			}
+			assertNull(in.readLine());
+		} finally {
+			in.close();
+		}
+		assertEquals(r.getOutputFile().length(), r.getBytesWritten());
+	}
+
+	private static void writeData(File f, String prefix, int count) throws IOException {
+		OutputStream out = new FileOutputStream(f);
+		for (int i = 0; i < count; i++) {
+			out.write(String.format("%s%06dname %-5d\n", prefix, i, i).getBytes("CP1252"));
+		}
+		out.close();
+	}
+
+	private static File write(File f, String s) throws IOException {
+		Writer w = new FileWriter(f);
+		w.write(s);
+		w.close();
+		return f;
+	}
+
+	private static File newTempDir() throws IOException {
+		File dir = new File(TMP_DIRECTORY + "BatchConv");
+		delete(dir);
+		dir.mkdir();
+		return dir;
+	}
+
+	private static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File c : children) {
+				delete(c);
+			}
+		}
+		f.delete();
+	}
+}
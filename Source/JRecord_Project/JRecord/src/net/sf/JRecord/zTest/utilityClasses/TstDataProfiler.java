@@ -0,0 +1,216 @@
+package net.sf.JRecord.zTest.utilityClasses;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.IO.SparseRecordIndex;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+import net.sf.JRecord.utilityClasses.DataProfiler;
+import net.sf.JRecord.utilityClasses.DataProfiler.FieldProfile;
+import net.sf.JRecord.utilityClasses.DataProfiler.ValueCount;
+import net.sf.JRecord.zTest.Common.TstConstants;
+
+/**
+ * Testing the Data-Quality profiler
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstDataProfiler extends TestCase {
+
+	private static final String TMP_DIRECTORY = TstConstants.TEMP_DIRECTORY;
+	private static final int RECORD_COUNT = 1000;
+	private static final String COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Key            pic x(8).\n"
+			+ "            03 Amount         pic s9(7)v99 comp-3.\n"
+			+ "            03 Qty            pic s9(4) comp.\n"
+			+ "            03 Price          pic 9(5)v99.\n"
+			+ "            03 Name           pic x(10).\n";
+
+	public void testProfile() throws IOException {
+		ICobolIOBuilder iob = getIOBuilder(Constants.IO_FIXED_LENGTH);
+		File f = writeFile(iob);
+		try {
+			DataProfiler.Profile profile = new DataProfiler(iob.getLayout()).profile(iob.newReader(f.getPath()));
+			check(profile);
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testParallelFixed() throws IOException {
+		ICobolIOBuilder iob = getIOBuilder(Constants.IO_FIXED_LENGTH);
+		File f = writeFile(iob);
+		try {
+			DataProfiler profiler = new DataProfiler(iob.getLayout());
+			DataProfiler.Profile single = profiler.profile(f.getPath());
+			DataProfiler.Profile parallel = profiler.profile(f.getPath(), 4);
+			check(parallel);
+			compare(single, parallel);
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testParallelVb() throws IOException {
+		ICobolIOBuilder iob = getIOBuilder(Constants.IO_VB);
+		File f = writeFile(iob);
+		try {
+			DataProfiler profiler = new DataProfiler(iob.getLayout());
+			DataProfiler.Profile single = profiler.profile(f.getPath());
+			DataProfiler.Profile parallel = profiler.profile(
+					f.getPath(), SparseRecordIndex.build(iob.getLayout(), f.getPath(), 50), 3);
+			check(parallel);
+			compare(single, parallel);
+			compare(single, profiler.profile(f.getPath(), 3));
+		} finally {
+			f.delete();
+		}
+	}
+
+	public void testJson() throws IOException {
+		ICobolIOBuilder iob = getIOBuilder(Constants.IO_FIXED_LENGTH);
+		File f = writeFile(iob);
+		try {
+			String json = new DataProfiler(iob.getLayout())
+					.setTopCount(3)
+					.profile(f.getPath())
+					.toJson();
+
+			assertTrue(json, json.startsWith("{\n  \"records\": " + RECORD_COUNT + ","));
+			assertTrue(json, json.contains("{\"name\": \"Rec\", \"records\": " + RECORD_COUNT));
+			assertTrue(json, json.contains("\"name\": \"Amount\""));
+			assertTrue(json, json.contains("\"nulls\": 10, \"invalid\": 10, \"min\": 0.00, \"max\": 999.00"));
+			assertTrue(json, json.contains("\"min\": \"n0\", \"max\": \"n4\""));
+			assertTrue(json, json.contains("{\"value\": \"A\", \"count\": "));
+		} finally {
+			f.delete();
+		}
+	}
+
+	private static void check(DataProfiler.Profile profile) {
+		assertEquals(RECORD_COUNT, profile.getRecordCount());
+		assertEquals(0, profile.getUndeterminedCount());
+		assertEquals(RECORD_COUNT, profile.getRecordCount(0));
+
+		FieldProfile key = profile.getFieldProfile(0, "Key");
+		checkCounts(key, 0, 0);
+		assertEquals("A", key.getTopValues().get(0).getValue());
+		checkDistinct(667, key.getDistinctEstimate());
+
+		FieldProfile amount = profile.getFieldProfile(0, "Amount");
+		checkCounts(amount, 10, 10);
+		assertEquals(new BigDecimal("0.00"), amount.getMin());
+		assertEquals(new BigDecimal("999.00"), amount.getMax());
+		checkDistinct(980, amount.getDistinctEstimate());
+
+		FieldProfile qty = profile.getFieldProfile(0, "Qty");
+		checkCounts(qty, 0, 0);
+		assertEquals(-3L, ((Number) qty.getMin()).longValue());
+		assertEquals(3L, ((Number) qty.getMax()).longValue());
+		assertEquals(7, qty.getDistinctEstimate());
+		List<ValueCount> top = qty.getTopValues();
+		assertEquals(7, top.size());
+		long total = 0;
+		for (ValueCount vc : top) {
+			total += vc.getCount();
+		}
+		assertEquals(RECORD_COUNT, total);
+
+		FieldProfile price = profile.getFieldProfile(0, "Price");
+		checkCounts(price, 10, 10);
+		assertEquals(0, new BigDecimal("0.01").compareTo((BigDecimal) price.getMin()));
+		assertEquals(0, new BigDecimal("10.00").compareTo((BigDecimal) price.getMax()));
+
+		FieldProfile name = profile.getFieldProfile(0, "Name");
+		checkCounts(name, 100, 0);
+		assertEquals("n0", name.getMin());
+		assertEquals("n4", name.getMax());
+		assertEquals(5, name.getDistinctEstimate());
+		top = name.getTopValues();
+		assertEquals(5, top.size());
+		assertEquals("n0", top.get(4).getValue());
+		assertEquals(100, top.get(4).getCount());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(200, top.get(i).getCount());
+		}
+	}
+
+	private static void checkCounts(FieldProfile f, long nulls, long invalid) {
+		String id = f.getField().getName();
+		assertEquals(id, RECORD_COUNT, f.getCount());
+		assertEquals(id, nulls, f.getNullCount());
+		assertEquals(id, invalid, f.getInvalidCount());
+	}
+
+	private static void checkDistinct(long expected, long estimate) {
+		assertTrue("Distinct estimate " + estimate + " expected " + expected,
+				Math.abs(estimate - expected) <= expected * 0.05);
+	}
+
+	private static void compare(DataProfiler.Profile p1, DataProfiler.Profile p2) {
+		for (int i = 0; i < 5; i++) {
+			FieldProfile f1 = p1.getFieldProfile(0, i);
+			FieldProfile f2 = p2.getFieldProfile(0, i);
+			String id = f1.getField().getName();
+			assertEquals(id, f1.getCount(), f2.getCount());
+			assertEquals(id, f1.getNullCount(), f2.getNullCount());
+			assertEquals(id, f1.getInvalidCount(), f2.getInvalidCount());
+			assertEquals(id, f1.getMin(), f2.getMin());
+			assertEquals(id, f1.getMax(), f2.getMax());
+			assertEquals(id, f1.getDistinctEstimate(), f2.getDistinctEstimate());
+		}
+	}
+
+	private static ICobolIOBuilder getIOBuilder(int fileStructure) {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(COPYBOOK), "Rec")
+					.setFont("cp037")
+					.setFileOrganization(fileStructure);
+	}
+
+	/**
+	 * Write a test file:<ul>
+	 *  <li>Key is "A" for every 3rd record
+	 *  <li>Amount is invalid / low-values for 10 records
+	 *  <li>Qty is -3 to 3
+	 *  <li>Price is invalid / spaces for 10 records
+	 *  <li>Name is spaces for every 10th record
+	 * </ul>
+	 */
+	private static File writeFile(ICobolIOBuilder iob) throws IOException {
+		File f = new File(TMP_DIRECTORY + "Profile.bin");
+		AbstractLineWriter w = iob.newWriter(f.getPath());
+		byte[] spaces = "       ".getBytes("cp037");
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			AbstractLine l = iob.newLine();
+			l.getFieldValue("Key").set(i % 3 == 0 ? "A" : "k" + i);
+			l.getFieldValue("Amount").set(i);
+			l.getFieldValue("Qty").set(i % 7 - 3);
+			l.getFieldValue("Price").set(new BigDecimal(i + 1).movePointLeft(2));
+			l.getFieldValue("Name").set(i % 10 == 0 ? "" : "n" + (i % 5));
+
+			byte[] data = l.getData().clone();
+			switch (i % 100) {
+			case 7:		Arrays.fill(data, 8, 13, (byte) 0xAA);			break;
+			case 8:		Arrays.fill(data, 8, 13, (byte) 0);				break;
+			case 9:		Arrays.fill(data, 15, 22, (byte) 0x4B);			break;
+			case 10:	System.arraycopy(spaces, 0, data, 15, 7);		break;
+			}
+			l.setData(data);
+			w.write(l);
+		}
+		w.close();
+		return f;
+	}
+}
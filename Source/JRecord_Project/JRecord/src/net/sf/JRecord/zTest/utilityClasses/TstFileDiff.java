@@ -0,0 +1,245 @@
+package net.sf.JRecord.zTest.utilityClasses;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Common.FieldDetail;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+import net.sf.JRecord.utilityClasses.FileDiff;
+
+/**
+ * Testing the keyed file compare (diff / CDC) utility
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstFileDiff extends TestCase {
+
+	private static final int RECORDS = 1000;
+	private static final int INSERTS = 50;
+
+	private static final String COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Key        pic s9(6) comp-3.\n"
+			+ "            03 Name       pic x(10).\n"
+			+ "            03 Amount     pic s9(5)v99 comp-3.\n";
+	private static final String OLD_COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Name       pic x(10).\n"
+			+ "            03 Amount     pic s9(5)v99 comp-3.\n"
+			+ "            03 Key        pic s9(6) comp-3.\n";
+	private static final String CDC_COPYBOOK
+			= "        01  Cdc.\n"
+			+ "            03 Change-Code pic x.\n"
+			+ "            03 Key        pic s9(6) comp-3.\n"
+			+ "            03 Name       pic x(10).\n"
+			+ "            03 Amount     pic s9(5)v99 comp-3.\n";
+
+	private ICobolIOBuilder iob = newIOBuilder(COPYBOOK, "Rec", Constants.IO_VB);
+
+	public void testSorted() throws IOException {
+		check(new FileDiff("Key").setSorted(true), false);
+	}
+
+	public void testUnsorted() throws IOException {
+		check(new FileDiff("Key"), true);
+		check(new FileDiff("Key").setMemoryBudget(2000).setPartitionCount(7), true);
+	}
+
+	public void testNotInSequence() throws IOException {
+		try {
+			new FileDiff("Key").setSorted(true)
+				.diff(iob.newReader(new ByteArrayInputStream(oldFile())),
+					  iob.newReader(new ByteArrayInputStream(newFile(true))),
+					  new EventListener());
+			fail("Expected a RecordException");
+		} catch (RecordException e) {
+		}
+	}
+
+	public void testReport() throws IOException {
+		StringWriter w = new StringWriter();
+		FileDiff diff = new FileDiff("Key").setSorted(true);
+		diff.diff(iob.newReader(new ByteArrayInputStream(oldFile())),
+				  iob.newReader(new ByteArrayInputStream(newFile(false))),
+				  diff.newReportListener(w));
+
+		String report = w.toString();
+		assertTrue(report.startsWith("Change  Key=0\n            Name: Name 0 -> New 0\n"));
+		assertTrue(report.indexOf("Delete  Key=3\n") > 0);
+		assertTrue(report.indexOf("Change  Key=7\n            Amount: 7.00 -> 8.00\n") > 0);
+		assertTrue(report.endsWith("Insert  Key=" + (RECORDS + INSERTS - 1) + "\n"));
+	}
+
+	public void testCdc() throws IOException {
+		checkCdc(iob, new FileDiff("Key").setSorted(true));
+	}
+
+	/**
+	 * Old and new files with different layouts; deletes must be copied using the old layout
+	 */
+	public void testCdcLayoutChange() throws IOException {
+		ICobolIOBuilder oldIob = newIOBuilder(OLD_COPYBOOK, "Rec", Constants.IO_VB);
+		checkCdc(oldIob, new FileDiff("Key").setSorted(true));
+		checkCdc(oldIob, new FileDiff("Key"));
+	}
+
+	private void checkCdc(ICobolIOBuilder oldIob, FileDiff diff) throws IOException {
+		ICobolIOBuilder cdcIob = newIOBuilder(CDC_COPYBOOK, "Cdc", Constants.IO_FIXED_LENGTH);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		AbstractLineWriter w = cdcIob.newWriter(os);
+
+		long count = diff.diff(oldIob.newReader(new ByteArrayInputStream(oldFile(oldIob))),
+				  iob.newReader(new ByteArrayInputStream(newFile(false))),
+				  new FileDiff.CdcListener(w, cdcIob.getLayout(), "Change-Code"));
+		w.close();
+
+		assertEquals(expected().size(), count);
+		assertEquals(INSERTS, diff.getInsertCount());
+		assertEquals(RECORDS / 10, diff.getDeleteCount());
+		assertEquals(count, diff.getInsertCount() + diff.getDeleteCount() + diff.getChangeCount());
+		assertEquals(RECORDS, diff.getUnchangedCount() + diff.getChangeCount() + diff.getDeleteCount());
+
+		AbstractLineReader r = cdcIob.newReader(new ByteArrayInputStream(os.toByteArray()));
+		AbstractLine l;
+		int num = 0;
+		while ((l = r.read()) != null) {
+			int key = l.getFieldValue("Key").asInt();
+			String code = l.getFieldValue("Change-Code").asString();
+			if (key >= RECORDS) {
+				assertEquals(FileDiff.INSERT, code);
+				assertEquals("Ins " + key, l.getFieldValue("Name").asString());
+			} else if (key % 10 == 3) {
+				assertEquals(FileDiff.DELETE, code);
+				assertEquals("Name " + key, l.getFieldValue("Name").asString());
+				assertEquals(key, l.getFieldValue("Amount").asInt());
+			} else {
+				assertEquals(FileDiff.UPDATE, code);
+				assertEquals(newAmount(key), l.getFieldValue("Amount").asInt());
+			}
+			num += 1;
+		}
+		r.close();
+		assertEquals(count, num);
+	}
+
+	private void check(FileDiff diff, boolean reverse) throws IOException {
+		EventListener listener = new EventListener();
+		long count = diff.diff(
+				iob.newReader(new ByteArrayInputStream(oldFile())),
+				iob.newReader(new ByteArrayInputStream(newFile(reverse))),
+				listener);
+		List<String> expected = expected();
+
+		Collections.sort(listener.events);
+		assertEquals(expected.size(), count);
+		assertEquals(expected, listener.events);
+	}
+
+	private static List<String> expected() {
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < RECORDS + INSERTS; i++) {
+			if (i >= RECORDS) {
+				expected.add("I " + i);
+			} else if (i % 10 == 3) {
+				expected.add("D " + i);
+			} else if (i % 7 == 0 || i % 11 == 0) {
+				expected.add("U " + i + (i % 11 == 0 ? " Name" : "") + (i % 7 == 0 ? " Amount" : ""));
+			}
+		}
+		Collections.sort(expected);
+		return expected;
+	}
+
+	private byte[] oldFile() throws IOException {
+		return oldFile(iob);
+	}
+
+	private byte[] oldFile(ICobolIOBuilder oldIob) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		AbstractLineWriter w = oldIob.newWriter(os);
+		for (int i = 0; i < RECORDS; i++) {
+			write(oldIob, w, i, "Name " + i, i);
+		}
+		w.close();
+		return os.toByteArray();
+	}
+
+	private byte[] newFile(boolean reverse) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		AbstractLineWriter w = iob.newWriter(os);
+		for (int j = 0; j < RECORDS + INSERTS; j++) {
+			int i = reverse ? RECORDS + INSERTS - j - 1 : j;
+			if (i >= RECORDS) {
+				write(w, i, "Ins " + i, i);
+			} else if (i % 10 != 3) {
+				write(w, i, (i % 11 == 0 ? "New " : "Name ") + i, newAmount(i));
+			}
+		}
+		w.close();
+		return os.toByteArray();
+	}
+
+	private static int newAmount(int i) {
+		return i % 7 == 0 ? i + 1 : i;
+	}
+
+	private void write(AbstractLineWriter w, int key, String name, int amount) throws IOException {
+		write(iob, w, key, name, amount);
+	}
+
+	private static void write(ICobolIOBuilder lineIob, AbstractLineWriter w, int key, String name, int amount)
+	throws IOException {
+		AbstractLine l = lineIob.newLine();
+		l.getFieldValue("Key").set(key);
+		l.getFieldValue("Name").set(name);
+		l.getFieldValue("Amount").set(amount);
+		w.write(l);
+	}
+
+	private static ICobolIOBuilder newIOBuilder(String copybook, String recordName, int fileOrganization) {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(copybook), recordName)
+					.setFont("cp037")
+					.setFileOrganization(fileOrganization);
+	}
+
+	/**
+	 * Records the differences as strings
+	 */
+	private static class EventListener implements FileDiff.IDiffListener {
+		final List<String> events = new ArrayList<String>();
+
+		@Override
+		public void inserted(AbstractLine newLine) {
+			events.add("I " + newLine.getFieldValue("Key").asString());
+		}
+
+		@Override
+		public void deleted(AbstractLine oldLine) {
+			events.add("D " + oldLine.getFieldValue("Key").asString());
+		}
+
+		@Override
+		public void changed(AbstractLine oldLine, AbstractLine newLine, List<FieldDetail> changedFields) {
+			StringBuilder b = new StringBuilder("U ").append(newLine.getFieldValue("Key").asString());
+			for (FieldDetail f : changedFields) {
+				b.append(' ').append(f.getName());
+			}
+			events.add(b.toString());
+		}
+	}
+}
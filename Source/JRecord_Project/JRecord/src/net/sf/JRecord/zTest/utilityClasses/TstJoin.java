@@ -0,0 +1,192 @@
+package net.sf.JRecord.zTest.utilityClasses;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.Types.Type;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+import net.sf.JRecord.def.IO.builders.ICsvIOBuilder;
+import net.sf.JRecord.utilityClasses.Join;
+
+/**
+ * Testing the Hash Join utility
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstJoin extends TestCase {
+
+	private static final int CUSTOMERS = 300;
+	private static final int TRANSACTIONS = 2000;
+
+	private static final String CUSTOMER_COPYBOOK
+			= "        01  Customer.\n"
+			+ "            03 Cust-Id        pic 9(6).\n"
+			+ "            03 Cust-Name      pic x(20).\n";
+	private static final String TRAN_COPYBOOK
+			= "        01  Tran.\n"
+			+ "            03 Tran-No        pic 9(6).\n"
+			+ "            03 Customer       pic 9(6).\n"
+			+ "            03 Amount         pic s9(7)v99 comp-3.\n";
+	private static final String TRAN_COPYBOOK_PACKED
+			= "        01  Tran.\n"
+			+ "            03 Tran-No        pic 9(6).\n"
+			+ "            03 Customer       pic 9(8) comp-3.\n"
+			+ "            03 Amount         pic s9(7)v99 comp-3.\n";
+
+	private ICobolIOBuilder custIob = JRecordInterface1.COBOL
+			.newIOBuilder(new StringReader(CUSTOMER_COPYBOOK), "Customer")
+				.setFont("cp037")
+				.setFileOrganization(Constants.IO_FIXED_LENGTH);
+
+	private ICsvIOBuilder outIob = JRecordInterface1.CSV
+			.newIOBuilder(",", "\"")
+				.defineFields()
+					.addCsvField("Tran-No",   Type.ftNumAnyDecimal, 0)
+					.addCsvField("Customer",  Type.ftNumAnyDecimal, 0)
+					.addCsvField("Cust-Name", Type.ftChar, 0)
+					.addCsvField("Amount",    Type.ftNumAnyDecimal, 0)
+				.endOfRecord()
+				.setFileOrganization(Constants.IO_UNICODE_TEXT);
+
+	private static final List<String> MAPPING = Arrays.asList("probe.Tran-No", "Customer", "build.Cust-Name", "Amount");
+
+	public void testInnerJoin() throws IOException {
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < TRANSACTIONS; i++) {
+			int cust = customer(i);
+			if (cust % 2 == 0 && cust < CUSTOMERS * 2) {
+				expected.add(i + "," + cust + ",Name " + cust + "," + amount(i));
+				if (cust % 10 == 0) {
+					expected.add(i + "," + cust + ",Dup " + cust + "," + amount(i));
+				}
+			}
+		}
+		check(Join.INNER_JOIN, expected);
+	}
+
+	public void testLeftJoin() throws IOException {
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < TRANSACTIONS; i++) {
+			int cust = customer(i);
+			if (cust % 2 == 0 && cust < CUSTOMERS * 2) {
+				expected.add(i + "," + cust + ",Name " + cust + "," + amount(i));
+				if (cust % 10 == 0) {
+					expected.add(i + "," + cust + ",Dup " + cust + "," + amount(i));
+				}
+			} else {
+				expected.add(i + "," + cust + ",," + amount(i));
+			}
+		}
+		check(Join.LEFT_JOIN, expected);
+	}
+
+	public void testAntiJoin() throws IOException {
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < TRANSACTIONS; i++) {
+			int cust = customer(i);
+			if (cust % 2 != 0 || cust >= CUSTOMERS * 2) {
+				expected.add(i + "," + cust + ",," + amount(i));
+			}
+		}
+		check(Join.ANTI_JOIN, expected);
+	}
+
+	public void testInvalidKey() throws IOException {
+		try {
+			new Join(Join.INNER_JOIN, new String[] {"xx"}, new String[] {"Customer"})
+				.join(custIob.newReader(new ByteArrayInputStream(customerFile())),
+					  tranIob(TRAN_COPYBOOK).newReader(new ByteArrayInputStream(tranFile(TRAN_COPYBOOK))),
+					  outIob.newWriter(new ByteArrayOutputStream()), outIob.getLayout(), MAPPING);
+			fail("Expected a RecordException");
+		} catch (net.sf.JRecord.Common.RecordException e) {
+		}
+	}
+
+	private void check(int joinType, List<String> expected) throws IOException {
+		Collections.sort(expected);
+		byte[] customers = customerFile();
+		String[] copybooks = {TRAN_COPYBOOK, TRAN_COPYBOOK_PACKED};
+		long[] budgets = {Join.DEFAULT_MEMORY_BUDGET, 2000};
+
+		for (String copybook : copybooks) {
+			ICobolIOBuilder tranIob = tranIob(copybook);
+			byte[] trans = tranFile(copybook);
+			for (long budget : budgets) {
+				ByteArrayOutputStream os = new ByteArrayOutputStream();
+				long count = new Join(joinType, new String[] {"Cust-Id"}, new String[] {"Customer"})
+						.setMemoryBudget(budget)
+						.setPartitionCount(7)
+						.join(custIob.newReader(new ByteArrayInputStream(customers)),
+							  tranIob.newReader(new ByteArrayInputStream(trans)),
+							  outIob.newWriter(os), outIob.getLayout(), MAPPING);
+
+				List<String> lines = new ArrayList<String>(Arrays.asList(new String(os.toByteArray()).split("\n")));
+				Collections.sort(lines);
+				assertEquals(expected.size(), count);
+				assertEquals(expected, lines);
+			}
+		}
+	}
+
+	private static int customer(int tranNo) {
+		return (tranNo * 7) % (CUSTOMERS * 3);
+	}
+
+	private static String amount(int tranNo) {
+		return Integer.toString(tranNo * 3) + ".01";
+	}
+
+	private byte[] customerFile() throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		AbstractLineWriter w = custIob.newWriter(os);
+		for (int i = 0; i < CUSTOMERS; i++) {
+			write(w, i * 2, "Name ");
+			if (i % 5 == 0) {
+				write(w, i * 2, "Dup ");
+			}
+		}
+		w.close();
+		return os.toByteArray();
+	}
+
+	private void write(AbstractLineWriter w, int id, String name) throws IOException {
+		AbstractLine l = custIob.newLine();
+		l.getFieldValue("Cust-Id").set(id);
+		l.getFieldValue("Cust-Name").set(name + id);
+		w.write(l);
+	}
+
+	private static ICobolIOBuilder tranIob(String copybook) {
+		return JRecordInterface1.COBOL
+				.newIOBuilder(new StringReader(copybook), "Tran")
+					.setFont("cp037")
+					.setFileOrganization(Constants.IO_VB);
+	}
+
+	private static byte[] tranFile(String copybook) throws IOException {
+		ICobolIOBuilder iob = tranIob(copybook);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		AbstractLineWriter w = iob.newWriter(os);
+		for (int i = 0; i < TRANSACTIONS; i++) {
+			AbstractLine l = iob.newLine();
+			l.getFieldValue("Tran-No").set(i);
+			l.getFieldValue("Customer").set(customer(i));
+			l.getFieldValue("Amount").set(amount(i));
+			w.write(l);
+		}
+		w.close();
+		return os.toByteArray();
+	}
+}
@@ -36,6 +36,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+import net.sf.JRecord.Common.IOMetrics;
 
 /**
  * This abstract class is the base class for all <b>Byte~Reader</b>
@@ -50,6 +51,7 @@ public abstract class AbstractByteReader implements IByteReader {
 	public static final int BUFFER_SIZE = 16384;
 
     private long bytesRead = 0;
+    private IOMetrics metrics = null;
 
 	/**
 	 * create Binary Line Reader
@@ -66,7 +68,77 @@ public abstract class AbstractByteReader implements IByteReader {
 	 */
     @Override
 	public void open(String fileName) throws IOException {
-        open(new FileInputStream(fileName));
+    	InputStream in = new FileInputStream(fileName);
+        open(metrics == null ? in : metrics.wrap(in));
+    }
+
+    /**
+     * Open a file at a position (checkpoint) previously returned by {@link #getPosition()}
+     *
+     * @param fileName name of the file
+     * @param position position to start reading from
+     * @throws IOException any IO error
+     */
+    public void open(String fileName, ReadPosition position) throws IOException {
+    	FileInputStream in = new FileInputStream(fileName);
+    	in.getChannel().position(position.getByteOffset());
+    	open(metrics == null ? in : metrics.wrap(in), position);
+    }
+
+    /**
+     * Open a stream that has been positioned at {@link ReadPosition#getByteOffset()}
+     * (i.e. the first byte of the stream is the byte at that position in the file).
+     * Readers that read a File-Header or hold state between records (e.g. Block details)
+     * override this method to restore the state from the position.
+     *
+     * @param inputStream stream positioned at the restart point
+     * @param position position to start reading from
+     * @throws IOException any IO error
+     */
+    public void open(InputStream inputStream, ReadPosition position) throws IOException {
+    	open(inputStream);
+    	incBytesRead(position.getByteOffset());
+    }
+
+    /* (non-Javadoc)
+	 * @see net.sf.JRecord.ByteIO.IByteRecordReader#read()
+	 */
+    @Override
+    public final byte[] read() throws IOException {
+    	if (metrics == null) {
+    		return readImplementation();
+    	}
+    	IOMetrics.Counters c = metrics.counters();
+    	boolean timed = c.isTimed();
+    	long start = timed ? System.nanoTime() : 0;
+    	long io = c.getIoNanos();
+    	byte[] rec = readImplementation();
+
+    	if (rec != null) {
+    		c.recordRead();
+    	}
+    	if (timed) {
+    		c.addDecodeNanos(System.nanoTime() - start - (c.getIoNanos() - io));
+    	}
+    	return rec;
+    }
+
+    /**
+     * Read one record from the file
+     *
+     * @return record read (or null at end of file)
+     * @throws IOException any IO error
+     */
+    public abstract byte[] readImplementation() throws IOException;
+
+    /**
+     * Get the current position (checkpoint) in the file. The file can be reopened at this
+     * position using {@link #open(String, ReadPosition)}.
+     *
+     * @return current position or null if reading can not be restarted at the current position
+     */
+    public ReadPosition getPosition() {
+    	return new ReadPosition(getBytesRead(), null);
     }
 
 
@@ -145,7 +217,47 @@ public abstract class AbstractByteReader implements IByteReader {
 		return bytesRead;
 	}
 
+	/**
+	 * Wether a new reader, opened on the file at the current position
+	 * ({@link #getBytesRead()}), would read the same records as this reader.
+	 * This is false in the middle of a block (for blocked files).
+	 *
+	 * @return wether reading can be restarted at the current position
+	 */
+	public boolean isAtRestartPoint() {
+		return true;
+	}
+
+	/**
+	 * Length of the File-Header (if any). When restarting a read part way through a file,
+	 * the file header has to be supplied before the data
+	 * (i.e. header-bytes followed by the data from the restart point).
+	 *
+	 * @return length of the file header
+	 */
+	public int getFileHeaderLength() {
+		return 0;
+	}
+
 	protected final void incBytesRead(long amount) {
 		bytesRead += amount;
 	}
+
+	/**
+	 * Count the records read in metrics. When the file is opened by name the bytes read
+	 * and time spent reading are also counted; when opening a stream,
+	 * use {@link IOMetrics#wrap(InputStream)} to count them.
+	 *
+	 * @param metrics where the counts are stored (null turns the metrics off)
+	 */
+	public final void setMetrics(IOMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return the metrics (or null)
+	 */
+	public final IOMetrics getMetrics() {
+		return metrics;
+	}
 }
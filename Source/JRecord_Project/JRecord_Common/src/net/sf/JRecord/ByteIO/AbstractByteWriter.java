@@ -36,6 +36,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import net.sf.JRecord.Common.IOMetrics;
 
 /**
  * This abstract class is the base class for all <b>Byte~Writer</b>
@@ -48,6 +49,8 @@ public abstract class AbstractByteWriter implements IByteRecordWriter {
 
     public static final String NOT_OPEN_MESSAGE = "File has not been opened";
 
+    private IOMetrics metrics = null;
+
 
     /**
      * Open file for input
@@ -57,7 +60,8 @@ public abstract class AbstractByteWriter implements IByteRecordWriter {
      * @throws IOException any IOerror
      */
     public void open(String fileName) throws IOException {
-        open(new FileOutputStream(fileName));
+    	OutputStream out = new FileOutputStream(fileName);
+        open(metrics == null ? out : metrics.wrap(out));
     }
 
 
@@ -76,7 +80,41 @@ public abstract class AbstractByteWriter implements IByteRecordWriter {
 	 * @see net.sf.JRecord.ByteIO.IByteRecordWriter#write(byte[])
 	 */
     @Override
-	public abstract void write(byte[] bytes) throws IOException;
+	public final void write(byte[] bytes) throws IOException {
+    	if (metrics == null) {
+    		writeImplementation(bytes);
+    		return;
+    	}
+    	IOMetrics.Counters c = metrics.counters();
+    	boolean timed = c.isTimed();
+    	long start = timed ? System.nanoTime() : 0;
+    	long io = c.getIoNanos();
+
+    	writeImplementation(bytes);
+    	c.recordWritten();
+    	if (timed) {
+    		c.addDecodeNanos(System.nanoTime() - start - (c.getIoNanos() - io));
+    	}
+    }
+
+    /**
+     * Write one record to the file
+     *
+     * @param bytes record to be written
+     * @throws IOException any IO error
+     */
+	public abstract void writeImplementation(byte[] bytes) throws IOException;
+
+
+    /**
+     * Write any buffered data to the output stream. Writers that
+     * buffer data (or build blocks) override this method; for blocked files the
+     * current (partial) block is written.
+     *
+     * @throws IOException any IO error
+     */
+    public void flush() throws IOException {
+    }
 
 
     /* (non-Javadoc)
@@ -84,4 +122,22 @@ public abstract class AbstractByteWriter implements IByteRecordWriter {
 	 */
     @Override
 	public abstract void close() throws IOException;
+
+	/**
+	 * Count the records written in metrics. When the file is opened by name the bytes written
+	 * and time spent writing are also counted; when opening a stream,
+	 * use {@link IOMetrics#wrap(OutputStream)} to count them.
+	 *
+	 * @param metrics where the counts are stored (null turns the metrics off)
+	 */
+	public final void setMetrics(IOMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return the metrics (or null)
+	 */
+	public final IOMetrics getMetrics() {
+		return metrics;
+	}
 }
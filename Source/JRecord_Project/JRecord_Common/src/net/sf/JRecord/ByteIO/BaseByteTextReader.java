@@ -129,6 +129,16 @@ public abstract class BaseByteTextReader extends AbstractByteReader {
 		lineNo = -1;
 	}
 
+	/**
+	 * Restart reading at a position (the end-of-line is recalculated from the data).
+	 * @see net.sf.JRecord.ByteIO.AbstractByteReader#open(java.io.InputStream, net.sf.JRecord.ByteIO.ReadPosition)
+	 */
+	@Override
+	public void open(InputStream inputStream, ReadPosition position) throws IOException {
+		open(inputStream);
+		bytesRead = position.getByteOffset();
+	}
+
 	protected int getEolPosition() {
 
 		int pos = 0;
@@ -147,7 +157,7 @@ public abstract class BaseByteTextReader extends AbstractByteReader {
 
 
 	@Override
-	public final byte[] read() throws IOException {
+	public final byte[] readImplementation() throws IOException {
 		if (in == null) {
 			throw new IOException("File has not been opened");
 		}
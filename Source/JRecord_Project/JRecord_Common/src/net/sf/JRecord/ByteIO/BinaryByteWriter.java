@@ -113,7 +113,7 @@ public class BinaryByteWriter extends AbstractByteWriter {
     /**
      * @see net.sf.JRecord.ByteIO.BinaryByteWriter#write(byte[])
      */
-    public void write(byte[] line) throws IOException {
+    public void writeImplementation(byte[] line) throws IOException {
 
         if (outStream == null) {
             throw new IOException(AbstractByteWriter.NOT_OPEN_MESSAGE);
@@ -139,6 +139,16 @@ public class BinaryByteWriter extends AbstractByteWriter {
     }
 
 
+    /**
+     * @see net.sf.JRecord.ByteIO.AbstractByteWriter#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+    	if (outStream != null) {
+    		outStream.flush();
+    	}
+    }
+
     /**
      * @see net.sf.JRecord.IO.AbstractLineWriter#close()
      */
@@ -44,7 +44,6 @@ import java.io.UnsupportedEncodingException;
 
 import net.sf.JRecord.Common.Constants;
 import net.sf.JRecord.Common.IBasicFileSchema;
-import net.sf.JRecord.Common.RecordException;
 
 /**
  * LineIOprovider - This class returns a LineIO class appropriate for
@@ -118,6 +117,27 @@ public class ByteIOProvider {
         return null;
     }
 
+    /**
+     * Get a push based Record-Framer (the equivalent of the Byte-Reader) for a schema
+     * @param schema File schema to get the framer for
+     * @return requested framer or null if the file structure is not supported
+     */
+    public RecordFramer getRecordFramer(IBasicFileSchema schema) {
+    	int fileStructure = schema.getFileStructure();
+    	switch (fileStructure) {
+   		case Constants.IO_FIXED_BYTE_ENTER_FONT:
+   		case Constants.IO_FIXED_LENGTH:		return new FixedLengthRecordFramer(schema.getMaximumRecordLength());
+		case Constants.IO_VB: 				return new VbRecordFramer(VbByteReader.MODE_NO_BLOCK_LENGTH, true);
+		case Constants.IO_VB_DUMP:			return new VbRecordFramer(VbByteReader.MODE_ORIG_BLOCK_LENGTH, true);
+		case Constants.IO_VB_DUMP2:			return new VbRecordFramer(VbByteReader.MODE_BLOCK_LENGTH_2, true);
+		case Constants.IO_VB_GNU_COBOL:		return new VbRecordFramer(VbByteReader.MODE_NO_BLOCK_LENGTH, false);
+		case Constants.IO_TEXT_BYTE_ENTER_FONT:
+		case Constants.IO_BIN_TEXT:			return new TextRecordFramer(schema.getFontName());
+		case Constants.IO_MICROFOCUS:		return new MicroFocusRecordFramer();
+    	}
+    	return null;
+    }
+
 
     /**
      * Gets a Record Reader Class
@@ -156,7 +176,7 @@ public class ByteIOProvider {
 
     	switch(fileStructure) {
 //    		case Constants.IO_FIXED_LENGTH:		return new BinaryByteWriter();
-    		case Constants.IO_VBS:				throw new RecordException("Writing VBS files is not supported; use IO_VB");
+    		case Constants.IO_VBS:				return new VbBlockedByteWriter(VbBlockedByteWriter.DEFAULT_BLOCK_SIZE, true, false);
     		case Constants.IO_VB: 				return new VbByteWriter();
     		case Constants.IO_VB_DUMP2:
     		case Constants.IO_VB_DUMP:			return new VbDumpByteWriter();
@@ -177,6 +197,31 @@ public class ByteIOProvider {
     }
 
 
+    /**
+     * Get a writer that writes Mainframe blocked files (i.e. files that include
+     * Block-Descriptor-Words and can be sent to the Mainframe without re-blocking them).
+     * <ul>
+     *   <li><b>IO_VB</b>, <b>IO_VB_DUMP</b> - RECFM=VB
+     *   <li><b>IO_VBS</b> - RECFM=VBS, records are spanned across blocks when needed
+     * </ul>
+     * Other file structures return the standard writer.
+     *
+     * @param fileStructure File Structure
+     * @param blockSize block size (BLKSIZE) of the file
+     *
+     * @return record writer
+     */
+    public AbstractByteWriter getBlockedByteWriter(int fileStructure, int blockSize) {
+
+    	switch(fileStructure) {
+    		case Constants.IO_VBS:				return new VbBlockedByteWriter(blockSize, true, true);
+    		case Constants.IO_VB:
+    		case Constants.IO_VB_DUMP:			return new VbBlockedByteWriter(blockSize, false, true);
+        }
+
+    	return getByteWriter(fileStructure);
+    }
+
     /**
      * Get an instance of LineIOProvider
      * @return a LineIOProvider
@@ -0,0 +1,125 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+
+package net.sf.JRecord.ByteIO;
+
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+
+
+/**
+ * Output file stream that keeps track of its position and can report a durable
+ * position, i.e. {@link #sync()} flushes the data to the storage device and returns
+ * the number of bytes in the file. A file can be re-opened at a durable position;
+ * anything written after it is discarded (the file is truncated) and writing continues
+ * from that position. It is used for checkpoint / restart processing:
+ *
+ * <pre>
+ *     DurableOutputStream out = new DurableOutputStream(fileName, restartPosition);
+ *     writer.open(out);
+ *        ...
+ *     writer.flush();
+ *     long checkpoint = out.sync();
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ */
+public class DurableOutputStream extends FilterOutputStream {
+
+	private final FileOutputStream fileStream;
+	private long position;
+
+	/**
+	 * Create a new file
+	 * @param fileName name of the file
+	 * @throws IOException any IO error
+	 */
+	public DurableOutputStream(String fileName) throws IOException {
+		this(fileName, 0);
+	}
+
+	/**
+	 * Open a file at a durable position (a new file is created when the position is 0)
+	 * @param fileName name of the file
+	 * @param restartPosition position (previously returned by {@link #sync()}) to continue writing from
+	 * @throws IOException any IO error
+	 */
+	public DurableOutputStream(String fileName, long restartPosition) throws IOException {
+		this(new FileOutputStream(fileName, restartPosition > 0), restartPosition);
+	}
+
+	private DurableOutputStream(FileOutputStream fileStream, long restartPosition) throws IOException {
+		super(fileStream);
+		this.fileStream = fileStream;
+
+		if (restartPosition > 0) {
+			if (fileStream.getChannel().size() < restartPosition) {
+				fileStream.close();
+				throw new IOException("File is shorter than the restart position: " + restartPosition);
+			}
+			fileStream.getChannel().truncate(restartPosition);
+		}
+		position = Math.max(0, restartPosition);
+	}
+
+	/**
+	 * @see java.io.FilterOutputStream#write(int)
+	 */
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		position += 1;
+	}
+
+	/**
+	 * @see java.io.FilterOutputStream#write(byte[], int, int)
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+		position += len;
+	}
+
+	/**
+	 * Force all data to the storage device
+	 * @return the durable position (number of bytes in the file)
+	 * @throws IOException any IO error
+	 */
+	public long sync() throws IOException {
+		out.flush();
+		fileStream.getFD().sync();
+		return position;
+	}
+
+	/**
+	 * @return current position (number of bytes written to the file)
+	 */
+	public final long getPosition() {
+		return position;
+	}
+}
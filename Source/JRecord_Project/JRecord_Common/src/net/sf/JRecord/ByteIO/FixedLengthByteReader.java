@@ -88,7 +88,7 @@ public class FixedLengthByteReader extends AbstractByteReader {
     /**
      * @see AbstractByteReader#read()
      */
-    public byte[] read()  throws IOException {
+    public byte[] readImplementation()  throws IOException {
         byte[] ret = null;
         byte[] inBytes = new byte[lineLength];
 
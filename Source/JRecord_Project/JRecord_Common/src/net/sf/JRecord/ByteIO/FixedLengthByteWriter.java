@@ -94,7 +94,7 @@ public class FixedLengthByteWriter extends AbstractByteWriter {
     /**
      * @see net.sf.JRecord.ByteIO.FixedLengthByteWriter#write(byte[])
      */
-    public void write(byte[] rec) throws IOException {
+    public void writeImplementation(byte[] rec) throws IOException {
 
         if (outStream == null) {
             throw new IOException(AbstractByteWriter.NOT_OPEN_MESSAGE);
@@ -116,6 +116,16 @@ public class FixedLengthByteWriter extends AbstractByteWriter {
     }
 
 
+    /**
+     * @see net.sf.JRecord.ByteIO.AbstractByteWriter#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+    	if (outStream != null) {
+    		outStream.flush();
+    	}
+    }
+
     /**
      * @see net.sf.JRecord.IO.AbstractLineWriter#close()
      */
@@ -0,0 +1,64 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.ByteIO;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * Push based splitting of Fixed Record Length files
+ * (the push counterpart of {@link FixedLengthByteReader}).
+ * A short last record is padded with hex zeros.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class FixedLengthRecordFramer extends RecordFramer {
+
+	private final int recordLength;
+
+	/**
+	 * @param recordLength length of every record
+	 */
+	public FixedLengthRecordFramer(int recordLength) {
+		super();
+		if (recordLength <= 0) {
+			throw new IllegalArgumentException("Invalid record length: " + recordLength);
+		}
+		this.recordLength = recordLength;
+	}
+
+	@Override
+	protected int frameLength(byte[] data, int start, int available) {
+		return recordLength;
+	}
+
+	@Override
+	protected void finishPartial(byte[] data, IRecordSliceConsumer consumer) throws IOException {
+		consumer.record(Arrays.copyOf(data, recordLength), 0, recordLength);
+	}
+}
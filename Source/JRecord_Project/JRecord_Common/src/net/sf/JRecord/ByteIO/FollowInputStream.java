@@ -0,0 +1,297 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.ByteIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * InputStream that <i>follows</i> a file that is still being written (e.g. by a file transfer):
+ * at the end of the data it waits for the file to grow instead of returning end-of-file.
+ * Any Byte / Line reader (Fixed, VB, Text, Micro Focus etc) can read the stream; a record that
+ * has only been partly written is completed when the rest of it arrives.
+ *
+ * <p>End-of-file is returned (once all the data has been read) when
+ * <ul>
+ *   <li>the completion marker file exists ({@link #setCompletionMarker(File)})
+ *   <li>the file is renamed or deleted ({@link #setFinishOnRename(boolean)})
+ *   <li>the file has not grown for the idle time ({@link #setIdleTimeout(long)})
+ *   <li>{@link #finish()} is called (from another thread)
+ * </ul>
+ *
+ * <pre>
+ *     AbstractLineReader reader = iob.newReader(
+ *             new FollowInputStream(new File("transfer.dat"))
+ *                     .setCompletionMarker(new File("transfer.done")));
+ * </pre>
+ *
+ * <p>Waiting starts with a 1 millisecond delay which doubles up to the poll interval, so new data
+ * is picked up quickly. Optionally a WatchService can be used to be woken when the directory changes.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class FollowInputStream extends InputStream {
+
+	/** Completion option: finish when the file is renamed */
+	public static final String FINISH_ON_RENAME = "rename";
+
+	private static final long DEFAULT_POLL_INTERVAL = 200;
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final Object fileKey;
+
+	private File completionMarker = null;
+	private boolean finishOnRename = false;
+	private long idleTimeout = 0;
+	private long pollInterval = DEFAULT_POLL_INTERVAL;
+	private WatchService watchService = null;
+	private volatile boolean finished = false;
+	private boolean eof = false;
+	private final byte[] oneByte = new byte[1];
+
+	/**
+	 * Follow a file
+	 * @param file file to be read
+	 * @throws IOException any IO error
+	 */
+	public FollowInputStream(File file) throws IOException {
+		this.file = file;
+		this.raf = new RandomAccessFile(file, "r");
+		this.channel = raf.getChannel();
+		this.fileKey = fileKey(file.toPath());
+	}
+
+	/**
+	 * Create a stream using a program argument
+	 * @param fileName file to be read
+	 * @param completion when to finish: {@link #FINISH_ON_RENAME} or the name of a completion-marker file
+	 * @return the stream
+	 * @throws IOException any IO error
+	 */
+	public static FollowInputStream newFollowStream(String fileName, String completion) throws IOException {
+		FollowInputStream in = new FollowInputStream(new File(fileName));
+		if (FINISH_ON_RENAME.equalsIgnoreCase(completion)) {
+			in.setFinishOnRename(true);
+		} else {
+			in.setCompletionMarker(new File(completion));
+		}
+		return in;
+	}
+
+	/**
+	 * @param completionMarker file that is created when the file is complete
+	 * @return this stream
+	 */
+	public FollowInputStream setCompletionMarker(File completionMarker) {
+		this.completionMarker = completionMarker;
+		return this;
+	}
+
+	/**
+	 * @param finishOnRename finish when the file is renamed / deleted
+	 * @return this stream
+	 */
+	public FollowInputStream setFinishOnRename(boolean finishOnRename) {
+		this.finishOnRename = finishOnRename;
+		return this;
+	}
+
+	/**
+	 * @param idleTimeout finish if the file does not grow for this many milliseconds (0 - wait for ever)
+	 * @return this stream
+	 */
+	public FollowInputStream setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+		return this;
+	}
+
+	/**
+	 * @param pollInterval maximum time (milliseconds) between checks for more data
+	 * @return this stream
+	 */
+	public FollowInputStream setPollInterval(long pollInterval) {
+		this.pollInterval = Math.max(1, pollInterval);
+		return this;
+	}
+
+	/**
+	 * Use a WatchService (on the files directory) to be woken up when the directory changes
+	 * @param useWatchService wether to use a WatchService
+	 * @return this stream
+	 * @throws IOException any error creating the WatchService
+	 */
+	public FollowInputStream setUseWatchService(boolean useWatchService) throws IOException {
+		if (useWatchService && watchService == null) {
+			Path dir = file.getAbsoluteFile().getParentFile().toPath();
+			watchService = dir.getFileSystem().newWatchService();
+			dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+		} else if (! useWatchService && watchService != null) {
+			watchService.close();
+			watchService = null;
+		}
+		return this;
+	}
+
+	/**
+	 * Finish following the file; end-of-file is returned once the data
+	 * currently in the file has been read. This can be called from any thread.
+	 */
+	public void finish() {
+		finished = true;
+	}
+
+	/**
+	 * @see java.io.InputStream#read()
+	 */
+	@Override
+	public int read() throws IOException {
+		return read(oneByte, 0, 1) > 0 ? oneByte[0] & 0xFF : -1;
+	}
+
+	/**
+	 * Read the available bytes, waiting for the file to grow if there are none
+	 * @see java.io.InputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		long delay = 1, idleStart = System.currentTimeMillis();
+
+		while (! eof) {
+			int n = channel.read(ByteBuffer.wrap(b, off, len));
+			if (n > 0) {
+				return n;
+			}
+			if (isComplete()) {
+				n = channel.read(ByteBuffer.wrap(b, off, len));	// data written before completion was signalled
+				if (n > 0) {
+					return n;
+				}
+				eof = true;
+			} else if (idleTimeout > 0 && System.currentTimeMillis() - idleStart >= idleTimeout) {
+				eof = true;
+			} else {
+				waitForData(delay);
+				delay = Math.min(delay * 2, pollInterval);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @see java.io.InputStream#available()
+	 */
+	@Override
+	public int available() throws IOException {
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(0, channel.size() - channel.position()));
+	}
+
+	/**
+	 * @see java.io.InputStream#skip(long)
+	 */
+	@Override
+	public long skip(long n) throws IOException {
+		long s = Math.max(0, Math.min(n, channel.size() - channel.position()));
+		channel.position(channel.position() + s);
+		return s;
+	}
+
+	/**
+	 * @see java.io.InputStream#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		finished = true;
+		try {
+			if (watchService != null) {
+				watchService.close();
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	private boolean isComplete() throws IOException {
+		if (finished) {
+			return true;
+		}
+		if (completionMarker != null && completionMarker.exists()) {
+			return true;
+		}
+		if (finishOnRename) {
+			Object key = fileKey(file.toPath());
+			return ! file.exists() || (key != null && ! key.equals(fileKey));
+		}
+		return false;
+	}
+
+	private void waitForData(long delay) throws IOException {
+		try {
+			if (watchService == null) {
+				Thread.sleep(delay);
+			} else {
+				WatchKey key = watchService.poll(Math.max(delay, pollInterval), TimeUnit.MILLISECONDS);
+				if (key != null) {
+					key.pollEvents();
+					key.reset();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for " + file);
+		} catch (ClosedWatchServiceException e) {
+			finished = true;
+		}
+	}
+
+	private static Object fileKey(Path p) {
+		try {
+			return Files.readAttributes(p, BasicFileAttributes.class).fileKey();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+}
@@ -98,7 +98,7 @@ public class FujitsuVbByteReader extends AbstractByteReader {
     /**
      * @see AbstractByteReader#read()
      */
-    public byte[] read()  throws IOException {
+    public byte[] readImplementation()  throws IOException {
         byte[] ret = null;
 
         if (stream == null) {
@@ -78,7 +78,7 @@ public class FujitsuVbByteWriter extends AbstractByteWriter {
     /**
      * @see AbstractByteWriter#write(byte[])
      */
-    public void write(byte[] rec) throws IOException {
+    public void writeImplementation(byte[] rec) throws IOException {
 
         if (outStream == null) {
             throw new IOException(AbstractByteWriter.NOT_OPEN_MESSAGE);
@@ -113,6 +113,16 @@ public class FujitsuVbByteWriter extends AbstractByteWriter {
         }
     }
 
+    /**
+     * @see net.sf.JRecord.ByteIO.AbstractByteWriter#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+    	if (outStream != null) {
+    		outStream.flush();
+    	}
+    }
+
     /**
      * @see net.sf.JRecord.IO.AbstractLineWriter#close()
      */
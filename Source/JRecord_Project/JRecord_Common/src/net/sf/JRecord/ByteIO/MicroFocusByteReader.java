@@ -37,6 +37,8 @@ public class MicroFocusByteReader extends AbstractByteReader {
 	
 	private MicroFocusFileHeader headerRecord;
 	private BufferedInputStream instream;
+	private static final int HEADER_LENGTH = 128;
+
 	private boolean eof = true;
 
 	private byte[] relativeAttr = new byte[2];
@@ -48,7 +50,7 @@ public class MicroFocusByteReader extends AbstractByteReader {
 	public void open(InputStream inputStream) throws IOException {
 		instream = new BufferedInputStream(inputStream, 8192);
 		
-		byte[] headerRec = new byte[128];
+		byte[] headerRec = new byte[HEADER_LENGTH];
 		int ii = readBuffer(instream, headerRec);
 //		if ( ! (eof = (instream.read(headerRec) <= 0))) {
 		if ( ! (eof = (ii <= 0))) {
@@ -67,8 +69,39 @@ public class MicroFocusByteReader extends AbstractByteReader {
 		}
 	}
 
+	/**
+	 * Restart reading, the file header is restored from the position
+	 * @see net.sf.JRecord.ByteIO.AbstractByteReader#open(java.io.InputStream, net.sf.JRecord.ByteIO.ReadPosition)
+	 */
+	@Override
+	public void open(InputStream inputStream, ReadPosition position) throws IOException {
+		byte[] headerRec = position.getState();
+		if (headerRec == null || headerRec.length != HEADER_LENGTH) {
+			throw new IOException("Micro Focus File-Header is missing from the Read-Position");
+		}
+
+		instream = new BufferedInputStream(inputStream, 8192);
+		incBytesRead(position.getByteOffset());
+		lineNumber = (int) Math.max(0, position.getRecordNumber()) + 1;
+		headerRecord = new MicroFocusFileHeader(headerRec);
+		eof = false;
+		len1 = new byte[headerRecord.getMaxLength() < MicroFocusFileHeader.MIN_4_BYTE_LENGTH ? 2 : 4];
+	}
+
+	/**
+	 * Get the current position, the file header is saved in the position
+	 * @see net.sf.JRecord.ByteIO.AbstractByteReader#getPosition()
+	 */
 	@Override
-	public byte[] read() throws IOException {
+	public ReadPosition getPosition() {
+		if (headerRecord == null) {
+			return null;
+		}
+		return new ReadPosition(getBytesRead(), headerRecord.getHeaderRec());
+	}
+
+	@Override
+	public byte[] readImplementation() throws IOException {
 		
 		byte[] rec;
 		int tmp, attr, len, remainder;
@@ -140,6 +173,11 @@ public class MicroFocusByteReader extends AbstractByteReader {
 		return headerRecord;
 	}
 
+	@Override
+	public int getFileHeaderLength() {
+		return HEADER_LENGTH;
+	}
+
 	@Override
 	public boolean canWrite() {
 
@@ -57,7 +57,7 @@ public class MicroFocusByteWriter extends AbstractByteWriter {
 	}
 
 	@Override
-	public void write(byte[] bytes) throws IOException {
+	public void writeImplementation(byte[] bytes) throws IOException {
 
 		if (header == null) {
 			throw new IOException("Microfocus Header has not been written");
@@ -97,6 +97,13 @@ public class MicroFocusByteWriter extends AbstractByteWriter {
 		}
 	}
 
+	@Override
+	public void flush() throws IOException {
+		if (outStream != null) {
+			outStream.flush();
+		}
+	}
+
 	@Override
 	public void close() throws IOException {
 		header = null;
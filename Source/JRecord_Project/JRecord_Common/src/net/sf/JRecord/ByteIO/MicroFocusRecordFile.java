@@ -0,0 +1,294 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.ByteIO;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import net.sf.JRecord.Common.RecordException;
+
+/**
+ * Random (position based) access to the records in a Micro Focus data file.
+ * <ul>
+ *   <li><b>Relative</b> files - each record occupies a fixed size slot
+ *   (record-header + maximum-record-length + 2 byte marker) after the 128 byte file header,
+ *   so record <i>n</i> is read directly.
+ *   <li><b>Indexed</b> (and sequential) files - records can be read at a byte offset, the
+ *   offsets of the records are returned by {@link #scan(IRecordConsumer)}.
+ * </ul>
+ * Deleted / system records are skipped in the same way as {@link MicroFocusByteReader}.
+ * Reads use positional FileChannel reads so an instance can be shared by threads.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class MicroFocusRecordFile {
+
+	public static final int HEADER_LENGTH = 128;
+
+	private static final int RELATIVE_MARKER_LENGTH = 2;
+
+	private final String fileName;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final MicroFocusFileHeader header;
+	private final int lengthBytes, slotLength;
+
+	/**
+	 * Open a Micro Focus data file (for an Indexed file this is the <i>.dat</i> file)
+	 * @param fileName name of the file
+	 * @throws IOException any IO error
+	 */
+	public MicroFocusRecordFile(String fileName) throws IOException {
+		this.fileName = fileName;
+		this.raf = new RandomAccessFile(fileName, "r");
+		this.channel = raf.getChannel();
+
+		byte[] headerRec = new byte[HEADER_LENGTH];
+		if (read(0, headerRec) < HEADER_LENGTH) {
+			raf.close();
+			throw new IOException("Micro Focus File-Header is missing: " + fileName);
+		}
+		header = new MicroFocusFileHeader(headerRec);
+		if (header.getCompression() > 0) {
+			raf.close();
+			throw new IOException("Compression is not supported");
+		}
+		lengthBytes = header.getMaxLength() < MicroFocusFileHeader.MIN_4_BYTE_LENGTH ? 2 : 4;
+		slotLength = lengthBytes + header.getMaxLength() + RELATIVE_MARKER_LENGTH;
+	}
+
+	/**
+	 * @return the file header
+	 */
+	public final MicroFocusFileHeader getHeaderRecord() {
+		return header;
+	}
+
+	/**
+	 * @return wether it is a relative file
+	 */
+	public final boolean isRelative() {
+		return header.getFileFormat() == MicroFocusFileHeader.FORMAT_RELATIVE;
+	}
+
+	/**
+	 * @return number of record slots in a Relative file
+	 * (some of the slots may be empty)
+	 * @throws IOException any IO error
+	 */
+	public long getSlotCount() throws IOException {
+		checkRelative();
+		return Math.max(0, channel.size() - HEADER_LENGTH) / slotLength;
+	}
+
+	/**
+	 * Read a record from a relative file
+	 * @param recordNumber relative record number (1 based as in Cobol)
+	 * @return the record or null if the slot is empty / deleted
+	 * @throws IOException any IO error
+	 */
+	public byte[] readRelative(long recordNumber) throws IOException {
+		long count = getSlotCount();
+		if (recordNumber < 1 || recordNumber > count) {
+			throw new IndexOutOfBoundsException("Relative record number " + recordNumber
+					+ " is not in the range 1 to " + count);
+		}
+		byte[] slot = new byte[slotLength];
+		read(HEADER_LENGTH + (recordNumber - 1) * slotLength, slot);
+		return relativeRecord(slot, recordNumber);
+	}
+
+	/**
+	 * Read the record that starts at a byte offset (Indexed / Sequential files)
+	 * @param offset offset of the record header (as supplied by {@link #scan(IRecordConsumer)})
+	 * @return the record or null if it is not a data record (e.g. deleted)
+	 * @throws IOException any IO error
+	 */
+	public byte[] readAt(long offset) throws IOException {
+		if (isRelative()) {
+			return readRelative((offset - HEADER_LENGTH) / slotLength + 1);
+		}
+		byte[] recHeader = new byte[lengthBytes];
+		if (read(offset, recHeader) < lengthBytes) {
+			throw new IOException("No record at offset " + offset + " in " + fileName);
+		}
+		int len = length(recHeader, offset);
+		if (! isDataRecord(recHeader)) {
+			return null;
+		}
+		byte[] rec = new byte[len];
+		if (read(offset + lengthBytes, rec) < len) {
+			throw new IOException("Length of Record < Expected (" + len + ") at offset " + offset);
+		}
+		return rec;
+	}
+
+	/**
+	 * Read every data record in the file (in file sequence)
+	 * @param consumer receives the offset (for {@link #readAt(long)}) and value of each record
+	 * @return number of records
+	 * @throws IOException any IO error
+	 */
+	public long scan(IRecordConsumer consumer) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(fileName), 0x10000);
+		long count = 0, offset = HEADER_LENGTH;
+		try {
+			skipFully(in, HEADER_LENGTH);
+			if (isRelative()) {
+				byte[] slot = new byte[slotLength];
+				long recordNumber = 1;
+				while (readFully(in, slot) == slotLength) {
+					byte[] rec = relativeRecord(slot, recordNumber++);
+					if (rec != null) {
+						consumer.record(offset, rec);
+						count += 1;
+					}
+					offset += slotLength;
+				}
+			} else {
+				byte[] recHeader = new byte[lengthBytes];
+				while (readFully(in, recHeader) == lengthBytes) {
+					int len = length(recHeader, offset);
+					int total = lengthBytes + len;
+					total += (4 - total % 4) % 4;
+					if (isDataRecord(recHeader)) {
+						byte[] rec = new byte[len];
+						if (readFully(in, rec) < len) {
+							throw new IOException("Length of Record < Expected (" + len + ") at offset " + offset);
+						}
+						consumer.record(offset, rec);
+						count += 1;
+						skipFully(in, total - lengthBytes - len);
+					} else {
+						skipFully(in, total - lengthBytes);
+					}
+					offset += total;
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return count;
+	}
+
+	/**
+	 * Close the file
+	 * @throws IOException any IO error
+	 */
+	public void close() throws IOException {
+		raf.close();
+	}
+
+	private byte[] relativeRecord(byte[] slot, long recordNumber) throws IOException {
+		int len = length(slot, recordNumber);
+		if (len > header.getMaxLength()) {
+			throw new IOException("Record Length to Big: " + len + " record number: " + recordNumber);
+		}
+		if (! isDataRecord(slot)
+		|| (slot[slotLength - 2] == 13 && slot[slotLength - 1] == 10)) {
+			return null;
+		}
+		byte[] rec = new byte[len];
+		System.arraycopy(slot, lengthBytes, rec, 0, len);
+		return rec;
+	}
+
+	private int length(byte[] recHeader, long where) throws IOException {
+		int len = recHeader[0] & 0x0F;
+		for (int i = 1; i < lengthBytes; i++) {
+			len = (len << 8) | (recHeader[i] & 0xFF);
+		}
+		if (len > 1000000) {
+			throw new IOException("Record Length to Big: " + len + " at: " + where);
+		}
+		return len;
+	}
+
+	/**
+	 * @return wether the record header is for a user-data record
+	 * (normal, reduced or referenced by a pointer record)
+	 */
+	private static boolean isDataRecord(byte[] recHeader) {
+		int attr = (recHeader[0] & 0xF0) >> 4;
+		return attr == 4 || attr == 5 || attr == 7 || attr == 8;
+	}
+
+	private int read(long position, byte[] b) throws IOException {
+		ByteBuffer buf = ByteBuffer.wrap(b);
+		while (buf.hasRemaining()) {
+			int n = channel.read(buf, position + buf.position());
+			if (n < 0) {
+				break;
+			}
+		}
+		return buf.position();
+	}
+
+	private void checkRelative() {
+		if (! isRelative()) {
+			throw new RecordException("Not a Micro Focus Relative file: " + fileName);
+		}
+	}
+
+	private static int readFully(InputStream in, byte[] b) throws IOException {
+		int total = 0, n;
+		while (total < b.length && (n = in.read(b, total, b.length - total)) >= 0) {
+			total += n;
+		}
+		return total;
+	}
+
+	private static void skipFully(InputStream in, long n) throws IOException {
+		while (n > 0) {
+			long s = in.skip(n);
+			if (s <= 0) {
+				if (in.read() < 0) {
+					return;
+				}
+				s = 1;
+			}
+			n -= s;
+		}
+	}
+
+	/**
+	 * Receives the records from {@link MicroFocusRecordFile#scan(IRecordConsumer)}
+	 */
+	public static interface IRecordConsumer {
+		/**
+		 * @param offset record offset
+		 * @param rec record value
+		 * @throws IOException any IO error
+		 */
+		public void record(long offset, byte[] rec) throws IOException;
+	}
+}
@@ -0,0 +1,105 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.ByteIO;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * Push based splitting of Micro Focus Sequential / Relative / Indexed data files
+ * (the push counterpart of {@link MicroFocusByteReader}). The 128 byte file header
+ * is read from the start of the data and is available from {@link #getHeaderRecord()}.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class MicroFocusRecordFramer extends RecordFramer {
+
+	private static final int HEADER_LENGTH = 128;
+
+	private MicroFocusFileHeader headerRecord = null;
+	private int lengthBytes;
+
+	@Override
+	protected int frameLength(byte[] data, int start, int available) throws IOException {
+		if (headerRecord == null) {
+			return HEADER_LENGTH;
+		}
+		if (available < lengthBytes) {
+			return -1;
+		}
+
+		int len = recordLength(data, start);
+		if (len > 1000000) {
+			throw new IOException("Record Length to Big: " + len);
+		}
+		switch (headerRecord.getFileFormat()) {
+		case MicroFocusFileHeader.FORMAT_RELATIVE:
+			return lengthBytes + Math.max(len, headerRecord.getMaxLength()) + 2;
+		default:
+			int remainder = (len + lengthBytes) % 4;
+			return lengthBytes + len + (remainder == 0 ? 0 : 4 - remainder);
+		}
+	}
+
+	@Override
+	protected void emit(byte[] data, int start, int frameLength, IRecordSliceConsumer consumer) throws IOException {
+		if (headerRecord == null) {
+			headerRecord = new MicroFocusFileHeader(Arrays.copyOfRange(data, start, start + HEADER_LENGTH));
+			if (headerRecord.getCompression() > 0) {
+				throw new IOException("Compression is not supported");
+			}
+			lengthBytes = headerRecord.getMaxLength() < MicroFocusFileHeader.MIN_4_BYTE_LENGTH ? 2 : 4;
+			return;
+		}
+
+		int attr = (data[start] & 0xF0) >> 4;
+		boolean skip = ! (attr == 4 || attr == 5 || attr == 7 || attr == 8);
+		if (headerRecord.getFileFormat() == MicroFocusFileHeader.FORMAT_RELATIVE) {
+			int end = start + frameLength;
+			skip |= data[end - 2] == 13 && data[end - 1] == 10;
+		}
+		if (! skip) {
+			consumer.record(data, start + lengthBytes, recordLength(data, start));
+		}
+	}
+
+	/**
+	 * @return the Micro Focus file header (null until the header has been received)
+	 */
+	public MicroFocusFileHeader getHeaderRecord() {
+		return headerRecord;
+	}
+
+	private int recordLength(byte[] data, int start) {
+		int len = data[start] & 0x0F;
+		for (int i = 1; i < lengthBytes; i++) {
+			len = (len << 8) + (data[start + i] & 0xFF);
+		}
+		return len;
+	}
+}
@@ -0,0 +1,221 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.ByteIO;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Random (record number based) access to a Fixed-Length record file.
+ * The byte offset of record n (zero based) is n * record-length, the file is read
+ * with FileChannel positional reads. Recently used pages (blocks of records)
+ * are held in a bounded (least recently used) page cache.
+ *
+ * <p>When opened for update, records can be updated in place (or appended to
+ * the end of the file). Updates are written through to the file and the page cache.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class RandomAccessByteFile {
+
+	public static final int DEFAULT_PAGE_SIZE = 64 * 1024;
+	public static final int DEFAULT_MAX_PAGES = 64;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final int recordLength;
+	private final int recordsPerPage;
+	private final Map<Long, byte[]> cache;
+	private long recordCount;
+
+	/**
+	 * Open a Fixed Length file for Random access using the default page size / cache size
+	 * @param fileName name of the file
+	 * @param recordLength length of each record
+	 * @param update wether the file is opened for update
+	 * @throws IOException any IO error
+	 */
+	public RandomAccessByteFile(String fileName, int recordLength, boolean update) throws IOException {
+		this(fileName, recordLength, update, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+	}
+
+	/**
+	 * Open a Fixed Length file for Random access
+	 * @param fileName name of the file
+	 * @param recordLength length of each record
+	 * @param update wether the file is opened for update
+	 * @param pageSize size (in bytes) of the cached pages, it is rounded down to
+	 * a whole number of records (minimum one record)
+	 * @param maxPages maximum number of pages held in the cache
+	 * @throws IOException any IO error
+	 */
+	public RandomAccessByteFile(String fileName, int recordLength, boolean update, int pageSize, final int maxPages)
+	throws IOException {
+		if (recordLength <= 0) {
+			throw new IllegalArgumentException("Invalid Record Length: " + recordLength);
+		}
+		this.file = new RandomAccessFile(fileName, update ? "rw" : "r");
+		this.channel = file.getChannel();
+		this.recordLength = recordLength;
+		this.recordsPerPage = Math.max(1, pageSize / recordLength);
+		this.recordCount = channel.size() / recordLength;
+		this.cache = new LinkedHashMap<Long, byte[]>(Math.min(maxPages, 256) * 2, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+				return size() > Math.max(1, maxPages);
+			}
+		};
+	}
+
+	/**
+	 * @return the number of (complete) records in the file
+	 */
+	public synchronized long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @return the record length
+	 */
+	public final int getRecordLength() {
+		return recordLength;
+	}
+
+	/**
+	 * Read a record
+	 * @param recordNo record number (zero based)
+	 * @return the record
+	 * @throws IOException any IO error
+	 */
+	public synchronized byte[] read(long recordNo) throws IOException {
+		checkRecordNo(recordNo, recordCount - 1);
+
+		byte[] rec = new byte[recordLength];
+		byte[] page = getPage(recordNo / recordsPerPage);
+		System.arraycopy(page, (int) (recordNo % recordsPerPage) * recordLength, rec, 0, recordLength);
+		return rec;
+	}
+
+	/**
+	 * Read a range of records
+	 * @param from first record number (zero based)
+	 * @param count number of records to read, it is reduced if there are
+	 * less than count records after <i>from</i>
+	 * @return the records
+	 * @throws IOException any IO error
+	 */
+	public synchronized byte[][] read(long from, int count) throws IOException {
+		checkRecordNo(from, recordCount);
+
+		int num = (int) Math.max(0, Math.min(count, recordCount - from));
+		byte[][] recs = new byte[num][];
+		for (int i = 0; i < num; i++) {
+			recs[i] = read(from + i);
+		}
+		return recs;
+	}
+
+	/**
+	 * Update a record in place (or add a record when recordNo = getRecordCount()).
+	 * The record is truncated / padded with fillByte to the record length.
+	 *
+	 * @param recordNo record number (zero based)
+	 * @param rec new record value
+	 * @param fillByte byte used to pad short records
+	 * @throws IOException any IO error
+	 */
+	public synchronized void write(long recordNo, byte[] rec, byte fillByte) throws IOException {
+		checkRecordNo(recordNo, recordCount);
+
+		byte[] r = rec;
+		if (rec.length != recordLength) {
+			r = new byte[recordLength];
+			System.arraycopy(rec, 0, r, 0, Math.min(rec.length, recordLength));
+			for (int i = rec.length; i < recordLength; i++) {
+				r[i] = fillByte;
+			}
+		}
+
+		ByteBuffer buf = ByteBuffer.wrap(r);
+		long pos = recordNo * recordLength;
+		while (buf.hasRemaining()) {
+			pos += channel.write(buf, pos);
+		}
+
+		byte[] page = cache.get(recordNo / recordsPerPage);
+		if (page != null) {
+			System.arraycopy(r, 0, page, (int) (recordNo % recordsPerPage) * recordLength, recordLength);
+		}
+		if (recordNo == recordCount) {
+			recordCount += 1;
+		}
+	}
+
+	/**
+	 * Force updates to the storage device
+	 * @throws IOException any IO error
+	 */
+	public void flush() throws IOException {
+		channel.force(false);
+	}
+
+	/**
+	 * Close the file
+	 * @throws IOException any IO error
+	 */
+	public synchronized void close() throws IOException {
+		cache.clear();
+		file.close();
+	}
+
+	private void checkRecordNo(long recordNo, long max) {
+		if (recordNo < 0 || recordNo > max) {
+			throw new IndexOutOfBoundsException("Invalid record number: " + recordNo + ", record count=" + recordCount);
+		}
+	}
+
+	/**
+	 * Get a page from the cache (reading it from the file if necessary)
+	 */
+	private byte[] getPage(long pageNo) throws IOException {
+		byte[] page = cache.get(pageNo);
+		if (page == null) {
+			page = new byte[recordsPerPage * recordLength];
+			ByteBuffer buf = ByteBuffer.wrap(page);
+			long pos = pageNo * page.length;
+			while (buf.hasRemaining() && channel.read(buf, pos + buf.position()) >= 0) {
+			}
+			cache.put(pageNo, page);
+		}
+		return page;
+	}
+}
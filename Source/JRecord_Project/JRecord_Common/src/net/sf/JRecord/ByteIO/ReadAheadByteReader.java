@@ -0,0 +1,154 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.ByteIO;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Wraps a Byte-Reader so the file is read ahead on a background thread
+ * (see {@link ReadAheadInputStream}). Record splitting is still done
+ * by the wrapped reader.
+ *
+ * <pre>
+ *     AbstractByteReader reader = new ReadAheadByteReader(
+ *               ByteIOProvider.getInstance().getByteReader(schema));
+ *     reader.open(fileName);
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ */
+public class ReadAheadByteReader extends AbstractByteReader {
+
+	private final IByteReader reader;
+	private final int bufferSize, bufferCount;
+
+	/**
+	 * Wrap a reader using the default buffer size / count
+	 * @param reader reader to be wrapped
+	 */
+	public ReadAheadByteReader(IByteReader reader) {
+		this(reader, ReadAheadInputStream.DEFAULT_BUFFER_SIZE, ReadAheadInputStream.DEFAULT_BUFFER_COUNT);
+	}
+
+	/**
+	 * Wrap a reader
+	 * @param reader reader to be wrapped
+	 * @param bufferSize size of the read-ahead buffers
+	 * @param bufferCount number of read-ahead buffers
+	 */
+	public ReadAheadByteReader(IByteReader reader, int bufferSize, int bufferCount) {
+		super();
+		this.reader = reader;
+		this.bufferSize = bufferSize;
+		this.bufferCount = bufferCount;
+	}
+
+	/**
+	 * @see net.sf.JRecord.ByteIO.IByteReader#open(java.io.InputStream)
+	 */
+	@Override
+	public void open(InputStream inputStream) throws IOException {
+		reader.open(new ReadAheadInputStream(inputStream, bufferSize, bufferCount));
+	}
+
+	/**
+	 * @see net.sf.JRecord.ByteIO.AbstractByteReader#open(java.io.InputStream, net.sf.JRecord.ByteIO.ReadPosition)
+	 */
+	@Override
+	public void open(InputStream inputStream, ReadPosition position) throws IOException {
+		if (! (reader instanceof AbstractByteReader)) {
+			throw new IOException("Restart is not supported by " + reader.getClass().getName());
+		}
+		((AbstractByteReader) reader).open(new ReadAheadInputStream(inputStream, bufferSize, bufferCount), position);
+	}
+
+	/**
+	 * @see net.sf.JRecord.ByteIO.AbstractByteReader#getPosition()
+	 */
+	@Override
+	public ReadPosition getPosition() {
+		return reader instanceof AbstractByteReader ? ((AbstractByteReader) reader).getPosition() : null;
+	}
+
+	/**
+	 * @see net.sf.JRecord.ByteIO.IByteRecordReader#read()
+	 */
+	@Override
+	public byte[] readImplementation() throws IOException {
+		return reader.read();
+	}
+
+	/**
+	 * @see net.sf.JRecord.ByteIO.IByteRecordReader#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * @see net.sf.JRecord.ByteIO.AbstractByteReader#setLineLength(int)
+	 */
+	@Override
+	public void setLineLength(int lineLength) {
+		reader.setLineLength(lineLength);
+	}
+
+	/**
+	 * @see net.sf.JRecord.ByteIO.AbstractByteReader#canWrite()
+	 */
+	@Override
+	public boolean canWrite() {
+		return reader.canWrite();
+	}
+
+	/**
+	 * @see net.sf.JRecord.ByteIO.AbstractByteReader#getBytesRead()
+	 */
+	@Override
+	public long getBytesRead() {
+		return reader.getBytesRead();
+	}
+
+	/**
+	 * @see net.sf.JRecord.ByteIO.AbstractByteReader#isAtRestartPoint()
+	 */
+	@Override
+	public boolean isAtRestartPoint() {
+		return (! (reader instanceof AbstractByteReader)) || ((AbstractByteReader) reader).isAtRestartPoint();
+	}
+
+	/**
+	 * @see net.sf.JRecord.ByteIO.AbstractByteReader#getFileHeaderLength()
+	 */
+	@Override
+	public int getFileHeaderLength() {
+		return reader instanceof AbstractByteReader ? ((AbstractByteReader) reader).getFileHeaderLength() : 0;
+	}
+}
@@ -0,0 +1,267 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.ByteIO;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * InputStream that reads ahead on a background thread (double / multi buffering).
+ * While the consumer (the record reader / parser) works through one buffer,
+ * the background thread fills the next buffer(s) from the underlying stream, so
+ * I/O and parsing overlap. This helps on high latency file systems (e.g. NFS).
+ *
+ * <p>At most <i>bufferCount</i> buffers are in use (one with the consumer,
+ * the rest being filled or waiting). For a FileInputStream the file is read
+ * through its FileChannel into direct buffers.
+ *
+ * <p>An IOException on the background thread is re-thrown to the consumer
+ * (after the data that was read before the error). Closing the stream stops the
+ * background thread and closes the underlying stream.
+ *
+ * <pre>
+ *     AbstractByteReader reader = ByteIOProvider.getInstance().getByteReader(schema);
+ *     reader.open(new ReadAheadInputStream(new FileInputStream(fileName)));
+ * </pre>
+ * or from an IO-Builder
+ * <pre>
+ *     AbstractLineReader reader = JRecordInterface1.COBOL
+ *              .newIOBuilder(copybookName)
+ *                  .setFileOrganization(Constants.IO_VB)
+ *                  .setReadAhead(ReadAheadInputStream.DEFAULT_BUFFER_SIZE, ReadAheadInputStream.DEFAULT_BUFFER_COUNT)
+ *              .newReader(dataFile);
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ */
+public class ReadAheadInputStream extends InputStream {
+
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+	public static final int DEFAULT_BUFFER_COUNT = 3;
+
+	private static final ByteBuffer END_OF_FILE = ByteBuffer.allocate(0);
+
+	private final InputStream in;
+	private final FileChannel channel;
+	private final BlockingQueue<ByteBuffer> filled, free;
+	private final Thread readThread;
+
+	private ByteBuffer current = null;
+	private boolean eof = false;
+	private volatile boolean closed = false;
+	private volatile IOException error = null;
+
+
+	/**
+	 * Create a read-ahead stream with the default buffer size / count
+	 * @param in stream to be read
+	 */
+	public ReadAheadInputStream(InputStream in) {
+		this(in, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT);
+	}
+
+	/**
+	 * Create a read-ahead stream
+	 * @param in stream to be read
+	 * @param bufferSize size of each buffer
+	 * @param bufferCount number of buffers (minimum 2)
+	 */
+	public ReadAheadInputStream(InputStream in, int bufferSize, int bufferCount) {
+		super();
+
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+		}
+		int count = Math.max(2, bufferCount);
+
+		this.in = in;
+		this.channel = in instanceof FileInputStream ? ((FileInputStream) in).getChannel() : null;
+		this.filled = new ArrayBlockingQueue<ByteBuffer>(count + 1);
+		this.free = new ArrayBlockingQueue<ByteBuffer>(count);
+
+		for (int i = 0; i < count; i++) {
+			free.add(channel == null ? ByteBuffer.allocate(bufferSize) : ByteBuffer.allocateDirect(bufferSize));
+		}
+
+		readThread = new Thread(new Runnable() {
+			@Override public void run() {
+				readAhead();
+			}
+		}, "JRecord-ReadAhead");
+		readThread.setDaemon(true);
+		readThread.start();
+	}
+
+	/**
+	 * Background thread: fill the free buffers and pass them to the consumer
+	 */
+	private void readAhead() {
+		try {
+			boolean more = true;
+			while (more && ! closed) {
+				ByteBuffer buf = free.take();
+				buf.clear();
+				more = fill(buf);
+				buf.flip();
+				if (buf.hasRemaining()) {
+					filled.put(buf);
+				}
+			}
+		} catch (InterruptedException e) {
+			return;
+		} catch (IOException e) {
+			if (! closed) {
+				error = e;
+			}
+		} catch (RuntimeException e) {
+			if (! closed) {
+				error = new IOException(e);
+			}
+		}
+		filled.offer(END_OF_FILE);
+	}
+
+	/**
+	 * Fill a buffer from the underlying stream
+	 * @return wether there is more data to be read
+	 */
+	private boolean fill(ByteBuffer buf) throws IOException {
+		int num = 0;
+		if (channel == null) {
+			byte[] b = buf.array();
+			int pos = 0;
+			while (pos < b.length && (num = in.read(b, pos, b.length - pos)) >= 0) {
+				pos += num;
+			}
+			buf.position(pos);
+		} else {
+			while (buf.hasRemaining() && (num = channel.read(buf)) >= 0) {
+			}
+		}
+		return num >= 0;
+	}
+
+	/**
+	 * Get the next filled buffer (if required)
+	 * @return wether there is data available
+	 */
+	private boolean nextBuffer() throws IOException {
+		if (closed) {
+			throw new IOException("Stream Closed");
+		}
+		if (current != null && current.hasRemaining()) {
+			return true;
+		}
+		if (eof) {
+			return false;
+		}
+		if (current != null) {
+			free.offer(current);
+			current = null;
+		}
+		try {
+			ByteBuffer buf = filled.take();
+			if (buf == END_OF_FILE) {
+				eof = true;
+				if (error != null) {
+					throw error;
+				}
+				return false;
+			}
+			current = buf;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for data", e);
+		}
+		return true;
+	}
+
+
+	/**
+	 * @see java.io.InputStream#read()
+	 */
+	@Override
+	public int read() throws IOException {
+		if (nextBuffer()) {
+			return current.get() & 0xFF;
+		}
+		return -1;
+	}
+
+
+	/**
+	 * @see java.io.InputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		int total = 0;
+		while (total < len && nextBuffer()) {
+			int n = Math.min(len - total, current.remaining());
+			current.get(b, off + total, n);
+			total += n;
+			if (total > 0 && filled.isEmpty()) {
+				break;
+			}
+		}
+		return total == 0 ? -1 : total;
+	}
+
+
+	/**
+	 * @see java.io.InputStream#available()
+	 */
+	@Override
+	public int available() throws IOException {
+		return current == null || closed ? 0 : current.remaining();
+	}
+
+
+	/**
+	 * Stop the read-ahead thread and close the underlying stream
+	 * @see java.io.InputStream#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		readThread.interrupt();
+		current = null;
+		filled.clear();
+		in.close();
+	}
+}
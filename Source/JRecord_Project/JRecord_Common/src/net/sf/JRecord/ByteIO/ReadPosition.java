@@ -0,0 +1,152 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+
+package net.sf.JRecord.ByteIO;
+
+import java.io.Serializable;
+
+import net.sf.JRecord.Common.RecordException;
+
+
+/**
+ * A position (checkpoint) in a file that reading can be restarted from.
+ * It holds the byte offset of the next record, the number of records
+ * read (when known) and any reader specific state (e.g. the Block-Descriptor
+ * details for VB files or the file header for Micro Focus files).
+ *
+ * <p>A position can be stored as a String (see {@link #toString()} / {@link #parse(String)}).
+ *
+ * <pre>
+ *     ReadPosition pos = reader.getPosition();
+ *         ...
+ *     reader = ByteIOProvider.getInstance().getByteReader(schema);
+ *     reader.open(fileName, pos);
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ */
+public class ReadPosition implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+	private final long byteOffset, recordNumber;
+	private final byte[] state;
+
+	/**
+	 * Create a position (record number unknown)
+	 * @param byteOffset byte offset of the next record
+	 * @param state reader specific state (may be null)
+	 */
+	public ReadPosition(long byteOffset, byte[] state) {
+		this(byteOffset, -1, state);
+	}
+
+	/**
+	 * Create a position
+	 * @param byteOffset byte offset of the next record
+	 * @param recordNumber number of records read
+	 * @param state reader specific state (may be null)
+	 */
+	public ReadPosition(long byteOffset, long recordNumber, byte[] state) {
+		super();
+		this.byteOffset = byteOffset;
+		this.recordNumber = recordNumber;
+		this.state = state;
+	}
+
+	/**
+	 * Create a copy of this position with the record number set
+	 * @param recordNumber number of records read
+	 * @return new position
+	 */
+	public ReadPosition withRecordNumber(long recordNumber) {
+		return new ReadPosition(byteOffset, recordNumber, state);
+	}
+
+	/**
+	 * @return the byte offset of the next record
+	 */
+	public final long getByteOffset() {
+		return byteOffset;
+	}
+
+	/**
+	 * @return the number of records read (-1 if it is not known)
+	 */
+	public final long getRecordNumber() {
+		return recordNumber;
+	}
+
+	/**
+	 * @return reader specific state (may be null)
+	 */
+	public final byte[] getState() {
+		return state;
+	}
+
+	/**
+	 * @return the position as a String: <i>byte-offset</i>,<i>record-number</i>,<i>state (hex)</i>
+	 */
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder()
+				.append(byteOffset).append(',')
+				.append(recordNumber).append(',');
+		if (state != null) {
+			for (byte s : state) {
+				b.append(HEX[(s >> 4) & 0x0F]).append(HEX[s & 0x0F]);
+			}
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Convert a String (created by {@link #toString()}) back to a position
+	 * @param position position as a String
+	 * @return the position
+	 */
+	public static ReadPosition parse(String position) {
+		String[] parts = position.trim().split(",", -1);
+		if (parts.length != 3 || (parts[2].length() % 2) != 0) {
+			throw new RecordException("Invalid Read Position: " + position);
+		}
+
+		try {
+			byte[] state = null;
+			if (parts[2].length() > 0) {
+				state = new byte[parts[2].length() / 2];
+				for (int i = 0; i < state.length; i++) {
+					state[i] = (byte) Integer.parseInt(parts[2].substring(i * 2, i * 2 + 2), 16);
+				}
+			}
+			return new ReadPosition(Long.parseLong(parts[0]), Long.parseLong(parts[1]), state);
+		} catch (NumberFormatException e) {
+			throw new RecordException("Invalid Read Position: " + position, e);
+		}
+	}
+}
@@ -0,0 +1,267 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.ByteIO;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Push based record splitting. Where the Byte-Readers pull records from an InputStream,
+ * a Record-Framer is fed chunks of bytes as they arrive (e.g. from a socket or message queue)
+ * and passes each complete record to a consumer. Partial records are held until the rest
+ * of the record arrives.
+ *
+ * <pre>
+ *     RecordFramer framer = new VbRecordFramer();
+ *     while (... more data ...) {
+ *         framer.feed(chunk, consumer);
+ *     }
+ *     framer.finish(consumer);
+ * </pre>
+ *
+ * <p>Records can be received as copies ({@link IRecordConsumer}) or, to avoid copying,
+ * as a slice of the chunk ({@link IRecordSliceConsumer}); only records that are split
+ * across chunks are copied.
+ *
+ * <p>Framers are created by {@link ByteIOProvider#getRecordFramer(net.sf.JRecord.Common.IBasicFileSchema)}.
+ * A framer is not thread safe; chunks must be fed in order from one thread at a time.
+ *
+ * @author Bruce Martin
+ *
+ */
+public abstract class RecordFramer {
+
+	/**
+	 * Receives the records
+	 */
+	public static interface IRecordConsumer {
+		/**
+		 * Process a record
+		 * @param record the record
+		 * @throws IOException any error
+		 */
+		public void record(byte[] record) throws IOException;
+	}
+
+	/**
+	 * Receives the records without them being copied
+	 */
+	public static interface IRecordSliceConsumer {
+		/**
+		 * Process a record; the array is only valid for the duration of the call
+		 * (it belongs to the chunk or the framer)
+		 * @param data array holding the record
+		 * @param offset start of the record
+		 * @param length length of the record
+		 * @throws IOException any error
+		 */
+		public void record(byte[] data, int offset, int length) throws IOException;
+	}
+
+	private byte[] pending = new byte[256];
+	private byte[] directBuffer = new byte[0];
+	private int pendingLength = 0;
+	private long bytesFed = 0;
+
+	/**
+	 * Split a chunk of data into records
+	 * @param chunk data to be processed (all remaining bytes are consumed)
+	 * @param consumer receives the complete records
+	 * @throws IOException any error
+	 */
+	public final void feed(ByteBuffer chunk, IRecordConsumer consumer) throws IOException {
+		feed(chunk, copying(consumer));
+	}
+
+	/**
+	 * Split a chunk of data into records
+	 * @param chunk data to be processed (all remaining bytes are consumed)
+	 * @return the complete records in the chunk
+	 * @throws IOException any error
+	 */
+	public final List<byte[]> feed(ByteBuffer chunk) throws IOException {
+		final ArrayList<byte[]> records = new ArrayList<byte[]>();
+		feed(chunk, new IRecordConsumer() {
+			@Override public void record(byte[] record) {
+				records.add(record);
+			}
+		});
+		return records;
+	}
+
+	/**
+	 * Split a chunk of data into records without copying them
+	 * @param chunk data to be processed (all remaining bytes are consumed)
+	 * @param consumer receives the complete records (as a slice of the chunk where possible)
+	 * @throws IOException any error
+	 */
+	public final void feed(ByteBuffer chunk, IRecordSliceConsumer consumer) throws IOException {
+		int size = chunk.remaining();
+		if (chunk.hasArray()) {
+			int start = chunk.arrayOffset() + chunk.position();
+			chunk.position(chunk.limit());
+			feed(chunk.array(), start, size, consumer);
+		} else {
+			if (directBuffer.length < size) {
+				directBuffer = new byte[size];
+			}
+			chunk.get(directBuffer, 0, size);
+			feed(directBuffer, 0, size, consumer);
+		}
+	}
+
+	/**
+	 * Split a chunk of data into records
+	 * @param data array holding the data
+	 * @param offset start of the data
+	 * @param length number of bytes
+	 * @param consumer receives the complete records (as a slice of data where possible)
+	 * @throws IOException any error
+	 */
+	public final void feed(byte[] data, int offset, int length, IRecordSliceConsumer consumer) throws IOException {
+		int pos = offset, end = offset + length;
+		bytesFed += length;
+
+		while (pendingLength > 0 && pos < end) {
+			int len = frameLength(pending, 0, pendingLength);
+			int take = len > 0
+					? Math.min(len - pendingLength, end - pos)
+					: Math.min(Math.max(16, pendingLength), end - pos);
+			append(data, pos, take);
+			pos += take;
+
+			int used = 0;
+			while (used < pendingLength
+					&& (len = frameLength(pending, used, pendingLength - used)) > 0
+					&& len <= pendingLength - used) {
+				emit(pending, used, len, consumer);
+				used += len;
+			}
+			if (used > 0) {
+				System.arraycopy(pending, used, pending, 0, pendingLength - used);
+				pendingLength -= used;
+			}
+		}
+
+		int len;
+		while (pos < end && (len = frameLength(data, pos, end - pos)) > 0 && len <= end - pos) {
+			emit(data, pos, len, consumer);
+			pos += len;
+		}
+		append(data, pos, end - pos);
+	}
+
+	/**
+	 * Called at the end of the input
+	 * @param consumer receives any final record
+	 * @throws IOException if there is an incomplete record
+	 */
+	public final void finish(IRecordConsumer consumer) throws IOException {
+		finish(copying(consumer));
+	}
+
+	/**
+	 * Called at the end of the input
+	 * @param consumer receives any final record
+	 * @throws IOException if there is an incomplete record
+	 */
+	public final void finish(IRecordSliceConsumer consumer) throws IOException {
+		if (pendingLength > 0) {
+			int len = pendingLength;
+			pendingLength = 0;
+			finishPartial(Arrays.copyOf(pending, len), consumer);
+		}
+	}
+
+	/**
+	 * @return number of bytes held waiting for the rest of a record
+	 */
+	public final int getPendingLength() {
+		return pendingLength;
+	}
+
+	/**
+	 * @return total number of bytes fed to the framer
+	 */
+	public final long getBytesFed() {
+		return bytesFed;
+	}
+
+	/**
+	 * Get the length of the next frame (record including any length / end-of-line bytes)
+	 * @param data data
+	 * @param start start of the frame
+	 * @param available number of bytes available
+	 * @return length of the frame (which may be more than the bytes available)
+	 * or -1 if more bytes are needed to work out the length
+	 * @throws IOException if the data is invalid
+	 */
+	protected abstract int frameLength(byte[] data, int start, int available) throws IOException;
+
+	/**
+	 * Pass the record in a frame to the consumer
+	 * @param data data
+	 * @param start start of the frame
+	 * @param frameLength length of the frame
+	 * @param consumer receives the record
+	 * @throws IOException any error
+	 */
+	protected void emit(byte[] data, int start, int frameLength, IRecordSliceConsumer consumer) throws IOException {
+		consumer.record(data, start, frameLength);
+	}
+
+	/**
+	 * Process an incomplete frame at the end of the input
+	 * @param data the incomplete frame
+	 * @param consumer receives any record
+	 * @throws IOException by default (an incomplete record is an error)
+	 */
+	protected void finishPartial(byte[] data, IRecordSliceConsumer consumer) throws IOException {
+		throw new IOException("Incomplete record at the end of the input: " + data.length + " bytes");
+	}
+
+	private static IRecordSliceConsumer copying(final IRecordConsumer consumer) {
+		return new IRecordSliceConsumer() {
+			@Override public void record(byte[] data, int offset, int length) throws IOException {
+				consumer.record(Arrays.copyOfRange(data, offset, offset + length));
+			}
+		};
+	}
+
+	private void append(byte[] data, int start, int len) {
+		if (len > 0) {
+			if (pendingLength + len > pending.length) {
+				pending = Arrays.copyOf(pending, Math.max(pendingLength + len, pending.length * 2));
+			}
+			System.arraycopy(data, start, pending, pendingLength, len);
+			pendingLength += len;
+		}
+	}
+}
@@ -66,7 +66,7 @@ public class TextReader extends AbstractByteReader {
 	}
 
 	@Override
-	public byte[] read() throws IOException {
+	public byte[] readImplementation() throws IOException {
 		return Conversion.getBytes(reader.readLine(), font);
 	}
 
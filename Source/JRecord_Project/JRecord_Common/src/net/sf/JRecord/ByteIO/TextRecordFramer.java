@@ -0,0 +1,132 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.ByteIO;
+
+import java.io.IOException;
+
+import net.sf.JRecord.Common.Conversion;
+
+
+/**
+ * Push based splitting of Text files (the push counterpart of {@link ByteTextReader}).
+ * As with ByteTextReader, the End-of-Line (\n, \r\n or \r in the files character set)
+ * is taken from the first line; a last line without an End-of-Line is returned.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TextRecordFramer extends RecordFramer {
+
+	private static final int EOL_UNKNOWN = 0;
+	private static final int EOL_LF = 1;
+	private static final int EOL_CR = 2;
+
+	private final byte byteCR, byteLF;
+	private int eolMode = EOL_UNKNOWN;
+
+	/**
+	 * Text framer for the default character set
+	 */
+	public TextRecordFramer() {
+		this("");
+	}
+
+	/**
+	 * @param charSet character set of the file
+	 */
+	public TextRecordFramer(String charSet) {
+		super();
+		byte[] b = Conversion.getBytes("\r\n", charSet);
+		byteCR = b[0];
+		byteLF = b[1];
+	}
+
+	@Override
+	protected int frameLength(byte[] data, int start, int available) {
+		int end = start + available;
+		int pos = start;
+
+		switch (eolMode) {
+		case EOL_UNKNOWN:
+			while (pos < end && data[pos] != byteLF && data[pos] != byteCR) {
+				pos += 1;
+			}
+			if (pos >= end) {
+				return -1;
+			}
+			if (data[pos] == byteLF) {
+				eolMode = EOL_LF;
+			} else if (pos + 1 >= end) {
+				return -1;					// need the next byte to tell \r from \r\n
+			} else if (data[pos + 1] == byteLF) {
+				eolMode = EOL_LF;
+				pos += 1;
+			} else {
+				eolMode = EOL_CR;
+			}
+			return pos - start + 1;
+		case EOL_LF:
+			while (pos < end && data[pos] != byteLF) {
+				pos += 1;
+			}
+			break;
+		default:
+			if (data[pos] == byteLF) {
+				pos += 1;					// \n following the \r of the previous line
+			}
+			while (pos < end && data[pos] != byteCR) {
+				pos += 1;
+			}
+		}
+		return pos >= end ? -1 : pos - start + 1;
+	}
+
+	@Override
+	protected void emit(byte[] data, int start, int frameLength, IRecordSliceConsumer consumer) throws IOException {
+		int end = start + frameLength - 1;
+		if (eolMode == EOL_CR) {
+			if (data[start] == byteLF) {
+				start += 1;
+			}
+		} else if (end > start && data[end - 1] == byteCR) {
+			end -= 1;
+		}
+		consumer.record(data, start, end - start);
+	}
+
+	@Override
+	protected void finishPartial(byte[] data, IRecordSliceConsumer consumer) throws IOException {
+		int start = 0, end = data.length;
+		if (eolMode == EOL_CR && data[0] == byteLF) {
+			start = 1;
+		} else if (eolMode == EOL_UNKNOWN && data[end - 1] == byteCR) {
+			end -= 1;
+		}
+		if (end > start || eolMode == EOL_UNKNOWN) {
+			consumer.record(data, start, end - start);
+		}
+	}
+}
@@ -0,0 +1,245 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.ByteIO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * Writes records as a Mainframe <b>VB</b> (RECFM=VB) or <b>VBS</b> (RECFM=VBS, spanned)
+ * file, i.e. the file can be sent back to the Mainframe without re-blocking it.
+ * The file consists of
+ *
+ * <pre>
+ *   {BDW}{RDW}Record{RDW}Record ...
+ *   {BDW}{RDW}Record ...
+ * </pre>
+ *
+ * where
+ * <ul>
+ *   <li><b>BDW</b> (Block Descriptor Word) is a 2 byte block length (including the BDW)
+ *   followed by 2 bytes hex zero. For block sizes &gt; 32760 the <i>extended</i> BDW
+ *   (first bit 1 followed by a 31 bit length) is used.
+ *   <li><b>RDW</b> (Record / Segment Descriptor Word) is a 2 byte length (including the RDW)
+ *   followed by the segment code and a byte of hex zero. The segment code is
+ *   0 - complete record, 1 - first segment, 2 - last segment, 3 - middle segment.
+ * </ul>
+ *
+ * <p>For VBS files, records that do not fit in the space left in the current block
+ * are split into segments (spanned) across blocks. For VB files a record is never split;
+ * records longer than the block size (less the BDW / RDW) are rejected.
+ *
+ * <p>Each block is assembled in a (reused) buffer and written with one call.
+ * When <i>includeBlockDescriptor</i> is false, no BDW is written
+ * (the format read by {@link VbsByteReader} / {@link VbByteReader} without block lengths).
+ *
+ * @author Bruce Martin
+ *
+ */
+public class VbBlockedByteWriter extends AbstractByteWriter {
+
+	public static final int DEFAULT_BLOCK_SIZE = 27998;
+
+	private static final int DESCRIPTOR_LENGTH = 4;
+	private static final int MAX_SHORT_BLOCK = 32760;
+	private static final int MAX_SEGMENT_LENGTH = 32760;
+
+	private static final byte SEGMENT_COMPLETE = 0;
+	private static final byte SEGMENT_FIRST = 1;
+	private static final byte SEGMENT_LAST = 2;
+	private static final byte SEGMENT_MIDDLE = 3;
+
+    private OutputStream outStream = null;
+
+	private final byte[] block;
+	private final boolean spanned, includeBlockDescriptor;
+	private final int maxSegment;
+	private int blockPos;
+
+
+    /**
+     * Create VB writer (including the Block-Descriptor-Word) with the default block size.
+     */
+	public VbBlockedByteWriter() {
+		this(DEFAULT_BLOCK_SIZE, false, true);
+	}
+
+    /**
+     * Create a Blocked VB / VBS writer
+     *
+     * @param blockSize block size (BLKSIZE) of the file, the block length includes the BDW
+     * @param spanned wether records may be spanned across blocks (VBS)
+     * @param includeBlockDescriptor wether to write the Block-Descriptor-Word at the start of each block
+     */
+	public VbBlockedByteWriter(int blockSize, boolean spanned, boolean includeBlockDescriptor) {
+		super();
+
+		if (blockSize < DESCRIPTOR_LENGTH * 2 + 1) {
+			throw new IllegalArgumentException("Invalid block size: " + blockSize);
+		}
+		this.block = new byte[blockSize];
+		this.spanned = spanned;
+		this.includeBlockDescriptor = includeBlockDescriptor;
+		this.maxSegment = Math.min(blockSize - DESCRIPTOR_LENGTH, MAX_SEGMENT_LENGTH);
+		this.blockPos = DESCRIPTOR_LENGTH;
+	}
+
+
+    /**
+     * @see AbstractByteWriter#open(java.io.OutputStream)
+     */
+    public void open(OutputStream outputStream) throws IOException {
+
+        outStream = outputStream;
+        blockPos = DESCRIPTOR_LENGTH;
+    }
+
+
+    /**
+     * @see AbstractByteWriter#write(byte[])
+     */
+    public void writeImplementation(byte[] rec) throws IOException {
+
+        if (outStream == null) {
+            throw new IOException(AbstractByteWriter.NOT_OPEN_MESSAGE);
+        }
+
+        int recLength = rec.length + DESCRIPTOR_LENGTH;
+        if (recLength <= Math.min(maxSegment, block.length - blockPos)) {
+        	addSegment(rec, 0, rec.length, SEGMENT_COMPLETE);
+        } else if (! spanned) {
+        	if (recLength > maxSegment) {
+        		throw new IOException("Record length " + rec.length + " is to long for a VB file with block size "
+        				+ block.length + "; use a larger block size or VBS");
+        	}
+        	writeBlock();
+        	addSegment(rec, 0, rec.length, SEGMENT_COMPLETE);
+        } else {
+        	writeSpanned(rec);
+        }
+    }
+
+    /**
+     * Write a record as segments (spanned across blocks)
+     * @param rec record to be written
+     * @throws IOException any IO error
+     */
+    private void writeSpanned(byte[] rec) throws IOException {
+    	int pos = 0;
+    	byte segmentCode = SEGMENT_FIRST;
+
+    	while (true) {
+    		int room = Math.min(maxSegment, block.length - blockPos) - DESCRIPTOR_LENGTH;
+    		if (room <= 0) {
+    			writeBlock();
+    			continue;
+    		}
+    		int remaining = rec.length - pos;
+    		if (remaining <= room) {
+    			addSegment(rec, pos, remaining, segmentCode == SEGMENT_FIRST ? SEGMENT_COMPLETE : SEGMENT_LAST);
+    			return;
+    		}
+    		addSegment(rec, pos, room, segmentCode);
+    		pos += room;
+    		segmentCode = SEGMENT_MIDDLE;
+    		writeBlock();
+    	}
+    }
+
+    /**
+     * Add a record / segment (and its descriptor word) to the current block
+     */
+    private void addSegment(byte[] rec, int pos, int len, byte segmentCode) {
+    	int segLength = len + DESCRIPTOR_LENGTH;
+
+    	block[blockPos]     = (byte) (segLength >> 8);
+    	block[blockPos + 1] = (byte) segLength;
+    	block[blockPos + 2] = segmentCode;
+    	block[blockPos + 3] = 0;
+    	System.arraycopy(rec, pos, block, blockPos + DESCRIPTOR_LENGTH, len);
+    	blockPos += segLength;
+    }
+
+
+    /**
+     * writes the current block to the output file
+     *
+     * @throws IOException any IO error
+     */
+    private void writeBlock() throws IOException {
+
+    	if (includeBlockDescriptor) {
+    		if (block.length > MAX_SHORT_BLOCK) {
+    			block[0] = (byte) ((blockPos >> 24) | 0x80);
+    			block[1] = (byte) (blockPos >> 16);
+    			block[2] = (byte) (blockPos >> 8);
+    			block[3] = (byte) blockPos;
+    		} else {
+    			block[0] = (byte) (blockPos >> 8);
+    			block[1] = (byte) blockPos;
+    			block[2] = 0;
+    			block[3] = 0;
+    		}
+    		outStream.write(block, 0, blockPos);
+    	} else {
+    		outStream.write(block, DESCRIPTOR_LENGTH, blockPos - DESCRIPTOR_LENGTH);
+    	}
+    	blockPos = DESCRIPTOR_LENGTH;
+    }
+
+
+    /**
+     * Write the current (partial) block
+     * @see net.sf.JRecord.ByteIO.AbstractByteWriter#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+    	if (outStream != null) {
+    		if (blockPos > DESCRIPTOR_LENGTH) {
+    			writeBlock();
+    		}
+    		outStream.flush();
+    	}
+    }
+
+
+    /**
+     * @see net.sf.JRecord.ByteIO.AbstractByteWriter#close()
+     */
+    public void close() throws IOException {
+
+    	if (outStream == null) {
+    		return;
+    	}
+        if (blockPos > DESCRIPTOR_LENGTH) {
+            writeBlock();
+        }
+
+        outStream.close();
+        outStream = null;
+    }
+}
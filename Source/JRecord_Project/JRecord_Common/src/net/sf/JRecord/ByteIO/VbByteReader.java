@@ -35,6 +35,7 @@ package net.sf.JRecord.ByteIO;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 
 
@@ -139,10 +140,44 @@ public class VbByteReader extends AbstractByteReader {
     }
 
 
+    /**
+     * @see net.sf.JRecord.ByteIO.AbstractByteReader#open(java.io.InputStream, net.sf.JRecord.ByteIO.ReadPosition)
+     */
+    @Override
+    public void open(InputStream inputStream, ReadPosition position) throws IOException {
+
+        inStream = inputStream;
+        stream = new BufferedInputStream(inputStream, BUFFER_SIZE);
+        incBytesRead(position.getByteOffset());
+        lineNumber = (int) Math.max(0, position.getRecordNumber());
+
+        byte[] state = position.getState();
+        if (blockMode > 0 && state != null && state.length == 8) {
+        	ByteBuffer b = ByteBuffer.wrap(state);
+        	blockLength = b.getInt();
+        	bytesReadFromBlock = b.getInt();
+        } else {
+        	checkForBlockLength();
+        }
+    }
+
+    /**
+     * Get the current position (including the current block length / position in the block)
+     * @see net.sf.JRecord.ByteIO.AbstractByteReader#getPosition()
+     */
+    @Override
+    public ReadPosition getPosition() {
+    	byte[] state = null;
+    	if (blockMode > 0) {
+    		state = ByteBuffer.allocate(8).putInt(blockLength).putInt(bytesReadFromBlock).array();
+    	}
+    	return new ReadPosition(getBytesRead(), state);
+    }
+
     /**
      * @see AbstractByteReader#read()
      */
-    public byte[] read()  throws IOException {
+    public byte[] readImplementation()  throws IOException {
         byte[] ret = null;
 
         if (stream == null) {
@@ -236,6 +271,14 @@ public class VbByteReader extends AbstractByteReader {
         }
     }
 
+    /**
+     * @see net.sf.JRecord.ByteIO.AbstractByteReader#isAtRestartPoint()
+     */
+    @Override
+    public boolean isAtRestartPoint() {
+    	return blockMode == MODE_NO_BLOCK_LENGTH || bytesReadFromBlock >= blockLength;
+    }
+
     /**
      * @see AbstractByteReader#close()
      */
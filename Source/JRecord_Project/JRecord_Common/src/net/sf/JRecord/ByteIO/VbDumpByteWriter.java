@@ -125,7 +125,7 @@ public class VbDumpByteWriter extends AbstractByteWriter {
     /**
      * @see AbstractByteWriter#write(byte[])
      */
-    public void write(byte[] rec) throws IOException {
+    public void writeImplementation(byte[] rec) throws IOException {
 
         if (outStream == null) {
             throw new IOException(AbstractByteWriter.NOT_OPEN_MESSAGE);
@@ -174,6 +174,20 @@ public class VbDumpByteWriter extends AbstractByteWriter {
         }
     }
 
+    /**
+     * Write the current (partial) block
+     * @see net.sf.JRecord.ByteIO.AbstractByteWriter#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+    	if (outStream != null) {
+    		if (byteStream.size() > 0) {
+    			writeBlock();
+    		}
+    		outStream.flush();
+    	}
+    }
+
     /**
      * @see net.sf.JRecord.IO.AbstractLineWriter#close()
      */
@@ -0,0 +1,110 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.ByteIO;
+
+import java.io.IOException;
+
+
+/**
+ * Push based splitting of Mainframe VB (Record-Descriptor-Word) files
+ * (the push counterpart of {@link VbByteReader}). Files that include the
+ * Block-Descriptor-Words (VB-Dump) are supported using the same block modes as VbByteReader.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class VbRecordFramer extends RecordFramer {
+
+	private final int rdwAdjust;
+	private final int blockMode;
+	private int remainingInBlock = 0;
+
+	/**
+	 * Framer where the record length in the RDW includes the RDW (standard Mainframe VB)
+	 */
+	public VbRecordFramer() {
+		this(VbByteReader.MODE_NO_BLOCK_LENGTH, true);
+	}
+
+	/**
+	 * @param lengthIncludesRDW wether the record length includes the 4 byte RDW
+	 */
+	public VbRecordFramer(boolean lengthIncludesRDW) {
+		this(VbByteReader.MODE_NO_BLOCK_LENGTH, lengthIncludesRDW);
+	}
+
+	/**
+	 * @param blockMode wether the file includes block descriptor words (VbByteReader.MODE_*)
+	 * @param lengthIncludesRDW wether the record length includes the 4 byte RDW
+	 */
+	public VbRecordFramer(int blockMode, boolean lengthIncludesRDW) {
+		super();
+		this.blockMode = blockMode;
+		this.rdwAdjust = lengthIncludesRDW ? 0 : 4;
+	}
+
+	@Override
+	protected int frameLength(byte[] data, int start, int available) throws IOException {
+		if (available < 4) {
+			return -1;
+		}
+		if (isBlockStart()) {
+			return 4;
+		}
+		if (data[start + 2] != 0 || data[start + 3] != 0) {
+			throw new IOException("Invalid Record Descriptor word: " + (data[start] & 0xFF) + " "
+					+ (data[start + 1] & 0xFF) + " " + (data[start + 2] & 0xFF) + " " + (data[start + 3] & 0xFF));
+		}
+		int len = ((data[start] & 0xFF) << 8) + (data[start + 1] & 0xFF) + rdwAdjust;
+		if (len < 4) {
+			throw new IOException("Invalid record length: " + len);
+		}
+		return len;
+	}
+
+	@Override
+	protected void emit(byte[] data, int start, int frameLength, IRecordSliceConsumer consumer) throws IOException {
+		if (isBlockStart()) {
+			if (data[start] >= 0 || blockMode == VbByteReader.MODE_BLOCK_LENGTH_2) {
+				remainingInBlock = ((data[start] & 0xFF) << 8) + (data[start + 1] & 0xFF);
+			} else {
+				remainingInBlock = ((data[start] & 0x7F) << 24) + ((data[start + 1] & 0xFF) << 16)
+								 + ((data[start + 2] & 0xFF) << 8) + (data[start + 3] & 0xFF);
+			}
+			remainingInBlock -= 4;
+			if (remainingInBlock <= 0) {
+				throw new IOException("Invalid block length: " + (remainingInBlock + 4));
+			}
+		} else {
+			remainingInBlock -= frameLength;
+			consumer.record(data, start + 4, frameLength - 4);
+		}
+	}
+
+	private boolean isBlockStart() {
+		return blockMode != VbByteReader.MODE_NO_BLOCK_LENGTH && remainingInBlock <= 0;
+	}
+}
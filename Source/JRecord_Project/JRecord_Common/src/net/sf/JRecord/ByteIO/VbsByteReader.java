@@ -35,6 +35,7 @@ package net.sf.JRecord.ByteIO;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 
@@ -55,7 +56,7 @@ import java.util.ArrayList;
  */
 public class VbsByteReader extends AbstractByteReader {
 
-//	private static final int LAST_7_BITS_SET = 127;
+	private static final int LAST_7_BITS_SET = 127;
 
     private InputStream inStream;
 	private BufferedInputStream stream = null;
@@ -73,13 +74,12 @@ public class VbsByteReader extends AbstractByteReader {
 //	private byte[] rdwLength = new byte[2];
 
 
-//	private boolean containsBlockLength = false;
-//	private byte[] bdw = new byte[4];
-//	private byte[] bdwLength = new byte[2];
+	private boolean containsBlockLength = false;
+	private byte[] bdw = new byte[4];
 
 
-//	private int blockLength = -1;
-//	private int bytesReadFromBlock = 0;
+	private int blockLength = -1;
+	private int bytesReadFromBlock = 0;
 	
 	private byte[] nextRecord = null;
 	
@@ -90,7 +90,7 @@ public class VbsByteReader extends AbstractByteReader {
 	public VbsByteReader(final boolean includesBlockLength, boolean lengthIncludesRDW) {
 	    super();
 
-//	    containsBlockLength = includesBlockLength;
+	    containsBlockLength = includesBlockLength;
 	    if (lengthIncludesRDW) {
 	    	rdwAdjust = 4;
 	    }
@@ -108,15 +108,48 @@ public class VbsByteReader extends AbstractByteReader {
         } else {
         	stream = new BufferedInputStream(inputStream, BUFFER_SIZE);
         }
+        blockLength = -1;
+        bytesReadFromBlock = 0;
+    }
+
 
- //       checkForBlockLength();
+    /**
+     * @see net.sf.JRecord.ByteIO.AbstractByteReader#open(java.io.InputStream, net.sf.JRecord.ByteIO.ReadPosition)
+     */
+    @Override
+    public void open(InputStream inputStream, ReadPosition position) throws IOException {
+        open(inputStream);
+        incBytesRead(position.getByteOffset());
+
+        byte[] state = position.getState();
+        if (containsBlockLength && state != null && state.length == 8) {
+        	ByteBuffer b = ByteBuffer.wrap(state);
+        	blockLength = b.getInt();
+        	bytesReadFromBlock = b.getInt();
+        }
     }
 
+    /**
+     * Get the current position (including the current block length / position in the block).
+     * Returns null if the next record has already been read (incomplete spanned record).
+     * @see net.sf.JRecord.ByteIO.AbstractByteReader#getPosition()
+     */
+    @Override
+    public ReadPosition getPosition() {
+    	if (nextRecord != null) {
+    		return null;
+    	}
+    	byte[] state = null;
+    	if (containsBlockLength) {
+    		state = ByteBuffer.allocate(8).putInt(blockLength).putInt(bytesReadFromBlock).array();
+    	}
+    	return new ReadPosition(getBytesRead(), state);
+    }
 
     /**
      * @see AbstractByteReader#read()
      */
-    public byte[] read()  throws IOException {
+    public byte[] readImplementation()  throws IOException {
         byte[] ret = nextRecord;
         
         if (ret != null) {
@@ -128,8 +161,6 @@ public class VbsByteReader extends AbstractByteReader {
             throw new IOException(AbstractByteReader.NOT_OPEN_MESSAGE);
         }
 
-//        checkForBlockLength();
-
         lineNumber += 1;
         ret = readLinePart();
         if (rdw[2] != 0 && ret != null) {
@@ -184,6 +215,7 @@ public class VbsByteReader extends AbstractByteReader {
 	 */
 	public byte[] readLinePart() throws IOException {
 		byte[] ret = null;
+		checkForBlockLength();
 		if (readBuffer(stream, rdw) > 0) {
         	int lineLength = ((rdw[0] & 0xFF) << 8) + (rdw[1] & 0xFF) - rdwAdjust;
             if (rdw[2] < 0 || rdw[2] > 3  || rdw[3] != 0) {
@@ -202,42 +234,40 @@ public class VbsByteReader extends AbstractByteReader {
             if (readBuffer(stream, inBytes) >= 0) {
                 ret = inBytes;
 
-//                if (containsBlockLength) {
-//                	bytesReadFromBlock += lineLength + 4;
-//                }
+                if (containsBlockLength) {
+                	bytesReadFromBlock += lineLength + 4;
+                }
 			}
         }
 		return ret;
 	}
 
 
-//    /**
-//     * reads the blocklength if necessary
-//     */
-//    private void checkForBlockLength() {
-//
-//        if (containsBlockLength && bytesReadFromBlock >= blockLength) {
-//        	try {
-//    			bytesReadFromBlock = 4;
-//        		if ((readBuffer(stream, bdw) > 0)) {
-//        			if (bdw[0] >= 0) {
-////        	            bdwLength[0] = bdw[0];
-////        	            bdwLength[1] = bdw[1];
-////
-////        	        	blockLength = (new BigInteger(bdwLength)).intValue();
-//        	        	blockLength = ((bdw[0] & 0xFF) << 8) + (bdw[1] & 0xFF);
-//        			} else {
-//        				bdw[0] &= LAST_7_BITS_SET;
-//        				blockLength = ((bdw[0] & 0xFF) << 24) + ((bdw[1] & 0xFF) << 16) 
-//								+ ((bdw[2] & 0xFF) << 8) + ((bdw[3] & 0xFF));
-// //       	        	blockLength = (new BigInteger(bdw)).intValue();
-//        			}
-//        		}
-//        	} catch (Exception e) {
-//				e.printStackTrace();
-//			}
-//        }
-//    }
+    /**
+     * reads the block descriptor word (blocked VBS files) at the start of each block
+     */
+    private void checkForBlockLength() throws IOException {
+
+        if (containsBlockLength && bytesReadFromBlock >= blockLength) {
+        	bytesReadFromBlock = 4;
+        	if ((readBuffer(stream, bdw) > 0)) {
+        		if (bdw[0] >= 0) {
+        			blockLength = ((bdw[0] & 0xFF) << 8) + (bdw[1] & 0xFF);
+        		} else {
+        			blockLength = ((bdw[0] & LAST_7_BITS_SET) << 24) + ((bdw[1] & 0xFF) << 16)
+        					+ ((bdw[2] & 0xFF) << 8) + ((bdw[3] & 0xFF));
+        		}
+        	}
+        }
+    }
+
+    /**
+     * @see net.sf.JRecord.ByteIO.AbstractByteReader#isAtRestartPoint()
+     */
+    @Override
+    public boolean isAtRestartPoint() {
+    	return nextRecord == null && ((! containsBlockLength) || bytesReadFromBlock >= blockLength);
+    }
 
     /**
      * @see AbstractByteReader#close()
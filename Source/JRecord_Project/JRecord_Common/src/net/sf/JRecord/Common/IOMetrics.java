@@ -0,0 +1,587 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.Common;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+/**
+ * Metrics (counters) for JRecord readers / writers e.g.
+ * records read / written, bytes, records for each Record-Type,
+ * time spent on I/O and decoding records.
+ *
+ * <p>Counters are held per thread (each thread updates its own set of counters
+ * without any locking); {@link #getSnapshot()} adds up the counters of all threads.
+ * A snapshot taken while files are being read is approximate.
+ *
+ * <pre>
+ *     IOMetrics metrics = new IOMetrics("DailyLoad");
+ *     metrics.register();                       // optional, JMX
+ *
+ *     AbstractLineReader reader = JRecordInterface1.COBOL
+ *              .newIOBuilder(copybookName)
+ *                  .setMetrics(metrics)
+ *              .newReader(dataFile);
+ *     ...
+ *     System.out.println(metrics.getSnapshot());
+ * </pre>
+ * Metrics can also be added to Line-Writers, Byte-Readers and Byte-Writers with their
+ * <b>setMetrics</b> method.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class IOMetrics implements IOMetricsMXBean {
+
+	private final String name;
+	private volatile boolean timed = true;
+	private volatile boolean checkNumericFields = false;
+	private final CopyOnWriteArrayList<Counters> allCounters = new CopyOnWriteArrayList<Counters>();
+	private final ThreadLocal<Counters> threadCounters = new ThreadLocal<Counters>() {
+		@Override protected Counters initialValue() {
+			Counters c = new Counters(IOMetrics.this);
+			allCounters.add(c);
+			return c;
+		}
+	};
+	private ObjectName objectName = null;
+
+	/**
+	 * Create metrics
+	 * @param name name of the metrics (used in the JMX name)
+	 */
+	public IOMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the counters for the current thread
+	 */
+	public final Counters counters() {
+		return threadCounters.get();
+	}
+
+	/**
+	 * Wrap an input stream so the bytes read and time spent reading are counted
+	 * @param in stream to be wrapped
+	 * @return metered stream
+	 */
+	public InputStream wrap(InputStream in) {
+		return in instanceof MeteredInputStream && ((MeteredInputStream) in).metrics == this
+				? in : new MeteredInputStream(in, this);
+	}
+
+	/**
+	 * Wrap an output stream so the bytes written and time spent writing are counted
+	 * @param out stream to be wrapped
+	 * @return metered stream
+	 */
+	public OutputStream wrap(OutputStream out) {
+		return out instanceof MeteredOutputStream && ((MeteredOutputStream) out).metrics == this
+				? out : new MeteredOutputStream(out, this);
+	}
+
+	/**
+	 * @return the current totals
+	 */
+	public Snapshot getSnapshot() {
+		Snapshot s = new Snapshot(name);
+		for (Counters c : allCounters) {
+			s.add(c);
+		}
+		return s;
+	}
+
+	/**
+	 * Register the metrics with the platform MBean server as
+	 * <b>net.sf.JRecord:type=IOMetrics,name=</b><i>name</i>
+	 * @return the JMX name
+	 */
+	public synchronized ObjectName register() {
+		if (objectName == null) {
+			try {
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				ObjectName n = new ObjectName("net.sf.JRecord:type=IOMetrics,name=" + ObjectName.quote(name));
+				server.registerMBean(this, n);
+				objectName = n;
+			} catch (JMException e) {
+				throw new RecordException("Error registering IOMetrics " + name + ": " + e, e);
+			}
+		}
+		return objectName;
+	}
+
+	/**
+	 * Remove the metrics from the platform MBean server
+	 */
+	public synchronized void unregister() {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				throw new RecordException("Error unregistering IOMetrics " + name + ": " + e, e);
+			}
+			objectName = null;
+		}
+	}
+
+	@Override
+	public void reset() {
+		for (Counters c : allCounters) {
+			c.reset();
+		}
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getRecordsRead() {
+		return getSnapshot().getRecordsRead();
+	}
+
+	@Override
+	public long getRecordsWritten() {
+		return getSnapshot().getRecordsWritten();
+	}
+
+	@Override
+	public long getBytesRead() {
+		return getSnapshot().getBytesRead();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return getSnapshot().getBytesWritten();
+	}
+
+	@Override
+	public long getIoTimeMillis() {
+		return getSnapshot().getIoNanos() / 1000000;
+	}
+
+	@Override
+	public long getDecodeTimeMillis() {
+		return getSnapshot().getDecodeNanos() / 1000000;
+	}
+
+	@Override
+	public long getRecordTypeUndetermined() {
+		return getSnapshot().getRecordTypeUndetermined();
+	}
+
+	@Override
+	public long getInvalidNumericFields() {
+		return getSnapshot().getInvalidNumericFields();
+	}
+
+	@Override
+	public Map<String, Long> getRecordTypeCounts() {
+		return getSnapshot().getRecordTypeCounts();
+	}
+
+	@Override
+	public boolean isTimed() {
+		return timed;
+	}
+
+	/**
+	 * @param timed wether time spent on I/O and decoding is measured (default true)
+	 */
+	@Override
+	public void setTimed(boolean timed) {
+		this.timed = timed;
+	}
+
+	@Override
+	public boolean isCheckNumericFields() {
+		return checkNumericFields;
+	}
+
+	/**
+	 * @param checkNumericFields wether Line-Readers check (decode) every numeric field
+	 * of each record, counting invalid values (default false)
+	 */
+	@Override
+	public void setCheckNumericFields(boolean checkNumericFields) {
+		this.checkNumericFields = checkNumericFields;
+	}
+
+
+	/**
+	 * Counters for one thread. Only the owning thread updates the counters (with lazySet, so
+	 * other threads see current values without locking); {@link IOMetrics#reset()} records a
+	 * baseline that is subtracted from the values rather than changing them.
+	 */
+	public static final class Counters {
+		private static final int RECORDS_READ      = 0;
+		private static final int RECORDS_WRITTEN   = 1;
+		private static final int BYTES_READ        = 2;
+		private static final int BYTES_WRITTEN     = 3;
+		private static final int IO_NANOS          = 4;
+		private static final int DECODE_NANOS      = 5;
+		private static final int TYPE_UNDETERMINED = 6;
+		private static final int INVALID_NUMERIC   = 7;
+		private static final int COUNTER_COUNT     = 8;
+
+		private final IOMetrics metrics;
+		private final AtomicLongArray values = new AtomicLongArray(COUNTER_COUNT);
+		private volatile long[] baseline = new long[COUNTER_COUNT];
+		private volatile AtomicLongArray typeCounts = new AtomicLongArray(8);
+		private volatile String[] typeNames = new String[8];
+		private volatile long[] typeBaseline = new long[0];
+
+		private Counters(IOMetrics metrics) {
+			this.metrics = metrics;
+		}
+
+		/**
+		 * @return wether I/O / decode time is being measured
+		 */
+		public boolean isTimed() {
+			return metrics.timed;
+		}
+
+		/**
+		 * @return wether numeric fields should be checked
+		 */
+		public boolean isCheckNumericFields() {
+			return metrics.checkNumericFields;
+		}
+
+		public void recordRead() {
+			add(RECORDS_READ, 1);
+		}
+
+		public void recordWritten() {
+			add(RECORDS_WRITTEN, 1);
+		}
+
+		/**
+		 * Count a record type
+		 * @param recordIdx record index (negative if the record type could not be determined)
+		 * @param recordName name of the record
+		 */
+		public void recordType(int recordIdx, String recordName) {
+			if (recordIdx < 0) {
+				add(TYPE_UNDETERMINED, 1);
+				return;
+			}
+			AtomicLongArray counts = typeCounts;
+			String[] names = typeNames;
+			if (recordIdx >= counts.length()) {
+				int len = Math.max(recordIdx + 1, counts.length() * 2);
+				AtomicLongArray newCounts = new AtomicLongArray(len);
+				for (int i = 0; i < counts.length(); i++) {
+					newCounts.set(i, counts.get(i));
+				}
+				names = Arrays.copyOf(names, len);
+				typeNames = names;
+				typeCounts = counts = newCounts;
+			}
+			if (names[recordIdx] == null) {
+				names[recordIdx] = recordName;
+			}
+			counts.lazySet(recordIdx, counts.get(recordIdx) + 1);
+		}
+
+		public void addBytesRead(long amount) {
+			add(BYTES_READ, amount);
+		}
+
+		public void addBytesWritten(long amount) {
+			add(BYTES_WRITTEN, amount);
+		}
+
+		public void addIoNanos(long nanos) {
+			add(IO_NANOS, nanos);
+		}
+
+		public void addDecodeNanos(long nanos) {
+			add(DECODE_NANOS, nanos);
+		}
+
+		public void invalidNumericField() {
+			add(INVALID_NUMERIC, 1);
+		}
+
+		/**
+		 * @return I/O time (for this thread) in nano seconds
+		 */
+		public long getIoNanos() {
+			return get(IO_NANOS);
+		}
+
+		/**
+		 * Update a counter (owning thread only)
+		 */
+		private void add(int idx, long amount) {
+			values.lazySet(idx, values.get(idx) + amount);
+		}
+
+		/**
+		 * @return counter value since the last reset (any thread)
+		 */
+		private long get(int idx) {
+			long base = baseline[idx];
+			return values.get(idx) - base;
+		}
+
+		private long getTypeCount(AtomicLongArray counts, int idx) {
+			long[] base = typeBaseline;
+			return counts.get(idx) - (idx < base.length ? base[idx] : 0);
+		}
+
+		private void reset() {
+			long[] b = new long[COUNTER_COUNT];
+			for (int i = 0; i < COUNTER_COUNT; i++) {
+				b[i] = values.get(i);
+			}
+			AtomicLongArray counts = typeCounts;
+			long[] tb = new long[counts.length()];
+			for (int i = 0; i < tb.length; i++) {
+				tb[i] = counts.get(i);
+			}
+			baseline = b;
+			typeBaseline = tb;
+		}
+	}
+
+
+	/**
+	 * Totals of all the counters at a point in time
+	 */
+	public static final class Snapshot {
+		private final String name;
+		private long recordsRead, recordsWritten, bytesRead, bytesWritten,
+					 ioNanos, decodeNanos, typeUndetermined, invalidNumeric;
+		private final Map<String, Long> typeCounts = new LinkedHashMap<String, Long>();
+
+		private Snapshot(String name) {
+			this.name = name;
+		}
+
+		private void add(Counters c) {
+			recordsRead      += c.get(Counters.RECORDS_READ);
+			recordsWritten   += c.get(Counters.RECORDS_WRITTEN);
+			bytesRead        += c.get(Counters.BYTES_READ);
+			bytesWritten     += c.get(Counters.BYTES_WRITTEN);
+			ioNanos          += c.get(Counters.IO_NANOS);
+			decodeNanos      += c.get(Counters.DECODE_NANOS);
+			typeUndetermined += c.get(Counters.TYPE_UNDETERMINED);
+			invalidNumeric   += c.get(Counters.INVALID_NUMERIC);
+
+			String[] names = c.typeNames;
+			AtomicLongArray counts = c.typeCounts;
+			for (int i = 0; i < Math.min(counts.length(), names.length); i++) {
+				long count = c.getTypeCount(counts, i);
+				if (count != 0) {
+					String n = names[i] == null ? "Record " + i : names[i];
+					Long v = typeCounts.get(n);
+					typeCounts.put(n, v == null ? count : v + count);
+				}
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getRecordsRead() {
+			return recordsRead;
+		}
+
+		public long getRecordsWritten() {
+			return recordsWritten;
+		}
+
+		public long getBytesRead() {
+			return bytesRead;
+		}
+
+		public long getBytesWritten() {
+			return bytesWritten;
+		}
+
+		/**
+		 * @return time spent reading / writing the underlying streams (nano seconds)
+		 */
+		public long getIoNanos() {
+			return ioNanos;
+		}
+
+		/**
+		 * @return time spent creating / decoding records (nano seconds)
+		 */
+		public long getDecodeNanos() {
+			return decodeNanos;
+		}
+
+		public long getRecordTypeUndetermined() {
+			return typeUndetermined;
+		}
+
+		public long getInvalidNumericFields() {
+			return invalidNumeric;
+		}
+
+		/**
+		 * @return number of records for each record type (by record name)
+		 */
+		public Map<String, Long> getRecordTypeCounts() {
+			return Collections.unmodifiableMap(typeCounts);
+		}
+
+		@Override
+		public String toString() {
+			return name
+				+ ": recordsRead=" + recordsRead
+				+ ", bytesRead=" + bytesRead
+				+ ", recordsWritten=" + recordsWritten
+				+ ", bytesWritten=" + bytesWritten
+				+ ", ioMillis=" + ioNanos / 1000000
+				+ ", decodeMillis=" + decodeNanos / 1000000
+				+ ", recordTypeUndetermined=" + typeUndetermined
+				+ ", invalidNumericFields=" + invalidNumeric
+				+ ", recordTypes=" + typeCounts;
+		}
+	}
+
+
+	/**
+	 * Counts the bytes read / time spent reading
+	 */
+	private static final class MeteredInputStream extends FilterInputStream {
+		private final IOMetrics metrics;
+
+		MeteredInputStream(InputStream in, IOMetrics metrics) {
+			super(in);
+			this.metrics = metrics;
+		}
+
+		@Override
+		public int read() throws IOException {
+			Counters c = metrics.counters();
+			boolean timed = metrics.timed;
+			long start = timed ? System.nanoTime() : 0;
+			int b = in.read();
+			if (timed) {
+				c.addIoNanos(System.nanoTime() - start);
+			}
+			if (b >= 0) {
+				c.addBytesRead(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			Counters c = metrics.counters();
+			boolean timed = metrics.timed;
+			long start = timed ? System.nanoTime() : 0;
+			int num = in.read(b, off, len);
+			if (timed) {
+				c.addIoNanos(System.nanoTime() - start);
+			}
+			if (num > 0) {
+				c.addBytesRead(num);
+			}
+			return num;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long num = in.skip(n);
+			metrics.counters().addBytesRead(num);
+			return num;
+		}
+	}
+
+
+	/**
+	 * Counts the bytes written / time spent writing
+	 */
+	private static final class MeteredOutputStream extends FilterOutputStream {
+		private final IOMetrics metrics;
+
+		MeteredOutputStream(OutputStream out, IOMetrics metrics) {
+			super(out);
+			this.metrics = metrics;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			Counters c = metrics.counters();
+			boolean timed = metrics.timed;
+			long start = timed ? System.nanoTime() : 0;
+			out.write(b);
+			if (timed) {
+				c.addIoNanos(System.nanoTime() - start);
+			}
+			c.addBytesWritten(1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			Counters c = metrics.counters();
+			boolean timed = metrics.timed;
+			long start = timed ? System.nanoTime() : 0;
+			out.write(b, off, len);
+			if (timed) {
+				c.addIoNanos(System.nanoTime() - start);
+			}
+			c.addBytesWritten(len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			Counters c = metrics.counters();
+			boolean timed = metrics.timed;
+			long start = timed ? System.nanoTime() : 0;
+			out.flush();
+			if (timed) {
+				c.addIoNanos(System.nanoTime() - start);
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Common
+ *
+ *    Sub-Project purpose: Common Low-Level Code shared between
+ *                        the JRecord and Record Projects
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: LGPL 2.1 or latter
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.Common;
+
+import java.util.Map;
+
+/**
+ * JMX (MXBean) interface for {@link IOMetrics}
+ *
+ * @author Bruce Martin
+ *
+ */
+public interface IOMetricsMXBean {
+
+	public abstract String getName();
+
+	public abstract long getRecordsRead();
+
+	public abstract long getRecordsWritten();
+
+	public abstract long getBytesRead();
+
+	public abstract long getBytesWritten();
+
+	/**
+	 * @return time spent reading / writing the underlying streams (milliseconds)
+	 */
+	public abstract long getIoTimeMillis();
+
+	/**
+	 * @return time spent creating / decoding records (milliseconds)
+	 */
+	public abstract long getDecodeTimeMillis();
+
+	/**
+	 * @return number of records where the Record-Type could not be determined
+	 */
+	public abstract long getRecordTypeUndetermined();
+
+	/**
+	 * @return number of invalid numeric fields (only checked when CheckNumericFields is set)
+	 */
+	public abstract long getInvalidNumericFields();
+
+	/**
+	 * @return number of records for each Record-Type (by record name)
+	 */
+	public abstract Map<String, Long> getRecordTypeCounts();
+
+	public abstract boolean isTimed();
+
+	public abstract void setTimed(boolean timed);
+
+	public abstract boolean isCheckNumericFields();
+
+	public abstract void setCheckNumericFields(boolean checkNumericFields);
+
+	/**
+	 * Reset all the counters to zero
+	 */
+	public abstract void reset();
+}
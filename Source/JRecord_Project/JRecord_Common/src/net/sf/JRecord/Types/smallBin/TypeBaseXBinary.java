@@ -120,4 +120,44 @@ public abstract class TypeBaseXBinary extends TypeNum implements ITypeBinaryExte
 		
 	}
 
+	/**
+	 * Check wether an unscaled value can be stored in a field without being truncated
+	 * ({@link #setUnscaledLong(byte[], int, IFieldDetail, long)} does not check the value).
+	 * @param field field definition
+	 * @param unscaledValue value to be checked
+	 * @return wether the value fits in the field
+	 */
+	public boolean isInRange(IFieldDetail field, long unscaledValue) {
+		if (unscaledValue < 0 && isPositive()) {
+			return false;
+		}
+		int digits = getMaxDigits(field);
+		return digits >= pot.length || (unscaledValue > -pot[digits] && unscaledValue < pot[digits]);
+	}
+
+	/**
+	 * @param field field definition
+	 * @return maximum number of decimal digits the field can hold
+	 */
+	protected int getMaxDigits(IFieldDetail field) {
+		return pot.length;
+	}
+
+	/**
+	 * Check a value against the range of a binary integer
+	 * @param len length (bytes) of the field
+	 * @param unsigned wether the field is an unsigned integer
+	 * @param value value to be checked
+	 * @return wether the value fits in the field
+	 */
+	protected final boolean isInBinaryRange(int len, boolean unsigned, long value) {
+		if (value < 0 && isPositive()) {
+			return false;
+		}
+		int bits = len * 8;
+		if (unsigned) {
+			return bits >= 64 || value < (1L << bits);
+		}
+		return bits >= 64 || (value >= -(1L << (bits - 1)) && value < (1L << (bits - 1)));
+	}
 }
@@ -98,4 +98,8 @@ public class TypeIntBigEndian extends TypeBaseXBinary {
 		return record;
 	}
 
+	@Override
+	public boolean isInRange(IFieldDetail field, long unscaledValue) {
+		return isInBinaryRange(field.getLen(), ! normal, unscaledValue);
+	}
 }
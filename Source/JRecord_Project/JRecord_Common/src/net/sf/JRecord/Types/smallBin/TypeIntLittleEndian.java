@@ -92,4 +92,8 @@ public class TypeIntLittleEndian extends TypeBaseXBinary {
 		return record;
 	}
 
+	@Override
+	public boolean isInRange(IFieldDetail field, long unscaledValue) {
+		return isInBinaryRange(field.getLen(), ! normal, unscaledValue);
+	}
 }
@@ -197,5 +197,8 @@ public class TypePackedDecimal9 extends TypeBaseXBinary {
 		return record;
 	}
 
-	
+	@Override
+	protected int getMaxDigits(IFieldDetail field) {
+		return field.getLen() * 2 - 1;
+	}
 }
@@ -140,4 +140,8 @@ public class TypeZonedAsciiSmall extends TypeBaseXBinary {
 		return record;
 	}
 
+	@Override
+	protected int getMaxDigits(IFieldDetail field) {
+		return field.getLen();
+	}
 }
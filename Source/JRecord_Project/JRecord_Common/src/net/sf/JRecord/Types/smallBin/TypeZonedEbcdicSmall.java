@@ -98,4 +98,8 @@ public class TypeZonedEbcdicSmall extends TypeBaseXBinary {
 		return record;
 	}
 
+	@Override
+	protected int getMaxDigits(IFieldDetail field) {
+		return field.getLen();
+	}
 }
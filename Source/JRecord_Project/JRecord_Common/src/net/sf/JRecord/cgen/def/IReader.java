@@ -29,7 +29,13 @@
 package net.sf.JRecord.cgen.def;
 
 import java.io.IOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import net.sf.JRecord.Common.RecordException;
 
 /**
  * Class to read an arbitary line from a file
@@ -41,4 +47,37 @@ import java.io.IOException;
 public interface IReader<Line> {
 	public Line read() throws IOException;
 	public void close() throws IOException;
+
+	/**
+	 * Get a java.util.stream.Stream of the remaining records; closing the Stream closes
+	 * the reader. Read errors are thrown as a {@link RecordException}.
+	 * @return Stream of the records
+	 */
+	public default Stream<Line> stream() {
+		return StreamSupport.stream(
+				new Spliterators.AbstractSpliterator<Line>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+					@Override public boolean tryAdvance(Consumer<? super Line> action) {
+						Line l;
+						try {
+							l = read();
+						} catch (IOException e) {
+							throw new RecordException("Error reading record", e);
+						}
+						if (l == null) {
+							return false;
+						}
+						action.accept(l);
+						return true;
+					}
+				}, false)
+			.onClose(new Runnable() {
+					@Override public void run() {
+						try {
+							close();
+						} catch (IOException e) {
+							throw new RecordException("Error closing reader", e);
+						}
+					}
+				});
+	}
 }
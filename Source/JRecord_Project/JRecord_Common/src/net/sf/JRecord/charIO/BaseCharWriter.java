@@ -74,6 +74,17 @@ public abstract class BaseCharWriter implements ICharWriter {
     }
 
 
+    /**
+     * @see net.sf.JRecord.charIO.ICharWriter#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+    	if (w != null) {
+    		w.flush();
+    	}
+    }
+
+
     /**
      * Closes the file
      *
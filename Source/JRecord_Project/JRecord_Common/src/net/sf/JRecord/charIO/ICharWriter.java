@@ -69,6 +69,13 @@ public interface ICharWriter {
 	 */
 	public abstract void write(char[] line) throws IOException;
 
+	/**
+	 * Write any buffered data to the output stream
+	 *
+	 * @throws IOException io error
+	 */
+	public abstract void flush() throws IOException;
+
 	/**
 	 * Closes the file
 	 *
@@ -268,4 +268,15 @@ public abstract class FieldSelect extends ExternalFieldSelection implements Reco
 		}
 		return null;
 	}
+
+	/**
+	 * @return the record index the field is restricted to
+	 * (-1 for all records, Constants.NULL_INTEGER if it is not a field value)
+	 */
+	public int getRecordIdx() {
+		if (getValue instanceof GetValue) {
+			return ((GetValue) getValue).getRecordIdx();
+		}
+		return Constants.NULL_INTEGER;
+	}
 }
@@ -30,7 +30,8 @@ import java.util.List;
 
 import net.sf.JRecord.Common.AbstractIndexedLine;
 import net.sf.JRecord.Common.Constants;
-import net.sf.JRecord.Common.IFieldDetail;
+import net.sf.JRecord.Common.IFieldDetail;
+import net.sf.JRecord.Common.RecordException;
 import net.sf.JRecord.ExternalRecordSelection.ExternalFieldSelection;
 
 public abstract class FieldSelectX extends FieldSelect {
@@ -237,6 +238,32 @@ public abstract class FieldSelectX extends FieldSelect {
 		return numeric;
 	}
 
+	/**
+	 * Check the result of comparing a field value with the selection value.
+	 * The standard selections override this; the default decodes the operator.
+	 * @param cmp result of the comparison (field-value compared to selection-value)
+	 * @return wether the field is selected
+	 */
+	public boolean isCompareSelected(int cmp) {
+		String op = getOperator();
+		if ("=".equals(op) || "eq".equalsIgnoreCase(op)) {
+			return cmp == 0;
+		} else if ("!=".equals(op) || "ne".equalsIgnoreCase(op)) {
+			return cmp != 0;
+		} else if (cmp == Constants.NULL_INTEGER) {
+			return false;
+		} else if (">".equals(op) || "gt".equalsIgnoreCase(op)) {
+			return cmp > 0;
+		} else if (">=".equals(op) || "ge".equalsIgnoreCase(op)) {
+			return cmp >= 0;
+		} else if ("<".equals(op) || "lt".equalsIgnoreCase(op)) {
+			return cmp < 0;
+		} else if ("<=".equals(op) || "le".equalsIgnoreCase(op)) {
+			return cmp <= 0;
+		}
+		throw new RecordException("Unsupported operator for a compare: " + op);
+	}
+
 	/**
 	 * @param numeric the numeric to set
 	 */
@@ -270,7 +297,12 @@ public abstract class FieldSelectX extends FieldSelect {
 		 */
 		@Override
 		public boolean isSelected(Object value) {
-			 return compare(value, -2) >= cmpTo;
+			 return isCompareSelected(compare(value, -2));
+		}
+
+		@Override
+		public boolean isCompareSelected(int cmp) {
+			return cmp >= cmpTo;
 		}
 	}
 
@@ -289,7 +321,11 @@ public abstract class FieldSelectX extends FieldSelect {
 		 */
 		@Override
 		public boolean isSelected(Object value) {
-			int cmp = compare(value, 2);
+			return isCompareSelected(compare(value, 2));
+		}
+
+		@Override
+		public boolean isCompareSelected(int cmp) {
 			return  cmp <= cmpTo && cmp != Constants.NULL_INTEGER;
 		}
 	}
@@ -310,6 +346,11 @@ public abstract class FieldSelectX extends FieldSelect {
 		public boolean isSelected(Object value) {
 			return compare(value, 2) == 0;
 		}
+
+		@Override
+		public boolean isCompareSelected(int cmp) {
+			return cmp == 0;
+		}
 	}
 
 	public static class NotEqualsSelect extends FieldSelectX {
@@ -327,6 +368,11 @@ public abstract class FieldSelectX extends FieldSelect {
 		public boolean isSelected(Object value) {
 
 			return compare(value, 0) != 0;		}
+
+		@Override
+		public boolean isCompareSelected(int cmp) {
+			return cmp != 0;
+		}
 	}
 
 	public static abstract class DelagteRecordSel implements RecordSel {
@@ -133,6 +133,13 @@ public abstract class GetValue  implements IGetValue {
 		return fieldDetail;
 	}
 
+	/**
+	 * @return the record index the value is restricted to (-1 for all records)
+	 */
+	public int getRecordIdx() {
+		return recordIdx;
+	}
+
 //	}
 
 	public static class FieldValue extends GetValue {
@@ -34,21 +34,27 @@
 
 package net.sf.JRecord.cbl2csv;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.List;
 
 import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.ByteIO.FollowInputStream;
 import net.sf.JRecord.Common.CommonBits;
+import net.sf.JRecord.Common.RecordException;
 import net.sf.JRecord.Details.LayoutDetail;
 import net.sf.JRecord.cbl2csv.args.CommonCsv2CblCode;
 import net.sf.JRecord.cbl2csv.args.ParseArgsCobol2Csv;
 import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
 import net.sf.JRecord.def.IO.builders.ICsvIOBuilder;
 import net.sf.JRecord.def.IO.builders.IDefineCsvFields;
+import net.sf.JRecord.utilityClasses.BatchConverter;
+import net.sf.JRecord.utilityClasses.CheckpointCopy;
 import net.sf.JRecord.utilityClasses.Copy;
 
 
@@ -80,7 +86,9 @@ public class Cobol2Csv {
 		    ParseArgsCobol2Csv csvArgs = new ParseArgsCobol2Csv(arguments);
 
 		    CommonBits.setUseCsvLine(true); // Use the new CsvLine !!!
-		    if (csvArgs.infilePresent) {
+		    if (csvArgs.inputDirectory.length() > 0) {
+		    	BatchConverter.printReport(runCobol2CsvBatch(csvArgs), System.out);
+		    } else if (csvArgs.infilePresent) {
 //		    			// Load the Cobol Copybook and set the file-structure (supplied as an input parameter 
 //		        schema = SchemaLoader.loadSchema(csvArgs.copybookName, CopybookLoader.SPLIT_NONE, csvArgs.inFont, csvArgs.binFormat);
 //		        schema.setFileStructure(csvArgs.inputFileStructure);
@@ -90,9 +98,15 @@ public class Cobol2Csv {
 		        					.newIOBuilder(csvArgs.copybookName)
 		        					.setOptimizeTypes(false);
 
-		        runCobol2Csv(csvArgs, iobCbl, 
-		        		new FileInputStream(csvArgs.infile),
-		        		new FileOutputStream(csvArgs.outfile));
+		        if (csvArgs.checkpointFile.length() > 0) {
+		        	runCobol2CsvWithCheckpoint(csvArgs, iobCbl);
+		        } else {
+			        runCobol2Csv(csvArgs, iobCbl, 
+			        		csvArgs.follow.length() > 0
+			        				? FollowInputStream.newFollowStream(csvArgs.infile, csvArgs.follow)
+			        				: new FileInputStream(csvArgs.infile),
+			        		new FileOutputStream(csvArgs.outfile));
+		        }
 		    }
 		} catch (Exception e) {
 			System.out.println();
@@ -120,9 +134,101 @@ public class Cobol2Csv {
 			OutputStream outStream) throws IOException,
 			FileNotFoundException {
 
+		ICsvIOBuilder iobCsv = defineCsv(csvArgs, iobCbl);
+		if (iobCsv != null) {
+			Copy.copyFileByFieldNumber(iobCbl.newReader(inStream), iobCsv.newWriter(outStream), iobCsv.getLayout());
+		}
+	}
+
+
+	/**
+	 * Convert a Cobol Data File to a Csv File taking a checkpoint every
+	 * <i>checkpointInterval</i> records. If the conversion fails, running it again
+	 * will restart from the last checkpoint.
+	 *
+	 * @param csvArgs csv Arguments
+	 * @param iobCbl Cobol IO Builder
+	 *
+	 * @throws IOException any IO error
+	 */
+	public static void runCobol2CsvWithCheckpoint(ParseArgsCobol2Csv csvArgs, ICobolIOBuilder iobCbl)
+	throws IOException {
+
+		ICsvIOBuilder iobCsv = defineCsv(csvArgs, iobCbl);
+		if (iobCsv != null) {
+			new CheckpointCopy(csvArgs.checkpointFile, csvArgs.checkpointInterval)
+					.copyFileByFieldNumber(iobCbl.getLayout(), csvArgs.infile, iobCsv.getLayout(), csvArgs.outfile);
+		}
+	}
+
+
+	/**
+	 * Convert all the files in a directory (<b>-InputDirectory</b>) to Csv files. The files are
+	 * converted in parallel, the copybook is loaded once and shared by all the files.
+	 * The Csv files are written to the output directory (<b>-OutputFile</b>,
+	 * default the input directory) with a <b>.csv</b> extension.
+	 *
+	 * @param csvArgs csv Arguments
+	 * @return result for each file
+	 *
+	 * @throws IOException any error listing the input directory
+	 */
+	public static List<BatchConverter.FileResult> runCobol2CsvBatch(final ParseArgsCobol2Csv csvArgs)
+	throws IOException {
+
+		File outputDirectory = null;
+		if (csvArgs.outfile.length() > 0) {
+			outputDirectory = new File(csvArgs.outfile);
+			outputDirectory.mkdirs();
+		}
+
+		BatchConverter<ICobolIOBuilder> batch = new BatchConverter<ICobolIOBuilder>(
+				new BatchConverter.IBuilderCreator<ICobolIOBuilder>() {
+					@Override public ICobolIOBuilder newBuilder(String copybook) {
+						ICobolIOBuilder iobCbl = JRecordInterface1.COBOL
+								.newIOBuilder(copybook)
+									.setOptimizeTypes(false);
+						setCobolOptions(csvArgs, iobCbl);
+						return iobCbl;
+					}
+				},
+				new BatchConverter.IConverter<ICobolIOBuilder>() {
+					@Override public void convert(ICobolIOBuilder iobCbl, InputStream in, OutputStream out)
+					throws IOException {
+						ICsvIOBuilder iobCsv = newCsvBuilder(csvArgs, iobCbl.getLayout());
+						if (iobCsv == null) {
+							throw new RecordException("Expecting exactly one record in " + csvArgs.copybookName);
+						}
+						Copy.copyFileByFieldNumber(iobCbl.newReader(in), iobCsv.newWriter(out), iobCsv.getLayout());
+					}
+				})
+			.addRule("*", csvArgs.copybookName)
+			.setOutput(outputDirectory, ".csv");
+		if (csvArgs.threads > 0) {
+			batch.setThreads(csvArgs.threads);
+		}
+
+		return batch.convert(new File(csvArgs.inputDirectory), csvArgs.inputGlob);
+	}
+
+
+	private static ICsvIOBuilder defineCsv(ParseArgsCobol2Csv csvArgs, ICobolIOBuilder iobCbl) throws IOException {
+
+		setCobolOptions(csvArgs, iobCbl);
+
+		return newCsvBuilder(csvArgs, iobCbl.getLayout());
+	}
+
+
+	private static void setCobolOptions(ParseArgsCobol2Csv csvArgs, ICobolIOBuilder iobCbl) {
+
         iobCbl 		.setFileOrganization(csvArgs.inputFileStructure)
 					.setFont(csvArgs.inFont)
 					.setDialect(csvArgs.binFormat);
+	}
+
+
+	private static ICsvIOBuilder newCsvBuilder(ParseArgsCobol2Csv csvArgs, LayoutDetail cobolLayout) {
 
         ICsvIOBuilder iobCsv = JRecordInterface1.CSV
 				.newIOBuilder(csvArgs.sep, csvArgs.quote)
@@ -131,10 +237,10 @@ public class Cobol2Csv {
 					.setFileOrganization(csvArgs.outputFileStructure);
 
 		IDefineCsvFields defineFields = iobCsv.defineFields();
-		LayoutDetail cobolLayout = iobCbl.getLayout();
 		
 		if (cobolLayout.getRecordCount() != 1) {
 			System.out.println("Expecting exactly one record, not " + cobolLayout.getRecordCount());
+			return null;
 		} else {
 			CommonCsv2CblCode.updateCsvNames(cobolLayout, csvArgs, defineFields);    // Update the field names (change -(,) to _)
 		    defineFields.endOfRecord();
@@ -148,9 +254,8 @@ public class Cobol2Csv {
 //					                                           // This method sets
 //					                                           //    Output_Field[i] = Input_Field[i]
 //					                                           // for all the output fields
-			
-			Copy.copyFileByFieldNumber(iobCbl.newReader(inStream), iobCsv.newWriter(outStream), iobCsv.getLayout());
 		}
+		return iobCsv;
 	}
     
     
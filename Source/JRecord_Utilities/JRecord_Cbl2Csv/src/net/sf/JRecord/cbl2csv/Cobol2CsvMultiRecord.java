@@ -41,6 +41,7 @@ import net.sf.JRecord.cbl2csv.args.ParseArgsCobol2Csv;
 import net.sf.JRecord.cbl2csv.args.RecordSelect;
 import net.sf.JRecord.cbl2csv.imp.CobolToCsvBldr;
 import net.sf.JRecord.cbl2csv.imp.ICobolToCsvBldr;
+import net.sf.JRecord.cgen.codec.CompiledRecordDecider;
 import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
 
 
@@ -84,6 +85,9 @@ public class Cobol2CsvMultiRecord {
 				for (RecordSelect rs : csvArgs.recordSelect) {
 					iobCbl.setRecordSelection(rs.recordName, newFieldSelection(rs.fieldName, rs.value));
 				}
+				if (csvArgs.recordSelect.size() > 0) {
+					iobCbl.setRecordDecider(new CompiledRecordDecider());
+				}
 
 				ICobolToCsvBldr csvBldr = CobolToCsvBldr.newMultiRecordCsvBuilder()
 								.setSeparator(csvArgs.sep)
@@ -93,6 +97,8 @@ public class Cobol2CsvMultiRecord {
 								.setUpdateFieldName(csvArgs.updateFieldName)
 								.setWriteRecordName(csvArgs.addRecordNameToCsv)
 								.setReportInvalidFields(csvArgs.reportInvalid)
+								.setParallelWriters(csvArgs.parallelWriters)
+								.setMaxFileSize(csvArgs.maxFileSize)
 							;
 				String outFileName = csvArgs.outfile;
 				
@@ -37,6 +37,7 @@ package net.sf.JRecord.cbl2csv.args;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.sf.JRecord.ByteIO.FollowInputStream;
 import net.sf.JRecord.Common.Constants;
 import net.sf.JRecord.CsvParser.CsvParserManagerChar;
 import net.sf.JRecord.External.base.ExternalConversion;
@@ -82,6 +83,14 @@ public class ParseArgsCobol2Csv implements IUpdateFieldName {
     public static final String ARG_OUT_FILE1    = "-OutputFile";
     public static final String ARG_SEPARATOR1   = "-Delimiter";
     public static final String ARG_QUOTE1       = "-Quote";
+    public static final String ARG_CHECKPOINT   = "-Checkpoint";
+    public static final String ARG_CHECKPOINT_INTERVAL = "-CheckpointInterval";
+    public static final String ARG_FOLLOW       = "-Follow";
+    public static final String ARG_IN_DIRECTORY = "-InputDirectory";
+    public static final String ARG_IN_GLOB      = "-InputGlob";
+    public static final String ARG_THREADS      = "-Threads";
+
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 100000;
 
     public static final int RO_LEAVE_ASIS = 0;
     public static final int RO_CHANGE_MINUS_TO_UNDERSCORE = 1; 
@@ -96,6 +105,8 @@ public class ParseArgsCobol2Csv implements IUpdateFieldName {
             ARG_IN_FILE1, ARG_OUT_FILE1, ARG_INPUT_FONT1, ARG_OUTPUT_FONT1, ARG_QUOTE1,
             ARG_INPUT_STRUCTURE, ARG_INPUT_STRUCTURE1,
             ARG_OUTPUT_STRUCTURE, ARG_OUTPUT_STRUCTURE1,
+            ARG_CHECKPOINT, ARG_CHECKPOINT_INTERVAL, ARG_FOLLOW,
+            ARG_IN_DIRECTORY, ARG_IN_GLOB, ARG_THREADS,
     };
     
     
@@ -106,6 +117,8 @@ public class ParseArgsCobol2Csv implements IUpdateFieldName {
     public static final String OPT_LOW_VALUES      = "-lowValuesText";
     public static final String OPT_NUM_SPACES      = "-numericSpacesText";
     public static final String OPT_REPORT_INVALID  = "-reportInvalid";
+    public static final String OPT_PARALLEL_WRITERS = "-parallelWriters";
+    public static final String OPT_MAX_FILE_SIZE   = "-maxFileSize";
 
 	public static final Option SPLIT_01 = new Option(ICobolSplitOptions.SPLIT_01_LEVEL, "01",    "Split on 01 level");
 	public static final Option SPLIT_NONE = new Option(ICobolSplitOptions.SPLIT_NONE, "None",    "No Split");
@@ -135,7 +148,8 @@ public class ParseArgsCobol2Csv implements IUpdateFieldName {
             OPT_SPLIT, 
             OPT_ADD_RECORD_NAME,
             OPT_HIGH_VALUES, OPT_LOW_VALUES, OPT_NUM_SPACES, 
-            OPT_REPORT_INVALID
+            OPT_REPORT_INVALID,
+            OPT_PARALLEL_WRITERS, OPT_MAX_FILE_SIZE
     };
 
 
@@ -143,7 +157,9 @@ public class ParseArgsCobol2Csv implements IUpdateFieldName {
     public final int binFormat, inputFileStructure, csvParser, outputFileStructure;
     public final String infile,  outfile,
     					inFont,  outFont,  sep,   quote,
-    					copybookName;
+    					copybookName, checkpointFile, follow,
+    					inputDirectory, inputGlob;
+    public final int checkpointInterval, threads;
 
     private final static Option[] renameOptions = getRenameOptions();
     private final static Option[] csvParserOption = getCsvParserOptions(); 
@@ -156,7 +172,8 @@ public class ParseArgsCobol2Csv implements IUpdateFieldName {
     public final int split;
 	public final List<RecordSelect> recordSelect = new ArrayList<RecordSelect>(10);
 
-	public final boolean addRecordNameToCsv, reportInvalid;
+	public final boolean addRecordNameToCsv, reportInvalid, parallelWriters;
+	public final long maxFileSize;
 	
 	public final String lowValuesTxt, highValuesTxt, numericSpaceTxt;
    
@@ -197,6 +214,12 @@ public class ParseArgsCobol2Csv implements IUpdateFieldName {
 	    inFont  = args.get2Args(ARG_INPUT_FONT1, ARG_INPUT_FONT,"");
 	    outFont = args.get2Args(ARG_OUTPUT_FONT1, ARG_OUTPUT_FONT, "");
 	    copybookName = args.get2Args(ARG_COPYBOOK1, ARG_COPYBOOK, "");
+	    checkpointFile = args.getArg(ARG_CHECKPOINT, "");
+	    follow = args.getArg(ARG_FOLLOW, "");
+	    inputDirectory = args.getArg(ARG_IN_DIRECTORY, "");
+	    inputGlob = args.getArg(ARG_IN_GLOB, "*");
+	    threads = getOptionCode(args.getArg(ARG_THREADS, ""), new Option[0], 0);
+	    checkpointInterval = getOptionCode(args.getArg(ARG_CHECKPOINT_INTERVAL, ""), new Option[0], DEFAULT_CHECKPOINT_INTERVAL);
 	    String  fStruct = args.get2Args(ARG_STRUCTURE, ARG_STRUCTURE1, "");
 	    String  csvDef = Integer.toString(Constants.IO_UNICODE_NAME_1ST_LINE);
 	    String  cblDef = fStruct.length()>0 ? fStruct : Integer.toString(Constants.IO_DEFAULT);
@@ -221,9 +244,9 @@ public class ParseArgsCobol2Csv implements IUpdateFieldName {
 	    	tQuote = "'";
 	    }
 	    quote = tQuote;
-	    infilePresent = present(infile);
+	    infilePresent = present(infile) || present(inputDirectory);
 	    if (! infilePresent) {
-	        usage(" You must supply an input file (-i parameter ", multiArgs.length > 0);
+	        usage(" You must supply an input file (-i parameter ) or directory (" + ARG_IN_DIRECTORY + ")", multiArgs.length > 0);
 	    } else {
 	        if ("space".equalsIgnoreCase(tSep)) {
 	        	tSep = " ";
@@ -283,8 +306,36 @@ public class ParseArgsCobol2Csv implements IUpdateFieldName {
 		
 		addRecordNameToCsv 	 = isTrue(args.getArg(OPT_ADD_RECORD_NAME, "").toLowerCase());
 		reportInvalid        = isTrue(args.getArg(OPT_REPORT_INVALID, "").toLowerCase());
+		parallelWriters      = isTrue(args.getArg(OPT_PARALLEL_WRITERS, "").toLowerCase());
+		maxFileSize          = getFileSize(args.getArg(OPT_MAX_FILE_SIZE, "").trim());
     }
 
+	/**
+	 * Convert a file size (e.g. 500000, 100k, 512m, 1g) to bytes
+	 * @param size size string
+	 * @return file size in bytes (0 when not supplied / invalid)
+	 */
+	private long getFileSize(String size) {
+		long multiplier = 1;
+		if (size.length() == 0) {
+			return 0;
+		}
+		switch (Character.toLowerCase(size.charAt(size.length() - 1))) {
+		case 'k': multiplier = 1024;				break;
+		case 'm': multiplier = 1024 * 1024;			break;
+		case 'g': multiplier = 1024 * 1024 * 1024;	break;
+		}
+		if (multiplier > 1) {
+			size = size.substring(0, size.length() - 1).trim();
+		}
+		try {
+			return Long.parseLong(size) * multiplier;
+		} catch (NumberFormatException e) {
+			System.out.println("Invalid " + OPT_MAX_FILE_SIZE + "=" + size);
+		}
+		return 0;
+	}
+
 	private boolean isTrue(String addRecNameStr) {
 		return "y".equals(addRecNameStr) || "yes".equals(addRecNameStr)
 		|| "t".equals(addRecNameStr) || "true".equals(addRecNameStr);
@@ -433,9 +484,20 @@ public class ParseArgsCobol2Csv implements IUpdateFieldName {
         	System.out.println("    " + OPT_HIGH_VALUES + " : Text to display when a field is High-Values");
         	System.out.println("    " + OPT_NUM_SPACES  + " : Text to display when a numeric field is spaces");
         	System.out.println("    " + OPT_REPORT_INVALID  + " : report high/low values etc");
+        	System.out.println("    " + OPT_PARALLEL_WRITERS + " : write each output file on its own thread (yes/no)");
+        	System.out.println("    " + OPT_MAX_FILE_SIZE   + " : start a new output file when this size is reached e.g. 1g, 500m");
        } else {
            System.out.println("    " + ARG_CSV_PARSER + "  : Controls how Csv fields are parsed");       
            printOtionArray(csvParserOption);
+           System.out.println("    " + ARG_CHECKPOINT + "  : Checkpoint file, a failed conversion is restarted from the last checkpoint");
+           System.out.println("    " + ARG_CHECKPOINT_INTERVAL + "  : Number of records between checkpoints (default " + DEFAULT_CHECKPOINT_INTERVAL + ")");
+           System.out.println("    " + ARG_FOLLOW + "  : Follow an input file that is still being written; the value is");
+           System.out.println("                 either a completion-marker file or " + FollowInputStream.FINISH_ON_RENAME
+        		   + " (finish when the input file is renamed)");
+           System.out.println("    " + ARG_IN_DIRECTORY + "  : Convert all the files in this directory (instead of " + ARG_IN_FILE + "),");
+           System.out.println("                 " + ARG_OUT_FILE + " is then the output directory");
+           System.out.println("    " + ARG_IN_GLOB + "  : Files to convert in the input directory e.g. *.dat (default all files)");
+           System.out.println("    " + ARG_THREADS + "  : Number of files converted at once (default one per CPU)");
        }
     }
     
@@ -49,8 +49,12 @@ public class Cobol2CsvMr {
 		WriterDetails defaultWriter = null;
 		
 		writeRecordName = options.isWriteRecordName();
-		if (csvWriter != null) {
-			defaultWriter = new WriterDetails(schema.getRecord(0), csvWriter, options);
+		String csvFileName = options.getCsvFileName();
+		if (csvWriter != null || csvFileName != null) {
+			defaultWriter = new WriterDetails(
+					schema.getRecord(0), 
+					newLineWriter(csvWriter, csvFileName, "Csv", options), 
+					options);
 			Arrays.fill(recordWriters, defaultWriter);
 		}
 		
@@ -59,7 +63,10 @@ public class Cobol2CsvMr {
 			if (idx < 0) {
 				System.err.println("Record: " + rec.recordName + " was not found in the schema");
 			} else {
-				recordWriters[idx] = new WriterDetails(schema.getRecord(idx), rec.writer, options);
+				recordWriters[idx] = new WriterDetails(
+						schema.getRecord(idx), 
+						newLineWriter(rec.writer, rec.fileName, rec.recordName, options), 
+						options);
 			}
 		}
 
@@ -165,6 +172,24 @@ public class Cobol2CsvMr {
 		}
 	}
 
+	/**
+	 * Create the Csv output for a record (or the default output)
+	 */
+	private static ICsvLineWriter newLineWriter(BufferedWriter writer, String fileName, String name, 
+			ICobolToCsvDefinition options) throws IOException {
+		ICsvLineWriter lineWriter;
+		if (writer != null) {
+			lineWriter = new CsvBufferedLineWriter(writer);
+		} else {
+			lineWriter = new CsvFileLineWriter(fileName, options.getOutputCharacterSet(), options.getMaxFileSize());
+		}
+		
+		if (options.isParallelWriters()) {
+			lineWriter = new CsvQueuedLineWriter(lineWriter, name);
+		}
+		return lineWriter;
+	}
+
 	private String startRecord(int recordIdx) {
 		String fieldSep = "";
 		b.setLength(0);
@@ -209,14 +234,14 @@ public class Cobol2CsvMr {
 	 */
 	private static class WriterDetails {
 		RecordDetail recordDef;
-		final BufferedWriter writer;
+		final ICsvLineWriter writer;
 		final String separator;
 		final boolean addRecordName;
 		final IUpdateFieldName updateNames;
 		boolean open = true;
 		
 		
-		public WriterDetails(RecordDetail recordDef, BufferedWriter writer, ICobolToCsvDefinition options) {
+		public WriterDetails(RecordDetail recordDef, ICsvLineWriter writer, ICobolToCsvDefinition options) {
 			super();
 			this.recordDef =  options.isCsvHeader() ? recordDef : null;
 			this.writer = writer;
@@ -231,21 +256,21 @@ public class Cobol2CsvMr {
 		 */
 		public final void writeLine(String s) throws IOException {
 			if (recordDef != null) {
+				StringBuilder header = new StringBuilder();
 				String sep = "";
 				if (addRecordName) {
-					writer.write(updateNames.updateName("Record-Name"));
+					header.append(updateNames.updateName("Record-Name"));
 					sep = separator;
 				}
 				
 				for (int i = 0; i < recordDef.getFieldCount(); i++) {
-					writer.write(sep + updateNames.updateName(recordDef.getField(i).getName()));
+					header.append(sep).append(updateNames.updateName(recordDef.getField(i).getName()));
 					sep = separator;
 				}
 				recordDef = null;
-				writer.newLine();
+				writer.writeHeader(header.toString());
 			}
-			writer.write(s);
-			writer.newLine();
+			writer.writeLine(s);
 		}
 		
 		public final void close() throws IOException {
@@ -30,7 +30,8 @@ public class CobolToCsvBldr implements ICobolToCsvDefinition, ICobolToCsvBldr {
     private AbstractLineReader lineReader;
     private BufferedWriter csvWriter;
     
-    private boolean writeRecordName = false, csvHeader=true, reportInvalidFields=false;
+    private boolean writeRecordName = false, csvHeader=true, reportInvalidFields=false, parallelWriters=false;
+    private long maxFileSize = 0;
     private IUpdateFieldName updateFieldName=new IUpdateFieldName() {		
 		@Override public String updateName(String name) {
 			return name;
@@ -294,9 +295,12 @@ public class CobolToCsvBldr implements ICobolToCsvDefinition, ICobolToCsvBldr {
 		&& outFileName != null) {
 			for (int i = 0; i < fileSchema.getRecordCount(); i++) {
 				String recordName = fileSchema.getRecord(i).getRecordName();
-				recordList.add(new RecordWriterDetails(
-						recordName, 
-						newBufferedWriter(Conversion.replace(outFileName, recordVariable, recordName).toString())));
+				String fileName = Conversion.replace(outFileName, recordVariable, recordName).toString();
+				if (isFileOutput()) {
+					recordList.add(new RecordWriterDetails(recordName, fileName));
+				} else {
+					recordList.add(new RecordWriterDetails(recordName, newBufferedWriter(fileName)));
+				}
 			}
 		}
 		return recordList;
@@ -323,7 +327,7 @@ public class CobolToCsvBldr implements ICobolToCsvDefinition, ICobolToCsvBldr {
 	 */
 	@Override
 	public final BufferedWriter getCsvWriter() {
-		if (csvWriter == null && outFileName != null && recordVariable == null) {
+		if (csvWriter == null && outFileName != null && recordVariable == null && ! isFileOutput()) {
 			try {
 				csvWriter = newBufferedWriter(outFileName);
 			} catch (IOException e) {
@@ -334,6 +338,26 @@ public class CobolToCsvBldr implements ICobolToCsvDefinition, ICobolToCsvBldr {
 	}
 
 
+	/* (non-Javadoc)
+	 * @see net.sf.JRecord.cbl2csv.imp.ICobolToCsvDefinition#getCsvFileName()
+	 */
+	@Override
+	public final String getCsvFileName() {
+		if (csvWriter == null && recordVariable == null && isFileOutput()) {
+			return outFileName;
+		}
+		return null;
+	}
+
+
+	/**
+	 * Csv is encoded directly to the output files (rather than via a BufferedWriter)
+	 */
+	private boolean isFileOutput() {
+		return parallelWriters || maxFileSize > 0;
+	}
+
+
 	private BufferedWriter newBufferedWriter(String fileName) throws IOException {
 		if (outputCharacterSet != null && outputCharacterSet.length() > 0) {
 			try {
@@ -423,6 +447,53 @@ public class CobolToCsvBldr implements ICobolToCsvDefinition, ICobolToCsvBldr {
 	}
 
 
+	/**
+	 * @return the outputCharacterSet
+	 */
+	@Override
+	public final String getOutputCharacterSet() {
+		return outputCharacterSet;
+	}
+
+
+	/**
+	 * @return the parallelWriters
+	 */
+	@Override
+	public final boolean isParallelWriters() {
+		return parallelWriters;
+	}
+
+
+	/**
+	 * @param parallelWriters the parallelWriters to set
+	 */
+	@Override
+	public final CobolToCsvBldr setParallelWriters(boolean parallelWriters) {
+		this.parallelWriters = parallelWriters;
+		return this;
+	}
+
+
+	/**
+	 * @return the maxFileSize
+	 */
+	@Override
+	public final long getMaxFileSize() {
+		return maxFileSize;
+	}
+
+
+	/**
+	 * @param maxFileSize the maxFileSize to set
+	 */
+	@Override
+	public final CobolToCsvBldr setMaxFileSize(long maxFileSize) {
+		this.maxFileSize = maxFileSize;
+		return this;
+	}
+
+
 	@Override
     public final void run() throws IOException {
     	new Cobol2CsvMr(this);
@@ -0,0 +1,35 @@
+package net.sf.JRecord.cbl2csv.imp;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+/**
+ * Write Csv lines to a user supplied BufferedWriter (the original Cobol2Csv behaviour).
+ *
+ * @author Bruce Martin
+ *
+ */
+public class CsvBufferedLineWriter implements ICsvLineWriter {
+
+	private final BufferedWriter writer;
+
+	public CsvBufferedLineWriter(BufferedWriter writer) {
+		this.writer = writer;
+	}
+
+	@Override
+	public void writeHeader(String header) throws IOException {
+		writeLine(header);
+	}
+
+	@Override
+	public void writeLine(String line) throws IOException {
+		writer.write(line);
+		writer.newLine();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+}
@@ -0,0 +1,171 @@
+package net.sf.JRecord.cbl2csv.imp;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Write Csv lines to a file, encoding the characters directly into a reused byte buffer
+ * (no intermediate Writer). When a <b>maximum file size</b> is supplied, the output is
+ * <i>rolled over</i> to a new file before the size would be exceeded;
+ * the Csv header is repeated at the start of each file. The files are named
+ *
+ * <pre>
+ *      <b>fileName</b>        e.g. Detail.csv
+ *      <b>fileName_1</b>      e.g. Detail_1.csv
+ *      <b>fileName_2</b>      e.g. Detail_2.csv
+ * </pre>
+ *
+ * A single line larger than the maximum file size is still written (to its own file).
+ *
+ * @author Bruce Martin
+ *
+ */
+public class CsvFileLineWriter implements ICsvLineWriter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final String fileName;
+	private final Charset charset;
+	private final CharsetEncoder encoder;
+	private final long maxFileSize;
+	private final CharBuffer eol;
+
+	private ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+	private OutputStream out;
+	private String header = null;
+	private long fileSize;
+	private int fileNumber = 0, linesInFile = 0;
+
+	/**
+	 * Create Csv File writer
+	 *
+	 * @param fileName output file name
+	 * @param charsetName output character set (null or "" for the default character set)
+	 * @param maxFileSize maximum file size in bytes; values &lt;= 0 mean no limit
+	 *
+	 * @throws IOException
+	 */
+	public CsvFileLineWriter(String fileName, String charsetName, long maxFileSize) throws IOException {
+		this.fileName = fileName;
+		this.charset = charsetName == null || charsetName.length() == 0
+				? Charset.defaultCharset() : Charset.forName(charsetName);
+		this.encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.maxFileSize = maxFileSize;
+		this.eol = CharBuffer.wrap(System.getProperty("line.separator", "\n"));
+
+		openFile();
+	}
+
+	@Override
+	public void writeHeader(String header) throws IOException {
+		this.header = header;
+		writeBuffer(encode(header));
+	}
+
+	@Override
+	public void writeLine(String line) throws IOException {
+		int len = encode(line);
+		if (maxFileSize > 0 && linesInFile > 0 && fileSize + len > maxFileSize) {
+			closeFile();
+			fileNumber += 1;
+			openFile();
+			if (header != null) {
+				writeBuffer(encode(header));
+			}
+			len = encode(line);
+		}
+		writeBuffer(len);
+		linesInFile += 1;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closeFile();
+	}
+
+	/**
+	 * @return number of files written so far
+	 */
+	public final int getFileCount() {
+		return fileNumber + 1;
+	}
+
+	/**
+	 * Get the name of a specific output file
+	 * @param fileName base file name
+	 * @param fileNumber file number (0 is the first file)
+	 * @return the file name
+	 */
+	public static String getFileName(String fileName, int fileNumber) {
+		if (fileNumber == 0) {
+			return fileName;
+		}
+		int dotPos = fileName.lastIndexOf('.');
+		int sepPos = Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\'));
+		if (dotPos <= sepPos + 1) {
+			return fileName + "_" + fileNumber;
+		}
+		return fileName.substring(0, dotPos) + "_" + fileNumber + fileName.substring(dotPos);
+	}
+
+	private void writeBuffer(int len) throws IOException {
+		out.write(byteBuffer.array(), 0, len);
+		fileSize += len;
+	}
+
+	/**
+	 * Encode a line + end-of-line into the byte buffer. The encoder is only reset
+	 * when a new file is started, so stateful charsets (e.g. UTF-16 byte order mark)
+	 * are only written once per file.
+	 *
+	 * @param line line to be encoded
+	 * @return number of bytes in the buffer
+	 */
+	private int encode(String line) {
+		int maxLen = (int) ((line.length() + eol.capacity()) * encoder.maxBytesPerChar()) + 16;
+		if (byteBuffer.capacity() < maxLen) {
+			byteBuffer = ByteBuffer.allocate(Math.max(maxLen, byteBuffer.capacity() * 2));
+		}
+		byteBuffer.clear();
+		encode(CharBuffer.wrap(line));
+		eol.rewind();
+		encode(eol);
+
+		return byteBuffer.position();
+	}
+
+	private void encode(CharBuffer chars) {
+		CoderResult res = encoder.encode(chars, byteBuffer, false);
+		if (res.isOverflow()) {
+			throw new IllegalStateException("Csv line buffer overflow");
+		}
+	}
+
+	private void openFile() throws IOException {
+		out = new BufferedOutputStream(new FileOutputStream(getFileName(fileName, fileNumber)), BUFFER_SIZE);
+		encoder.reset();
+		fileSize = 0;
+		linesInFile = 0;
+	}
+
+	private void closeFile() throws IOException {
+		if (out != null) {
+			byteBuffer.clear();
+			encoder.encode(CharBuffer.allocate(0), byteBuffer, true);
+			encoder.flush(byteBuffer);
+			out.write(byteBuffer.array(), 0, byteBuffer.position());
+			out.close();
+			out = null;
+		}
+	}
+}
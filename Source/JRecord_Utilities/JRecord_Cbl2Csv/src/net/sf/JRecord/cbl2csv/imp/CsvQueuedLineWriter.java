@@ -0,0 +1,169 @@
+package net.sf.JRecord.cbl2csv.imp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pass Csv lines to another {@link ICsvLineWriter} running on its own thread.
+ * Lines are passed across in batches through a bounded queue, so a slow output
+ * (or a big record-type) will block the reader rather than use up memory.
+ *
+ * <p>Any IOException from the output thread is reported on the next
+ * <b>writeLine</b> or on <b>close</b>.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class CsvQueuedLineWriter implements ICsvLineWriter {
+
+	public static final int DEFAULT_BATCH_SIZE = 256;
+	public static final int DEFAULT_QUEUE_SIZE = 16;
+
+	private static final Batch END = new Batch(false, 0);
+
+	private final ICsvLineWriter writer;
+	private final BlockingQueue<Batch> queue;
+	private final int batchSize;
+	private final Thread thread;
+
+	private Batch batch;
+	private volatile IOException failure = null;
+	private volatile RuntimeException runtimeFailure = null;
+	private boolean open = true;
+
+	public CsvQueuedLineWriter(ICsvLineWriter writer, String name) {
+		this(writer, name, DEFAULT_QUEUE_SIZE, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param writer where the Csv lines are to be written
+	 * @param name name of the output (used in the thread name)
+	 * @param queueSize maximum number of batches waiting to be written
+	 * @param batchSize number of lines in a batch
+	 */
+	public CsvQueuedLineWriter(ICsvLineWriter writer, String name, int queueSize, int batchSize) {
+		this.writer = writer;
+		this.queue = new ArrayBlockingQueue<Batch>(Math.max(1, queueSize));
+		this.batchSize = Math.max(1, batchSize);
+		this.batch = new Batch(false, this.batchSize);
+
+		thread = new Thread(new Runnable() {
+			@Override public void run() {
+				processQueue();
+			}
+		}, "Cbl2Csv-" + name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void writeHeader(String header) throws IOException {
+		Batch h = new Batch(true, 1);
+		h.add(header);
+		put(h);
+	}
+
+	@Override
+	public void writeLine(String line) throws IOException {
+		if (batch.add(line) >= batchSize) {
+			checkFailure();
+			put(batch);
+			batch = new Batch(false, batchSize);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (! open) {
+			return;
+		}
+		open = false;
+		if (batch.count > 0) {
+			put(batch);
+		}
+		put(END);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for " + thread.getName());
+		}
+		checkFailure();
+	}
+
+	private void put(Batch b) throws IOException {
+		try {
+			queue.put(b);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted writing to " + thread.getName());
+		}
+	}
+
+	private void checkFailure() throws IOException {
+		if (failure != null) {
+			throw failure;
+		}
+		if (runtimeFailure != null) {
+			throw runtimeFailure;
+		}
+	}
+
+	/**
+	 * Output thread; after a failure the queue is still drained (and discarded)
+	 * so the reader thread can never block on a full queue.
+	 */
+	private void processQueue() {
+		boolean ok = true;
+		try {
+			Batch b;
+			while ((b = queue.take()) != END) {
+				if (ok) {
+					try {
+						if (b.header) {
+							writer.writeHeader(b.lines[0]);
+						} else {
+							for (int i = 0; i < b.count; i++) {
+								writer.writeLine(b.lines[i]);
+							}
+						}
+					} catch (IOException e) {
+						failure = e;
+						ok = false;
+					} catch (RuntimeException e) {
+						runtimeFailure = e;
+						ok = false;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			failure = new InterruptedIOException("Csv output thread interrupted");
+		} finally {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+	}
+
+	private static class Batch {
+		final boolean header;
+		final String[] lines;
+		int count = 0;
+
+		Batch(boolean header, int size) {
+			this.header = header;
+			this.lines = new String[size];
+		}
+
+		int add(String line) {
+			lines[count++] = line;
+			return count;
+		}
+	}
+}
@@ -147,4 +147,26 @@ public interface ICobolToCsvBldr {
 	 */
 	ICobolToCsvBldr setReportInvalidFields(boolean reportInvalidFields);
 
+	/**
+	 * Write each output (record-type) on its own thread. The Csv line is still built
+	 * by the reading thread, encoding it to bytes and writing it is done by a separate
+	 * thread per output file (connected by a bounded queue).
+	 * 
+	 * @param parallelWriters wether to use a separate writer thread for each output
+	 * @return this builder for more updates
+	 */
+	ICobolToCsvBldr setParallelWriters(boolean parallelWriters);
+
+	/**
+	 * Set the maximum size of an output Csv file. When the next line would take the
+	 * file over this size, a new file is started (the Csv header is repeated).
+	 * The files are named <b>file.csv</b>, <b>file_1.csv</b>, <b>file_2.csv</b> etc.
+	 * 
+	 * <p>This only applies to outputs defined by file name (setOutputFile).
+	 * 
+	 * @param maxFileSize maximum file size in bytes (&lt;= 0 for no limit)
+	 * @return this builder for more updates
+	 */
+	ICobolToCsvBldr setMaxFileSize(long maxFileSize);
+
 }
\ No newline at end of file
@@ -69,4 +69,31 @@ public interface ICobolToCsvDefinition {
 
 	String getLowValueTxt();
 
+	/**
+	 * Wether each output (record-type) is written on its own thread
+	 * (see {@link CsvQueuedLineWriter}).
+	 * @return parallel writers
+	 */
+	boolean isParallelWriters();
+
+	/**
+	 * Maximum size (bytes) of an output file before it is rolled over
+	 * to a new file (&lt;= 0 for no limit)
+	 * @return maximum file size
+	 */
+	long getMaxFileSize();
+
+	/**
+	 * @return the output character set
+	 */
+	String getOutputCharacterSet();
+
+	/**
+	 * Get the default Csv file name; it is only used
+	 * (instead of {@link #getCsvWriter()}) when the Csv is encoded directly to the output
+	 * file (i.e. parallel writers or a maximum file size has been set).
+	 * @return default Csv file name
+	 */
+	String getCsvFileName();
+
 }
\ No newline at end of file
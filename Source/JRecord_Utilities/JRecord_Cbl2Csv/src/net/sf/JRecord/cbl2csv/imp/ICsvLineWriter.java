@@ -0,0 +1,36 @@
+package net.sf.JRecord.cbl2csv.imp;
+
+import java.io.IOException;
+
+/**
+ * Destination for the Csv lines of one output (i.e. one record-type or the default Csv file).
+ * The Csv line is built by the caller, implementations only need to write it.
+ *
+ * @author Bruce Martin
+ *
+ */
+public interface ICsvLineWriter {
+
+	/**
+	 * Write the Csv Header line. It is called (at most once) before the first
+	 * data line; Writers that split the output across several files
+	 * should repeat it at the start of each file.
+	 *
+	 * @param header Csv header line (without the end-of-line)
+	 * @throws IOException
+	 */
+	void writeHeader(String header) throws IOException;
+
+	/**
+	 * Write one Csv line
+	 * @param line Csv line (without the end-of-line)
+	 * @throws IOException
+	 */
+	void writeLine(String line) throws IOException;
+
+	/**
+	 * Flush and close the output
+	 * @throws IOException
+	 */
+	void close() throws IOException;
+}
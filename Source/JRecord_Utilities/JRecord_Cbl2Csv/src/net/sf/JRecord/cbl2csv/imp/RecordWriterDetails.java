@@ -5,13 +5,22 @@ import java.io.BufferedWriter;
 public class RecordWriterDetails {
 	public final BufferedWriter writer;
 	public final String recordName;
+	/** Output file name; used (instead of writer) when the Csv is encoded directly to the file */
+	public final String fileName;
 	
 	
 	public RecordWriterDetails(String recordName, BufferedWriter writer) {
 		super();
 		this.writer = writer;
 		this.recordName = recordName;
+		this.fileName = null;
 	}
 	
 	
+	public RecordWriterDetails(String recordName, String fileName) {
+		super();
+		this.writer = null;
+		this.recordName = recordName;
+		this.fileName = fileName;
+	}
 }
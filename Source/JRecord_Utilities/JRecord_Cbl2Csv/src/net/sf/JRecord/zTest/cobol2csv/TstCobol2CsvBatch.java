@@ -0,0 +1,105 @@
+package net.sf.JRecord.zTest.cobol2csv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.AbstractLineWriter;
+import net.sf.JRecord.cbl2csv.Cobol2Csv;
+import net.sf.JRecord.cbl2csv.args.ParseArgsCobol2Csv;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+import net.sf.JRecord.utilityClasses.BatchConverter.FileResult;
+import net.sf.JRecord.zTest.Common.TstConstants;
+
+/**
+ * Testing converting a directory of Cobol files to Csv (-InputDirectory)
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstCobol2CsvBatch extends TestCase {
+
+	private static final String COPYBOOK
+			= "        01  Rec.\n"
+			+ "            03 Key-Field      pic 9(6).\n"
+			+ "            03 Name           pic x(10).\n"
+			+ "            03 Amount         pic s9(5)v99 comp-3.\n";
+
+	public void testBatch() throws IOException {
+		File dir = new File(TstConstants.TEMP_DIRECTORY + "Cbl2CsvBatch");
+		File outDir = new File(dir, "csv");
+		delete(dir);
+		dir.mkdirs();
+		try {
+			File cbl = new File(dir, "Rec.cbl");
+			Writer w = new FileWriter(cbl);
+			w.write(COPYBOOK);
+			w.close();
+			for (int i = 0; i < 5; i++) {
+				writeData(cbl, new File(dir, "Data" + i + ".bin"), i * 50 + 3);
+			}
+
+			String[] args = {
+					"-C", cbl.getPath(), "-FS", "Fixed_Length", "-IC", "cp037",
+					"-OC", "utf-8", "-D", ",",
+					"-InputDirectory", dir.getPath(), "-InputGlob", "*.bin",
+					"-O", outDir.getPath(), "-Threads", "2",
+			};
+			ParseArgsCobol2Csv csvArgs = new ParseArgsCobol2Csv(args);
+			List<FileResult> results = Cobol2Csv.runCobol2CsvBatch(csvArgs);
+
+			assertEquals(5, results.size());
+			for (int i = 0; i < 5; i++) {
+				FileResult r = results.get(i);
+				assertNull(r.getError());
+				assertEquals(new File(outDir, "Data" + i + ".csv"), r.getOutputFile());
+
+				ByteArrayOutputStream expected = new ByteArrayOutputStream();
+				Cobol2Csv.runCobol2Csv(
+						csvArgs,
+						JRecordInterface1.COBOL.newIOBuilder(cbl.getPath()).setOptimizeTypes(false),
+						new FileInputStream(r.getInputFile()), expected);
+				String csv = new String(Files.readAllBytes(r.getOutputFile().toPath()), "utf-8");
+				assertEquals(i * 50 + 4, csv.split("\n").length);
+				assertEquals(new String(expected.toByteArray(), "utf-8"), csv);
+			}
+		} finally {
+			delete(dir);
+		}
+	}
+
+	private static void writeData(File copybook, File f, int count) throws IOException {
+		ICobolIOBuilder iob = JRecordInterface1.COBOL
+				.newIOBuilder(copybook.getPath())
+					.setFileOrganization(Constants.IO_FIXED_LENGTH)
+					.setFont("cp037");
+		AbstractLineWriter w = iob.newWriter(f.getPath());
+		for (int i = 0; i < count; i++) {
+			AbstractLine line = iob.newLine();
+			line.getFieldValue("Key-Field").set(i);
+			line.getFieldValue("Name").set("Name " + i);
+			line.getFieldValue("Amount").set((i * 37 % 2000 - 1000) / 100.0);
+			w.write(line);
+		}
+		w.close();
+	}
+
+	private static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File c : children) {
+				delete(c);
+			}
+		}
+		f.delete();
+	}
+}
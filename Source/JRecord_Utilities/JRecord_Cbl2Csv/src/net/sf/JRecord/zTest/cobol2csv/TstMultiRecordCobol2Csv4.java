@@ -0,0 +1,188 @@
+package net.sf.JRecord.zTest.cobol2csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Common.Conversion;
+import net.sf.JRecord.External.CopybookLoader;
+import net.sf.JRecord.cbl2csv.imp.CobolToCsvBldr;
+import net.sf.JRecord.cbl2csv.imp.CsvFileLineWriter;
+import net.sf.JRecord.cbl2csv.imp.ICobolToCsvBldr;
+import net.sf.JRecord.def.IO.builders.ICobolIOBuilder;
+import net.sf.JRecord.zData.Data;
+
+/**
+ * Check Parallel writers / file rollover produce the same Csv as the
+ * standard (BufferedWriter) Cobol2Csv
+ *
+ * @author Bruce Martin
+ *
+ */
+public class TstMultiRecordCobol2Csv4 {
+
+	private static final String[] RECORDS = {"PO-Record", "Product-Record", "Location-Record"};
+	private static final String EOL = System.getProperty("line.separator");
+
+	@Test
+	public void testParallelWriters() throws IOException {
+		String[] expected = getExpected();
+		File dir = newTempDir();
+
+		createCsvBuilder()
+				.setOutputFile(new File(dir, "Po_{record}.csv").getPath(), "{record}")
+				.setParallelWriters(true)
+			.run();
+
+		for (int i = 0; i < RECORDS.length; i++) {
+			File f = new File(dir, "Po_" + RECORDS[i] + ".csv");
+			assertEquals(RECORDS[i], expected[i], readFile(f));
+			assertTrue(f.delete());
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testMaxFileSize() throws IOException {
+		checkMaxFileSize(false, 300);
+		checkMaxFileSize(true, 300);
+		checkMaxFileSize(true, 1000);
+		checkMaxFileSize(true, 10);
+	}
+
+	@Test
+	public void testSingleFileRollover() throws IOException {
+		StringWriter sw = new StringWriter();
+		createCsvBuilder()
+				.setCsvWriter(new BufferedWriter(sw))
+			.run();
+
+		File dir = newTempDir();
+		String fileName = new File(dir, "Po.csv").getPath();
+		createCsvBuilder()
+				.setOutputFile(fileName)
+				.setMaxFileSize(1024)
+			.run();
+
+		assertEquals(sw.toString(), readRolledFiles(fileName, 1024));
+		dir.delete();
+	}
+
+	@Test
+	public void testFileName() {
+		assertEquals("Po.csv", CsvFileLineWriter.getFileName("Po.csv", 0));
+		assertEquals("Po_3.csv", CsvFileLineWriter.getFileName("Po.csv", 3));
+		assertEquals("dir.x/Po_1", CsvFileLineWriter.getFileName("dir.x/Po", 1));
+		assertEquals("Po.x_1.csv", CsvFileLineWriter.getFileName("Po.x.csv", 1));
+	}
+
+	private void checkMaxFileSize(boolean parallel, int maxFileSize) throws IOException {
+		String[] expected = getExpected();
+		File dir = newTempDir();
+
+		createCsvBuilder()
+				.setOutputFile(new File(dir, "Po_{record}.csv").getPath(), "{record}")
+				.setParallelWriters(parallel)
+				.setMaxFileSize(maxFileSize)
+			.run();
+
+		for (int i = 0; i < RECORDS.length; i++) {
+			assertEquals(RECORDS[i], expected[i],
+					readRolledFiles(new File(dir, "Po_" + RECORDS[i] + ".csv").getPath(), maxFileSize));
+		}
+		dir.delete();
+	}
+
+	/**
+	 * Read the rolled-over files, checking the size / header of each file
+	 * and returning the combined Csv (with one header).
+	 */
+	private String readRolledFiles(String fileName, int maxFileSize) throws IOException {
+		StringBuilder b = new StringBuilder();
+		String header = null;
+		int fileNumber = 0;
+		File f;
+
+		while ((f = new File(CsvFileLineWriter.getFileName(fileName, fileNumber++))).exists()) {
+			String s = readFile(f);
+			int pos = s.indexOf(EOL) + EOL.length();
+
+			if (header == null) {
+				header = s.substring(0, pos);
+				b.append(s);
+			} else {
+				assertTrue(s.startsWith(header));
+				b.append(s.substring(pos));
+			}
+			assertTrue(f.length() <= maxFileSize || s.indexOf(EOL, pos) == s.length() - EOL.length());
+			assertTrue(f.delete());
+		}
+		assertTrue(fileNumber > 1);
+		return b.toString();
+	}
+
+	private String[] getExpected() throws IOException {
+		StringWriter[] writers = new StringWriter[RECORDS.length];
+		ICobolToCsvBldr csvBldr = createCsvBuilder();
+
+		for (int i = 0; i < RECORDS.length; i++) {
+			writers[i] = new StringWriter();
+			csvBldr.addRecordDetails(RECORDS[i], new BufferedWriter(writers[i]));
+		}
+		csvBldr.run();
+
+		String[] ret = new String[RECORDS.length];
+		for (int i = 0; i < RECORDS.length; i++) {
+			ret[i] = writers[i].toString();
+		}
+		return ret;
+	}
+
+	private ICobolToCsvBldr createCsvBuilder() throws IOException {
+		ICobolIOBuilder ioBldr = CobolToCsvBldr.newCobolIOBuilder(Data.AMS_PO_COBOL_COPYBOOK_FILE_NAME)
+				.setFont(Conversion.DEFAULT_ASCII_CHARSET)
+				.setFileOrganization(Constants.IO_BIN_TEXT)
+				.setSplitCopybook(CopybookLoader.SPLIT_01_LEVEL)
+				.setRecordDecider(JRecordInterface1.RECORD_DECIDER_BUILDER.singleFieldDeciderBuilder("Record-Type", false)
+						.addRecord("H1", RECORDS[0])
+						.addRecord("D1", RECORDS[1])
+						.addRecord("S1", RECORDS[2])
+						.setCaseSensitive(false)
+					.build()
+		);
+		return CobolToCsvBldr.newMultiRecordCsvBuilder()
+				.setSeparator(";")
+				.setLineReader(ioBldr.newReader(Data.AMS_PO_DATA_RESOUCE.openStream()));
+	}
+
+	private static File newTempDir() throws IOException {
+		File dir = File.createTempFile("Cbl2Csv", "");
+		dir.delete();
+		dir.mkdirs();
+		return dir;
+	}
+
+	private static String readFile(File f) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream((int) f.length());
+		InputStream in = new FileInputStream(f);
+		byte[] buf = new byte[4096];
+		int len;
+		while ((len = in.read(buf)) > 0) {
+			os.write(buf, 0, len);
+		}
+		in.close();
+
+		return new String(os.toByteArray());
+	}
+}
@@ -0,0 +1,155 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord Cbl2Xml
+ *    
+ *    Sub-Project purpose: Convert Cobol Data files to / from Xml
+ *
+ *                 Author: Bruce Martin
+ *    
+ *                License: LGPL 2.1 or latter
+ *                
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *   
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *   
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.cbl2json.zTest.json2cbl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Properties;
+
+import javax.xml.bind.JAXBException;
+
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.utilityClasses.CheckpointStore;
+import net.sf.cobolToJson.def.ICobol2Json;
+import net.sf.cobolToJson.impl.Cobol2JsonImp;
+
+import org.junit.Test;
+
+/**
+ * Check Cobol2Json Checkpoint / Restart produces the same Json
+ * as an uninterrupted conversion
+ * 
+ * @author Bruce Martin
+ *
+ */
+public class TstCblDataToJsonRestart {
+
+	private static final String JSON_FILE = TstXmlConstants.TEMP_DIRECTORY + "DTAR020_Restart.json";
+	private static final String CHECKPOINT_FILE = TstXmlConstants.TEMP_DIRECTORY + "DTAR020_Restart.chk";
+
+	private final String copybookName = Cbl2JsonCode.getFullName("cobol/DTAR020.cbl");
+	private final String dataName = Cbl2JsonCode.getFullName("DTAR020.bin");
+
+	@Test
+	public void testRestart() throws IOException, JAXBException {
+		check(true);
+		check(false);
+	}
+
+	@Test
+	public void testNoFailure() throws IOException, JAXBException {
+		new File(CHECKPOINT_FILE).delete();
+
+		newConverter(true).cobol2json(dataName, JSON_FILE, CHECKPOINT_FILE, 100);
+
+		assertArrayEquals(data2json(true), readFile(JSON_FILE));
+		assertFalse(new File(CHECKPOINT_FILE).exists());
+	}
+
+	private void check(boolean prettyPrint) throws IOException, JAXBException {
+		byte[] expected = data2json(prettyPrint);
+		new File(CHECKPOINT_FILE).delete();
+
+		try {
+			newConverter(prettyPrint).cobol2json(dataName, JSON_FILE, new FailingStore(3), 50);
+			fail("Conversion should have failed");
+		} catch (IOException e) {
+			assertEquals(FailingStore.MESSAGE, e.getMessage());
+		}
+		assertTrue(new File(CHECKPOINT_FILE).exists());
+		assertTrue(new File(JSON_FILE).length() > 0);
+
+			/* make sure the restart overwrites the Json after the checkpoint */
+		RandomAccessFile raf = new RandomAccessFile(JSON_FILE, "rw");
+		try {
+			raf.seek(raf.length());
+			raf.write("xxxxxxxxxxxxxxxxxxxxxx".getBytes());
+		} finally {
+			raf.close();
+		}
+
+		newConverter(prettyPrint).cobol2json(dataName, JSON_FILE, CHECKPOINT_FILE, 50);
+
+		assertArrayEquals(expected, readFile(JSON_FILE));
+		assertFalse(new File(CHECKPOINT_FILE).exists());
+	}
+
+	private byte[] data2json(boolean prettyPrint) throws IOException, JAXBException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream(0x10000);
+
+		newConverter(prettyPrint).cobol2json(new FileInputStream(dataName), os);
+
+		return os.toByteArray();
+	}
+
+	private ICobol2Json newConverter(boolean prettyPrint) {
+		ICobol2Json c = Cobol2JsonImp.newCobol2Json(copybookName)
+				.setFileOrganization(Constants.IO_FIXED_LENGTH)
+				.setFont("cp037");
+		c.setPrettyPrint(prettyPrint);
+		return c;
+	}
+
+	private static byte[] readFile(String fileName) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(fileName, "r");
+		try {
+			byte[] b = new byte[(int) raf.length()];
+			raf.readFully(b);
+			return b;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Checkpoint store that fails (simulating a crash) on the n'th checkpoint
+	 */
+	private static class FailingStore extends CheckpointStore {
+		static final String MESSAGE = "Simulated failure";
+		private int failOn;
+
+		FailingStore(int failOn) {
+			super(CHECKPOINT_FILE);
+			this.failOn = failOn;
+		}
+
+		@Override
+		public void save(Properties checkpoint) throws IOException {
+			if (--failOn <= 0) {
+				throw new IOException(MESSAGE);
+			}
+			super.save(checkpoint);
+		}
+	}
+}
@@ -3,11 +3,14 @@
  */
 package net.sf.cobolToJson;
 
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.stream.XMLStreamException;
 
+import net.sf.JRecord.ByteIO.FollowInputStream;
 import net.sf.JRecord.Common.RecordException;
 import net.sf.cobolToJson.impl.ConvertOptions;
 
@@ -27,8 +30,17 @@ public class Data2Json {
 		ConvertOptions opts = new ConvertOptions(args);
 		
 		if (opts.isOk()) {
-			Cobol2Json.newJsonConverter(opts)
-					 .cobol2json(opts.inputFile, opts.outputFile);
+			if (opts.checkpoint.length() > 0) {
+				Cobol2Json.newJsonConverter(opts)
+						 .cobol2json(opts.inputFile, opts.outputFile, opts.checkpoint, opts.checkpointInterval);
+			} else if (opts.follow.length() > 0) {
+				Cobol2Json.newJsonConverter(opts)
+						 .cobol2json(FollowInputStream.newFollowStream(opts.inputFile, opts.follow),
+								 	 new BufferedOutputStream(new FileOutputStream(opts.outputFile), 0x4000));
+			} else {
+				Cobol2Json.newJsonConverter(opts)
+						 .cobol2json(opts.inputFile, opts.outputFile);
+			}
 		}
 	}
 }
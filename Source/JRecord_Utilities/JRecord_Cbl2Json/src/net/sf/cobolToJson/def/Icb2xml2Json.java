@@ -11,6 +11,7 @@ import net.sf.JRecord.ExternalRecordSelection.ExternalSelection;
 import net.sf.JRecord.Option.IRecordPositionOption;
 import net.sf.JRecord.def.IO.builders.Icb2xmlLoadOptions;
 import net.sf.JRecord.schema.IArrayItemCheck;
+import net.sf.JRecord.utilityClasses.CheckpointStore;
 
 /**
  * Class To convert <i>Cobol Data Files</i> to/from <i>Json Data files</i> using a cb2xml Json-Schema,
@@ -167,6 +168,39 @@ public interface Icb2xml2Json extends Icb2xmlLoadOptions {
 	 */
 	public void cobol2json(InputStream cobolStream, OutputStream xmlStream) throws IOException, JAXBException;
 
+	/**
+	 * Convert Cobol Data File to Json file with Checkpoint / Restart. A checkpoint is taken
+	 * every <i>checkpointInterval</i> records; if the checkpoint file exists, the conversion
+	 * restarts from the checkpoint (the Json file is truncated back to the checkpoint).
+	 * The checkpoint file is deleted when the conversion completes.
+	 * Tree structured (Record Parent) Json is not supported.
+	 * 
+	 * @param cobolFileName input Cobol-Data file name
+	 * @param jsonFileName output Json-Data file name
+	 * @param checkpointFileName checkpoint file name
+	 * @param checkpointInterval number of records between checkpoints
+	 * 
+	 * @throws IOException
+	 * @throws JAXBException
+	 */
+	public void cobol2json(String cobolFileName, String jsonFileName, String checkpointFileName, int checkpointInterval) 
+			throws IOException, JAXBException;
+
+	/**
+	 * Convert Cobol Data File to Json file with Checkpoint / Restart
+	 * (see {@link #cobol2json(String, String, String, int)}).
+	 * 
+	 * @param cobolFileName input Cobol-Data file name
+	 * @param jsonFileName output Json-Data file name
+	 * @param checkpointStore where the checkpoint is stored
+	 * @param checkpointInterval number of records between checkpoints
+	 * 
+	 * @throws IOException
+	 * @throws JAXBException
+	 */
+	public void cobol2json(String cobolFileName, String jsonFileName, CheckpointStore checkpointStore, int checkpointInterval) 
+			throws IOException, JAXBException;
+
 
 	public void setPrettyPrint(boolean prettyPrint);
 
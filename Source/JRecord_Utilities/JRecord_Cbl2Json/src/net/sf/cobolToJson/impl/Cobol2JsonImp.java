@@ -3,15 +3,19 @@ package net.sf.cobolToJson.impl;
 import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Properties;
 
 import javax.xml.bind.JAXBException;
 
+import net.sf.JRecord.ByteIO.DurableOutputStream;
+import net.sf.JRecord.ByteIO.ReadPosition;
 import net.sf.JRecord.Common.AbstractFieldValue;
 import net.sf.JRecord.Common.Conversion;
 import net.sf.JRecord.Common.RecordException;
@@ -22,6 +26,7 @@ import net.sf.JRecord.External.CobolCopybookLoader;
 import net.sf.JRecord.External.ICopybookLoaderCobol;
 import net.sf.JRecord.External.XmlCopybookLoader;
 import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.IO.LineIOProvider;
 import net.sf.JRecord.def.IO.builders.ISchemaIOBuilder;
 import net.sf.JRecord.schema.CobolSchemaDetails;
 import net.sf.JRecord.schema.CobolSchemaReader;
@@ -31,6 +36,8 @@ import net.sf.JRecord.schema.jaxb.IItem;
 import net.sf.JRecord.schema.jaxb.Item;
 import net.sf.JRecord.schema.jaxb.ItemRecordDtls;
 import net.sf.JRecord.schema.jaxb.LineItemHelper;
+import net.sf.JRecord.utilityClasses.CheckpointCopy;
+import net.sf.JRecord.utilityClasses.CheckpointStore;
 //import net.sf.JRecord.schema.jaxb.Item;
 import net.sf.cobolToJson.def.ICobol2Json;
 import net.sf.cobolToJson.def.Icb2xml2Json;
@@ -214,6 +221,107 @@ public class Cobol2JsonImp extends CobolSchemaReader<ICobol2Json> implements ICo
  		
 	}
 	
+	@Override
+	public void cobol2json(String cobolFileName, String jsonFileName, String checkpointFileName, int checkpointInterval)
+	throws IOException, JAXBException {
+		cobol2json(cobolFileName, jsonFileName, new CheckpointStore(checkpointFileName), checkpointInterval);
+	}
+
+	@Override
+	public void cobol2json(String cobolFileName, String jsonFileName, CheckpointStore checkpointStore, int checkpointInterval)
+	throws IOException, JAXBException {
+		if (checkpointInterval <= 0) {
+			throw new IllegalArgumentException("Checkpoint interval must be greater than 0");
+		}
+		doInit();
+
+        LayoutDetail schema =  cobolSchemaDetails.ioBuilder.getLayout();
+       	List<ItemRecordDtls> recordItems = cobolSchemaDetails.recordItems;
+       	boolean singleRecord = recordItems.size() == 1;
+       	if ((! singleRecord) && schema.hasTreeStructure()) {
+       		throw new RecordException("Checkpoint / Restart is not supported for Tree structured (Record Parent) Json");
+       	}
+
+        Properties checkpoint = checkpointStore.load();
+        AbstractLineReader r = LineIOProvider.getInstance().getLineReader(schema);
+        DurableOutputStream out;
+        long count = 0;
+        if (checkpoint == null) {
+        	r.open(cobolFileName, schema);
+        	out = new DurableOutputStream(jsonFileName);
+        } else {
+        	if (! cobolFileName.equals(checkpoint.getProperty(CheckpointCopy.IN_FILE))
+        	||  ! jsonFileName.equals(checkpoint.getProperty(CheckpointCopy.OUT_FILE))) {
+        		throw new RecordException("Checkpoint " + checkpointStore.getCheckpointFileName() + " is for "
+        				+ checkpoint.getProperty(CheckpointCopy.IN_FILE) + " -> " + checkpoint.getProperty(CheckpointCopy.OUT_FILE));
+        	}
+        	count = Long.parseLong(checkpoint.getProperty(CheckpointCopy.RECORD_COUNT));
+        	r.open(cobolFileName, schema, ReadPosition.parse(checkpoint.getProperty(CheckpointCopy.IN_POSITION)));
+        	out = new DurableOutputStream(jsonFileName, Long.parseLong(checkpoint.getProperty(CheckpointCopy.OUT_POSITION)));
+        }
+        RestartOutputStream restartStream = new RestartOutputStream(out, checkpoint != null);
+        AbstractLine l;
+        LineItemHelper lineItemHelper = new LineItemHelper(schema);
+       	JsonGenerator writer = new JsonFactory().createGenerator(restartStream);
+
+        if (prettyPrint) {
+        	writer.setPrettyPrinter(new DefaultPrettyPrinter());
+        }
+
+		try {
+	    	writer.writeStartObject();
+	    	writer.writeArrayFieldStart(singleRecord
+	    			? itemDtls.updateName(schema.getRecord(0).getRecordName())
+	    			: cobolSchemaDetails.copybookInformation.updateName(schema.getLayoutName()));
+	    	if (restartStream.discard) {
+	    		/* On restart the Json up to the checkpoint is already in the file, 
+	    		 * the generator is brought to the same state (inside the array after a record)
+	    		 * with the output discarded. */
+	    		writer.writeStartObject();
+	    		writer.writeEndObject();
+	    		writer.flush();
+	    		restartStream.discard = false;
+	    	}
+
+	    	int sinceCheckpoint = 0;
+			while ((l = r.read()) != null) {
+				int recordIdx = singleRecord ? 0 : l.getPreferredLayoutIdx();
+				count += 1;
+				if (recordIdx < 0) {
+					throw new RecordException("Unknow Record Type for line number: " + count + " " + l.getFullLine());
+				}
+				writer.writeStartObject();
+				writeItems(writer, lineItemHelper.setLine(l), recordItems.get(recordIdx).items, new IntStack());
+				writer.writeEndObject();
+
+				if (++sinceCheckpoint >= checkpointInterval) {
+					ReadPosition inPosition = r.getPosition();
+					if (inPosition != null) {
+						writer.flush();
+						Properties p = new Properties();
+						p.setProperty(CheckpointCopy.IN_FILE, cobolFileName);
+						p.setProperty(CheckpointCopy.OUT_FILE, jsonFileName);
+						p.setProperty(CheckpointCopy.IN_POSITION, inPosition.toString());
+						p.setProperty(CheckpointCopy.OUT_POSITION, Long.toString(out.sync()));
+						p.setProperty(CheckpointCopy.RECORD_COUNT, Long.toString(count));
+						checkpointStore.save(p);
+						sinceCheckpoint = 0;
+					}
+				}
+			}
+
+			writer.writeEndArray();
+			writer.writeEndObject();
+			writer.flush();
+			out.sync();
+		} finally {
+			writer.close();
+			out.close();
+			r.close();
+		}
+		checkpointStore.delete();
+	}
+
 	private void doInit() throws IOException, JAXBException {
 		cobolSchemaDetails = super.getCobolSchemaDetails();
 
@@ -222,6 +330,33 @@ public class Cobol2JsonImp extends CobolSchemaReader<ICobol2Json> implements ICo
         skipValidation = ! itemDtls.isRedefinedBinaryField();
 	}
 
+	/**
+	 * Output stream that can discard what is written to it, used
+	 * to re-position the Json generator on restart
+	 */
+	private static class RestartOutputStream extends FilterOutputStream {
+		boolean discard;
+
+		RestartOutputStream(OutputStream out, boolean discard) {
+			super(out);
+			this.discard = discard;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (! discard) {
+				out.write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (! discard) {
+				out.write(b, off, len);
+			}
+		}
+	}
+
 	/**
 	 * @param prettyPrint the prettyPrint to set
 	 */
@@ -3,6 +3,7 @@ package net.sf.cobolToJson.impl;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.sf.JRecord.ByteIO.FollowInputStream;
 import net.sf.JRecord.Common.Constants;
 import net.sf.JRecord.Numeric.ICopybookDialects;
 import net.sf.JRecord.Option.ICobolSplitOptions;
@@ -26,10 +27,14 @@ public class ConvertOptions {
 	private static final String OPT_SPLIT   = "-split";
 	private static final String OPT_RECSEL  = "-recordSelection";
 	private static final String OPT_PARENT  = "-recordParent";
+	private static final String OPT_FOLLOW  = "-follow";
+	private static final String OPT_CHECKPOINT = "-checkpoint";
+	private static final String OPT_CHECKPOINT_INTERVAL = "-checkpointInterval";
+	private static final int DEFAULT_CHECKPOINT_INTERVAL = 100000;
 	private static final String[] VALID_ARGS = {
 		OPT_COBOL, OPT_CB2XML, OPT_INPUT, OPT_OUTPUT, OPT_FONT, 
 		OPT_FILE_ORGANISATION, OPT_DIALECT, OPT_DROP_COPYBOOK_NAME, OPT_TAG,
-		OPT_SPLIT,
+		OPT_SPLIT, OPT_FOLLOW, OPT_CHECKPOINT, OPT_CHECKPOINT_INTERVAL,
 		"-h", "-help", "-?"
 	};
 	
@@ -58,8 +63,8 @@ public class ConvertOptions {
 		new Opts("Highest", "On Highest Repeating", ICobolSplitOptions.SPLIT_HIGHEST_REPEATING),
 	};
 	
-	public final String cobolCopybook, cb2xmlCopybook, inputFile, outputFile, font;
-	public final int fileOrganisation, dialect, tagFormat, split;
+	public final String cobolCopybook, cb2xmlCopybook, inputFile, outputFile, font, follow, checkpoint;
+	public final int fileOrganisation, dialect, tagFormat, split, checkpointInterval;
 	public final boolean dropCopybookName, useCobol;
 	
 	public final List<RecordParent> recordParents = new ArrayList<RecordParent>(10);
@@ -76,6 +81,23 @@ public class ConvertOptions {
 		inputFile  = pArgs.getArg(OPT_INPUT,  "");
 		outputFile = pArgs.getArg(OPT_OUTPUT, "");
 		font = pArgs.getArg(OPT_FONT, "");
+		follow = pArgs.getArg(OPT_FOLLOW, "");
+		checkpoint = pArgs.getArg(OPT_CHECKPOINT, "");
+		
+		int interval = DEFAULT_CHECKPOINT_INTERVAL;
+		String intervalStr = pArgs.getArg(OPT_CHECKPOINT_INTERVAL, "");
+		if (intervalStr.length() > 0) {
+			try {
+				interval = Integer.parseInt(intervalStr);
+			} catch (NumberFormatException e) {
+				interval = -1;
+			}
+			if (interval <= 0) {
+				System.out.println("Invalid Checkpoint Interval=" + intervalStr);
+				ok = false;
+			}
+		}
+		checkpointInterval = interval;
 		
 		fileOrganisation = decodeAsOpt(pArgs, OPT_FILE_ORGANISATION, false, FILE_ORGANISATION_OPTS[0], FILE_ORGANISATION_OPTS).id;
 		dialect = decodeAsOpt(pArgs, OPT_DIALECT, false, DIALECT_OPTS[0], DIALECT_OPTS).id;
@@ -180,6 +202,12 @@ public class ConvertOptions {
 		System.out.println("          " + OPT_INPUT  + "\t- Input file");
 		System.out.println("          " + OPT_OUTPUT + "\t- Output file");
 		System.out.println("          " + OPT_FONT   + "  \t- Characterset used in the Cobol data file (e.g. IBM037 for US-EBCIDIC)");
+		System.out.println("          " + OPT_FOLLOW + "\t- Follow an input file that is still being written, the value is either");
+		System.out.println("                            \t  a completion-marker file or " + FollowInputStream.FINISH_ON_RENAME
+				+ " (finish when the input file is renamed)");
+		System.out.println("          " + OPT_CHECKPOINT + "\t- Checkpoint file, a failed conversion is restarted from the last checkpoint");
+		System.out.println("          " + OPT_CHECKPOINT_INTERVAL + "\t- Number of records between checkpoints (default " 
+				+ DEFAULT_CHECKPOINT_INTERVAL + ")");
 		System.out.println();
 		System.out.println("          " + OPT_DROP_COPYBOOK_NAME + "\t- (true/false) wether to drop the cobol copybook name from the start of the Json Tags");
 		System.out.println();
@@ -0,0 +1,53 @@
+package net.sf.JRecord.cbl2parquet;
+
+import java.io.InputStream;
+import java.io.Reader;
+
+import net.sf.JRecord.ExternalRecordSelection.ExternalFieldSelection;
+import net.sf.JRecord.Option.JRecordConstantVars;
+import net.sf.JRecord.cbl2parquet.def.ICobol2Parquet;
+import net.sf.JRecord.cbl2parquet.impl.Cobol2ParquetImp;
+import net.sf.JRecord.schema.ArrayElementChecks;
+
+
+/**
+ * This class creates Cobol ==> Parquet builders. Typical use:
+ * <pre>
+ *     Cobol2Parquet.newCobol2Parquet("DTAR020.cbl")
+ *              .setFont("cp037")
+ *              .setFileOrganization(Constants.IO_FIXED_LENGTH)
+ *          .cobol2parquet("DTAR020.bin", "DTAR020_{record}.parquet");
+ * </pre>
+ *
+ * @author Bruce Martin
+ *
+ */
+public class Cobol2Parquet  {
+
+	public static final JRecordConstantVars JR_CONSTANTS = JRecordConstantVars.INSTANCE;
+	public static final ArrayElementChecks  ARRAY_CHECK_BUILDER = ArrayElementChecks.INSTANCE;
+
+	public static ICobol2Parquet newCobol2Parquet(String cobolCopybook) {
+		return Cobol2ParquetImp.newCobol2Parquet(cobolCopybook);
+	}
+
+	public static ICobol2Parquet newCobol2Parquet(InputStream cobolCopybook, String copybookName)  {
+		return Cobol2ParquetImp.newCobol2Parquet(cobolCopybook, copybookName);
+	}
+
+	public static ICobol2Parquet newCobol2Parquet(Reader cobolCopybookReader, String copybookName) {
+		return Cobol2ParquetImp.newCobol2Parquet(cobolCopybookReader, copybookName);
+	}
+
+	/**
+	 * Create a Record-Selection based on field / value test
+	 * @param fieldName name of the field to be checked
+	 * @param value value to be tested against
+	 * @return requested check
+	 */
+    public static ExternalFieldSelection newFieldSelection(String fieldName, String value) {
+    	ExternalFieldSelection r = new ExternalFieldSelection(fieldName, value);
+    	r.setCaseSensitive(false);
+    	return r;
+    }
+}
@@ -0,0 +1,169 @@
+package net.sf.JRecord.cbl2parquet.def;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.bind.JAXBException;
+
+import net.sf.JRecord.Details.RecordDecider;
+import net.sf.JRecord.ExternalRecordSelection.ExternalSelection;
+import net.sf.JRecord.Option.IRecordPositionOption;
+import net.sf.JRecord.def.IO.builders.ISchemaIOBuilder;
+import net.sf.JRecord.def.IO.builders.Icb2xmlLoadOptions;
+import net.sf.JRecord.schema.IArrayItemCheck;
+
+/**
+ * Class To convert <i>Cobol Data Files</i> to <i>Parquet files</i> using a Cobol Copybook.
+ * One Parquet file is written for each Record-Type in the Cobol file,
+ * the columns are typed from the Cobol field definitions:<ul>
+ *   <li><b>Zoned / Packed Decimal</b> are written as Parquet <b>DECIMAL</b> with the precision / scale from the picture
+ *   <li><b>Binary</b> (comp, comp-5 etc) without decimal places are written as <b>int32</b> / <b>int64</b>
+ *   <li><b>comp-1 / comp-2</b> are written as <b>float</b> / <b>double</b>
+ *   <li><b>Text</b> fields are written as dictionary encoded <b>UTF8</b> strings.
+ * </ul>
+ * Every column is optional; numeric fields that are spaces / low-values / invalid are written as null.
+ *
+ * @author Bruce Martin
+ *
+ */
+public interface ICobol2Parquet extends Icb2xmlLoadOptions {
+
+	/**
+	 * Each array element becomes a separate column (e.g. <b>Field_0</b>, <b>Field_1</b> ...);
+	 * elements beyond the <i>Occurs Depending</i> count are null.
+	 */
+	public static final int ARRAY_FLATTEN = 1;
+	/**
+	 * Arrays are written as a Parquet <b>LIST</b>; only the elements in use are written.
+	 */
+	public static final int ARRAY_LIST = 2;
+
+	/**
+	 * Default name of the <i>Record-Variable</i> in the output file name
+	 */
+	public static final String RECORD_VARIABLE = "{record}";
+
+	/**
+	 * File Organization or File Structure (e.g. VB, Fixed Width Etc. Use Constants.IO_*
+	 *
+	 * @param fileOrganization File Organization (or File Structure)
+	 */
+	public abstract ICobol2Parquet setFileOrganization(int fileOrganization);
+
+	@Override public abstract ICobol2Parquet setSplitCopybook(int splitCopybook);
+
+	/**
+	 * Set the Cobol Dialect; Possible values include<ul>
+	 *   <li><b>ICopybookDialects.FMT_MAINFRAME</b> - Mainframe Cobol
+	 *   <li><b>ICopybookDialects.FMT_FUJITSU</b> - Written for the old Fujitsu Cobol 3 compiler
+	 *   <li><b>ICopybookDialects.FMT_GNU_COBOL</b> - GNU Cobol (formerly Open Cobol) on a Little Endian machine (e.g Intel).
+	 *   <li><b>ICopybookDialects.FMT_OC_MICRO_FOCUS_BE</b> -  GNU Cobol running in Microfocus compatibility mode on a Big Endian machine
+	 * </ul
+	 * @param dialect new Cobol Dialect
+	 */
+	public abstract ICobol2Parquet setDialect(int dialect);
+
+	/**
+	 * @param font the font (or character set) of the File e.g CP037 is US-EBCDIC, CP273 is German EBCDIC
+	 */
+	public abstract ICobol2Parquet setFont(String font);
+
+	@Override public abstract ICobol2Parquet setInitToSpaces(boolean initToSpaces);
+
+	@Override public abstract ICobol2Parquet setRecordSelection(String recordName, ExternalSelection selectionCriteria);
+
+	@Override public abstract ICobol2Parquet setRecordDecider(RecordDecider recordDecider);
+
+	@Override public abstract ICobol2Parquet setRecordPositionCode(String recordName,
+			IRecordPositionOption positionOption);
+
+	@Override public abstract ICobol2Parquet setRecordParent(String recordName, String parentName);
+
+	/**
+	 * Cobol is a column-sensitive language; This parameter controls which part of the line to use.
+	 *
+	 * @param copybookFileFormat the copybookFileFormat to set
+	 */
+	public abstract ICobol2Parquet setCopybookFileFormat(int copybookFileFormat);
+
+	@Override public abstract ICobol2Parquet setDropCopybookNameFromFields(boolean dropCopybookNameFromFields);
+
+	/**
+	 * Setup check on wether to write Array Item.
+	 * @param arrayName Array name
+	 * @param check check to be performed
+	 * @return this Builder
+	 */
+	public abstract ICobol2Parquet setArrayCheck(String arrayName, IArrayItemCheck check);
+
+	/**
+	 * Set The format of the Parquet column names (Cbl2XmlValues.RO_LEAVE_ASIS, RO_MINUS_TO_UNDERSCORE, RO_CAMEL_CASE).
+	 * Parquet tools generally prefer <b>RO_MINUS_TO_UNDERSCORE</b>.
+	 */
+	public abstract ICobol2Parquet setTagFormat(int tagFormat);
+
+	/**
+	 * How Cobol Arrays (Occurs) are written
+	 * @param arrayMode either ARRAY_FLATTEN (default) or ARRAY_LIST
+	 * @return this Builder
+	 */
+	public abstract ICobol2Parquet setArrayMode(int arrayMode);
+
+	/**
+	 * Set the (in memory) size of a Parquet row group; once a record types buffered data
+	 * reaches this size, the row group is written.
+	 *
+	 * @param rowGroupSize row group size in bytes (default 128mb)
+	 * @return this Builder
+	 */
+	public abstract ICobol2Parquet setRowGroupSize(int rowGroupSize);
+
+	/**
+	 * @param pageSize Parquet page size in bytes (default 1mb)
+	 * @return this Builder
+	 */
+	public abstract ICobol2Parquet setPageSize(int pageSize);
+
+	/**
+	 * @param compression Parquet compression codec (UNCOMPRESSED, SNAPPY, GZIP, LZO); default SNAPPY
+	 * @return this Builder
+	 */
+	public abstract ICobol2Parquet setCompression(String compression);
+
+	/**
+	 * @param dictionaryEncoding wether to dictionary encode columns (default true)
+	 * @return this Builder
+	 */
+	public abstract ICobol2Parquet setDictionaryEncoding(boolean dictionaryEncoding);
+
+	/**
+	 *
+	 * @return an IOBuilder related to the Cobol2Parquet class
+	 */
+	public ISchemaIOBuilder asIOBuilder();
+
+	/**
+	 * Convert a Cobol Data File to Parquet file(s)
+	 *
+	 * @param cobolFileName input Cobol-Data file name
+	 * @param parquetFileName output Parquet file name. When there are multiple Record-Types,
+	 * the name must contain {record}; it is replaced by the record name.
+	 *
+	 * @throws IOException
+	 * @throws JAXBException
+	 */
+	public void cobol2parquet(String cobolFileName, String parquetFileName) throws IOException, JAXBException;
+
+	/**
+	 * Convert Cobol Data to Parquet file(s)
+	 *
+	 * @param cobolStream input Cobol-Data
+	 * @param parquetFileName output Parquet file name.
+	 * @param recordVariable variable in the file name to be replaced by the record name
+	 * (only needed when the Cobol file has more than one Record-Type).
+	 *
+	 * @throws IOException
+	 * @throws JAXBException
+	 */
+	public void cobol2parquet(InputStream cobolStream, String parquetFileName, String recordVariable) throws IOException, JAXBException;
+}
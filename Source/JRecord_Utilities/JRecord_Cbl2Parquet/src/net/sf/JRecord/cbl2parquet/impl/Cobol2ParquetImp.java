@@ -0,0 +1,180 @@
+package net.sf.JRecord.cbl2parquet.impl;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+
+import net.sf.JRecord.Common.Conversion;
+import net.sf.JRecord.Common.RecordException;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.Details.LayoutDetail;
+import net.sf.JRecord.External.CobolCopybookLoader;
+import net.sf.JRecord.External.ICopybookLoaderCobol;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.cbl2parquet.def.ICobol2Parquet;
+import net.sf.JRecord.schema.CobolSchemaDetails;
+import net.sf.JRecord.schema.CobolSchemaReader;
+import net.sf.JRecord.schema.jaxb.ItemRecordDtls;
+import net.sf.JRecord.schema.jaxb.LineItemHelper;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+
+/**
+ * Purpose: Convert Cobol-Data-Files ---> Parquet files (one Parquet file per Record-Type)
+ *
+ * @author Bruce Martin
+ *
+ */
+public class Cobol2ParquetImp extends CobolSchemaReader<ICobol2Parquet> implements ICobol2Parquet {
+
+	private int arrayMode = ARRAY_FLATTEN;
+	private int rowGroupSize = ParquetWriter.DEFAULT_BLOCK_SIZE;
+	private int pageSize = ParquetWriter.DEFAULT_PAGE_SIZE;
+	private boolean dictionaryEncoding = true;
+	private CompressionCodecName compression = CompressionCodecName.SNAPPY;
+
+	private Cobol2ParquetImp(String copybookFilename, ICopybookLoaderCobol loader) {
+		super(Conversion.getCopyBookId(copybookFilename), loader);
+		loader.setSaveCb2xmlDocument(true);
+		super.addCopyBook(copybookFilename);
+	}
+
+	private Cobol2ParquetImp(InputStream is, String copybookname, ICopybookLoaderCobol loader) {
+		super(copybookname, loader);
+		loader.setSaveCb2xmlDocument(true);
+
+		super.addCopyBook(is, copybookname);
+	}
+
+	private Cobol2ParquetImp(Reader copybookReader, String copybookname, ICopybookLoaderCobol loader) {
+		super(copybookname, loader);
+		loader.setSaveCb2xmlDocument(true);
+
+		super.addCopyBook(copybookReader, copybookname);
+	}
+
+	@Override
+	public void cobol2parquet(String cobolFileName, String parquetFileName) throws IOException, JAXBException {
+		cobol2parquet(new FileInputStream(cobolFileName), parquetFileName, RECORD_VARIABLE);
+	}
+
+	@Override
+	public void cobol2parquet(InputStream cobolStream, String parquetFileName, String recordVariable)
+			throws IOException, JAXBException {
+		CobolSchemaDetails cobolSchemaDetails = super.getCobolSchemaDetails();
+		boolean skipValidation = ! cobolSchemaDetails.copybookInformation.isRedefinedBinaryField();
+		AbstractLineReader r = cobolSchemaDetails.ioBuilder.newReader(cobolStream);
+		LayoutDetail schema =  cobolSchemaDetails.schema;
+		List<ItemRecordDtls> recordItems = cobolSchemaDetails.recordItems;
+		LineItemHelper lineItemHelper = new LineItemHelper(schema);
+		@SuppressWarnings("unchecked")
+		ParquetWriter<LineItemHelper>[] writers = new ParquetWriter[recordItems.size()];
+		boolean useRecordVariable = recordVariable != null && recordVariable.length() > 0
+								 && parquetFileName.contains(recordVariable);
+		int lineNo = 0;
+		AbstractLine l;
+
+		if (recordItems.size() > 1 && ! useRecordVariable) {
+			r.close();
+			throw new RecordException("There are " + recordItems.size() + " Record-Types; the output file name must contain: "
+					+ recordVariable);
+		}
+
+		try {
+			while ((l = r.read()) != null) {
+				int recordIdx = recordItems.size() == 1 ? 0 : l.getPreferredLayoutIdx();
+				lineNo += 1;
+				if (recordIdx < 0) {
+					throw new RecordException("Unknow Record Type for line number: " + lineNo + " " + l.getFullLine());
+				}
+				if (writers[recordIdx] == null) {
+					ItemRecordDtls recordDtls = recordItems.get(recordIdx);
+					String recordName = cobolSchemaDetails.copybookInformation.updateName(recordDtls.record.getRecordName());
+					String fileName = useRecordVariable
+							? Conversion.replace(parquetFileName, recordVariable, recordDtls.record.getRecordName()).toString()
+							: parquetFileName;
+					writers[recordIdx] = newWriter(fileName, new ParquetRecordSchema(recordName, recordDtls.items, arrayMode, skipValidation));
+				}
+				writers[recordIdx].write(lineItemHelper.setLine(l));
+			}
+		} finally {
+			r.close();
+			for (ParquetWriter<LineItemHelper> w : writers) {
+				if (w != null) {
+					w.close();
+				}
+			}
+		}
+	}
+
+	private ParquetWriter<LineItemHelper> newWriter(String fileName, ParquetRecordSchema recordSchema) throws IOException {
+		return new LineWriteSupport.Builder(new Path(fileName), recordSchema)
+					.withConf(new Configuration())
+					.withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+					.withCompressionCodec(compression)
+					.withRowGroupSize(rowGroupSize)
+					.withPageSize(pageSize)
+					.withDictionaryPageSize(pageSize)
+					.withDictionaryEncoding(dictionaryEncoding)
+				.build();
+	}
+
+	@Override
+	public final ICobol2Parquet setArrayMode(int arrayMode) {
+		if (arrayMode != ARRAY_FLATTEN && arrayMode != ARRAY_LIST) {
+			throw new RecordException("Invalid Array Mode: " + arrayMode);
+		}
+		this.arrayMode = arrayMode;
+		return this;
+	}
+
+	@Override
+	public final ICobol2Parquet setRowGroupSize(int rowGroupSize) {
+		this.rowGroupSize = rowGroupSize;
+		return this;
+	}
+
+	@Override
+	public final ICobol2Parquet setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+		return this;
+	}
+
+	@Override
+	public final ICobol2Parquet setCompression(String compression) {
+		try {
+			this.compression = CompressionCodecName.valueOf(compression.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new RecordException("Invalid Parquet compression: " + compression);
+		}
+		return this;
+	}
+
+	@Override
+	public final ICobol2Parquet setDictionaryEncoding(boolean dictionaryEncoding) {
+		this.dictionaryEncoding = dictionaryEncoding;
+		return this;
+	}
+
+
+	public static ICobol2Parquet newCobol2Parquet(String cobolCopybook) {
+		return new Cobol2ParquetImp(cobolCopybook, new CobolCopybookLoader());
+	}
+
+	public static ICobol2Parquet newCobol2Parquet(InputStream cobolCopybook, String copybookName) {
+		return new Cobol2ParquetImp(cobolCopybook, copybookName, new CobolCopybookLoader());
+	}
+
+	public static ICobol2Parquet newCobol2Parquet(Reader cobolCopybookReader, String copybookName) {
+		return new Cobol2ParquetImp(cobolCopybookReader, copybookName, new CobolCopybookLoader());
+	}
+}
@@ -0,0 +1,64 @@
+package net.sf.JRecord.cbl2parquet.impl;
+
+import java.util.HashMap;
+
+import net.sf.JRecord.schema.jaxb.LineItemHelper;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.RecordConsumer;
+
+/**
+ * Parquet WriteSupport for Cobol lines (passed in a LineItemHelper)
+ *
+ * @author Bruce Martin
+ *
+ */
+public class LineWriteSupport extends WriteSupport<LineItemHelper> {
+
+	private final ParquetRecordSchema recordSchema;
+	private RecordConsumer recordConsumer;
+
+	public LineWriteSupport(ParquetRecordSchema recordSchema) {
+		this.recordSchema = recordSchema;
+	}
+
+	@Override
+	public WriteContext init(Configuration configuration) {
+		return new WriteContext(recordSchema.messageType, new HashMap<String, String>());
+	}
+
+	@Override
+	public void prepareForWrite(RecordConsumer recordConsumer) {
+		this.recordConsumer = recordConsumer;
+	}
+
+	@Override
+	public void write(LineItemHelper record) {
+		recordSchema.write(recordConsumer, record);
+	}
+
+	/**
+	 * Builder for a ParquetWriter that writes Cobol lines
+	 */
+	public static class Builder extends ParquetWriter.Builder<LineItemHelper, Builder> {
+		private final ParquetRecordSchema recordSchema;
+
+		public Builder(Path file, ParquetRecordSchema recordSchema) {
+			super(file);
+			this.recordSchema = recordSchema;
+		}
+
+		@Override
+		protected Builder self() {
+			return this;
+		}
+
+		@Override
+		protected WriteSupport<LineItemHelper> getWriteSupport(Configuration conf) {
+			return new LineWriteSupport(recordSchema);
+		}
+	}
+}
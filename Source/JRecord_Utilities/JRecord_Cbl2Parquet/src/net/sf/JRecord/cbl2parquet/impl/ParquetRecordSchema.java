@@ -0,0 +1,449 @@
+package net.sf.JRecord.cbl2parquet.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.JRecord.Common.IFieldDetail;
+import net.sf.JRecord.Details.fieldValue.IFieldValue;
+import net.sf.JRecord.Types.Type;
+import net.sf.JRecord.Types.TypeManager;
+import net.sf.JRecord.cbl2parquet.def.ICobol2Parquet;
+import net.sf.JRecord.schema.IArrayItemCheck;
+import net.sf.JRecord.schema.jaxb.IItem;
+import net.sf.JRecord.schema.jaxb.LineItemHelper;
+
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type.Repetition;
+import org.apache.parquet.schema.Types;
+
+/**
+ * Parquet schema for one Cobol Record. The Cobol Item tree is converted
+ * to a tree of Column-Writers (one per Parquet field) when the schema is built
+ * so writing a line is a simple walk of the Column tree.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class ParquetRecordSchema {
+
+	private static final int[] NO_INDEX = {};
+
+	private static final int K_STRING  = 0;
+	private static final int K_INT32   = 1;
+	private static final int K_INT64   = 2;
+	private static final int K_FLOAT   = 3;
+	private static final int K_DOUBLE  = 4;
+	private static final int K_DEC_INT32 = 5;
+	private static final int K_DEC_INT64 = 6;
+	private static final int K_DEC_FIXED = 7;
+
+	public final MessageType messageType;
+	private final List<Column> columns;
+	private final boolean skipValidation;
+
+	public ParquetRecordSchema(String recordName, List<? extends IItem> items, int arrayMode, boolean skipValidation) {
+		this.skipValidation = skipValidation;
+		this.columns = new ArrayList<Column>(items.size());
+
+		List<org.apache.parquet.schema.Type> fields = new ArrayList<org.apache.parquet.schema.Type>(items.size());
+		if (items.size() == 1
+		&& items.get(0).getItemType() == IItem.TYPE_GROUP
+		&& (items.get(0).getOccurs() == null || items.get(0).getOccurs() <= 1)) {
+			/* The 01 level is the Parquet message, its children are the columns */
+			items = items.get(0).getChildItems();
+		}
+		buildColumns(items, arrayMode, columns, fields);
+
+		messageType = new MessageType(recordName, fields);
+	}
+
+	/**
+	 * Write a Cobol line to Parquet
+	 * @param rc Parquet record consumer
+	 * @param l line to be written
+	 */
+	public void write(RecordConsumer rc, LineItemHelper l) {
+		rc.startMessage();
+		writeColumns(rc, l, columns, NO_INDEX);
+		rc.endMessage();
+	}
+
+	private void buildColumns(List<? extends IItem> items, int arrayMode,
+			List<Column> cols, List<org.apache.parquet.schema.Type> fields) {
+		for (IItem item : items) {
+			String name = item.getNameToUse();
+			Integer occurs = item.getOccurs();
+			boolean isArray = occurs != null && occurs > 1;
+
+			if (name == null || name.length() == 0 || "filler".equalsIgnoreCase(item.getName())) {
+				if (item.getItemType() == IItem.TYPE_GROUP && ! isArray) {
+					buildColumns(item.getChildItems(), arrayMode, cols, fields);
+				}
+			} else if (! isArray) {
+				addColumn(newColumn(item, name, arrayMode, fields.size(), Repetition.OPTIONAL), cols, fields);
+			} else if (arrayMode == ICobol2Parquet.ARRAY_LIST) {
+				Column element = newColumn(item, "element", arrayMode, 0, Repetition.OPTIONAL);
+				org.apache.parquet.schema.Type listType =
+						Types.optionalGroup()
+								.as(OriginalType.LIST)
+								.repeatedGroup()
+									.addField(element.type)
+								.named("list")
+							.named(name);
+				addColumn(new ListColumn(item, listType, fields.size(), element), cols, fields);
+			} else {
+				for (int i = 0; i < occurs; i++) {
+					Column element = newColumn(item, name + "_" + i, arrayMode, fields.size(), Repetition.OPTIONAL);
+					addColumn(new FlatElementColumn(item, element, i), cols, fields);
+				}
+			}
+		}
+	}
+
+	private void addColumn(Column col, List<Column> cols, List<org.apache.parquet.schema.Type> fields) {
+		cols.add(col);
+		fields.add(col.type);
+	}
+
+	private Column newColumn(IItem item, String name, int arrayMode, int fieldIndex, Repetition repetition) {
+		if (item.getItemType() == IItem.TYPE_GROUP) {
+			List<Column> childCols = new ArrayList<Column>();
+			List<org.apache.parquet.schema.Type> childFields = new ArrayList<org.apache.parquet.schema.Type>();
+			buildColumns(item.getChildItems(), arrayMode, childCols, childFields);
+			if (childFields.size() == 0) {
+				throw new IllegalArgumentException("Group " + item.getName() + " does not have any fields");
+			}
+			return new GroupColumn(
+					new org.apache.parquet.schema.GroupType(repetition, name, childFields),
+					fieldIndex, childCols);
+		}
+
+		IFieldDetail fld = item.getFieldDefinition();
+		if (fld == null && item.getArrayDefinition() != null) {
+			fld = item.getArrayDefinition().getFirstField();
+		}
+		int typeId = fld == null ? Type.ftChar : fld.getType();
+		int scale = fld == null ? 0 : Math.max(0, fld.getDecimal());
+
+		if (typeId == Type.ftFloat) {
+			return new FieldColumn(item, Types.primitive(PrimitiveTypeName.FLOAT, repetition).named(name),
+					fieldIndex, K_FLOAT, 0);
+		} else if (typeId == Type.ftDouble) {
+			return new FieldColumn(item, Types.primitive(PrimitiveTypeName.DOUBLE, repetition).named(name),
+					fieldIndex, K_DOUBLE, 0);
+		} else if (TypeManager.isNumeric(typeId) && ! TypeManager.hasFloatingDecimal(typeId)) {
+			int precision = getPrecision(item.getPicture(), fld);
+			if (precision <= scale) {
+				precision = scale + 1;
+			}
+			if (scale == 0 && TypeManager.isBinary(typeId) && precision <= 18) {
+				if (precision <= 9) {
+					return new FieldColumn(item, Types.primitive(PrimitiveTypeName.INT32, repetition).named(name),
+							fieldIndex, K_INT32, 0);
+				}
+				return new FieldColumn(item, Types.primitive(PrimitiveTypeName.INT64, repetition).named(name),
+						fieldIndex, K_INT64, 0);
+			} else if (precision <= 9) {
+				return new FieldColumn(item,
+						Types.primitive(PrimitiveTypeName.INT32, repetition)
+								.as(OriginalType.DECIMAL).precision(precision).scale(scale).named(name),
+						fieldIndex, K_DEC_INT32, scale);
+			} else if (precision <= 18) {
+				return new FieldColumn(item,
+						Types.primitive(PrimitiveTypeName.INT64, repetition)
+								.as(OriginalType.DECIMAL).precision(precision).scale(scale).named(name),
+						fieldIndex, K_DEC_INT64, scale);
+			}
+			FieldColumn col = new FieldColumn(item,
+					Types.primitive(PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY, repetition)
+							.length(bytesForPrecision(precision))
+							.as(OriginalType.DECIMAL).precision(precision).scale(scale).named(name),
+					fieldIndex, K_DEC_FIXED, scale);
+			col.fixedLength = bytesForPrecision(precision);
+			return col;
+		}
+
+		return new FieldColumn(item,
+				Types.primitive(PrimitiveTypeName.BINARY, repetition).as(OriginalType.UTF8).named(name),
+				fieldIndex, K_STRING, 0);
+	}
+
+	/**
+	 * Get the number of digits in a Cobol picture
+	 * @param picture Cobol picture
+	 * @param fld field definition (used when there is no picture)
+	 * @return number of digits
+	 */
+	static int getPrecision(String picture, IFieldDetail fld) {
+		int count = 0;
+		if (picture != null) {
+			String pic = picture.toUpperCase();
+			int len = pic.length();
+			for (int i = 0; i < len; i++) {
+				char c = pic.charAt(i);
+				if (c == '9' || c == 'Z' || c == 'P') {
+					int repeat = 1;
+					if (i + 1 < len && pic.charAt(i + 1) == '(') {
+						int end = pic.indexOf(')', i);
+						if (end > i) {
+							try {
+								repeat = Integer.parseInt(pic.substring(i + 2, end).trim());
+							} catch (NumberFormatException e) {
+							}
+							i = end;
+						}
+					}
+					count += repeat;
+				}
+			}
+		}
+		if (count == 0 && fld != null) {
+			int typeId = fld.getType();
+			if (TypeManager.isPackedDecimal(typeId)) {
+				count = fld.getLen() * 2 - 1;
+			} else if (TypeManager.isBinary(typeId)) {
+				count = fld.getLen() >= 8 ? 19 : (fld.getLen() >= 4 ? 10 : 5);
+			} else {
+				count = fld.getLen();
+			}
+		}
+		return Math.max(1, count);
+	}
+
+	private static int bytesForPrecision(int precision) {
+		int bytes = 1;
+		BigInteger max = BigInteger.TEN.pow(precision);
+		while (BigInteger.ONE.shiftLeft(8 * bytes - 1).compareTo(max) < 0) {
+			bytes += 1;
+		}
+		return bytes;
+	}
+
+	private void writeColumns(RecordConsumer rc, LineItemHelper l, List<Column> cols, int[] indexs) {
+		for (Column c : cols) {
+			c.write(rc, l, indexs);
+		}
+	}
+
+	private static int[] addIndex(int[] indexs, int index) {
+		int[] ret = new int[indexs.length + 1];
+		System.arraycopy(indexs, 0, ret, 0, indexs.length);
+		ret[indexs.length] = index;
+		return ret;
+	}
+
+	/**
+	 * Get the array elements that are to be written
+	 */
+	private static int[] getElementsToWrite(LineItemHelper l, IItem item, int[] indexs) {
+		int num = Math.min(l.getArrayCount(item, indexs), item.getOccurs());
+		int[] elements = new int[Math.max(0, num)];
+		int count = 0;
+
+		if (item.getArrayValidation() == null) {
+			for (int i = 0; i < num; i++) {
+				elements[count++] = i;
+			}
+		} else {
+			int[] checkIndexs = addIndex(indexs, 0);
+			for (int i = 0; i < num; i++) {
+				int id = l.checkArrayIndex(item, checkIndexs, i);
+				if (id == IArrayItemCheck.R_PROCESS) {
+					elements[count++] = i;
+				} else if (id == IArrayItemCheck.R_STOP) {
+					break;
+				}
+			}
+		}
+
+		if (count < elements.length) {
+			int[] t = new int[count];
+			System.arraycopy(elements, 0, t, 0, count);
+			elements = t;
+		}
+		return elements;
+	}
+
+	/**
+	 * Writes one Parquet field
+	 */
+	private abstract class Column {
+		final org.apache.parquet.schema.Type type;
+		final int fieldIndex;
+
+		Column(org.apache.parquet.schema.Type type, int fieldIndex) {
+			this.type = type;
+			this.fieldIndex = fieldIndex;
+		}
+
+		/**
+		 * Write the field (nothing is written for null values)
+		 */
+		abstract void write(RecordConsumer rc, LineItemHelper l, int[] indexs);
+	}
+
+	private class GroupColumn extends Column {
+		final List<Column> children;
+
+		GroupColumn(org.apache.parquet.schema.Type type, int fieldIndex, List<Column> children) {
+			super(type, fieldIndex);
+			this.children = children;
+		}
+
+		@Override
+		void write(RecordConsumer rc, LineItemHelper l, int[] indexs) {
+			rc.startField(type.getName(), fieldIndex);
+			rc.startGroup();
+			writeColumns(rc, l, children, indexs);
+			rc.endGroup();
+			rc.endField(type.getName(), fieldIndex);
+		}
+	}
+
+	private class FieldColumn extends Column {
+		final IItem item;
+		final int kind, scale;
+		final boolean checkString;
+		int fixedLength = 0;
+
+		FieldColumn(IItem item, org.apache.parquet.schema.Type type, int fieldIndex, int kind, int scale) {
+			super(type, fieldIndex);
+			this.item = item;
+			this.kind = kind;
+			this.scale = scale;
+			this.checkString = kind == K_STRING && ! skipValidation && item.isFieldRedefined();
+		}
+
+		@Override
+		void write(RecordConsumer rc, LineItemHelper l, int[] indexs) {
+			IFieldValue val;
+			String s = null;
+			try {
+				val = l.getFieldValue(item, indexs);
+				if (kind == K_STRING) {
+					if (val.isLowValues()
+					|| (s = val.asString()) == null
+					|| (checkString && ! isValidString(s))) {
+						return;
+					}
+				} else if (val.isLowValues() || val.isHighValues() || val.isSpaces()) {
+					return;
+				} else {
+					val.asBigDecimal();
+				}
+			} catch (Exception e) {
+				return;
+			}
+
+			rc.startField(type.getName(), fieldIndex);
+			switch (kind) {
+			case K_INT32:		rc.addInteger(val.asInt());					break;
+			case K_INT64:		rc.addLong(val.asLong());					break;
+			case K_FLOAT:		rc.addFloat(val.asFloat());					break;
+			case K_DOUBLE:		rc.addDouble(val.asDouble());				break;
+			case K_DEC_INT32:	rc.addInteger(unscaled(val).intValue());	break;
+			case K_DEC_INT64:	rc.addLong(unscaled(val).longValue());		break;
+			case K_DEC_FIXED:	rc.addBinary(Binary.fromConstantByteArray(toFixedBytes(unscaled(val))));	break;
+			default:			rc.addBinary(Binary.fromString(s));
+			}
+			rc.endField(type.getName(), fieldIndex);
+		}
+
+		private BigInteger unscaled(IFieldValue val) {
+			BigDecimal bd = val.asBigDecimal();
+			return bd.setScale(scale, BigDecimal.ROUND_HALF_UP).unscaledValue();
+		}
+
+		private byte[] toFixedBytes(BigInteger v) {
+			byte[] b = v.toByteArray();
+			byte[] ret = new byte[fixedLength];
+			int start = fixedLength - b.length;
+			if (v.signum() < 0) {
+				for (int i = 0; i < start; i++) {
+					ret[i] = (byte) 0xFF;
+				}
+			}
+			System.arraycopy(b, Math.max(0, -start), ret, Math.max(0, start), Math.min(b.length, fixedLength));
+			return ret;
+		}
+	}
+
+	/**
+	 * One element of a flattened array (Field_0, Field_1 ...)
+	 */
+	private class FlatElementColumn extends Column {
+		final IItem arrayItem;
+		final Column element;
+		final int index;
+
+		FlatElementColumn(IItem arrayItem, Column element, int index) {
+			super(element.type, element.fieldIndex);
+			this.arrayItem = arrayItem;
+			this.element = element;
+			this.index = index;
+		}
+
+		@Override
+		void write(RecordConsumer rc, LineItemHelper l, int[] indexs) {
+			if (index < l.getArrayCount(arrayItem, indexs)
+			&& (arrayItem.getArrayValidation() == null
+				|| l.checkArrayIndex(arrayItem, addIndex(indexs, 0), index) == IArrayItemCheck.R_PROCESS)) {
+				element.write(rc, l, addIndex(indexs, index));
+			}
+		}
+	}
+
+	/**
+	 * Cobol array written as a Parquet LIST
+	 */
+	private class ListColumn extends Column {
+		final IItem arrayItem;
+		final Column element;
+
+		ListColumn(IItem arrayItem, org.apache.parquet.schema.Type type, int fieldIndex, Column element) {
+			super(type, fieldIndex);
+			this.arrayItem = arrayItem;
+			this.element = element;
+		}
+
+		@Override
+		void write(RecordConsumer rc, LineItemHelper l, int[] indexs) {
+			int[] elements = getElementsToWrite(l, arrayItem, indexs);
+
+			rc.startField(type.getName(), fieldIndex);
+			rc.startGroup();
+			if (elements.length > 0) {
+				rc.startField("list", 0);
+				for (int i : elements) {
+					rc.startGroup();
+					element.write(rc, l, addIndex(indexs, i));
+					rc.endGroup();
+				}
+				rc.endField("list", 0);
+			}
+			rc.endGroup();
+			rc.endField(type.getName(), fieldIndex);
+		}
+	}
+
+	/**
+	 * Check that a redefined text field does not contain binary data
+	 */
+	private static boolean isValidString(String fl) {
+		for (int j = 0; j < fl.length(); j++) {
+			switch (Character.getType(fl.charAt(j))) {
+			case Character.CONTROL:
+			case Character.UNASSIGNED:
+			case Character.PRIVATE_USE:
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,176 @@
+package net.sf.JRecord.cbl2parquet.zTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+
+import net.sf.JRecord.JRecordInterface1;
+import net.sf.JRecord.Common.Constants;
+import net.sf.JRecord.Details.AbstractLine;
+import net.sf.JRecord.IO.AbstractLineReader;
+import net.sf.JRecord.cbl2parquet.Cobol2Parquet;
+import net.sf.JRecord.cbl2parquet.def.ICobol2Parquet;
+import net.sf.JRecord.cbl2parquet.impl.ParquetRecordSchema;
+import net.sf.JRecord.schema.CobolSchemaReader;
+import net.sf.JRecord.schema.jaxb.ItemRecordDtls;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TstCobol2Parquet {
+
+	private static final String ARRAY_COPYBOOK
+			= "        01  Array-Rec.\n"
+			+ "            03 Rec-Key        pic x(4).\n"
+			+ "            03 Amount         pic s9(5)v99 sign leading separate\n"
+			+ "                              occurs 3.\n";
+
+	private static final String ARRAY_DATA
+			= "K001+0000150-0000025        \n"
+			+ "K002+0000001+0000002+0000003\n";
+
+	@Test
+	public void testDtar020() throws IOException, JAXBException {
+		String copybookName = getFullName("DTAR020.cbl");
+		String dataName = getFullName("DTAR020.bin");
+		File out = File.createTempFile("DTAR020_", ".parquet");
+
+		Cobol2Parquet.newCobol2Parquet(copybookName)
+					.setFont("cp037")
+					.setFileOrganization(Constants.IO_FIXED_LENGTH)
+					.setDropCopybookNameFromFields(true)
+				.cobol2parquet(dataName, out.getPath());
+
+		List<Group> rows = readParquet(out);
+		MessageType schema = (MessageType) rows.get(0).getType();
+
+		assertEquals(OriginalType.DECIMAL, schema.getType("SALE-PRICE").getOriginalType());
+		assertEquals(PrimitiveTypeName.INT64, schema.getType("SALE-PRICE").asPrimitiveType().getPrimitiveTypeName());
+		assertEquals(11, schema.getType("SALE-PRICE").asPrimitiveType().getDecimalMetadata().getPrecision());
+		assertEquals(2, schema.getType("SALE-PRICE").asPrimitiveType().getDecimalMetadata().getScale());
+		assertEquals(PrimitiveTypeName.INT32, schema.getType("QTY-SOLD").asPrimitiveType().getPrimitiveTypeName());
+		assertEquals(OriginalType.UTF8,
+				schema.getType("KCODE-STORE-KEY").asGroupType().getType("KEYCODE-NO").getOriginalType());
+
+		AbstractLineReader r = JRecordInterface1.COBOL
+				.newIOBuilder(copybookName)
+					.setFont("cp037")
+					.setFileOrganization(Constants.IO_FIXED_LENGTH)
+					.setDropCopybookNameFromFields(true)
+				.newReader(dataName);
+		AbstractLine l;
+		int i = 0;
+		while ((l = r.read()) != null) {
+			Group row = rows.get(i++);
+			assertEquals(l.getFieldValue("KEYCODE-NO").asString(),
+					row.getGroup("KCODE-STORE-KEY", 0).getString("KEYCODE-NO", 0));
+			assertEquals(l.getFieldValue("SALE-PRICE").asBigDecimal(),
+					new BigDecimal(BigInteger.valueOf(row.getLong("SALE-PRICE", 0)), 2));
+			assertEquals(l.getFieldValue("QTY-SOLD").asInt(), row.getInteger("QTY-SOLD", 0));
+		}
+		r.close();
+		assertEquals(i, rows.size());
+
+		out.delete();
+	}
+
+	@Test
+	public void testFlattenedArray() throws IOException, JAXBException {
+		File out = File.createTempFile("ArrayFlat_", ".parquet");
+
+		newArrayConverter()
+				.cobol2parquet(new ByteArrayInputStream(ARRAY_DATA.getBytes()), out.getPath(), null);
+
+		List<Group> rows = readParquet(out);
+
+		assertEquals(2, rows.size());
+		assertEquals(150, rows.get(0).getInteger("Amount_0", 0));
+		assertEquals(-25, rows.get(0).getInteger("Amount_1", 0));
+		assertEquals(0, rows.get(0).getFieldRepetitionCount("Amount_2"));
+		assertEquals(3, rows.get(1).getInteger("Amount_2", 0));
+
+		out.delete();
+	}
+
+	@Test
+	public void testListArray() throws IOException, JAXBException {
+		File out = File.createTempFile("ArrayList_", ".parquet");
+
+		newArrayConverter()
+					.setArrayMode(ICobol2Parquet.ARRAY_LIST)
+					.setArrayCheck("Amount", Cobol2Parquet.ARRAY_CHECK_BUILDER.newStopAtSpaces())
+				.cobol2parquet(new ByteArrayInputStream(ARRAY_DATA.getBytes()), out.getPath(), null);
+
+		List<Group> rows = readParquet(out);
+
+		assertEquals(OriginalType.LIST, rows.get(0).getType().getType("Amount").getOriginalType());
+		Group list = rows.get(0).getGroup("Amount", 0);
+		assertEquals(2, list.getFieldRepetitionCount("list"));
+		assertEquals(-25, list.getGroup("list", 1).getInteger("element", 0));
+		assertEquals(3, rows.get(1).getGroup("Amount", 0).getFieldRepetitionCount("list"));
+
+		out.delete();
+	}
+
+	@Test
+	public void testSchema() throws IOException, JAXBException {
+		String copybook
+				= "        01  Rec.\n"
+				+ "            03 Big-Num        pic s9(20)v99 comp-3.\n"
+				+ "            03 Bin-Int        pic s9(4)     comp.\n"
+				+ "            03 Bin-Long       pic s9(12)    comp.\n"
+				+ "            03 Float-Num                    comp-1.\n"
+				+ "            03 Double-Num                   comp-2.\n"
+				+ "            03 Zoned          pic 9(3)v9.\n";
+		List<ItemRecordDtls> recordItems = ((CobolSchemaReader<?>) Cobol2Parquet
+				.newCobol2Parquet(new StringReader(copybook), "Rec"))
+				.getCobolSchemaDetails().recordItems;
+		MessageType schema = new ParquetRecordSchema("Rec", recordItems.get(0).items, ICobol2Parquet.ARRAY_FLATTEN, true)
+						.messageType;
+
+		assertEquals(PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY, schema.getType("Big-Num").asPrimitiveType().getPrimitiveTypeName());
+		assertEquals(22, schema.getType("Big-Num").asPrimitiveType().getDecimalMetadata().getPrecision());
+		assertEquals(PrimitiveTypeName.INT32, schema.getType("Bin-Int").asPrimitiveType().getPrimitiveTypeName());
+		assertEquals(null, schema.getType("Bin-Int").getOriginalType());
+		assertEquals(PrimitiveTypeName.INT64, schema.getType("Bin-Long").asPrimitiveType().getPrimitiveTypeName());
+		assertEquals(PrimitiveTypeName.FLOAT, schema.getType("Float-Num").asPrimitiveType().getPrimitiveTypeName());
+		assertEquals(PrimitiveTypeName.DOUBLE, schema.getType("Double-Num").asPrimitiveType().getPrimitiveTypeName());
+		assertEquals(OriginalType.DECIMAL, schema.getType("Zoned").getOriginalType());
+		assertEquals(4, schema.getType("Zoned").asPrimitiveType().getDecimalMetadata().getPrecision());
+	}
+
+	private ICobol2Parquet newArrayConverter() {
+		return Cobol2Parquet.newCobol2Parquet(new StringReader(ARRAY_COPYBOOK), "Array-Rec")
+					.setFileOrganization(Constants.IO_BIN_TEXT);
+	}
+
+	private static List<Group> readParquet(File f) throws IOException {
+		List<Group> rows = new ArrayList<Group>();
+		ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), new Path(f.getPath())).build();
+		Group g;
+		while ((g = reader.read()) != null) {
+			rows.add(g);
+		}
+		reader.close();
+		return rows;
+	}
+
+	private static String getFullName(String filename) {
+		return TstCobol2Parquet.class.getResource(filename).getFile();
+	}
+}
@@ -68,6 +68,8 @@ public class ArgumentOption {
 	public static final ArgumentOption TEMPLATE_STANDARD = stdTemplateArg("standard",  "Generate example code using JRecord IO Builders + Field Name Class");
 	public static final ArgumentOption TEMPLATE_POJO = stdTemplateArg("pojo",  "Generate pojo classes for each Cobol Record + IoBuilder");
 	public static final ArgumentOption TEMPLATE_POJO_INTERFACE = stdTemplateArg("pojoWithInterface",  "Generate pojo classes (with interfaces) for each Cobol Record + IoBuilder");
+	public static final ArgumentOption TEMPLATE_FLYWEIGHT = stdTemplateArg("flyweight",  "Generate flyweight classes that access the Cobol fields directly in a ByteBuffer");
+	public static final ArgumentOption TEMPLATE_BENCHMARK = stdTemplateArg("benchmark",  "Generate a JMH benchmark (plus synthetic data generator) comparing Line, Pojo and ReadFromBytes IO");
 
 	public static final ArgumentOption[] TEMPLATE_OPTIONS = {
 		TEMPLATE_STANDARD,
@@ -78,6 +80,8 @@ public class ArgumentOption {
 		TEMPLATE_POJO_INTERFACE,
 		TEMPLATE_JAVA_POJO,
 		TEMPLATE_BASIC,
+		TEMPLATE_FLYWEIGHT,
+		TEMPLATE_BENCHMARK,
 	};
 
 
@@ -159,6 +159,31 @@ public class ArrayDetails {
 		return b.toString();
 	}
 	
+	/**
+	 * Get a java expression for the offset of an array element
+	 * (as used by the flyweight template) i.e. <i>offset + idx1 * size1 + idx2 * size2</i> 
+	 * @return java expression for the offset of an array element
+	 */
+	public String getFlyweightOffset() {
+		ArrayList<FieldDef> fd = getFieldDefs();
+		int firstPos = getFirstFieldDef().getFieldDetail().getPos();
+		int[] elementSize = new int[sizes.length];
+		
+		for (FieldDef f : fd) {
+			ArrayElement ai = f.getArrayDetails();
+			if (ai.specialLevel < sizes.length) {
+				elementSize[ai.specialLevel] = f.getFieldDetail().getPos() - firstPos;
+			}
+		}
+		
+		StringBuilder b = new StringBuilder().append(firstPos - 1);
+		for (int i = 0; i < sizes.length; i++) {
+			if (sizes[i] > 0) {
+				b.append(" + idx").append(i + 1).append(" * ").append(elementSize[i]);
+			}
+		}
+		return b.toString();
+	}
 	
 	public String getZeroIndexParameters() {
 		StringBuilder b = new StringBuilder();
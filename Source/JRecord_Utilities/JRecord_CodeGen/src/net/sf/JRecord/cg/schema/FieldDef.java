@@ -27,6 +27,7 @@ package net.sf.JRecord.cg.schema;
 
 import net.sf.JRecord.Common.FieldDetail;
 import net.sf.JRecord.Common.IFieldDetail;
+import net.sf.JRecord.Types.Type;
 import net.sf.JRecord.Types.TypeManager;
 import net.sf.JRecord.cg.schema.classDefinitions.IClassDef;
 import net.sf.JRecord.cgen.support.Code2JRecordConstants;
@@ -44,6 +45,7 @@ public class FieldDef extends JavaDetails {
 	private String value = null;
 	public final boolean shortNumber;
 	public final IClassDef classDef;
+	private FlyweightAccess flyweight = null;
 	
 
 
@@ -164,6 +166,66 @@ public class FieldDef extends JavaDetails {
 		return ret;
 	}
 
+	/**
+	 * Get java code to create a random (synthetic) value for the field. 
+	 * It is used by the <b>benchmark</b> template to generate test data.
+	 * The values are always positive and small enough to fit in the field.
+	 * 
+	 * @param generator name of the variable / class that holds the random value methods
+	 * @return java expression or null if no value can be generated
+	 * (e.g. the field uses a conversion class).
+	 */
+	public final String getSampleValue(String generator) {
+		if (classDef != null) {
+			return null;
+		}
+		
+		if ("String".equals(javaType)) {
+			return generator + ".text(" + fieldDetail.getLen() + ")";
+		} else if ("double".equals(javaType) || "float".equals(javaType)) {
+			return "(" + javaType + ") " + generator + ".real()";
+		} else if ("BigDecimal".equals(javaType)) {
+			return generator + ".decimal(" + getSampleDigits(18) + ", " + fieldDetail.getDecimal() + ")";
+		} else if ("BigInteger".equals(javaType)) {
+			return generator + ".bigInteger(" + getSampleDigits(Integer.MAX_VALUE) + ")";
+		} else if ("short".equals(javaType)) {
+			return "(short) " + generator + ".number(" + getSampleDigits(4) + ")";
+		} else if ("int".equals(javaType)) {
+			return "(int) " + generator + ".number(" + getSampleDigits(9) + ")";
+		}
+		return generator + ".number(" + getSampleDigits(18) + ")";
+	}
+	
+	@SuppressWarnings("deprecation")
+	private int getSampleDigits(int max) {
+		int type = fieldDetail.getType();
+		int len = fieldDetail.getLen();
+		int digits;
+		
+		if (TypeManager.isPackedDecimal(type)) {
+			digits = len * 2 - 1;
+		} else if (TypeManager.isBinary(type)) {
+			digits = (int) ((len * 8 - 1) * Math.log10(2));
+		} else {
+			switch (type) {
+			case Type.ftZonedNumeric:
+			case Type.ftZonedEbcdicSmall:
+			case Type.ftZonedEbcdicSmallPositive:
+			case Type.ftZonedAsciiSmall:
+			case Type.ftGnuCblZonedNumeric:
+			case Type.ftFjZonedNumeric:
+			case Type.ftAssumedDecimalPositive:
+			case Type.ftNumZeroPaddedPositive:
+				digits = len;
+				break;
+			default:
+				digits = len - (fieldDetail.getDecimal() > 0 ? 2 : 1);
+			}
+		}
+		
+		return Math.max(1, Math.min(max, digits));
+	}
+
 	/**
 	 * @return the shortNumber
 	 */
@@ -171,6 +233,16 @@ public class FieldDef extends JavaDetails {
 		return shortNumber;
 	}
 
+	/**
+	 * @return code generation details for accessing the field in a flyweight class
+	 */
+	public FlyweightAccess getFlyweight() {
+		if (flyweight == null) {
+			flyweight = new FlyweightAccess(this);
+		}
+		return flyweight;
+	}
+
 	/**
 	 * @return the cobolItemDef
 	 */
@@ -0,0 +1,217 @@
+/*  -------------------------------------------------------------------------
+ *
+ *            Sub-Project: JRecord CodeGen
+ *
+ *    Sub-Project purpose: Generate Java - JRecord source code
+ *                        to read/write cobol data files.
+ *
+ *                 Author: Bruce Martin
+ *
+ *                License: GPL 3 or later
+ *
+ *    Copyright (c) 2016, Bruce Martin, All Rights Reserved.
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU General Public License
+ *    as published by the Free Software Foundation; either
+ *    version 3.0 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ * ------------------------------------------------------------------------ */
+
+package net.sf.JRecord.cg.schema;
+
+import net.sf.JRecord.Common.Conversion;
+import net.sf.JRecord.Common.IFieldDetail;
+import net.sf.JRecord.Types.Type;
+
+/**
+ * Generates the java code used by the <b>flyweight</b> template to access a field
+ * in a ByteBuffer (see net.sf.JRecord.cgen.impl.AbstractFlyweight).
+ * The access method (Text, Packed, Binary, Zoned or JRecord-Type) is decided
+ * at generation time.
+ *
+ * @author Bruce Martin
+ *
+ */
+public class FlyweightAccess {
+
+	private static final int ACCESS_TYPE  = 0;
+	private static final int ACCESS_TEXT  = 1;
+	private static final int ACCESS_PACKED = 2;
+	private static final int ACCESS_BINARY = 3;
+	private static final int ACCESS_ZONED  = 4;
+
+	private final FieldDef fieldDef;
+	private final IFieldDetail field;
+	private final String javaType;
+	private final int access;
+	private final boolean positive, bigEndian, signedZoned;
+
+	@SuppressWarnings("deprecation")
+	FlyweightAccess(FieldDef fieldDef) {
+		this.fieldDef = fieldDef;
+		this.field = fieldDef.getFieldDetail();
+		this.javaType = fieldDef.getRawJavaType();
+
+		int type = field.getType();
+		int len = field.getLen();
+		String font = field.getFontName();
+		boolean unscaledLong = "long".equals(javaType) || "int".equals(javaType) || "short".equals(javaType)
+				|| ("BigDecimal".equals(javaType) && field.getDecimal() > 0);
+		boolean pos = false, be = false, signed = false;
+		int acc = ACCESS_TYPE;
+
+		switch (type) {
+		case Type.ftChar:
+			if (Conversion.isSingleByte(font)) {
+				acc = ACCESS_TEXT;
+			}
+			break;
+		case Type.ftPackedDecimalPostive:
+		case Type.ftPackedDecimalSmallPostive:
+			pos = true;
+		case Type.ftPackedDecimal:
+		case Type.ftPackedDecimalSmall:
+			if (unscaledLong && len <= 9) {
+				acc = ACCESS_PACKED;
+			}
+			break;
+		case Type.ftPositiveBinaryBigEndian:
+		case Type.ftUIntBigEndianSmall:
+			pos = true;
+		case Type.ftBinaryBigEndian:
+		case Type.ftBinaryBigEndianPositive:
+		case Type.ftIntBigEndianSmall:
+		case Type.ftIntBigEndianPositive:
+			be = true;
+			if (unscaledLong && len <= (pos ? 7 : 8)) {
+				acc = ACCESS_BINARY;
+			}
+			break;
+		case Type.ftPostiveBinaryInt:
+		case Type.ftUIntSmall:
+			pos = true;
+		case Type.ftBinaryInt:
+		case Type.ftBinaryIntPositive:
+		case Type.ftIntSmall:
+		case Type.ftIntPositiveSmall:
+			if (unscaledLong && len <= (pos ? 7 : 8)) {
+				acc = ACCESS_BINARY;
+			}
+			break;
+		case Type.ftZonedNumeric:
+		case Type.ftZonedEbcdicSmall:
+			signed = true;
+			if (unscaledLong && len <= 18 && Conversion.isSingleByteEbcidic(font)) {
+				acc = ACCESS_ZONED;
+			}
+			break;
+		case Type.ftAssumedDecimalPositive:
+		case Type.ftNumZeroPaddedPositive:
+		case Type.ftZonedEbcdicSmallPositive:
+			if (unscaledLong && len <= 18 && Conversion.isSingleByte(font)) {
+				acc = ACCESS_ZONED;
+			}
+			break;
+		}
+		this.access = acc;
+		this.positive = pos;
+		this.bigEndian = be;
+		this.signedZoned = signed;
+	}
+
+	/**
+	 * @return wether the standard JRecord Type is used to access the field
+	 * (i.e. a FieldDetail needs to be generated for the field).
+	 */
+	public boolean isTypeAccess() {
+		return access == ACCESS_TYPE;
+	}
+
+	/**
+	 * @return name of the generated FieldDetail constant (used when the JRecord Type is used)
+	 */
+	public String getFieldConstant() {
+		JavaDetails name = fieldDef.isArrayItem() ? fieldDef.getArrayDetails() : fieldDef;
+		return "FLD_" + name.getConstantName();
+	}
+
+	/**
+	 * @return Java code to create the FieldDetail (at position 1) used when the JRecord Type is used
+	 */
+	public String getFieldDefinition() {
+		return "FieldDetail.newFixedWidthField(\"" + field.getName() + "\", " + fieldDef.getJRecordTypeId()
+			 + ", 1, " + field.getLen() + ", " + field.getDecimal() + ", \"" + field.getFontName() + "\")";
+	}
+
+	/**
+	 * @return offset (zero based) of the field in the record
+	 */
+	public int getOffset() {
+		return field.getPos() - 1;
+	}
+
+	/**
+	 * Get the Java expression to retrieve the field value
+	 * @param offset java expression for the field offset
+	 * @return java expression
+	 */
+	public String getGet(String offset) {
+		String len = Integer.toString(field.getLen());
+		String raw;
+		switch (access) {
+		case ACCESS_TEXT:		return "getText(" + offset + ", " + len + ")";
+		case ACCESS_PACKED:		raw = "getPacked(" + offset + ", " + len + ")";									break;
+		case ACCESS_BINARY:		raw = "getBinary(" + offset + ", " + len + ", " + bigEndian + ", " + positive + ")";	break;
+		case ACCESS_ZONED:		raw = "getZoned(" + offset + ", " + len + ", " + signedZoned + ")";				break;
+		default:
+			String value = "getValue(" + offset + ", " + getFieldConstant() + ")";
+			if ("String".equals(javaType)) {
+				return "asString(" + value + ")";
+			} else if ("BigDecimal".equals(javaType)) {
+				return "asBigDecimal(" + value + ")";
+			} else if ("BigInteger".equals(javaType)) {
+				return "asBigInteger(" + value + ")";
+			} else if ("double".equals(javaType)) {
+				return "asDouble(" + value + ")";
+			} else if ("float".equals(javaType)) {
+				return "(float) asDouble(" + value + ")";
+			} else if ("long".equals(javaType)) {
+				return "asLong(" + value + ")";
+			}
+			return "(" + javaType + ") asLong(" + value + ")";
+		}
+
+		if ("BigDecimal".equals(javaType)) {
+			return "BigDecimal.valueOf(" + raw + ", " + field.getDecimal() + ")";
+		} else if ("long".equals(javaType)) {
+			return raw;
+		}
+		return "(" + javaType + ") " + raw;
+	}
+
+	/**
+	 * Get the Java statement to update the field
+	 * @param offset java expression for the field offset
+	 * @param value java expression for the new value
+	 * @return java statement
+	 */
+	public String getSet(String offset, String value) {
+		String len = Integer.toString(field.getLen());
+		String unscaled = "BigDecimal".equals(javaType)
+				? "unscaled(" + value + ", " + field.getDecimal() + ")"
+				: value;
+		switch (access) {
+		case ACCESS_TEXT:	return "setText(" + offset + ", " + len + ", " + value + ");";
+		case ACCESS_PACKED:	return "setPacked(" + offset + ", " + len + ", " + unscaled + ", " + positive + ");";
+		case ACCESS_BINARY:	return "setBinary(" + offset + ", " + len + ", " + bigEndian + ", " + positive + ", " + unscaled + ");";
+		case ACCESS_ZONED:	return "setZoned(" + offset + ", " + len + ", " + unscaled + ", " + signedZoned + ");";
+		}
+		return "setValue(" + offset + ", " + getFieldConstant() + ", " + value + ");";
+	}
+}
@@ -488,6 +488,25 @@ public class RecordDef extends JavaDetails {
 		return shortNumber;
 	}
 
+	/**
+	 * @return the record length (end of the last field)
+	 */
+	public int getRecordLength() {
+		int len = 0;
+		for (int i = 0; i < record.getFieldCount(); i++) {
+			FieldDetail f = record.getField(i);
+			len = Math.max(len, f.getPos() + f.getLen() - 1);
+		}
+		return len;
+	}
+
+	/**
+	 * @return the character set (font) of the record
+	 */
+	public String getFontName() {
+		return record.getFieldCount() == 0 ? "" : record.getField(0).getFontName();
+	}
+
 	/**
 	 * @return the cobolItemDefs
 	 */